@@ -18,9 +18,11 @@
 
 package org.apache.skywalking.apm.collector.analysis.worker.model.base;
 
+import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.collector.core.data.QueueData;
 import org.apache.skywalking.apm.collector.core.module.ModuleManager;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.wait.ParkingWaitStrategy;
 
 /**
  * @author peng-yongsheng
@@ -29,6 +31,13 @@ public abstract class AbstractLocalAsyncWorkerProvider<INPUT extends QueueData,
 
     public abstract int queueSize();
 
+    /**
+     * The queue grows up to this size when the worker falls behind, and shrinks back to {@link #queueSize()} later.
+     */
+    public int maxQueueSize() {
+        return queueSize() * 4;
+    }
+
     public AbstractLocalAsyncWorkerProvider(ModuleManager moduleManager) {
         super(moduleManager);
     }
@@ -39,9 +48,12 @@ public abstract class AbstractLocalAsyncWorkerProvider<INPUT extends QueueData,
         workerCreateListener.addWorker(localAsyncWorker);
 
         LocalAsyncWorkerRef<INPUT, OUTPUT> localAsyncWorkerRef = new LocalAsyncWorkerRef<>(localAsyncWorker);
-        DataCarrier<INPUT> dataCarrier = new DataCarrier<>(1, queueSize());
+        DataCarrier<INPUT> dataCarrier = new DataCarrier<>(localAsyncWorker.getClass().getSimpleName(), 1, queueSize());
         localAsyncWorkerRef.setQueueEventHandler(dataCarrier);
-        dataCarrier.consume(localAsyncWorkerRef, 1);
+        dataCarrier.consume(localAsyncWorkerRef, 1, queueSize(), new ParkingWaitStrategy(TimeUnit.MILLISECONDS.toNanos(20)));
+        if (maxQueueSize() > queueSize()) {
+            dataCarrier.enableAdaptiveResize(maxQueueSize(), TimeUnit.SECONDS.toMillis(1));
+        }
         return localAsyncWorkerRef;
     }
 }
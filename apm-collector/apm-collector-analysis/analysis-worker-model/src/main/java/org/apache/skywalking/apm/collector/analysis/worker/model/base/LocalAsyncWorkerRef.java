@@ -18,21 +18,20 @@
 
 package org.apache.skywalking.apm.collector.analysis.worker.model.base;
 
-import java.util.Iterator;
-import java.util.List;
 import org.apache.skywalking.apm.collector.core.annotations.trace.BatchParameter;
 import org.apache.skywalking.apm.collector.core.data.QueueData;
 import org.apache.skywalking.apm.collector.core.graph.NodeProcessor;
 import org.apache.skywalking.apm.collector.core.queue.EndOfBatchContext;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
-import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.IBatchConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * @author peng-yongsheng
  */
-public class LocalAsyncWorkerRef<INPUT extends QueueData, OUTPUT extends QueueData> extends WorkerRef<INPUT, OUTPUT> implements IConsumer<INPUT> {
+public class LocalAsyncWorkerRef<INPUT extends QueueData, OUTPUT extends QueueData> extends WorkerRef<INPUT, OUTPUT> implements IBatchConsumer<INPUT> {
 
     private final Logger logger = LoggerFactory.getLogger(LocalAsyncWorkerRef.class);
 
@@ -47,14 +46,11 @@ public class LocalAsyncWorkerRef<INPUT extends QueueData, OUTPUT extends QueueDa
     }
 
     @Override
-    public void consume(@BatchParameter List<INPUT> data) {
-        Iterator<INPUT> inputIterator = data.iterator();
-
-        int i = 0;
-        while (inputIterator.hasNext()) {
-            INPUT input = inputIterator.next();
-            i++;
-            if (i == data.size()) {
+    public void consume(@BatchParameter Batch<INPUT> data) {
+        int size = data.size();
+        for (int i = 0; i < size; i++) {
+            INPUT input = data.get(i);
+            if (i == size - 1) {
                 input.getEndOfBatchContext().setEndOfBatch(true);
             }
             out(input);
@@ -64,7 +60,7 @@ public class LocalAsyncWorkerRef<INPUT extends QueueData, OUTPUT extends QueueDa
     @Override public void init() {
     }
 
-    @Override public void onError(List<INPUT> data, Throwable t) {
+    @Override public void onError(Batch<INPUT> data, Throwable t) {
         logger.error(t.getMessage(), t);
     }
 
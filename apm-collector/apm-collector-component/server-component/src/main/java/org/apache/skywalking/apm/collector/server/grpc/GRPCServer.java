@@ -19,6 +19,7 @@
 package org.apache.skywalking.apm.collector.server.grpc;
 
 import io.grpc.BindableService;
+import io.grpc.DecompressorRegistry;
 import io.grpc.ServerServiceDefinition;
 import io.grpc.netty.GrpcSslContexts;
 import io.grpc.netty.NettyServerBuilder;
@@ -30,6 +31,7 @@ import java.net.InetSocketAddress;
 import java.util.Objects;
 import org.apache.skywalking.apm.collector.server.Server;
 import org.apache.skywalking.apm.collector.server.ServerException;
+import org.apache.skywalking.apm.network.grpc.DeflateCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,7 +85,8 @@ public class GRPCServer implements Server {
     @Override
     public void initialize() throws ServerException {
         InetSocketAddress address = new InetSocketAddress(host, port);
-        nettyServerBuilder = NettyServerBuilder.forAddress(address);
+        nettyServerBuilder = NettyServerBuilder.forAddress(address)
+            .decompressorRegistry(DecompressorRegistry.getDefaultInstance().with(new DeflateCodec(), true));
         logger.info("Server started, host {} listening on {}", host, port);
     }
 
@@ -19,7 +19,7 @@
 package org.apache.skywalking.apm.collector.remote.grpc.service;
 
 import io.grpc.stub.StreamObserver;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.collector.client.grpc.GRPCClient;
 import org.apache.skywalking.apm.collector.remote.grpc.proto.Empty;
 import org.apache.skywalking.apm.collector.remote.grpc.proto.RemoteCommonServiceGrpc;
@@ -29,7 +29,10 @@ import org.apache.skywalking.apm.collector.remote.service.RemoteDataIDGetter;
 import org.apache.skywalking.apm.collector.remote.service.RemoteDataMappingIdNotFoundException;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
-import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.IBatchConsumer;
+import org.apache.skywalking.apm.commons.datacarrier.wait.ParkingWaitStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,9 +54,9 @@ public class GRPCRemoteClient implements RemoteClient {
         this.client = client;
         this.service = new GRPCRemoteSerializeService();
         this.remoteDataIDGetter = remoteDataIDGetter;
-        this.carrier = new DataCarrier<>(channelSize, bufferSize);
+        this.carrier = new DataCarrier<>("GRPCRemoteClient." + address, channelSize, bufferSize, BufferType.SEQUENCED_MULTI_PRODUCER);
         this.carrier.setBufferStrategy(BufferStrategy.BLOCKING);
-        this.carrier.consume(new RemoteMessageConsumer(), 1);
+        this.carrier.consume(new RemoteMessageConsumer(), 1, channelSize * bufferSize, new ParkingWaitStrategy(TimeUnit.MILLISECONDS.toNanos(20)));
     }
 
     @Override public final String getAddress() {
@@ -75,19 +78,19 @@ public class GRPCRemoteClient implements RemoteClient {
         }
     }
 
-    class RemoteMessageConsumer implements IConsumer<RemoteMessage> {
+    class RemoteMessageConsumer implements IBatchConsumer<RemoteMessage> {
         @Override public void init() {
         }
 
-        @Override public void consume(List<RemoteMessage> remoteMessages) {
+        @Override public void consume(Batch<RemoteMessage> remoteMessages) {
             StreamObserver<RemoteMessage> streamObserver = createStreamObserver();
-            for (RemoteMessage remoteMessage : remoteMessages) {
-                streamObserver.onNext(remoteMessage);
+            for (int i = 0; i < remoteMessages.size(); i++) {
+                streamObserver.onNext(remoteMessages.get(i));
             }
             streamObserver.onCompleted();
         }
 
-        @Override public void onError(List<RemoteMessage> remoteMessages, Throwable t) {
+        @Override public void onError(Batch<RemoteMessage> remoteMessages, Throwable t) {
             logger.error(t.getMessage(), t);
         }
 
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
+import org.apache.skywalking.apm.commons.datacarrier.partition.ProducerThreadPartitioner;
+import org.apache.skywalking.apm.commons.datacarrier.partition.SimpleRollingPartitioner;
+import org.apache.skywalking.apm.commons.datacarrier.spill.SpillFile;
+import org.apache.skywalking.apm.commons.datacarrier.wait.ParkingWaitStrategy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Produce throughput and latency of {@link DataCarrier}, with 1, 4 and 16 producer threads, for every {@link
+ * BufferType} usable by multiple producers, every {@link BufferStrategy} and every partitioner. One batch consumer
+ * drains the carrier in the background, as the agent and collector do.
+ *
+ * <code>saved</code> and <code>dropped</code> counters tell how much of the throughput really reached the buffer, which
+ * matters for {@link BufferStrategy#IF_POSSIBLE}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataCarrierBenchmark {
+    private static final Long DATA = 1L;
+
+    @Param({"ARRAY", "SEQUENCED_MULTI_PRODUCER"})
+    public BufferType bufferType;
+
+    @Param({"BLOCKING", "OVERRIDE", "IF_POSSIBLE", "SPILL"})
+    public BufferStrategy strategy;
+
+    @Param({"SIMPLE_ROLLING", "PRODUCER_THREAD"})
+    public String partitioner;
+
+    @Param({"5"})
+    public int channelSize;
+
+    @Param({"300"})
+    public int bufferSize;
+
+    private DataCarrier<Long> carrier;
+    private File spillFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        carrier = new DataCarrier<Long>("DataCarrierBenchmark", channelSize, bufferSize, bufferType);
+        carrier.setBufferStrategy(strategy);
+        if ("PRODUCER_THREAD".equals(partitioner)) {
+            carrier.setPartitioner(new ProducerThreadPartitioner<Long>());
+        } else {
+            carrier.setPartitioner(new SimpleRollingPartitioner<Long>());
+        }
+        if (strategy == BufferStrategy.SPILL) {
+            spillFile = File.createTempFile("datacarrier-benchmark", ".spill");
+            carrier.setSpillFile(new SpillFile<Long>(spillFile, 64 * 1024 * 1024, new LongSpillSerializer()));
+        }
+        carrier.consume(new CountingBatchConsumer<Long>(), 1, channelSize * bufferSize, new ParkingWaitStrategy(TimeUnit.MILLISECONDS.toNanos(20)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        carrier.shutdownConsumers();
+        if (spillFile != null) {
+            spillFile.delete();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean produceWith1Producer(ProduceCounters counters) {
+        return produce(counters);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean produceWith4Producers(ProduceCounters counters) {
+        return produce(counters);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean produceWith16Producers(ProduceCounters counters) {
+        return produce(counters);
+    }
+
+    private boolean produce(ProduceCounters counters) {
+        if (carrier.produce(DATA)) {
+            counters.saved++;
+            return true;
+        }
+        counters.dropped++;
+        return false;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ProduceCounters {
+        public long saved;
+        public long dropped;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            saved = 0;
+            dropped = 0;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.benchmark;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
+import org.apache.skywalking.apm.commons.datacarrier.wait.ParkingWaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link DataCarrier} against {@link ArrayBlockingQueue} and the LMAX Disruptor, as used by the agent's
+ * <code>FileWriter</code>, all blocking when full, with the same capacity and one consumer thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueComparisonBenchmark {
+    private static final Long DATA = 1L;
+
+    @Param({"DATA_CARRIER_ARRAY", "DATA_CARRIER_SEQUENCED", "ARRAY_BLOCKING_QUEUE", "DISRUPTOR"})
+    public String queue;
+
+    @Param({"1024"})
+    public int capacity;
+
+    private Target target;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("DATA_CARRIER_ARRAY".equals(queue)) {
+            target = new DataCarrierTarget(capacity, BufferType.ARRAY);
+        } else if ("DATA_CARRIER_SEQUENCED".equals(queue)) {
+            target = new DataCarrierTarget(capacity, BufferType.SEQUENCED_MULTI_PRODUCER);
+        } else if ("ARRAY_BLOCKING_QUEUE".equals(queue)) {
+            target = new ArrayBlockingQueueTarget(capacity);
+        } else {
+            target = new DisruptorTarget(capacity);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        target.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void produceWith1Producer() throws InterruptedException {
+        target.produce(DATA);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void produceWith4Producers() throws InterruptedException {
+        target.produce(DATA);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void produceWith16Producers() throws InterruptedException {
+        target.produce(DATA);
+    }
+
+    private interface Target {
+        void produce(Long data) throws InterruptedException;
+
+        void close() throws InterruptedException;
+    }
+
+    private static class DataCarrierTarget implements Target {
+        private final DataCarrier<Long> carrier;
+
+        private DataCarrierTarget(int capacity, BufferType bufferType) {
+            carrier = new DataCarrier<Long>("QueueComparisonBenchmark", 1, capacity, bufferType);
+            carrier.setBufferStrategy(BufferStrategy.BLOCKING);
+            carrier.consume(new CountingBatchConsumer<Long>(), 1, capacity, new ParkingWaitStrategy(TimeUnit.MILLISECONDS.toNanos(20)));
+        }
+
+        @Override
+        public void produce(Long data) {
+            carrier.produce(data);
+        }
+
+        @Override
+        public void close() {
+            carrier.shutdownConsumers();
+        }
+    }
+
+    private static class ArrayBlockingQueueTarget implements Target {
+        private final ArrayBlockingQueue<Long> queue;
+        private final Thread consumer;
+        private volatile boolean running = true;
+        private long consumed;
+
+        private ArrayBlockingQueueTarget(int capacity) {
+            queue = new ArrayBlockingQueue<Long>(capacity);
+            consumer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    List<Long> drained = new ArrayList<Long>(queue.remainingCapacity());
+                    while (running) {
+                        try {
+                            if (queue.poll(20, TimeUnit.MILLISECONDS) != null) {
+                                queue.drainTo(drained);
+                                consumed += drained.size() + 1;
+                                drained.clear();
+                            }
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }, "ArrayBlockingQueueConsumer");
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+
+        @Override
+        public void produce(Long data) throws InterruptedException {
+            queue.put(data);
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            running = false;
+            consumer.join();
+        }
+    }
+
+    private static class DisruptorTarget implements Target, EventHandler<DisruptorTarget.Holder> {
+        private static final EventTranslatorOneArg<Holder, Long> TRANSLATOR = new EventTranslatorOneArg<Holder, Long>() {
+            @Override
+            public void translateTo(Holder event, long sequence, Long data) {
+                event.data = data;
+            }
+        };
+
+        private final Disruptor<Holder> disruptor;
+        private final RingBuffer<Holder> buffer;
+        private long consumed;
+
+        private DisruptorTarget(int capacity) {
+            disruptor = new Disruptor<Holder>(new EventFactory<Holder>() {
+                @Override
+                public Holder newInstance() {
+                    return new Holder();
+                }
+            }, capacity, DaemonThreadFactory.INSTANCE);
+            disruptor.handleEventsWith(this);
+            buffer = disruptor.getRingBuffer();
+            disruptor.start();
+        }
+
+        @Override
+        public void onEvent(Holder event, long sequence, boolean endOfBatch) {
+            consumed++;
+            event.data = null;
+        }
+
+        @Override
+        public void produce(Long data) {
+            buffer.publishEvent(TRANSLATOR, data);
+        }
+
+        @Override
+        public void close() {
+            disruptor.shutdown();
+        }
+
+        private static class Holder {
+            private Long data;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.commons.datacarrier.monitor.DataCarrierMetrics;
+
+/**
+ * Check the counters of a {@link DataCarrier} periodically, double the buffer size when data has been dropped or
+ * producers have been blocked since the last check, up to the max size. Halve it when there is no pressure, and the
+ * depth keeps under a quarter of the capacity for {@link #SHRINK_AFTER_CHECKS} checks, down to the min size.
+ *
+ * All resizers share one daemon thread.
+ */
+class AdaptiveResizer<T> implements Runnable {
+    static final int SHRINK_AFTER_CHECKS = 10;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "DataCarrier.AdaptiveResizer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final DataCarrier<T> carrier;
+    private final int minBufferSize;
+    private final int maxBufferSize;
+    private long lastDropped;
+    private long lastBlockedNanos;
+    private int idleChecks;
+    private volatile ScheduledFuture<?> future;
+
+    AdaptiveResizer(DataCarrier<T> carrier, int minBufferSize, int maxBufferSize) {
+        this.carrier = carrier;
+        this.minBufferSize = minBufferSize;
+        this.maxBufferSize = Math.max(minBufferSize, maxBufferSize);
+        DataCarrierMetrics metrics = carrier.getMetrics();
+        lastDropped = metrics.getDropped();
+        lastBlockedNanos = metrics.getBlockedNanos();
+        idleChecks = 0;
+    }
+
+    void start(long checkPeriod) {
+        future = SCHEDULER.scheduleWithFixedDelay(this, checkPeriod, checkPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        ScheduledFuture<?> scheduled = future;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            check();
+        } catch (Throwable t) {
+            // keep checking in the next period.
+        }
+    }
+
+    /**
+     * @return the buffer size after this check.
+     */
+    synchronized int check() {
+        DataCarrierMetrics metrics = carrier.getMetrics();
+        long dropped = metrics.getDropped();
+        long blockedNanos = metrics.getBlockedNanos();
+        boolean pressed = dropped > lastDropped || blockedNanos > lastBlockedNanos;
+        lastDropped = dropped;
+        lastBlockedNanos = blockedNanos;
+
+        int bufferSize = carrier.getBufferSize();
+        int channelSize = carrier.getChannelSize();
+        if (pressed) {
+            idleChecks = 0;
+            int newBufferSize = (int)Math.min((long)bufferSize * 2, maxBufferSize);
+            if (newBufferSize > bufferSize) {
+                carrier.resize(channelSize, newBufferSize);
+                return newBufferSize;
+            }
+            return bufferSize;
+        }
+
+        if (metrics.getDepth() * 4 <= (long)channelSize * bufferSize) {
+            idleChecks++;
+        } else {
+            idleChecks = 0;
+        }
+        if (idleChecks >= SHRINK_AFTER_CHECKS && bufferSize > minBufferSize) {
+            idleChecks = 0;
+            int newBufferSize = Math.max(bufferSize / 2, minBufferSize);
+            carrier.resize(channelSize, newBufferSize);
+            return newBufferSize;
+        }
+        return bufferSize;
+    }
+}
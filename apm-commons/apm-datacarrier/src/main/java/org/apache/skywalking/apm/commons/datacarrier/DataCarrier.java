@@ -18,26 +18,67 @@
 
 package org.apache.skywalking.apm.commons.datacarrier;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.Buffer;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPool;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPoolMode;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.IBatchConsumer;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.apache.skywalking.apm.commons.datacarrier.monitor.DataCarrierMetrics;
+import org.apache.skywalking.apm.commons.datacarrier.monitor.DataCarrierRegistry;
 import org.apache.skywalking.apm.commons.datacarrier.partition.IDataPartitioner;
 import org.apache.skywalking.apm.commons.datacarrier.partition.SimpleRollingPartitioner;
+import org.apache.skywalking.apm.commons.datacarrier.spill.SpillFile;
+import org.apache.skywalking.apm.commons.datacarrier.wait.IWaitStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.wait.SleepWaitStrategy;
 
 /**
  * DataCarrier main class. use this instance to set Producer/Consumer Model.
  */
 public class DataCarrier<T> {
-    private final int bufferSize;
-    private final int channelSize;
+    private static final AtomicInteger UNNAMED_SEQUENCE = new AtomicInteger(0);
+
+    private volatile int bufferSize;
+    private volatile int channelSize;
+    private final String name;
     private Channels<T> channels;
     private ConsumerPool<T> consumerPool;
+    private ConsumerPoolMode consumerPoolMode = ConsumerPoolMode.STATIC;
+    private AdaptiveResizer<T> adaptiveResizer;
 
     public DataCarrier(int channelSize, int bufferSize) {
+        this(channelSize, bufferSize, BufferType.ARRAY);
+    }
+
+    /**
+     * @param bufferType the implementation of each channel, see {@link BufferType}
+     */
+    public DataCarrier(int channelSize, int bufferSize, BufferType bufferType) {
+        this("DataCarrier-" + UNNAMED_SEQUENCE.incrementAndGet(), channelSize, bufferSize, bufferType);
+    }
+
+    /**
+     * @param name to identify this carrier in {@link DataCarrierRegistry}, such as the owner class.
+     */
+    public DataCarrier(String name, int channelSize, int bufferSize) {
+        this(name, channelSize, bufferSize, BufferType.ARRAY);
+    }
+
+    /**
+     * @param name to identify this carrier in {@link DataCarrierRegistry}
+     * @param bufferType the implementation of each channel, see {@link BufferType}
+     */
+    public DataCarrier(String name, int channelSize, int bufferSize, BufferType bufferType) {
+        this.name = name;
         this.bufferSize = bufferSize;
         this.channelSize = channelSize;
-        channels = new Channels<T>(channelSize, bufferSize, new SimpleRollingPartitioner<T>(), BufferStrategy.BLOCKING);
+        channels = new Channels<T>(channelSize, bufferSize, new SimpleRollingPartitioner<T>(), BufferStrategy.BLOCKING, bufferType);
+        DataCarrierRegistry.INSTANCE.register(name, channels);
     }
 
     /**
@@ -61,6 +102,30 @@ public class DataCarrier<T> {
         return this;
     }
 
+    /**
+     * set the file keeping data which can't be saved into channels, works with {@link BufferStrategy#SPILL}. All
+     * channels share this file, consumer threads replay it after their channels drained.
+     *
+     * @param spillFile
+     * @return DataCarrier instance for chain
+     */
+    public DataCarrier setSpillFile(SpillFile<T> spillFile) {
+        this.channels.setSpillFile(spillFile);
+        return this;
+    }
+
+    /**
+     * set how channels are allocated to consumer threads, works at the next {@link DataCarrier#consume}. Default is
+     * {@link ConsumerPoolMode#STATIC}
+     *
+     * @param consumerPoolMode see {@link ConsumerPoolMode}
+     * @return DataCarrier instance for chain
+     */
+    public DataCarrier setConsumerPoolMode(ConsumerPoolMode consumerPoolMode) {
+        this.consumerPoolMode = consumerPoolMode;
+        return this;
+    }
+
     public BlockingDataCarrier<T> toBlockingDataCarrier() {
         this.channels.setStrategy(BufferStrategy.BLOCKING);
         return new BlockingDataCarrier<T>(this.channels);
@@ -82,6 +147,38 @@ public class DataCarrier<T> {
         return this.channels.save(data);
     }
 
+    /**
+     * produce data[offset, offset + length) to buffer, using the given {@link BufferStrategy}. Data is saved in chunks,
+     * each chunk claims its slots in one atomic operation and goes to one channel.
+     *
+     * @return the number of data saved, others will not be consumed.
+     */
+    public int produce(T[] data, int offset, int length) {
+        if (consumerPool != null) {
+            if (!consumerPool.isRunning()) {
+                return 0;
+            }
+        }
+
+        return this.channels.save(Arrays.asList(data), offset, length);
+    }
+
+    /**
+     * produce all data to buffer, see {@link #produce(Object[], int, int)}. The data is read by index into the claimed
+     * slots, without copying, so a {@link java.util.RandomAccess} list such as {@link java.util.ArrayList} is expected.
+     *
+     * @return the number of data saved, others will not be consumed.
+     */
+    public int produce(List<T> data) {
+        if (consumerPool != null) {
+            if (!consumerPool.isRunning()) {
+                return 0;
+            }
+        }
+
+        return this.channels.save(data, 0, data.size());
+    }
+
     /**
      * set consumers to this Carrier. consumer begin to run when {@link DataCarrier#produce} begin to work.
      *
@@ -89,12 +186,7 @@ public class DataCarrier<T> {
      * @param num number of consumer threads
      */
     public DataCarrier consume(Class<? extends IConsumer<T>> consumerClass, int num, long consumeCycle) {
-        if (consumerPool != null) {
-            consumerPool.close();
-        }
-        consumerPool = new ConsumerPool<T>(this.channels, consumerClass, num, consumeCycle);
-        consumerPool.begin();
-        return this;
+        return this.consume(consumerClass, num, new SleepWaitStrategy(consumeCycle));
     }
 
     /**
@@ -108,6 +200,17 @@ public class DataCarrier<T> {
         return this.consume(consumerClass, num, 20);
     }
 
+    /**
+     * set consumers to this Carrier. consumer begin to run when {@link DataCarrier#produce} begin to work.
+     *
+     * @param consumerClass class of consumer
+     * @param num number of consumer threads
+     * @param waitStrategy how consumer threads wait when no data, shared by all consumer threads.
+     */
+    public DataCarrier consume(Class<? extends IConsumer<T>> consumerClass, int num, IWaitStrategy waitStrategy) {
+        return this.consume(new ConsumerPool<T>(this.channels, consumerClass, num, waitStrategy));
+    }
+
     /**
      * set consumers to this Carrier. consumer begin to run when {@link DataCarrier#produce} begin to work.
      *
@@ -116,12 +219,7 @@ public class DataCarrier<T> {
      * @return
      */
     public DataCarrier consume(IConsumer<T> consumer, int num, long consumeCycle) {
-        if (consumerPool != null) {
-            consumerPool.close();
-        }
-        consumerPool = new ConsumerPool<T>(this.channels, consumer, num, consumeCycle);
-        consumerPool.begin();
-        return this;
+        return this.consume(consumer, num, new SleepWaitStrategy(consumeCycle));
     }
 
     /**
@@ -136,14 +234,157 @@ public class DataCarrier<T> {
         return this.consume(consumer, num, 20);
     }
 
+    /**
+     * set consumers to this Carrier. consumer begin to run when {@link DataCarrier#produce} begin to work.
+     *
+     * @param consumer single instance of consumer, all consumer threads will all use this instance.
+     * @param num number of consumer threads
+     * @param waitStrategy how consumer threads wait when no data, shared by all consumer threads.
+     * @return
+     */
+    public DataCarrier consume(IConsumer<T> consumer, int num, IWaitStrategy waitStrategy) {
+        return this.consume(new ConsumerPool<T>(this.channels, consumer, num, waitStrategy));
+    }
+
+    /**
+     * set consumers to this Carrier. consumer begin to run when {@link DataCarrier#produce} begin to work. Each consumer
+     * thread drains into its own reusable {@link org.apache.skywalking.apm.commons.datacarrier.common.Batch}, no list
+     * is allocated in the hand-off.
+     *
+     * @param consumer single instance of consumer, all consumer threads will all use this instance.
+     * @param num number of consumer threads
+     * @param maxBatchSize the max number of data in one {@link IBatchConsumer#consume} call. Less or equal 0, means all
+     * data of the buffers allocated to the consumer thread.
+     * @param waitStrategy how consumer threads wait when no data, shared by all consumer threads.
+     * @return
+     */
+    public DataCarrier consume(IBatchConsumer<T> consumer, int num, int maxBatchSize, IWaitStrategy waitStrategy) {
+        return this.consume(new ConsumerPool<T>(this.channels, consumer, num, maxBatchSize, waitStrategy));
+    }
+
+    /**
+     * set consumers to this Carrier, with 20 millis consume cycle. See {@link #consume(IBatchConsumer, int, int,
+     * IWaitStrategy)}
+     *
+     * @param consumer single instance of consumer, all consumer threads will all use this instance.
+     * @param num number of consumer threads
+     * @param maxBatchSize the max number of data in one {@link IBatchConsumer#consume} call.
+     * @return
+     */
+    public DataCarrier consume(IBatchConsumer<T> consumer, int num, int maxBatchSize) {
+        return this.consume(consumer, num, maxBatchSize, new SleepWaitStrategy(20));
+    }
+
+    private synchronized DataCarrier consume(ConsumerPool<T> newConsumerPool) {
+        if (consumerPool != null) {
+            consumerPool.close();
+        }
+        consumerPool = newConsumerPool.setMode(consumerPoolMode);
+        consumerPool.begin();
+        return this;
+    }
+
+    /**
+     * change the number of channels and the size of each channel at runtime. Producers move to the new channels at
+     * once, data in the old channels is still consumed by the running consumers, or moved into the new channels when no
+     * consumer is running. The counters of the old channels are kept in {@link #getMetrics()}, so they never go back.
+     *
+     * @param channelSize
+     * @param bufferSize
+     * @return DataCarrier instance for chain
+     */
+    public synchronized DataCarrier resize(int channelSize, int bufferSize) {
+        if (channelSize == this.channelSize && bufferSize == this.bufferSize) {
+            return this;
+        }
+        Buffer<T>[] retired = this.channels.resize(channelSize, bufferSize);
+        this.channelSize = channelSize;
+        this.bufferSize = bufferSize;
+        ConsumerPool<T> pool = this.consumerPool;
+        if (pool != null && pool.isRunning()) {
+            pool.reallocate();
+        } else {
+            this.channels.migrate(retired);
+        }
+        return this;
+    }
+
+    /**
+     * grow the channels when data is dropped or producers are blocked, and shrink back when the load goes down. See
+     * {@link AdaptiveResizer}. Channel number doesn't change.
+     *
+     * @param maxBufferSize the buffer size grows up to, the size at creating is the minimum.
+     * @param checkPeriod milliseconds between two checks.
+     * @return DataCarrier instance for chain
+     */
+    public synchronized DataCarrier enableAdaptiveResize(int maxBufferSize, long checkPeriod) {
+        if (adaptiveResizer != null) {
+            adaptiveResizer.stop();
+        }
+        adaptiveResizer = new AdaptiveResizer<T>(this, bufferSize, maxBufferSize);
+        adaptiveResizer.start(checkPeriod);
+        return this;
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    int getChannelSize() {
+        return channelSize;
+    }
+
+    /**
+     * @return a snapshot of the counters of this carrier.
+     */
+    public DataCarrierMetrics getMetrics() {
+        return DataCarrierRegistry.snapshot(name, channels);
+    }
+
     /**
      * shutdown all consumer threads, if consumer threads are running. Notice {@link BufferStrategy}: if {@link
      * BufferStrategy} == {@link BufferStrategy#BLOCKING}, shutdown consumers maybe cause blocking when producing.
-     * Better way to change consumers are use {@link DataCarrier#consume}
+     * Better way to change consumers are use {@link DataCarrier#consume}. The {@link SpillFile} is closed too, the data
+     * left in it is dropped.
      */
     public void shutdownConsumers() {
+        stopAdaptiveResize();
         if (consumerPool != null) {
             consumerPool.close();
         }
+        closeSpillFile();
+    }
+
+    /**
+     * Same as {@link #shutdownConsumers()}, but wait for the consumer threads to consume the data left and exit, before
+     * the {@link SpillFile} is closed.
+     *
+     * @param maxTimeout max wait time, milliseconds.
+     * @return true, if all consumer threads have exited.
+     */
+    public boolean shutdownConsumers(long maxTimeout) throws InterruptedException {
+        stopAdaptiveResize();
+        boolean terminated = true;
+        if (consumerPool != null) {
+            consumerPool.close();
+            terminated = consumerPool.awaitTermination(maxTimeout);
+        }
+        closeSpillFile();
+        return terminated;
+    }
+
+    private synchronized void stopAdaptiveResize() {
+        if (adaptiveResizer != null) {
+            adaptiveResizer.stop();
+            adaptiveResizer = null;
+        }
+    }
+
+    private void closeSpillFile() {
+        SpillFile<T> spillFile = channels.getSpillFile();
+        if (spillFile != null) {
+            channels.setSpillFile(null);
+            spillFile.close();
+        }
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.List;
+import org.apache.skywalking.apm.commons.datacarrier.common.AtomicRangeInteger;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+
+/**
+ * The default {@link Buffer}, a slot is free when it is null.
+ *
+ * Created by wusheng on 2016/10/25.
+ */
+public class ArrayBuffer<T> extends Buffer<T> {
+    private final Object[] buffer;
+    private AtomicRangeInteger index;
+
+    ArrayBuffer(int bufferSize, BufferStrategy strategy) {
+        super(strategy);
+        buffer = new Object[bufferSize];
+        index = new AtomicRangeInteger(0, bufferSize);
+    }
+
+    @Override
+    boolean save(T data) {
+        return saveAt(index.getAndIncrement(), data);
+    }
+
+    @Override
+    int save(List<T> data, int offset, int length) {
+        int first = index.getAndAdd(length);
+        int saved = 0;
+        for (int i = 0; i < length; i++) {
+            if (saveAt((first + i) % buffer.length, data.get(offset + i))) {
+                saved++;
+            }
+        }
+        return saved;
+    }
+
+    private boolean saveAt(int i, T data) {
+        if (buffer[i] != null) {
+            switch (strategy) {
+                case BLOCKING:
+                    long blockingStart = System.nanoTime();
+                    boolean isFirstTimeBlocking = true;
+                    while (buffer[i] != null) {
+                        if (isFirstTimeBlocking) {
+                            isFirstTimeBlocking = false;
+                            notifyBlocking(data);
+                        }
+                        try {
+                            Thread.sleep(1L);
+                        } catch (InterruptedException e) {
+                        }
+                    }
+                    onBlocked(System.nanoTime() - blockingStart);
+                    break;
+                case IF_POSSIBLE:
+                    return false;
+                case SPILL:
+                    return spill(data);
+                case OVERRIDE:
+                default:
+                    onOverridden();
+            }
+        }
+        buffer[i] = data;
+        return true;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return buffer.length;
+    }
+
+    @Override
+    protected void drain(int start, int end, Batch<T> batch) {
+        for (int i = start; i < end && !batch.isFull(); i++) {
+            if (buffer[i] != null) {
+                batch.add((T)buffer[i]);
+                buffer[i] = null;
+            }
+        }
+    }
+
+}
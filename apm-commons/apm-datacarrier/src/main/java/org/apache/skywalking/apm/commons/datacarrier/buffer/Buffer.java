@@ -20,23 +20,58 @@ package org.apache.skywalking.apm.commons.datacarrier.buffer;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.skywalking.apm.commons.datacarrier.callback.QueueBlockingCallback;
-import org.apache.skywalking.apm.commons.datacarrier.common.AtomicRangeInteger;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.apache.skywalking.apm.commons.datacarrier.spill.SpillFile;
+import org.apache.skywalking.apm.commons.datacarrier.wait.IWaitStrategy;
 
 /**
+ * Buffer is a single channel of {@link Channels}. The implementation is chosen by {@link BufferType}.
+ *
  * Created by wusheng on 2016/10/25.
  */
-public class Buffer<T> {
-    private final Object[] buffer;
-    private BufferStrategy strategy;
-    private AtomicRangeInteger index;
-    private List<QueueBlockingCallback<T>> callbacks;
-
-    Buffer(int bufferSize, BufferStrategy strategy) {
-        buffer = new Object[bufferSize];
+public abstract class Buffer<T> {
+    protected BufferStrategy strategy;
+    protected List<QueueBlockingCallback<T>> callbacks;
+    private volatile IWaitStrategy waitStrategy;
+    private volatile SpillFile<T> spillFile;
+    /**
+     * Updated in every saving, by all producers of the channel, see {@link StripedCounter}.
+     */
+    private final StripedCounter producedCount;
+    private final StripedCounter droppedCount;
+    private final StripedCounter overriddenCount;
+    private final StripedCounter producing;
+    /**
+     * Updated once in each batch obtained, or only in blocking.
+     */
+    private final AtomicLong consumedCount;
+    private final AtomicLong blockedNanos;
+    private volatile boolean retired;
+
+    Buffer(BufferStrategy strategy) {
         this.strategy = strategy;
-        index = new AtomicRangeInteger(0, bufferSize);
         callbacks = new LinkedList<QueueBlockingCallback<T>>();
+        producedCount = new StripedCounter();
+        droppedCount = new StripedCounter();
+        overriddenCount = new StripedCounter();
+        producing = new StripedCounter();
+        consumedCount = new AtomicLong(0);
+        blockedNanos = new AtomicLong(0);
+        retired = false;
+    }
+
+    static <T> Buffer<T> newBuffer(BufferType type, int bufferSize, BufferStrategy strategy) {
+        switch (type) {
+            case SEQUENCED_SINGLE_PRODUCER:
+                return new SingleProducerSequencedBuffer<T>(bufferSize, strategy);
+            case SEQUENCED_MULTI_PRODUCER:
+                return new MultiProducerSequencedBuffer<T>(bufferSize, strategy);
+            case ARRAY:
+            default:
+                return new ArrayBuffer<T>(bufferSize, strategy);
+        }
     }
 
     void setStrategy(BufferStrategy strategy) {
@@ -47,48 +82,188 @@ public class Buffer<T> {
         callbacks.add(callback);
     }
 
-    boolean save(T data) {
-        int i = index.getAndIncrement();
-        if (buffer[i] != null) {
-            switch (strategy) {
-                case BLOCKING:
-                    boolean isFirstTimeBlocking = true;
-                    while (buffer[i] != null) {
-                        if (isFirstTimeBlocking) {
-                            isFirstTimeBlocking = false;
-                            for (QueueBlockingCallback<T> callback : callbacks) {
-                                callback.notify(data);
-                            }
-                        }
-                        try {
-                            Thread.sleep(1L);
-                        } catch (InterruptedException e) {
-                        }
-                    }
-                    break;
-                case IF_POSSIBLE:
-                    return false;
-                case OVERRIDE:
-                default:
-            }
+    /**
+     * Called by {@link Channels} before saving data into this buffer.
+     *
+     * @return false means this buffer has been retired by {@link Channels#resize(int, int)}, don't save into it.
+     */
+    boolean enter() {
+        producing.increment();
+        if (retired) {
+            producing.decrement();
+            return false;
         }
-        buffer[i] = data;
         return true;
     }
 
-    public int getBufferSize() {
-        return buffer.length;
+    /**
+     * Called by {@link Channels} after saving, pairs with a successful {@link #enter()}.
+     */
+    void exit() {
+        producing.decrement();
     }
 
-    public LinkedList<T> obtain(int start, int end) {
-        LinkedList<T> result = new LinkedList<T>();
-        for (int i = start; i < end; i++) {
-            if (buffer[i] != null) {
-                result.add((T)buffer[i]);
-                buffer[i] = null;
-            }
+    /**
+     * Stop accepting new producers. The producers already entered still finish their saving.
+     */
+    void retire() {
+        retired = true;
+    }
+
+    /**
+     * @return true means retired and no producer is saving, nothing could be added into this buffer any more. A
+     * producer always enters and exits in the same cell, and checks {@link #retired} after entering, so the sum read
+     * after retired is never 0 while one is saving.
+     */
+    public boolean isSealed() {
+        return retired && producing.sum() == 0;
+    }
+
+    /**
+     * @param waitStrategy of the consumers of this buffer, signaled after each data saved.
+     */
+    public void setWaitStrategy(IWaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    IWaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Called by {@link Channels} after data saved, count it and signal the consumers.
+     */
+    void onSaved(int count) {
+        producedCount.add(count);
+        IWaitStrategy strategy = waitStrategy;
+        if (strategy != null) {
+            strategy.signal();
         }
-        return result;
     }
 
+    /**
+     * Called by {@link Channels} after data failed to save.
+     */
+    void onDropped(int count) {
+        droppedCount.add(count);
+    }
+
+    /**
+     * Called by the implementations, when data is overridden before consumed, in {@link BufferStrategy#OVERRIDE}.
+     */
+    protected void onOverridden() {
+        overriddenCount.increment();
+    }
+
+    /**
+     * Called by the implementations, after a producer stops blocking, in {@link BufferStrategy#BLOCKING}.
+     */
+    protected void onBlocked(long nanos) {
+        blockedNanos.addAndGet(nanos);
+    }
+
+    void setSpillFile(SpillFile<T> spillFile) {
+        this.spillFile = spillFile;
+    }
+
+    /**
+     * @return false means no spill file or the spill file is full.
+     */
+    protected boolean spill(T data) {
+        SpillFile<T> file = spillFile;
+        return file != null && file.write(data);
+    }
+
+    protected void notifyBlocking(T data) {
+        for (QueueBlockingCallback<T> callback : callbacks) {
+            callback.notify(data);
+        }
+    }
+
+    abstract boolean save(T data);
+
+    /**
+     * Save data[offset, offset + length), claiming the slots together. length should not be greater than the buffer
+     * size.
+     *
+     * @return the number of data saved. Less than length only in {@link BufferStrategy#IF_POSSIBLE}, or {@link
+     * BufferStrategy#SPILL} when the spill file is full.
+     */
+    abstract int save(List<T> data, int offset, int length);
+
+    public abstract int getBufferSize();
+
+    /**
+     * Move data in the given range into the batch, until the batch is full. When the range has been drained and the
+     * batch still has room, replay the spilled data.
+     *
+     * @param start the first slot, inclusive.
+     * @param end the last slot, exclusive.
+     * @param batch owned by the consumer thread.
+     */
+    public void obtain(int start, int end, Batch<T> batch) {
+        int sizeBefore = batch.size();
+        drain(start, end, batch);
+        SpillFile<T> file = spillFile;
+        if (file != null && !batch.isFull() && file.getBacklogCount() > 0) {
+            file.read(batch);
+        }
+        if (batch.size() > sizeBefore) {
+            consumedCount.addAndGet(batch.size() - sizeBefore);
+        }
+    }
+
+    /**
+     * Move data in the given range of memory into the batch, until the batch is full. The range is only a hint for the
+     * implementations without fixed slots, they move at most (end - start) elements.
+     */
+    protected abstract void drain(int start, int end, Batch<T> batch);
+
+    /**
+     * @return the number of data saved, including the spilled ones.
+     */
+    public long getProducedCount() {
+        return producedCount.sum();
+    }
+
+    /**
+     * @return the number of data given to consumers, including the replayed ones.
+     */
+    public long getConsumedCount() {
+        return consumedCount.get();
+    }
+
+    /**
+     * @return the number of data failed to save, or overridden before consumed.
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum() + overriddenCount.sum();
+    }
+
+    /**
+     * @return total time of producers blocked, nanoseconds.
+     */
+    public long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+    /**
+     * @return the number of data waiting for consuming. The spill file is shared by channels, so the depth of a single
+     * channel is approximate when spilling.
+     */
+    public long getDepth() {
+        long depth = producedCount.sum() - overriddenCount.sum() - consumedCount.get();
+        return depth < 0 ? 0 : depth;
+    }
+
+    /**
+     * Same as {@link #obtain(int, int, Batch)}, but allocates a new list.
+     *
+     * @return data in the given range.
+     */
+    public LinkedList<T> obtain(int start, int end) {
+        Batch<T> batch = new Batch<T>(end - start);
+        obtain(start, end, batch);
+        return new LinkedList<T>(batch);
+    }
 }
@@ -25,5 +25,11 @@ package org.apache.skywalking.apm.commons.datacarrier.buffer;
 public enum BufferStrategy {
     BLOCKING,
     OVERRIDE,
-    IF_POSSIBLE
+    IF_POSSIBLE,
+    /**
+     * Write the data into the {@link org.apache.skywalking.apm.commons.datacarrier.spill.SpillFile} when the buffer is
+     * full, consumers replay it after the buffer drained. Same as {@link #IF_POSSIBLE}, when no spill file set or the
+     * spill file is full too.
+     */
+    SPILL
 }
@@ -18,29 +18,66 @@
 
 package org.apache.skywalking.apm.commons.datacarrier.buffer;
 
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import org.apache.skywalking.apm.commons.datacarrier.callback.QueueBlockingCallback;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.apache.skywalking.apm.commons.datacarrier.monitor.BatchSizeHistogram;
+import org.apache.skywalking.apm.commons.datacarrier.monitor.ChannelMetrics;
 import org.apache.skywalking.apm.commons.datacarrier.partition.IDataPartitioner;
+import org.apache.skywalking.apm.commons.datacarrier.spill.SpillFile;
 
 /**
  * Channels of Buffer It contais all buffer data which belongs to this channel. It supports several strategy when buffer
  * is full. The Default is BLOCKING <p> Created by wusheng on 2016/10/25.
+ *
+ * The buffers could be replaced at runtime by {@link #resize(int, int)}. The replaced buffers are retired, they don't
+ * accept new data, and are drained by the consumers as before until sealed.
  */
 public class Channels<T> {
-    private final Buffer<T>[] bufferChannels;
+    private volatile Buffer<T>[] bufferChannels;
     private IDataPartitioner<T> dataPartitioner;
     private BufferStrategy strategy;
+    private final BufferType bufferType;
+    private SpillFile<T> spillFile;
+    private final BatchSizeHistogram batchSizeHistogram;
+    /**
+     * The retired buffers still being drained, and the totals of the drained ones, so the counters never go back after
+     * {@link #resize(int, int)}. Guarded by this.
+     */
+    private final List<Buffer<T>> retiredBuffers = new LinkedList<Buffer<T>>();
+    private long retiredProduced;
+    private long retiredConsumed;
+    private long retiredDropped;
+    private long retiredBlockedNanos;
 
     public Channels(int channelSize, int bufferSize, IDataPartitioner<T> partitioner, BufferStrategy strategy) {
+        this(channelSize, bufferSize, partitioner, strategy, BufferType.ARRAY);
+    }
+
+    public Channels(int channelSize, int bufferSize, IDataPartitioner<T> partitioner, BufferStrategy strategy,
+        BufferType bufferType) {
         this.dataPartitioner = partitioner;
         this.strategy = strategy;
+        this.bufferType = bufferType;
+        this.batchSizeHistogram = new BatchSizeHistogram();
         bufferChannels = new Buffer[channelSize];
         for (int i = 0; i < channelSize; i++) {
-            bufferChannels[i] = new Buffer<T>(bufferSize, strategy);
+            bufferChannels[i] = Buffer.newBuffer(bufferType, bufferSize, strategy);
         }
     }
 
     public boolean save(T data) {
-        int index = dataPartitioner.partition(bufferChannels.length, data);
+        Buffer<T> buffer = enter(data);
+        try {
+            return save(buffer, data);
+        } finally {
+            buffer.exit();
+        }
+    }
+
+    private boolean save(Buffer<T> buffer, T data) {
         int retryCountDown = 1;
         if (BufferStrategy.IF_POSSIBLE.equals(strategy)) {
             int maxRetryCount = dataPartitioner.maxRetryCount();
@@ -49,13 +86,146 @@ public class Channels<T> {
             }
         }
         for (; retryCountDown > 0; retryCountDown--) {
-            if (bufferChannels[index].save(data)) {
+            if (buffer.save(data)) {
+                buffer.onSaved(1);
                 return true;
             }
         }
+        buffer.onDropped(1);
         return false;
     }
 
+    /**
+     * Choose the buffer by the partitioner and enter it. Choose again in the new buffers, when the chosen one has just
+     * been retired by {@link #resize(int, int)}.
+     */
+    private Buffer<T> enter(T data) {
+        while (true) {
+            Buffer<T>[] buffers = bufferChannels;
+            Buffer<T> buffer = buffers[dataPartitioner.partition(buffers.length, data)];
+            if (buffer.enter()) {
+                return buffer;
+            }
+        }
+    }
+
+    /**
+     * Save data[offset, offset + length). The data is split into chunks no larger than the buffer size, each chunk is
+     * partitioned once, by its first element, and saved into one channel with a single claim.
+     *
+     * @return the number of data saved.
+     */
+    public int save(List<T> data, int offset, int length) {
+        int saved = 0;
+        int end = offset + length;
+        for (int chunkStart = offset; chunkStart < end; ) {
+            Buffer<T> buffer = enter(data.get(chunkStart));
+            int chunkLength = Math.min(buffer.getBufferSize(), end - chunkStart);
+            int chunkSaved;
+            try {
+                chunkSaved = buffer.save(data, chunkStart, chunkLength);
+                if (chunkSaved > 0) {
+                    buffer.onSaved(chunkSaved);
+                }
+                if (chunkSaved < chunkLength) {
+                    buffer.onDropped(chunkLength - chunkSaved);
+                }
+            } finally {
+                buffer.exit();
+            }
+            saved += chunkSaved;
+            chunkStart += chunkLength;
+        }
+        return saved;
+    }
+
+    /**
+     * Replace all buffers by new ones, in the given sizes. The strategy, callbacks, spill file and wait strategy are
+     * kept. Producers move to the new buffers at once, the old ones are retired and returned, the caller should make
+     * sure they are drained, see {@link #migrate(Buffer[])}. The counters of the old buffers are kept in {@link
+     * #getRetiredMetrics()}.
+     *
+     * @return the retired buffers.
+     */
+    public synchronized Buffer<T>[] resize(int channelSize, int bufferSize) {
+        Buffer<T>[] retired = bufferChannels;
+        Buffer<T> template = retired[0];
+        Buffer<T>[] resized = new Buffer[channelSize];
+        for (int i = 0; i < channelSize; i++) {
+            resized[i] = Buffer.newBuffer(bufferType, bufferSize, template.strategy);
+            for (QueueBlockingCallback<T> callback : template.callbacks) {
+                resized[i].addCallback(callback);
+            }
+            resized[i].setSpillFile(spillFile);
+            resized[i].setWaitStrategy(template.getWaitStrategy());
+        }
+        bufferChannels = resized;
+        for (Buffer<T> buffer : retired) {
+            buffer.retire();
+            retiredBuffers.add(buffer);
+        }
+        return retired;
+    }
+
+    /**
+     * @return the counters of all buffers retired by {@link #resize(int, int)}, index is -1. The buffers drained
+     * completely are folded into the totals and released.
+     */
+    public synchronized ChannelMetrics getRetiredMetrics() {
+        long depth = 0;
+        long produced = retiredProduced;
+        long consumed = retiredConsumed;
+        long dropped = retiredDropped;
+        long blockedNanos = retiredBlockedNanos;
+        Iterator<Buffer<T>> iterator = retiredBuffers.iterator();
+        while (iterator.hasNext()) {
+            Buffer<T> buffer = iterator.next();
+            boolean drained = buffer.isSealed() && buffer.getDepth() == 0;
+            long bufferProduced = buffer.getProducedCount();
+            long bufferConsumed = buffer.getConsumedCount();
+            long bufferDropped = buffer.getDroppedCount();
+            long bufferBlockedNanos = buffer.getBlockedNanos();
+            if (drained) {
+                retiredProduced += bufferProduced;
+                retiredConsumed += bufferConsumed;
+                retiredDropped += bufferDropped;
+                retiredBlockedNanos += bufferBlockedNanos;
+                iterator.remove();
+            } else {
+                depth += buffer.getDepth();
+            }
+            produced += bufferProduced;
+            consumed += bufferConsumed;
+            dropped += bufferDropped;
+            blockedNanos += bufferBlockedNanos;
+        }
+        return new ChannelMetrics(-1, 0, depth, produced, consumed, dropped, blockedNanos);
+    }
+
+    /**
+     * Move the data of the retired buffers into the current ones, used when no consumer drains the retired buffers.
+     * Returns after all retired buffers are sealed and empty.
+     *
+     * @param retired returned by {@link #resize(int, int)}
+     */
+    public void migrate(Buffer<T>[] retired) {
+        for (Buffer<T> buffer : retired) {
+            Batch<T> batch = new Batch<T>(buffer.getBufferSize());
+            boolean sealed;
+            do {
+                sealed = buffer.isSealed();
+                buffer.obtain(0, buffer.getBufferSize(), batch);
+                if (batch.size() > 0) {
+                    save(batch, 0, batch.size());
+                    batch.clear();
+                } else if (!sealed) {
+                    Thread.yield();
+                }
+            }
+            while (!sealed);
+        }
+    }
+
     public void setPartitioner(IDataPartitioner<T> dataPartitioner) {
         this.dataPartitioner = dataPartitioner;
     }
@@ -66,12 +236,35 @@ public class Channels<T> {
      *
      * @param strategy
      */
-    public void setStrategy(BufferStrategy strategy) {
+    public synchronized void setStrategy(BufferStrategy strategy) {
         for (Buffer<T> buffer : bufferChannels) {
             buffer.setStrategy(strategy);
         }
     }
 
+    /**
+     * set the spill file shared by all channels, used in {@link BufferStrategy#SPILL}.
+     *
+     * @param spillFile
+     */
+    public synchronized void setSpillFile(SpillFile<T> spillFile) {
+        this.spillFile = spillFile;
+        for (Buffer<T> buffer : bufferChannels) {
+            buffer.setSpillFile(spillFile);
+        }
+    }
+
+    public SpillFile<T> getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * @return the histogram of batch sizes, recorded by consumer threads.
+     */
+    public BatchSizeHistogram getBatchSizeHistogram() {
+        return batchSizeHistogram;
+    }
+
     /**
      * get channelSize
      *
@@ -85,7 +278,14 @@ public class Channels<T> {
         return this.bufferChannels[index];
     }
 
-    public void addCallback(QueueBlockingCallback<T> callback) {
+    /**
+     * @return a copy of the current buffers, not affected by a concurrent {@link #resize(int, int)}.
+     */
+    public Buffer<T>[] getBuffers() {
+        return this.bufferChannels.clone();
+    }
+
+    public synchronized void addCallback(QueueBlockingCallback<T> callback) {
         for (Buffer<T> channel : bufferChannels) {
             channel.addCallback(callback);
         }
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.List;
+
+/**
+ * Producers claim the position by CAS, no matter how many threads produce into this buffer.
+ */
+public class MultiProducerSequencedBuffer<T> extends SequencedBuffer<T> {
+    MultiProducerSequencedBuffer(int bufferSize, BufferStrategy strategy) {
+        super(bufferSize, strategy);
+    }
+
+    @Override
+    boolean offer(T data) {
+        long position = tail.get();
+        for (; ; ) {
+            int index = index(position);
+            long delta = sequences.get(index) - position;
+            if (delta == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[index] = data;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (delta < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    @Override
+    int offer(List<T> data, int offset, int length) {
+        long position;
+        int claimed;
+        do {
+            position = tail.get();
+            long available = available(position);
+            if (available <= 0) {
+                return 0;
+            }
+            claimed = (int)Math.min(available, length);
+        }
+        while (!tail.compareAndSet(position, position + claimed));
+
+        publish(position, data, offset, claimed);
+        return claimed;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+
+/**
+ * SequencedBuffer is a bounded ring, each slot has its own sequence number. For the slot of position p, sequence == p
+ * means the slot is free for the producer of p, sequence == p + 1 means the data of p has been published and is ready
+ * for the consumer. After consumed, the sequence becomes p + bufferSize, free for the next round.
+ *
+ * Sequences are published by ordered writes, so the data written before is always visible to the thread which reads
+ * the sequence. Consumers claim positions by CAS, several consumer threads could share one buffer.
+ *
+ * The way of claiming producer positions is decided by the sub classes.
+ */
+public abstract class SequencedBuffer<T> extends Buffer<T> {
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = 1000L;
+
+    protected final int bufferSize;
+    protected final Object[] buffer;
+    protected final AtomicLongArray sequences;
+    protected final AtomicLong tail;
+    private final AtomicLong head;
+
+    SequencedBuffer(int bufferSize, BufferStrategy strategy) {
+        super(strategy);
+        this.bufferSize = bufferSize;
+        buffer = new Object[bufferSize];
+        sequences = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            sequences.set(i, i);
+        }
+        tail = new AtomicLong(0);
+        head = new AtomicLong(0);
+    }
+
+    /**
+     * Try to publish the data, without waiting.
+     *
+     * @return false means the buffer is full.
+     */
+    abstract boolean offer(T data);
+
+    /**
+     * Try to publish data[offset, offset + length) in one claim, without waiting.
+     *
+     * @return the number of data published, could be less than length when the buffer doesn't have enough space.
+     */
+    abstract int offer(List<T> data, int offset, int length);
+
+    /**
+     * @return free slots counted from the given producer position. Slots claimed but not released by consumers are
+     * counted as free, as they are going to be.
+     */
+    protected long available(long position) {
+        return head.get() + bufferSize - position;
+    }
+
+    /**
+     * Publish claimed positions one by one, waiting for each slot released by its consumer.
+     */
+    protected void publish(long position, List<T> data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            long slotPosition = position + i;
+            int index = index(slotPosition);
+            int tries = 0;
+            while (sequences.get(index) != slotPosition) {
+                tries = idle(tries);
+            }
+            buffer[index] = data.get(offset + i);
+            sequences.lazySet(index, slotPosition + 1);
+        }
+    }
+
+    /**
+     * Take the oldest published data, without waiting.
+     *
+     * @return null means the buffer is empty.
+     */
+    T poll() {
+        long position = head.get();
+        for (; ; ) {
+            int index = index(position);
+            long delta = sequences.get(index) - (position + 1);
+            if (delta == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T data = (T)buffer[index];
+                    buffer[index] = null;
+                    sequences.lazySet(index, position + bufferSize);
+                    return data;
+                }
+                position = head.get();
+            } else if (delta < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    protected int index(long position) {
+        return (int)(position % bufferSize);
+    }
+
+    @Override
+    boolean save(T data) {
+        if (offer(data)) {
+            return true;
+        }
+        switch (strategy) {
+            case BLOCKING:
+                long blockingStart = System.nanoTime();
+                notifyBlocking(data);
+                int tries = 0;
+                while (!offer(data)) {
+                    tries = idle(tries);
+                }
+                onBlocked(System.nanoTime() - blockingStart);
+                return true;
+            case OVERRIDE:
+                while (!offer(data)) {
+                    if (poll() != null) {
+                        onOverridden();
+                    }
+                }
+                return true;
+            case SPILL:
+                return spill(data);
+            case IF_POSSIBLE:
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    int save(List<T> data, int offset, int length) {
+        int saved = offer(data, offset, length);
+        if (saved == length) {
+            return saved;
+        }
+        switch (strategy) {
+            case BLOCKING:
+                long blockingStart = System.nanoTime();
+                notifyBlocking(data.get(offset + saved));
+                int tries = 0;
+                while (saved < length) {
+                    int published = offer(data, offset + saved, length - saved);
+                    if (published == 0) {
+                        tries = idle(tries);
+                    }
+                    saved += published;
+                }
+                onBlocked(System.nanoTime() - blockingStart);
+                return saved;
+            case OVERRIDE:
+                while (saved < length) {
+                    int published = offer(data, offset + saved, length - saved);
+                    if (published == 0 && poll() != null) {
+                        onOverridden();
+                    }
+                    saved += published;
+                }
+                return saved;
+            case SPILL:
+                while (saved < length && spill(data.get(offset + saved))) {
+                    saved++;
+                }
+                return saved;
+            case IF_POSSIBLE:
+            default:
+                return saved;
+        }
+    }
+
+    /**
+     * Spin first, then yield, then park shortly.
+     */
+    private int idle(int tries) {
+        if (tries < SPIN_TRIES) {
+            return tries + 1;
+        } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+            return tries + 1;
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+            return tries;
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    protected void drain(int start, int end, Batch<T> batch) {
+        for (int i = end - start; i > 0 && !batch.isFull(); i--) {
+            T data = poll();
+            if (data == null) {
+                break;
+            }
+            batch.add(data);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.List;
+
+/**
+ * Only one thread is allowed to produce into this buffer, so the position is claimed without CAS. Consumers are not
+ * limited.
+ */
+public class SingleProducerSequencedBuffer<T> extends SequencedBuffer<T> {
+    SingleProducerSequencedBuffer(int bufferSize, BufferStrategy strategy) {
+        super(bufferSize, strategy);
+    }
+
+    @Override
+    boolean offer(T data) {
+        long position = tail.get();
+        int index = index(position);
+        if (sequences.get(index) != position) {
+            return false;
+        }
+        buffer[index] = data;
+        sequences.lazySet(index, position + 1);
+        tail.lazySet(position + 1);
+        return true;
+    }
+
+    @Override
+    int offer(List<T> data, int offset, int length) {
+        long position = tail.get();
+        long available = available(position);
+        if (available <= 0) {
+            return 0;
+        }
+        int claimed = (int)Math.min(available, length);
+        publish(position, data, offset, claimed);
+        tail.lazySet(position + claimed);
+        return claimed;
+    }
+}
@@ -49,6 +49,25 @@ public class AtomicRangeInteger extends Number implements Serializable {
         return current;
     }
 
+    /**
+     * Move forward delta steps in one CAS, rolling back to the start value when passing the end.
+     *
+     * @param delta steps, should not be negative.
+     * @return the value before moving.
+     */
+    public final int getAndAdd(int delta) {
+        int range = this.endValue - this.startValue + 1;
+        int current;
+        int next;
+        do {
+            current = this.value.get();
+            next = this.startValue + (int)(((long)current - this.startValue + delta) % range);
+        }
+        while (!this.value.compareAndSet(current, next));
+
+        return current;
+    }
+
     public final int get() {
         return this.value.get();
     }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.common;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Batch is a bounded, array-backed and reusable list. The consumer thread owns one batch, buffers fill it and {@link
+ * #clear()} makes it empty again without allocation.
+ *
+ * Iterate it by index, rather than by iterator, to avoid garbage.
+ */
+public class Batch<T> extends AbstractList<T> implements RandomAccess {
+    private final Object[] elements;
+    private int size;
+
+    public Batch(int capacity) {
+        elements = new Object[capacity];
+        size = 0;
+    }
+
+    @Override
+    public boolean add(T element) {
+        if (size == elements.length) {
+            throw new IllegalStateException("Batch is full, capacity: " + elements.length);
+        }
+        elements[size++] = element;
+        return true;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T)elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    public boolean isFull() {
+        return size == elements.length;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+}
@@ -22,6 +22,8 @@ import java.util.ArrayList;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Buffer;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
+import org.apache.skywalking.apm.commons.datacarrier.wait.IWaitStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.wait.SleepWaitStrategy;
 
 /**
  * Pool of consumers <p> Created by wusheng on 2016/10/25.
@@ -31,28 +33,55 @@ public class ConsumerPool<T> {
     private ConsumerThread[] consumerThreads;
     private Channels<T> channels;
     private ReentrantLock lock;
+    private IWaitStrategy waitStrategy;
+    private ConsumerPoolMode mode;
 
     public ConsumerPool(Channels<T> channels, Class<? extends IConsumer<T>> consumerClass, int num, long consumeCycle) {
-        this(channels, num);
+        this(channels, consumerClass, num, new SleepWaitStrategy(consumeCycle));
+    }
+
+    public ConsumerPool(Channels<T> channels, Class<? extends IConsumer<T>> consumerClass, int num,
+        IWaitStrategy waitStrategy) {
+        this(channels, num, waitStrategy);
         for (int i = 0; i < num; i++) {
-            consumerThreads[i] = new ConsumerThread("DataCarrier.Consumser." + i + ".Thread", getNewConsumerInstance(consumerClass), consumeCycle);
+            consumerThreads[i] = new ConsumerThread("DataCarrier.Consumser." + i + ".Thread", getNewConsumerInstance(consumerClass), waitStrategy);
             consumerThreads[i].setDaemon(true);
         }
     }
 
     public ConsumerPool(Channels<T> channels, IConsumer<T> prototype, int num, long consumeCycle) {
-        this(channels, num);
+        this(channels, prototype, num, new SleepWaitStrategy(consumeCycle));
+    }
+
+    public ConsumerPool(Channels<T> channels, IConsumer<T> prototype, int num, IWaitStrategy waitStrategy) {
+        this(channels, num, waitStrategy);
         prototype.init();
         for (int i = 0; i < num; i++) {
-            consumerThreads[i] = new ConsumerThread("DataCarrier.Consumser." + i + ".Thread", prototype, consumeCycle);
+            consumerThreads[i] = new ConsumerThread("DataCarrier.Consumser." + i + ".Thread", prototype, waitStrategy);
             consumerThreads[i].setDaemon(true);
         }
 
     }
 
-    private ConsumerPool(Channels<T> channels, int num) {
+    /**
+     * @param maxBatchSize the max number of data in one {@link IBatchConsumer#consume} call. Less or equal 0, means all
+     * data of the buffers allocated to the consumer thread.
+     */
+    public ConsumerPool(Channels<T> channels, IBatchConsumer<T> prototype, int num, int maxBatchSize,
+        IWaitStrategy waitStrategy) {
+        this(channels, num, waitStrategy);
+        prototype.init();
+        for (int i = 0; i < num; i++) {
+            consumerThreads[i] = new ConsumerThread("DataCarrier.Consumser." + i + ".Thread", prototype, waitStrategy, maxBatchSize);
+            consumerThreads[i].setDaemon(true);
+        }
+    }
+
+    private ConsumerPool(Channels<T> channels, int num, IWaitStrategy waitStrategy) {
         running = false;
         this.channels = channels;
+        this.waitStrategy = waitStrategy;
+        this.mode = ConsumerPoolMode.STATIC;
         consumerThreads = new ConsumerThread[num];
         lock = new ReentrantLock();
     }
@@ -69,14 +98,26 @@ public class ConsumerPool<T> {
         }
     }
 
+    /**
+     * Change the allocation mode, only works before {@link #begin()}.
+     *
+     * @param mode see {@link ConsumerPoolMode}
+     * @return ConsumerPool instance for chain
+     */
+    public ConsumerPool<T> setMode(ConsumerPoolMode mode) {
+        this.mode = mode;
+        return this;
+    }
+
     public void begin() {
         if (running) {
             return;
         }
         try {
             lock.lock();
-            this.allocateBuffer2Thread();
+            this.allocate();
             for (ConsumerThread consumerThread : consumerThreads) {
+                consumerThread.setBatchSizeHistogram(channels.getBatchSizeHistogram());
                 consumerThread.start();
             }
             running = true;
@@ -85,12 +126,43 @@ public class ConsumerPool<T> {
         }
     }
 
+    /**
+     * Allocate the current buffers to consumer threads again, after {@link Channels#resize(int, int)}. Each thread
+     * keeps draining its former buffers until they are sealed and empty, so no data is lost in the retired buffers.
+     */
+    public void reallocate() {
+        try {
+            lock.lock();
+            if (!running) {
+                return;
+            }
+            this.allocate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void allocate() {
+        Buffer<T>[] buffers = channels.getBuffers();
+        if (ConsumerPoolMode.STATIC.equals(mode)) {
+            this.allocateBuffer2Thread(buffers);
+        } else {
+            this.allocateSharedBuffer2Thread(buffers, ConsumerPoolMode.ORDERED_WORK_STEALING.equals(mode));
+        }
+        for (Buffer<T> buffer : buffers) {
+            buffer.setWaitStrategy(waitStrategy);
+        }
+        for (ConsumerThread consumerThread : consumerThreads) {
+            consumerThread.commitAllocation();
+        }
+    }
+
     public boolean isRunning() {
         return running;
     }
 
-    private void allocateBuffer2Thread() {
-        int channelSize = this.channels.getChannelSize();
+    private void allocateBuffer2Thread(Buffer<T>[] buffers) {
+        int channelSize = buffers.length;
         if (channelSize < consumerThreads.length) {
             /**
              * if consumerThreads.length > channelSize
@@ -107,7 +179,7 @@ public class ConsumerPool<T> {
 
             for (int channelIndex = 0; channelIndex < channelSize; channelIndex++) {
                 ArrayList<Integer> threadAllocationPerChannel = threadAllocation[channelIndex];
-                Buffer<T> channel = this.channels.getBuffer(channelIndex);
+                Buffer<T> channel = buffers[channelIndex];
                 int bufferSize = channel.getBufferSize();
                 int step = bufferSize / threadAllocationPerChannel.size();
                 for (int i = 0; i < threadAllocationPerChannel.size(); i++) {
@@ -127,12 +199,32 @@ public class ConsumerPool<T> {
              */
             for (int channelIndex = 0; channelIndex < channelSize; channelIndex++) {
                 int consumerIndex = channelIndex % consumerThreads.length;
-                consumerThreads[consumerIndex].addDataSource(channels.getBuffer(channelIndex));
+                consumerThreads[consumerIndex].addDataSource(buffers[channelIndex]);
             }
         }
 
     }
 
+    /**
+     * Each channel is a whole data source shared by all threads. The home thread of a channel is channelIndex %
+     * threads, so when threads are more than channels, some threads only steal.
+     */
+    private void allocateSharedBuffer2Thread(Buffer<T>[] buffers, boolean ordered) {
+        int channelSize = buffers.length;
+        for (int channelIndex = 0; channelIndex < channelSize; channelIndex++) {
+            Buffer<T> channel = buffers[channelIndex];
+            ConsumerThread.DataSource<T> dataSource = new ConsumerThread.DataSource<T>(channel, 0, channel.getBufferSize(), true);
+            consumerThreads[channelIndex % consumerThreads.length].addDataSource(dataSource);
+            for (ConsumerThread consumerThread : consumerThreads) {
+                consumerThread.addStealableDataSource(dataSource, ordered);
+            }
+        }
+    }
+
+    /**
+     * Ask all consumer threads to stop, they consume the data left once more before exit, see {@link
+     * #awaitTermination(long)}.
+     */
     public void close() {
         try {
             lock.lock();
@@ -144,4 +236,25 @@ public class ConsumerPool<T> {
             lock.unlock();
         }
     }
+
+    /**
+     * Wait until all consumer threads exit, after {@link #close()}.
+     *
+     * @param maxTimeout max wait time, milliseconds.
+     * @return true, if all consumer threads have exited.
+     */
+    public boolean awaitTermination(long maxTimeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxTimeout;
+        for (ConsumerThread consumerThread : consumerThreads) {
+            long timeout = deadline - System.currentTimeMillis();
+            if (timeout <= 0) {
+                return !consumerThread.isAlive();
+            }
+            consumerThread.join(timeout);
+            if (consumerThread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
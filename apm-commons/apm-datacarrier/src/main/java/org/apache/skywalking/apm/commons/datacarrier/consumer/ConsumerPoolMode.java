@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.consumer;
+
+/**
+ * How {@link ConsumerPool} allocates channels to consumer threads.
+ */
+public enum ConsumerPoolMode {
+    /**
+     * Channels, or ranges of a channel, are allocated to threads when the pool begins, and never change.
+     */
+    STATIC,
+    /**
+     * Each channel has a home thread, but any thread finding nothing in its own channels steals from the others. A
+     * channel is drained by one thread at a time, but the consumer calls of two batches from one channel could run at
+     * the same time.
+     */
+    WORK_STEALING,
+    /**
+     * Same as {@link #WORK_STEALING}, and a channel stays owned by the thread until its consumer call returns, so the
+     * data of one channel is consumed in order.
+     */
+    ORDERED_WORK_STEALING
+}
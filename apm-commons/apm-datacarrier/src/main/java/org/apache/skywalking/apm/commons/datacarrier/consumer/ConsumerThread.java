@@ -19,9 +19,13 @@
 
 package org.apache.skywalking.apm.commons.datacarrier.consumer;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Buffer;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.apache.skywalking.apm.commons.datacarrier.monitor.BatchSizeHistogram;
+import org.apache.skywalking.apm.commons.datacarrier.wait.IWaitStrategy;
 
 /**
  * Created by wusheng on 2016/10/25.
@@ -29,18 +33,52 @@ import org.apache.skywalking.apm.commons.datacarrier.buffer.Buffer;
 public class ConsumerThread<T> extends Thread {
     private volatile boolean running;
     private IConsumer<T> consumer;
-    private List<DataSource> dataSources;
-    private long consumeCycle;
+    private IBatchConsumer<T> batchConsumer;
+    private IWaitStrategy waitStrategy;
+    private int maxBatchSize;
+    private Batch<T> batch;
+    private int totalSize;
+    private Allocation<T> allocating;
+    private volatile Allocation<T> committed;
+    private Allocation<T> allocation;
+    private List<DataSource<T>> retiringSources;
+    private int firstSourceIndex;
+    private int stealSourceIndex;
+    private List<DataSource<T>> ownedSources;
+    private BatchSizeHistogram batchSizeHistogram;
 
-    ConsumerThread(String threadName, IConsumer<T> consumer, long consumeCycle) {
-        super(threadName);
+    ConsumerThread(String threadName, IConsumer<T> consumer, IWaitStrategy waitStrategy) {
+        this(threadName, waitStrategy, 0);
         this.consumer = consumer;
-        running = false;
-        dataSources = new LinkedList<DataSource>();
-        this.consumeCycle = consumeCycle;
     }
 
     /**
+     * @param maxBatchSize the capacity of the reusable batch. Less or equal 0, means the sum of all data sources.
+     */
+    ConsumerThread(String threadName, IBatchConsumer<T> batchConsumer, IWaitStrategy waitStrategy,
+        int maxBatchSize) {
+        this(threadName, waitStrategy, maxBatchSize);
+        this.batchConsumer = batchConsumer;
+    }
+
+    private ConsumerThread(String threadName, IWaitStrategy waitStrategy, int maxBatchSize) {
+        super(threadName);
+        /**
+         * Set before the thread starts, so a {@link #shutdown()} right after {@link #start()} is never lost.
+         */
+        running = true;
+        this.waitStrategy = waitStrategy;
+        this.maxBatchSize = maxBatchSize;
+        allocating = new Allocation<T>();
+        retiringSources = new ArrayList<DataSource<T>>();
+        firstSourceIndex = 0;
+        stealSourceIndex = 0;
+        ownedSources = new ArrayList<DataSource<T>>();
+    }
+
+    /**
+     * The data sources below are added into a pending allocation, which takes effect after {@link #commitAllocation()}.
+     *
      * add partition of buffer to consume
      *
      * @param sourceBuffer
@@ -48,7 +86,7 @@ public class ConsumerThread<T> extends Thread {
      * @param end
      */
     void addDataSource(Buffer<T> sourceBuffer, int start, int end) {
-        this.dataSources.add(new DataSource(sourceBuffer, start, end));
+        allocating.dataSources.add(new DataSource<T>(sourceBuffer, start, end, false));
     }
 
     /**
@@ -57,75 +95,268 @@ public class ConsumerThread<T> extends Thread {
      * @param sourceBuffer
      */
     void addDataSource(Buffer<T> sourceBuffer) {
-        this.dataSources.add(new DataSource(sourceBuffer, 0, sourceBuffer.getBufferSize()));
+        allocating.dataSources.add(new DataSource<T>(sourceBuffer, 0, sourceBuffer.getBufferSize(), false));
+    }
+
+    /**
+     * add a data source shared with other threads, as the home of this thread.
+     */
+    void addDataSource(DataSource<T> sharedSource) {
+        allocating.dataSources.add(sharedSource);
+    }
+
+    /**
+     * add a data source shared with other threads, to steal from when this thread finds nothing in its own sources.
+     *
+     * @param ordered true means the data source stays owned until the consumer returns.
+     */
+    void addStealableDataSource(DataSource<T> sharedSource, boolean ordered) {
+        allocating.stealableSources.add(sharedSource);
+        allocating.ordered = ordered;
+    }
+
+    /**
+     * Hand the pending allocation to this thread. The running thread switches to it at the beginning of its next round,
+     * and keeps draining its former data sources until their buffers are sealed and empty. So only call this when the
+     * former buffers have been retired, see {@link org.apache.skywalking.apm.commons.datacarrier.buffer.Channels#resize(int,
+     * int)}.
+     */
+    void commitAllocation() {
+        allocating.previous = committed;
+        committed = allocating;
+        allocating = new Allocation<T>();
+        waitStrategy.signal();
+    }
+
+    void setBatchSizeHistogram(BatchSizeHistogram batchSizeHistogram) {
+        this.batchSizeHistogram = batchSizeHistogram;
     }
 
     @Override
     public void run() {
-        running = true;
-
+        int idleTimes = 0;
         while (running) {
-            boolean hasData = consume();
+            switchAllocation();
+            boolean hasData = consume() > 0;
 
-            if (!hasData) {
-                try {
-                    Thread.sleep(consumeCycle);
-                } catch (InterruptedException e) {
+            if (hasData) {
+                if (idleTimes > 0) {
+                    idleTimes = 0;
+                    waitStrategy.reset();
+                }
+            } else {
+                if (idleTimes < Integer.MAX_VALUE) {
+                    idleTimes++;
                 }
+                waitStrategy.waitFor(idleTimes);
             }
         }
+        if (idleTimes > 0) {
+            waitStrategy.reset();
+        }
 
         // consumer thread is going to stop
-        // consume the last time
-        consume();
+        // consume the last time, in several batches when the batch is smaller than data sources.
+        switchAllocation();
+        int drainSize = totalSize;
+        for (int i = 0; i < retiringSources.size(); i++) {
+            drainSize += retiringSources.get(i).size();
+        }
+        int rounds = batch.capacity() > 0 ? drainSize / batch.capacity() : 0;
+        while (consume() == batch.capacity() && rounds-- > 0) {
+        }
 
-        consumer.onExit();
+        if (batchConsumer != null) {
+            batchConsumer.onExit();
+        } else {
+            consumer.onExit();
+        }
     }
 
-    private boolean consume() {
-        boolean hasData = false;
-        LinkedList<T> consumeList = new LinkedList<T>();
-        for (DataSource dataSource : dataSources) {
-            LinkedList<T> data = dataSource.obtain();
-            if (data.size() == 0) {
-                continue;
-            }
-            for (T element : data) {
-                consumeList.add(element);
+    /**
+     * Switch to the committed allocation if it's new, the former data sources become retiring. The batch is empty
+     * between rounds, so it's safe to replace.
+     */
+    private void switchAllocation() {
+        Allocation<T> next = committed;
+        if (next == null || next == allocation) {
+            return;
+        }
+        // allocations committed after the current one, but replaced before this thread switched to them.
+        for (Allocation<T> skipped = next.previous; skipped != null && skipped != allocation; skipped = skipped.previous) {
+            retiringSources.addAll(skipped.dataSources);
+        }
+        if (allocation != null) {
+            retiringSources.addAll(allocation.dataSources);
+        }
+        next.previous = null;
+        allocation = next;
+        firstSourceIndex = 0;
+        stealSourceIndex = 0;
+
+        totalSize = 0;
+        for (int i = 0; i < allocation.dataSources.size(); i++) {
+            totalSize += allocation.dataSources.get(i).size();
+        }
+        for (int i = 0; i < allocation.stealableSources.size(); i++) {
+            totalSize = Math.max(totalSize, allocation.stealableSources.get(i).size());
+        }
+        int capacity = maxBatchSize > 0 ? Math.min(maxBatchSize, totalSize) : totalSize;
+        if (batch == null || batch.capacity() != capacity) {
+            batch = new Batch<T>(capacity);
+        }
+    }
+
+    /**
+     * @return the number of consumed data.
+     */
+    private int consume() {
+        // data in retiring sources is older, drain them first.
+        for (int i = 0; i < retiringSources.size() && !batch.isFull(); ) {
+            DataSource<T> retiringSource = retiringSources.get(i);
+            boolean sealed = retiringSource.isSealed();
+            if (obtain(retiringSource) && sealed && !batch.isFull()) {
+                // nothing could be added any more, and all left have been drained.
+                retiringSources.remove(i);
+            } else {
+                i++;
             }
-            hasData = true;
         }
 
-        if (consumeList.size() > 0) {
-            try {
-                consumer.consume(consumeList);
-            } catch (Throwable t) {
-                consumer.onError(consumeList, t);
+        List<DataSource<T>> dataSources = allocation.dataSources;
+        int sourceNum = dataSources.size();
+        for (int i = 0; i < sourceNum && !batch.isFull(); i++) {
+            obtain(dataSources.get((firstSourceIndex + i) % sourceNum));
+        }
+        // begin with the next data source in the next round, so a full batch doesn't always come from the first one.
+        if (sourceNum > 1 && batch.isFull()) {
+            firstSourceIndex = (firstSourceIndex + 1) % sourceNum;
+        }
+
+        if (batch.size() == 0) {
+            steal();
+        }
+
+        int size = batch.size();
+        if (size > 0) {
+            if (batchSizeHistogram != null) {
+                batchSizeHistogram.record(size);
+            }
+            if (batchConsumer != null) {
+                try {
+                    batchConsumer.consume(batch);
+                } catch (Throwable t) {
+                    batchConsumer.onError(batch, t);
+                }
+            } else {
+                List<T> consumeList = new ArrayList<T>(batch);
+                try {
+                    consumer.consume(consumeList);
+                } catch (Throwable t) {
+                    consumer.onError(consumeList, t);
+                }
             }
+            batch.clear();
         }
-        return hasData;
+        release();
+        return size;
+    }
+
+    /**
+     * @return false means other thread is draining the data source.
+     */
+    private boolean obtain(DataSource<T> dataSource) {
+        if (!dataSource.isShared()) {
+            dataSource.obtain(batch);
+            return true;
+        }
+        if (!dataSource.tryOwn()) {
+            // other thread is draining it.
+            return false;
+        }
+        int sizeBefore = batch.size();
+        dataSource.obtain(batch);
+        if (allocation.ordered && batch.size() > sizeBefore) {
+            ownedSources.add(dataSource);
+        } else {
+            dataSource.release();
+        }
+        return true;
+    }
+
+    /**
+     * Try the stealable sources one by one, begin with the next one of the last time, until get some data.
+     */
+    private void steal() {
+        List<DataSource<T>> stealableSources = allocation.stealableSources;
+        int sourceNum = stealableSources.size();
+        for (int i = 0; i < sourceNum && batch.size() == 0; i++) {
+            stealSourceIndex = (stealSourceIndex + 1) % sourceNum;
+            obtain(stealableSources.get(stealSourceIndex));
+        }
+    }
+
+    private void release() {
+        for (int i = 0; i < ownedSources.size(); i++) {
+            ownedSources.get(i).release();
+        }
+        ownedSources.clear();
     }
 
     void shutdown() {
         running = false;
+        waitStrategy.signal();
     }
 
     /**
-     * DataSource is a refer to {@link Buffer}.
+     * DataSource is a refer to {@link Buffer}. A shared DataSource is used by several threads, one thread owns it when
+     * draining.
      */
-    class DataSource {
+    static class DataSource<T> {
         private Buffer<T> sourceBuffer;
         private int start;
         private int end;
+        private AtomicBoolean owned;
 
-        DataSource(Buffer<T> sourceBuffer, int start, int end) {
+        DataSource(Buffer<T> sourceBuffer, int start, int end, boolean shared) {
             this.sourceBuffer = sourceBuffer;
             this.start = start;
             this.end = end;
+            this.owned = shared ? new AtomicBoolean(false) : null;
+        }
+
+        boolean isShared() {
+            return owned != null;
+        }
+
+        boolean tryOwn() {
+            return !owned.get() && owned.compareAndSet(false, true);
         }
 
-        LinkedList<T> obtain() {
-            return sourceBuffer.obtain(start, end);
+        void release() {
+            owned.set(false);
         }
+
+        void obtain(Batch<T> batch) {
+            sourceBuffer.obtain(start, end, batch);
+        }
+
+        boolean isSealed() {
+            return sourceBuffer.isSealed();
+        }
+
+        int size() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Data sources of a consumer thread, replaced as a whole when channels resized.
+     */
+    private static class Allocation<T> {
+        private final List<DataSource<T>> dataSources = new ArrayList<DataSource<T>>();
+        private final List<DataSource<T>> stealableSources = new ArrayList<DataSource<T>>();
+        private boolean ordered = false;
+        private Allocation<T> previous;
     }
 }
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.consumer;
+
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+
+/**
+ * A consumer receiving the reusable {@link Batch} of the consumer thread, instead of a new list in each round as {@link
+ * IConsumer}. The batch is cleared after {@link #consume(Batch)} or {@link #onError(Batch, Throwable)} returns, so
+ * don't keep it, or any reference to it, after that.
+ */
+public interface IBatchConsumer<T> {
+    void init();
+
+    void consume(Batch<T> data);
+
+    void onError(Batch<T> data, Throwable t);
+
+    void onExit();
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.monitor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count the size of each batch given to consumers, in power-of-two buckets. Bucket i counts the batches whose size is
+ * in [2^i, 2^(i+1)).
+ */
+public class BatchSizeHistogram {
+    public static final int BUCKET_NUM = 31;
+
+    private final AtomicLongArray buckets;
+
+    public BatchSizeHistogram() {
+        buckets = new AtomicLongArray(BUCKET_NUM);
+    }
+
+    public void record(int batchSize) {
+        if (batchSize > 0) {
+            buckets.incrementAndGet(31 - Integer.numberOfLeadingZeros(batchSize));
+        }
+    }
+
+    /**
+     * @return the count of each bucket.
+     */
+    public long[] snapshot() {
+        long[] counts = new long[BUCKET_NUM];
+        for (int i = 0; i < BUCKET_NUM; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * @return the min batch size of the bucket, inclusive.
+     */
+    public static int lowerBound(int bucketIndex) {
+        return 1 << bucketIndex;
+    }
+}
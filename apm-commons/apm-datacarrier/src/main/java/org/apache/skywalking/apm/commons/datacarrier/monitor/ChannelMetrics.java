@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.monitor;
+
+/**
+ * A snapshot of the counters of one channel. The counters are read one by one without lock, so they could be a little
+ * inconsistent with each other.
+ */
+public class ChannelMetrics {
+    private final int index;
+    private final int bufferSize;
+    private final long depth;
+    private final long produced;
+    private final long consumed;
+    private final long dropped;
+    private final long blockedNanos;
+
+    public ChannelMetrics(int index, int bufferSize, long depth, long produced, long consumed, long dropped,
+        long blockedNanos) {
+        this.index = index;
+        this.bufferSize = bufferSize;
+        this.depth = depth;
+        this.produced = produced;
+        this.consumed = consumed;
+        this.dropped = dropped;
+        this.blockedNanos = blockedNanos;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of data waiting for consuming.
+     */
+    public long getDepth() {
+        return depth;
+    }
+
+    public long getProduced() {
+        return produced;
+    }
+
+    public long getConsumed() {
+        return consumed;
+    }
+
+    /**
+     * @return the number of data failed in producing, or overridden before consumed.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the total time producers blocked, nanoseconds.
+     */
+    public long getBlockedNanos() {
+        return blockedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "channel " + index + " {bufferSize=" + bufferSize + ", depth=" + depth + ", produced=" + produced
+            + ", consumed=" + consumed + ", dropped=" + dropped + ", blockedNanos=" + blockedNanos + "}";
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.monitor;
+
+/**
+ * The counters of one {@link org.apache.skywalking.apm.commons.datacarrier.DataCarrier} in JMX, registered by {@link
+ * DataCarrierRegistry#exportToJMX()}. Each attribute is read from a new {@link DataCarrierMetrics} snapshot.
+ */
+public interface DataCarrierMXBean {
+    String getName();
+
+    int getChannelSize();
+
+    long getDepth();
+
+    long getProduced();
+
+    long getConsumed();
+
+    long getDropped();
+
+    long getBlockedNanos();
+
+    int getSpillBacklogCount();
+
+    long getSpillBacklogBytes();
+}
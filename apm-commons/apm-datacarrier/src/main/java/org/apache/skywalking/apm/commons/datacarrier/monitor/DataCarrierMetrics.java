@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.monitor;
+
+import java.util.List;
+
+/**
+ * A snapshot of the counters of one {@link org.apache.skywalking.apm.commons.datacarrier.DataCarrier}.
+ */
+public class DataCarrierMetrics {
+    private final String name;
+    private final List<ChannelMetrics> channels;
+    private final ChannelMetrics retired;
+    private final long[] batchSizeBuckets;
+    private final int spillBacklogCount;
+    private final long spillBacklogBytes;
+
+    public DataCarrierMetrics(String name, List<ChannelMetrics> channels, ChannelMetrics retired,
+        long[] batchSizeBuckets, int spillBacklogCount, long spillBacklogBytes) {
+        this.name = name;
+        this.channels = channels;
+        this.retired = retired;
+        this.batchSizeBuckets = batchSizeBuckets;
+        this.spillBacklogCount = spillBacklogCount;
+        this.spillBacklogBytes = spillBacklogBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<ChannelMetrics> getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the counters of the channels replaced by resizing, which are included in the totals below, so the
+     * totals never go back.
+     */
+    public ChannelMetrics getRetired() {
+        return retired;
+    }
+
+    /**
+     * @return see {@link BatchSizeHistogram}
+     */
+    public long[] getBatchSizeBuckets() {
+        return batchSizeBuckets;
+    }
+
+    public int getSpillBacklogCount() {
+        return spillBacklogCount;
+    }
+
+    public long getSpillBacklogBytes() {
+        return spillBacklogBytes;
+    }
+
+    public long getDepth() {
+        long depth = retired.getDepth();
+        for (ChannelMetrics channel : channels) {
+            depth += channel.getDepth();
+        }
+        return depth;
+    }
+
+    public long getProduced() {
+        long produced = retired.getProduced();
+        for (ChannelMetrics channel : channels) {
+            produced += channel.getProduced();
+        }
+        return produced;
+    }
+
+    public long getConsumed() {
+        long consumed = retired.getConsumed();
+        for (ChannelMetrics channel : channels) {
+            consumed += channel.getConsumed();
+        }
+        return consumed;
+    }
+
+    public long getDropped() {
+        long dropped = retired.getDropped();
+        for (ChannelMetrics channel : channels) {
+            dropped += channel.getDropped();
+        }
+        return dropped;
+    }
+
+    public long getBlockedNanos() {
+        long blockedNanos = retired.getBlockedNanos();
+        for (ChannelMetrics channel : channels) {
+            blockedNanos += channel.getBlockedNanos();
+        }
+        return blockedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(name).append(" {depth=").append(getDepth())
+            .append(", produced=").append(getProduced())
+            .append(", consumed=").append(getConsumed())
+            .append(", dropped=").append(getDropped())
+            .append(", blockedNanos=").append(getBlockedNanos())
+            .append(", spillBacklog=").append(spillBacklogCount)
+            .append(", batchSizes=[");
+        boolean first = true;
+        for (int i = 0; i < batchSizeBuckets.length; i++) {
+            if (batchSizeBuckets[i] > 0) {
+                if (!first) {
+                    builder.append(", ");
+                }
+                first = false;
+                builder.append(BatchSizeHistogram.lowerBound(i)).append("+:").append(batchSizeBuckets[i]);
+            }
+        }
+        return builder.append("]}").toString();
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.Buffer;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
+import org.apache.skywalking.apm.commons.datacarrier.spill.SpillFile;
+
+/**
+ * All {@link org.apache.skywalking.apm.commons.datacarrier.DataCarrier}s register themselves here. The registry only
+ * keeps weak references, a carrier can still be collected when no one uses it.
+ *
+ * The agent and the collector call {@link #exportToJMX()} after started, then each carrier is a {@link
+ * DataCarrierMXBean} in the platform MBean server, named by {@link #OBJECT_NAME_PREFIX}, its name and a sequence. The
+ * export isn't done at the first carrier, which could be in the agent premain, before the application sets up its
+ * JMX and logging.
+ */
+public enum DataCarrierRegistry {
+    INSTANCE;
+
+    public static final String OBJECT_NAME_PREFIX = "org.apache.skywalking:type=DataCarrier";
+
+    private final List<Entry> entries = new CopyOnWriteArrayList<Entry>();
+    private final AtomicInteger sequence = new AtomicInteger(0);
+    private volatile MBeanServer mBeanServer;
+
+    public void register(String name, Channels<?> channels) {
+        Entry entry = new Entry(name, sequence.incrementAndGet(), channels);
+        entries.add(entry);
+        MBeanServer server = mBeanServer;
+        if (server != null) {
+            entry.export(server);
+        }
+    }
+
+    /**
+     * Register the carriers into the platform MBean server, including the ones created later. Called more than once
+     * is fine.
+     */
+    public synchronized void exportToJMX() {
+        if (mBeanServer != null) {
+            return;
+        }
+        MBeanServer server;
+        try {
+            server = ManagementFactory.getPlatformMBeanServer();
+        } catch (Throwable t) {
+            return;
+        }
+        mBeanServer = server;
+        for (Entry entry : entries) {
+            entry.export(server);
+        }
+    }
+
+    /**
+     * @return the metrics of all alive carriers.
+     */
+    public List<DataCarrierMetrics> snapshot() {
+        List<DataCarrierMetrics> result = new ArrayList<DataCarrierMetrics>(entries.size());
+        List<Entry> collected = null;
+        for (Entry entry : entries) {
+            Channels<?> channels = entry.channels.get();
+            if (channels == null) {
+                if (collected == null) {
+                    collected = new ArrayList<Entry>();
+                }
+                collected.add(entry);
+                continue;
+            }
+            result.add(snapshot(entry.name, channels));
+        }
+        if (collected != null) {
+            entries.removeAll(collected);
+            MBeanServer server = mBeanServer;
+            if (server != null) {
+                for (Entry entry : collected) {
+                    entry.unexport(server);
+                }
+            }
+        }
+        return result;
+    }
+
+    public static DataCarrierMetrics snapshot(String name, Channels<?> channels) {
+        Buffer<?>[] buffers = channels.getBuffers();
+        List<ChannelMetrics> channelMetrics = new ArrayList<ChannelMetrics>(buffers.length);
+        for (int i = 0; i < buffers.length; i++) {
+            Buffer<?> buffer = buffers[i];
+            channelMetrics.add(new ChannelMetrics(i, buffer.getBufferSize(), buffer.getDepth(), buffer.getProducedCount(),
+                buffer.getConsumedCount(), buffer.getDroppedCount(), buffer.getBlockedNanos()));
+        }
+        SpillFile<?> spillFile = channels.getSpillFile();
+        return new DataCarrierMetrics(name, channelMetrics, channels.getRetiredMetrics(),
+            channels.getBatchSizeHistogram().snapshot(),
+            spillFile == null ? 0 : spillFile.getBacklogCount(),
+            spillFile == null ? 0 : spillFile.getBacklogBytes());
+    }
+
+    private static class Entry implements DataCarrierMXBean {
+        private final String name;
+        private final int sequence;
+        private final WeakReference<Channels<?>> channels;
+
+        private Entry(String name, int sequence, Channels<?> channels) {
+            this.name = name;
+            this.sequence = sequence;
+            this.channels = new WeakReference<Channels<?>>(channels);
+        }
+
+        /**
+         * Failed silently, such as the security manager denies, the counters are still in {@link #snapshot()}.
+         */
+        private void export(MBeanServer server) {
+            try {
+                server.registerMBean(new StandardMBean(this, DataCarrierMXBean.class, true), objectName());
+            } catch (Throwable ignored) {
+            }
+        }
+
+        private void unexport(MBeanServer server) {
+            try {
+                server.unregisterMBean(objectName());
+            } catch (Throwable ignored) {
+            }
+        }
+
+        private ObjectName objectName() throws Exception {
+            return new ObjectName(OBJECT_NAME_PREFIX + ",name=" + ObjectName.quote(name) + ",sequence=" + sequence);
+        }
+
+        /**
+         * @return the snapshot of an empty carrier, if collected.
+         */
+        private DataCarrierMetrics metrics() {
+            Channels<?> alive = channels.get();
+            if (alive == null) {
+                return new DataCarrierMetrics(name, new ArrayList<ChannelMetrics>(0),
+                    new ChannelMetrics(-1, 0, 0, 0, 0, 0, 0), new long[BatchSizeHistogram.BUCKET_NUM], 0, 0);
+            }
+            return snapshot(name, alive);
+        }
+
+        @Override public String getName() {
+            return name;
+        }
+
+        @Override public int getChannelSize() {
+            return metrics().getChannels().size();
+        }
+
+        @Override public long getDepth() {
+            return metrics().getDepth();
+        }
+
+        @Override public long getProduced() {
+            return metrics().getProduced();
+        }
+
+        @Override public long getConsumed() {
+            return metrics().getConsumed();
+        }
+
+        @Override public long getDropped() {
+            return metrics().getDropped();
+        }
+
+        @Override public long getBlockedNanos() {
+            return metrics().getBlockedNanos();
+        }
+
+        @Override public int getSpillBacklogCount() {
+            return metrics().getSpillBacklogCount();
+        }
+
+        @Override public long getSpillBacklogBytes() {
+            return metrics().getSpillBacklogBytes();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.spill;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+
+/**
+ * SpillFile keeps the data which can't be saved into the memory buffers, when {@link
+ * org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy#SPILL}. It is a memory-mapped file used as a
+ * ring, each record is a 4 bytes length followed by the serialized data. A record never crosses the end of the file, the
+ * rest space is skipped by a wrap marker.
+ *
+ * The file is bounded by the given capacity, writes fail when it is full. It is recreated when opened, data spilled
+ * before a restart is not replayed, so {@link #close()} unmaps and deletes it.
+ */
+public class SpillFile<T> {
+    private static final int LENGTH_SIZE = 4;
+    private static final int WRAP_MARKER = -1;
+
+    private final File file;
+    private final ISpillSerializer<T> serializer;
+    private final int capacity;
+    private final MappedByteBuffer mappedBuffer;
+    private boolean closed;
+    private long writeOffset;
+    private long readOffset;
+    private volatile int backlogCount;
+    private volatile long backlogBytes;
+    private volatile long brokenCount;
+
+    /**
+     * @param file path of the spill file, override if exists.
+     * @param capacity max bytes of the file.
+     * @param serializer to write and replay data.
+     * @throws IOException when the file can't be created or mapped.
+     */
+    public SpillFile(File file, int capacity, ISpillSerializer<T> serializer) throws IOException {
+        this.file = file;
+        this.serializer = serializer;
+        this.capacity = capacity;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(0);
+            randomAccessFile.setLength(capacity);
+            // the mapping stays valid after the file closed.
+            mappedBuffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } finally {
+            randomAccessFile.close();
+        }
+        writeOffset = 0;
+        readOffset = 0;
+        backlogCount = 0;
+        backlogBytes = 0;
+        brokenCount = 0;
+    }
+
+    /**
+     * @return false means no enough space, or the file is closed.
+     */
+    public synchronized boolean write(T data) {
+        if (closed) {
+            return false;
+        }
+        byte[] bytes = serializer.serialize(data);
+        int recordSize = LENGTH_SIZE + bytes.length;
+        int position = (int)(writeOffset % capacity);
+        int tailRoom = capacity - position;
+        int padding = recordSize > tailRoom ? tailRoom : 0;
+        if (writeOffset - readOffset + padding + recordSize > capacity) {
+            return false;
+        }
+
+        if (padding > 0) {
+            if (tailRoom >= LENGTH_SIZE) {
+                mappedBuffer.putInt(position, WRAP_MARKER);
+            }
+            writeOffset += padding;
+            position = 0;
+        }
+        mappedBuffer.putInt(position, bytes.length);
+        mappedBuffer.position(position + LENGTH_SIZE);
+        mappedBuffer.put(bytes);
+        writeOffset += recordSize;
+
+        backlogCount++;
+        backlogBytes = writeOffset - readOffset;
+        return true;
+    }
+
+    /**
+     * Replay the spilled data into the batch, until the batch is full or nothing left. A record failed in deserializing
+     * is dropped, see {@link #getBrokenCount()}.
+     */
+    public synchronized void read(Batch<T> batch) {
+        while (!closed && !batch.isFull() && readOffset < writeOffset) {
+            int position = (int)(readOffset % capacity);
+            int tailRoom = capacity - position;
+            if (tailRoom < LENGTH_SIZE || mappedBuffer.getInt(position) == WRAP_MARKER) {
+                readOffset += tailRoom;
+                continue;
+            }
+
+            byte[] bytes = new byte[mappedBuffer.getInt(position)];
+            mappedBuffer.position(position + LENGTH_SIZE);
+            mappedBuffer.get(bytes);
+            readOffset += LENGTH_SIZE + bytes.length;
+            backlogCount--;
+
+            T data;
+            try {
+                data = serializer.deserialize(bytes);
+            } catch (Throwable t) {
+                brokenCount++;
+                continue;
+            }
+            batch.add(data);
+        }
+        backlogBytes = writeOffset - readOffset;
+    }
+
+    /**
+     * Unmap and delete the file, the data not replayed yet is dropped. Writes fail and reads get nothing after closed.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        backlogCount = 0;
+        backlogBytes = 0;
+        unmap(mappedBuffer);
+        file.delete();
+    }
+
+    /**
+     * The mapping is released by GC only, before Java 9 there is no public way to do it at once, so try the cleaner of
+     * the buffer by reflection. The file can't be deleted on some platforms while mapped, it is deleted at next open
+     * then.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (Throwable ignored) {
+            // before Java 9
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Throwable ignored) {
+            // left to GC
+        }
+    }
+
+    /**
+     * @return the number of data waiting for replay.
+     */
+    public int getBacklogCount() {
+        return backlogCount;
+    }
+
+    /**
+     * @return the bytes used in the file.
+     */
+    public long getBacklogBytes() {
+        return backlogBytes;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of data dropped, because of failed in deserializing.
+     */
+    public long getBrokenCount() {
+        return brokenCount;
+    }
+}
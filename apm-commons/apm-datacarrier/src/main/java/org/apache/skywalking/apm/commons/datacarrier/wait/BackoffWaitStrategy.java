@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.wait;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spin first, then yield, then park with a doubled time in each round, up to the max park time.
+ */
+public class BackoffWaitStrategy implements IWaitStrategy {
+    private static final int SPIN_TIMES = 100;
+    private static final int YIELD_TIMES = 100;
+    private static final long MIN_PARK_NANOS = 1000L;
+    private static final int MAX_SHIFT = 30;
+
+    private final long maxParkNanos;
+
+    /**
+     * @param maxParkNanos the max time of one park, nanoseconds.
+     */
+    public BackoffWaitStrategy(long maxParkNanos) {
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public void waitFor(int idleTimes) {
+        if (idleTimes <= SPIN_TIMES) {
+            return;
+        }
+        if (idleTimes <= SPIN_TIMES + YIELD_TIMES) {
+            Thread.yield();
+            return;
+        }
+        int shift = Math.min(idleTimes - SPIN_TIMES - YIELD_TIMES - 1, MAX_SHIFT);
+        LockSupport.parkNanos(this, Math.min(MIN_PARK_NANOS << shift, maxParkNanos));
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public void signal() {
+    }
+}
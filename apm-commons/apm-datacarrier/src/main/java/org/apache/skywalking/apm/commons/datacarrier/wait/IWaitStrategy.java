@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.wait;
+
+/**
+ * Decide how a consumer thread waits, when it finds nothing to consume. One instance is shared by all consumer threads
+ * of a {@link org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPool}, so implementations must be
+ * thread-safe.
+ */
+public interface IWaitStrategy {
+    /**
+     * Called by the consumer thread, after a consume round found no data.
+     *
+     * @param idleTimes how many continuous rounds found no data, starts from 1.
+     */
+    void waitFor(int idleTimes);
+
+    /**
+     * Called by the consumer thread, when it finds data again after {@link #waitFor(int)}.
+     */
+    void reset();
+
+    /**
+     * Called by producer threads after data saved, or by the pool when it is closing. Must be cheap, when no consumer
+     * is waiting.
+     */
+    void signal();
+}
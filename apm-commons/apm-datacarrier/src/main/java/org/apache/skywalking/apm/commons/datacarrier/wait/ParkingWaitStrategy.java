@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.wait;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Park the consumer thread, until a producer saves data and signals.
+ *
+ * In the first empty round, the consumer thread only registers itself as waiting and consumes once more, so data saved
+ * before the registration is not missed. After that, it parks. The producers unpark all waiting threads. Because the
+ * buffers publish data without a full fence, a signal could still be missed in a rare race, so each park is limited
+ * by the max park time.
+ *
+ * When no consumer is waiting, {@link #signal()} costs only one volatile read.
+ */
+public class ParkingWaitStrategy implements IWaitStrategy {
+    private final long maxParkNanos;
+    private final AtomicInteger waitingCount;
+    private final ConcurrentHashMap<Thread, Boolean> waitingThreads;
+
+    /**
+     * @param maxParkNanos the max time of one park, nanoseconds.
+     */
+    public ParkingWaitStrategy(long maxParkNanos) {
+        this.maxParkNanos = maxParkNanos;
+        waitingCount = new AtomicInteger(0);
+        waitingThreads = new ConcurrentHashMap<Thread, Boolean>();
+    }
+
+    @Override
+    public void waitFor(int idleTimes) {
+        if (idleTimes == 1) {
+            waitingThreads.put(Thread.currentThread(), Boolean.TRUE);
+            waitingCount.incrementAndGet();
+            return;
+        }
+        LockSupport.parkNanos(this, maxParkNanos);
+    }
+
+    @Override
+    public void reset() {
+        if (waitingThreads.remove(Thread.currentThread()) != null) {
+            waitingCount.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void signal() {
+        if (waitingCount.get() > 0) {
+            for (Thread thread : waitingThreads.keySet()) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+}
@@ -17,51 +17,36 @@
  */
 
 
-package org.apache.skywalking.apm.agent.core.remote;
+package org.apache.skywalking.apm.commons.datacarrier.wait;
 
 /**
+ * Sleep a fixed consume cycle. This is the default strategy.
+ *
  * @author wusheng
  */
-public class GRPCStreamServiceStatus {
-    private volatile boolean status;
-
-    public GRPCStreamServiceStatus(boolean status) {
-        this.status = status;
-    }
-
-    public boolean isStatus() {
-        return status;
-    }
-
-    public void finished() {
-        this.status = true;
-    }
+public class SleepWaitStrategy implements IWaitStrategy {
+    private final long consumeCycle;
 
     /**
-     * @param maxTimeout max wait time, milliseconds.
+     * @param consumeCycle sleep time, milliseconds.
      */
-    public boolean wait4Finish(long maxTimeout) {
-        long time = 0;
-        while (!status) {
-            if (time > maxTimeout) {
-                break;
-            }
-            try2Sleep(5);
-            time += 5;
-        }
-        return status;
+    public SleepWaitStrategy(long consumeCycle) {
+        this.consumeCycle = consumeCycle;
     }
 
-    /**
-     * Try to sleep, and ignore the {@link InterruptedException}
-     *
-     * @param millis the length of time to sleep in milliseconds
-     */
-    private void try2Sleep(long millis) {
+    @Override
+    public void waitFor(int idleTimes) {
         try {
-            Thread.sleep(millis);
+            Thread.sleep(consumeCycle);
         } catch (InterruptedException e) {
-
         }
     }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public void signal() {
+    }
 }
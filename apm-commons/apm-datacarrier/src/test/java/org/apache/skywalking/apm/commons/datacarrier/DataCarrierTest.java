@@ -19,6 +19,7 @@
 
 package org.apache.skywalking.apm.commons.datacarrier;
 
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Buffer;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
@@ -115,6 +116,26 @@ public class DataCarrierTest {
         Assert.assertEquals(200, result1.size() + result2.size());
     }
 
+    @Test
+    public void testBatchProduce() throws IllegalAccessException {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(2, 100);
+        carrier.setBufferStrategy(BufferStrategy.IF_POSSIBLE);
+
+        List<SampleData> data = new ArrayList<SampleData>();
+        for (int i = 0; i < 150; i++) {
+            data.add(new SampleData().setName("d" + i));
+        }
+        Assert.assertEquals(150, carrier.produce(data));
+        Assert.assertEquals(50, carrier.produce(data));
+
+        Channels<SampleData> channels = (Channels<SampleData>)(MemberModifier.field(DataCarrier.class, "channels").get(carrier));
+        List result1 = channels.getBuffer(0).obtain(0, 100);
+        List result2 = channels.getBuffer(1).obtain(0, 100);
+        Assert.assertEquals(200, result1.size() + result2.size());
+        Assert.assertEquals(200, channels.getBuffer(0).getProducedCount() + channels.getBuffer(1).getProducedCount());
+        Assert.assertEquals(100, channels.getBuffer(0).getDroppedCount() + channels.getBuffer(1).getDroppedCount());
+    }
+
     @Test
     public void testBlockingProduce() throws IllegalAccessException {
         final DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(2, 100);
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.Buffer;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPoolMode;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.IBatchConsumer;
+import org.apache.skywalking.apm.commons.datacarrier.wait.ParkingWaitStrategy;
+import org.junit.Assert;
+import org.junit.Test;
+import org.powermock.api.support.membermodification.MemberModifier;
+
+public class ResizeTest {
+    @Test
+    public void testResizeWithoutConsumer() throws IllegalAccessException {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(2, 10);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(carrier.produce(new SampleData().setIntValue(i)));
+        }
+
+        carrier.resize(3, 20);
+
+        Channels<SampleData> channels = (Channels<SampleData>)(MemberModifier.field(DataCarrier.class, "channels").get(carrier));
+        Assert.assertEquals(3, channels.getChannelSize());
+        int total = 0;
+        for (Buffer<SampleData> buffer : channels.getBuffers()) {
+            Assert.assertEquals(20, buffer.getBufferSize());
+            total += buffer.obtain(0, 20).size();
+        }
+        Assert.assertEquals(20, total);
+    }
+
+    @Test
+    public void testResizeWhileProducing() throws InterruptedException {
+        resizeWhileProducing(BufferType.ARRAY, ConsumerPoolMode.STATIC, 3);
+        resizeWhileProducing(BufferType.SEQUENCED_MULTI_PRODUCER, ConsumerPoolMode.STATIC, 1);
+        resizeWhileProducing(BufferType.SEQUENCED_MULTI_PRODUCER, ConsumerPoolMode.WORK_STEALING, 2);
+    }
+
+    private void resizeWhileProducing(BufferType bufferType, ConsumerPoolMode mode,
+        int consumerNum) throws InterruptedException {
+        final DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(2, 16, bufferType);
+        carrier.setBufferStrategy(BufferStrategy.BLOCKING);
+        carrier.setConsumerPoolMode(mode);
+        CountingConsumer consumer = new CountingConsumer();
+        carrier.consume(consumer, consumerNum, 0, new ParkingWaitStrategy(1000000));
+
+        final int producerNum = 4;
+        final int dataPerProducer = 5000;
+        final CountDownLatch latch = new CountDownLatch(producerNum);
+        for (int p = 0; p < producerNum; p++) {
+            final int producer = p;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < dataPerProducer; i++) {
+                        carrier.produce(new SampleData().setIntValue(producer * dataPerProducer + i));
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+
+        int[][] sizes = new int[][] {{4, 64}, {1, 8}, {3, 32}, {2, 16}};
+        for (int i = 0; i < sizes.length || latch.getCount() > 0; i++) {
+            carrier.resize(sizes[i % sizes.length][0], sizes[i % sizes.length][1]);
+            Thread.sleep(5);
+        }
+        latch.await();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (consumer.received.size() < producerNum * dataPerProducer && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        carrier.shutdownConsumers();
+        Assert.assertEquals(producerNum * dataPerProducer, consumer.received.size());
+        Assert.assertEquals(0, consumer.duplicated.get());
+    }
+
+    @Test
+    public void testAdaptiveResize() throws IllegalAccessException {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(1, 10);
+        carrier.setBufferStrategy(BufferStrategy.IF_POSSIBLE);
+        AdaptiveResizer<SampleData> resizer = new AdaptiveResizer<SampleData>(carrier, 10, 40);
+
+        Assert.assertEquals(10, resizer.check());
+        produce(carrier, 11);
+        Assert.assertEquals(20, resizer.check());
+        produce(carrier, 11);
+        Assert.assertEquals(40, resizer.check());
+        produce(carrier, 21);
+        Assert.assertEquals(40, resizer.check());
+
+        Channels<SampleData> channels = (Channels<SampleData>)(MemberModifier.field(DataCarrier.class, "channels").get(carrier));
+        Assert.assertEquals(40, channels.getBuffer(0).obtain(0, 40).size());
+        for (int i = 1; i < AdaptiveResizer.SHRINK_AFTER_CHECKS; i++) {
+            Assert.assertEquals(40, resizer.check());
+        }
+        Assert.assertEquals(20, resizer.check());
+        Assert.assertEquals(20, channels.getBuffer(0).getBufferSize());
+    }
+
+    private void produce(DataCarrier<SampleData> carrier, int num) {
+        for (int i = 0; i < num; i++) {
+            carrier.produce(new SampleData().setIntValue(i));
+        }
+    }
+
+    private static class CountingConsumer implements IBatchConsumer<SampleData> {
+        private final ConcurrentHashMap<Integer, Boolean> received = new ConcurrentHashMap<Integer, Boolean>();
+        private final AtomicInteger duplicated = new AtomicInteger(0);
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void consume(Batch<SampleData> data) {
+            for (int i = 0; i < data.size(); i++) {
+                if (received.put(data.get(i).getIntValue(), Boolean.TRUE) != null) {
+                    duplicated.incrementAndGet();
+                }
+            }
+        }
+
+        @Override
+        public void onError(Batch<SampleData> data, Throwable t) {
+        }
+
+        @Override
+        public void onExit() {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SequencedBufferTest {
+    @Test
+    public void testIfPossible() {
+        Buffer<SampleData> buffer = Buffer.newBuffer(BufferType.SEQUENCED_SINGLE_PRODUCER, 10, BufferStrategy.IF_POSSIBLE);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(buffer.save(new SampleData().setIntValue(i)));
+        }
+        Assert.assertFalse(buffer.save(new SampleData().setIntValue(10)));
+
+        List<SampleData> result = buffer.obtain(0, 4);
+        Assert.assertEquals(4, result.size());
+        Assert.assertEquals(0, result.get(0).getIntValue());
+        Assert.assertTrue(buffer.save(new SampleData().setIntValue(10)));
+
+        result = buffer.obtain(0, 10);
+        Assert.assertEquals(7, result.size());
+        Assert.assertEquals(4, result.get(0).getIntValue());
+        Assert.assertEquals(10, result.get(6).getIntValue());
+        Assert.assertEquals(0, buffer.obtain(0, 10).size());
+    }
+
+    @Test
+    public void testBatchSave() {
+        Buffer<SampleData> buffer = Buffer.newBuffer(BufferType.SEQUENCED_MULTI_PRODUCER, 10, BufferStrategy.IF_POSSIBLE);
+        SampleData[] array = new SampleData[8];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = new SampleData().setIntValue(i);
+        }
+        List<SampleData> data = Arrays.asList(array);
+        Assert.assertEquals(8, buffer.save(data, 0, 8));
+        Assert.assertEquals(2, buffer.save(data, 0, 8));
+
+        List<SampleData> result = buffer.obtain(0, 10);
+        Assert.assertEquals(10, result.size());
+        Assert.assertEquals(7, result.get(7).getIntValue());
+        Assert.assertEquals(1, result.get(9).getIntValue());
+
+        buffer = Buffer.newBuffer(BufferType.SEQUENCED_SINGLE_PRODUCER, 10, BufferStrategy.OVERRIDE);
+        Assert.assertEquals(8, buffer.save(data, 0, 8));
+        Assert.assertEquals(6, buffer.save(data, 2, 6));
+        result = buffer.obtain(0, 10);
+        Assert.assertEquals(10, result.size());
+        Assert.assertEquals(4, result.get(0).getIntValue());
+        Assert.assertEquals(7, result.get(9).getIntValue());
+    }
+
+    @Test
+    public void testOverride() {
+        Buffer<SampleData> buffer = Buffer.newBuffer(BufferType.SEQUENCED_MULTI_PRODUCER, 10, BufferStrategy.OVERRIDE);
+        for (int i = 0; i < 25; i++) {
+            Assert.assertTrue(buffer.save(new SampleData().setIntValue(i)));
+        }
+
+        List<SampleData> result = buffer.obtain(0, 10);
+        Assert.assertEquals(10, result.size());
+        Assert.assertEquals(15, result.get(0).getIntValue());
+        Assert.assertEquals(24, result.get(9).getIntValue());
+    }
+
+    @Test
+    public void testMultiProducers() throws InterruptedException {
+        final Buffer<SampleData> buffer = Buffer.newBuffer(BufferType.SEQUENCED_MULTI_PRODUCER, 64, BufferStrategy.BLOCKING);
+        final int producerNum = 4;
+        final int dataPerProducer = 10000;
+        final CountDownLatch latch = new CountDownLatch(producerNum);
+        for (int p = 0; p < producerNum; p++) {
+            final int producer = p;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < dataPerProducer; i++) {
+                        buffer.save(new SampleData().setIntValue(producer * dataPerProducer + i));
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+
+        HashSet<Integer> received = new HashSet<Integer>();
+        while (received.size() < producerNum * dataPerProducer) {
+            for (SampleData data : buffer.obtain(0, 64)) {
+                Assert.assertTrue(received.add(data.getIntValue()));
+            }
+        }
+        latch.await();
+        Assert.assertEquals(0, buffer.obtain(0, 64).size());
+    }
+}
@@ -39,4 +39,13 @@ public class AtomicRangeIntegerTest {
         Assert.assertEquals(1, (int)atomicI.floatValue());
         Assert.assertEquals(1, (int)atomicI.doubleValue());
     }
+
+    @Test
+    public void testGetAndAdd() {
+        AtomicRangeInteger atomicI = new AtomicRangeInteger(0, 10);
+        Assert.assertEquals(0, atomicI.getAndAdd(4));
+        Assert.assertEquals(4, atomicI.getAndAdd(6));
+        Assert.assertEquals(0, atomicI.getAndAdd(23));
+        Assert.assertEquals(3, atomicI.get());
+    }
 }
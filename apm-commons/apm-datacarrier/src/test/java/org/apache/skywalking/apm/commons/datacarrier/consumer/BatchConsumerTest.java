@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.consumer;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchConsumerTest {
+    @Test
+    public void testConsumeInReusableBatch() throws InterruptedException {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(2, 100);
+        for (int i = 0; i < 200; i++) {
+            Assert.assertTrue(carrier.produce(new SampleData().setIntValue(i)));
+        }
+
+        SampleBatchConsumer consumer = new SampleBatchConsumer();
+        carrier.consume(consumer, 1, 16);
+        Thread.sleep(2000);
+        carrier.shutdownConsumers();
+
+        Assert.assertEquals(200, consumer.received.size());
+        Assert.assertEquals(1, consumer.batches.size());
+        Assert.assertTrue(consumer.maxSize <= 16);
+    }
+
+    @Test
+    public void testShutdownAfterDataLeftConsumed() throws InterruptedException {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(2, 100);
+        SampleBatchConsumer consumer = new SampleBatchConsumer();
+        carrier.consume(consumer, 1, 16);
+        for (int i = 0; i < 200; i++) {
+            Assert.assertTrue(carrier.produce(new SampleData().setIntValue(i)));
+        }
+
+        Assert.assertTrue(carrier.shutdownConsumers(5000));
+        Assert.assertTrue(consumer.exited);
+        Assert.assertEquals(200, consumer.received.size());
+    }
+
+    class SampleBatchConsumer implements IBatchConsumer<SampleData> {
+        private Set<Integer> received = new HashSet<Integer>();
+        private Set<Batch<SampleData>> batches = Collections.newSetFromMap(new IdentityHashMap<Batch<SampleData>, Boolean>());
+        private int maxSize = 0;
+        private volatile boolean exited = false;
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void consume(Batch<SampleData> data) {
+            batches.add(data);
+            maxSize = Math.max(maxSize, data.size());
+            for (int i = 0; i < data.size(); i++) {
+                received.add(data.get(i).getIntValue());
+            }
+        }
+
+        @Override
+        public void onError(Batch<SampleData> data, Throwable t) {
+        }
+
+        @Override
+        public void onExit() {
+            exited = true;
+        }
+    }
+}
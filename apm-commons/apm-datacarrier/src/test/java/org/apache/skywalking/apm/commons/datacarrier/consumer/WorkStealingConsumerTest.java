@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.consumer;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.apache.skywalking.apm.commons.datacarrier.partition.IDataPartitioner;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorkStealingConsumerTest {
+    @Test
+    public void testStealFromHotChannel() throws InterruptedException {
+        SlowConsumer consumer = runWithHotChannel(ConsumerPoolMode.WORK_STEALING);
+
+        Assert.assertEquals(400, consumer.received.size());
+        Assert.assertTrue(consumer.threads.size() > 1);
+    }
+
+    @Test
+    public void testOrderedStealing() throws InterruptedException {
+        SlowConsumer consumer = runWithHotChannel(ConsumerPoolMode.ORDERED_WORK_STEALING);
+
+        Assert.assertEquals(400, consumer.received.size());
+        Assert.assertFalse(consumer.outOfOrder);
+    }
+
+    private SlowConsumer runWithHotChannel(ConsumerPoolMode mode) throws InterruptedException {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(4, 100, BufferType.SEQUENCED_MULTI_PRODUCER);
+        carrier.setPartitioner(new IDataPartitioner<SampleData>() {
+            @Override
+            public int partition(int total, SampleData data) {
+                return 0;
+            }
+
+            @Override
+            public int maxRetryCount() {
+                return 1;
+            }
+        });
+        carrier.setConsumerPoolMode(mode);
+        SlowConsumer consumer = new SlowConsumer();
+        carrier.consume(consumer, 4, 10);
+
+        for (int i = 0; i < 400; i++) {
+            Assert.assertTrue(carrier.produce(new SampleData().setIntValue(i)));
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (consumer.received.size() < 400 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        carrier.shutdownConsumers();
+        return consumer;
+    }
+
+    class SlowConsumer implements IBatchConsumer<SampleData> {
+        private Set<Integer> received = new HashSet<Integer>();
+        private Set<String> threads = new HashSet<String>();
+        private volatile boolean outOfOrder = false;
+        private int last = -1;
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void consume(Batch<SampleData> data) {
+            synchronized (this) {
+                threads.add(Thread.currentThread().getName());
+                for (int i = 0; i < data.size(); i++) {
+                    int value = data.get(i).getIntValue();
+                    if (value <= last) {
+                        outOfOrder = true;
+                    }
+                    last = value;
+                    received.add(value);
+                }
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+            }
+        }
+
+        @Override
+        public void onError(Batch<SampleData> data, Throwable t) {
+        }
+
+        @Override
+        public void onExit() {
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.IBatchConsumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DataCarrierMetricsTest {
+    @Test
+    public void testCounters() throws InterruptedException {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>("metrics-test", 2, 10, BufferType.SEQUENCED_MULTI_PRODUCER);
+        carrier.setBufferStrategy(BufferStrategy.IF_POSSIBLE);
+        for (int i = 0; i < 25; i++) {
+            carrier.produce(new SampleData().setIntValue(i));
+        }
+
+        DataCarrierMetrics metrics = carrier.getMetrics();
+        Assert.assertEquals("metrics-test", metrics.getName());
+        Assert.assertEquals(2, metrics.getChannels().size());
+        Assert.assertEquals(20, metrics.getProduced());
+        Assert.assertEquals(5, metrics.getDropped());
+        Assert.assertEquals(20, metrics.getDepth());
+        Assert.assertEquals(0, metrics.getConsumed());
+
+        carrier.consume(new IBatchConsumer<SampleData>() {
+            @Override
+            public void init() {
+            }
+
+            @Override
+            public void consume(Batch<SampleData> data) {
+            }
+
+            @Override
+            public void onError(Batch<SampleData> data, Throwable t) {
+            }
+
+            @Override
+            public void onExit() {
+            }
+        }, 1, 4);
+        Thread.sleep(500);
+        carrier.shutdownConsumers();
+
+        metrics = carrier.getMetrics();
+        Assert.assertEquals(20, metrics.getConsumed());
+        Assert.assertEquals(0, metrics.getDepth());
+        // 5 batches of 4
+        Assert.assertEquals(5, metrics.getBatchSizeBuckets()[2]);
+
+        boolean registered = false;
+        for (DataCarrierMetrics one : DataCarrierRegistry.INSTANCE.snapshot()) {
+            if ("metrics-test".equals(one.getName())) {
+                registered = true;
+            }
+        }
+        Assert.assertTrue(registered);
+    }
+
+    @Test
+    public void testCountersNotResetByResize() {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>("resize-metrics-test", 2, 10, BufferType.ARRAY);
+        carrier.setBufferStrategy(BufferStrategy.IF_POSSIBLE);
+        for (int i = 0; i < 25; i++) {
+            carrier.produce(new SampleData().setIntValue(i));
+        }
+        DataCarrierMetrics before = carrier.getMetrics();
+
+        // no consumer, the 20 data in the retired channels are moved into the new one.
+        carrier.resize(1, 40);
+        DataCarrierMetrics after = carrier.getMetrics();
+        Assert.assertEquals(1, after.getChannels().size());
+        Assert.assertEquals(0, after.getRetired().getDepth());
+        Assert.assertEquals(20, after.getDepth());
+        Assert.assertTrue(after.getProduced() >= before.getProduced());
+        Assert.assertEquals(before.getDropped(), after.getDropped());
+
+        carrier.resize(2, 20);
+        DataCarrierMetrics again = carrier.getMetrics();
+        Assert.assertEquals(20, again.getDepth());
+        Assert.assertTrue(again.getProduced() >= after.getProduced());
+        Assert.assertTrue(again.getConsumed() >= after.getConsumed());
+        Assert.assertEquals(before.getDropped(), again.getDropped());
+    }
+
+    @Test
+    public void testCountersOfConcurrentProducers() throws InterruptedException {
+        final DataCarrier<SampleData> carrier = new DataCarrier<SampleData>("concurrent-metrics-test", 1, 1000,
+            BufferType.SEQUENCED_MULTI_PRODUCER);
+        carrier.setBufferStrategy(BufferStrategy.IF_POSSIBLE);
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 500; j++) {
+                        carrier.produce(new SampleData().setIntValue(j));
+                    }
+                }
+            };
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        DataCarrierMetrics metrics = carrier.getMetrics();
+        Assert.assertEquals(1000, metrics.getProduced());
+        Assert.assertEquals(1000, metrics.getDropped());
+        Assert.assertEquals(1000, metrics.getDepth());
+    }
+
+    @Test
+    public void testExportToJMX() throws Exception {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>("jmx-test", 1, 10);
+        carrier.produce(new SampleData().setIntValue(1));
+        DataCarrierRegistry.INSTANCE.exportToJMX();
+        DataCarrier<SampleData> createdAfterExport = new DataCarrier<SampleData>("jmx-test-after", 1, 10);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = server.queryNames(
+            new ObjectName(DataCarrierRegistry.OBJECT_NAME_PREFIX + ",name=\"jmx-test\",*"), null);
+        Assert.assertEquals(1, names.size());
+        ObjectName name = names.iterator().next();
+        Assert.assertEquals(1L, server.getAttribute(name, "Produced"));
+        Assert.assertEquals(1L, server.getAttribute(name, "Depth"));
+        Assert.assertEquals(1, server.queryNames(
+            new ObjectName(DataCarrierRegistry.OBJECT_NAME_PREFIX + ",name=\"jmx-test-after\",*"), null).size());
+        Assert.assertNotNull(createdAfterExport.getMetrics());
+    }
+
+    @Test
+    public void testDistinctDefaultNames() {
+        DataCarrier<SampleData> first = new DataCarrier<SampleData>(1, 10);
+        DataCarrier<SampleData> second = new DataCarrier<SampleData>(1, 10);
+        Assert.assertNotEquals(first.getMetrics().getName(), second.getMetrics().getName());
+    }
+
+    @Test
+    public void testBatchSizeHistogram() {
+        BatchSizeHistogram histogram = new BatchSizeHistogram();
+        histogram.record(1);
+        histogram.record(3);
+        histogram.record(300);
+        long[] buckets = histogram.snapshot();
+        Assert.assertEquals(1, buckets[0]);
+        Assert.assertEquals(1, buckets[1]);
+        Assert.assertEquals(1, buckets[8]);
+        Assert.assertEquals(256, BatchSizeHistogram.lowerBound(8));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.spill;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.api.support.membermodification.MemberModifier;
+
+public class SpillFileTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("datacarrier", ".spill");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        // each record is 8 bytes, 4 records fit
+        SpillFile<SampleData> spillFile = new SpillFile<SampleData>(file, 36, new SampleDataSerializer());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(spillFile.write(new SampleData().setIntValue(i)));
+        }
+        Assert.assertFalse(spillFile.write(new SampleData().setIntValue(4)));
+        Assert.assertEquals(4, spillFile.getBacklogCount());
+        Assert.assertEquals(32, spillFile.getBacklogBytes());
+
+        Batch<SampleData> batch = new Batch<SampleData>(3);
+        spillFile.read(batch);
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals(2, batch.get(2).getIntValue());
+        Assert.assertEquals(1, spillFile.getBacklogCount());
+
+        // the 6th record wraps to the head of the file
+        Assert.assertTrue(spillFile.write(new SampleData().setIntValue(5)));
+        Assert.assertTrue(spillFile.write(new SampleData().setIntValue(6)));
+        batch.clear();
+        spillFile.read(batch);
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals(3, batch.get(0).getIntValue());
+        Assert.assertEquals(5, batch.get(1).getIntValue());
+        Assert.assertEquals(6, batch.get(2).getIntValue());
+        Assert.assertEquals(0, spillFile.getBacklogCount());
+        Assert.assertEquals(0, spillFile.getBacklogBytes());
+    }
+
+    @Test
+    public void testSpillStrategy() throws IOException, IllegalAccessException {
+        DataCarrier<SampleData> carrier = new DataCarrier<SampleData>(2, 10);
+        carrier.setBufferStrategy(BufferStrategy.SPILL);
+        carrier.setSpillFile(new SpillFile<SampleData>(file, 1024, new SampleDataSerializer()));
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(carrier.produce(new SampleData().setIntValue(i)));
+        }
+
+        Channels<SampleData> channels = (Channels<SampleData>)(MemberModifier.field(DataCarrier.class, "channels").get(carrier));
+        Batch<SampleData> batch = new Batch<SampleData>(100);
+        channels.getBuffer(0).obtain(0, 10, batch);
+        Assert.assertEquals(40, batch.size());
+        channels.getBuffer(1).obtain(0, 10, batch);
+        Assert.assertEquals(50, batch.size());
+
+        carrier.shutdownConsumers();
+        Assert.assertFalse(file.exists());
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        SpillFile<SampleData> spillFile = new SpillFile<SampleData>(file, 36, new SampleDataSerializer());
+        Assert.assertTrue(spillFile.write(new SampleData().setIntValue(0)));
+        spillFile.close();
+        Assert.assertFalse(file.exists());
+        Assert.assertEquals(0, spillFile.getBacklogCount());
+        Assert.assertFalse(spillFile.write(new SampleData().setIntValue(1)));
+
+        Batch<SampleData> batch = new Batch<SampleData>(3);
+        spillFile.read(batch);
+        Assert.assertEquals(0, batch.size());
+    }
+
+    private class SampleDataSerializer implements ISpillSerializer<SampleData> {
+        @Override
+        public byte[] serialize(SampleData data) {
+            return ByteBuffer.allocate(4).putInt(data.getIntValue()).array();
+        }
+
+        @Override
+        public SampleData deserialize(byte[] bytes) {
+            return new SampleData().setIntValue(ByteBuffer.wrap(bytes).getInt());
+        }
+    }
+}
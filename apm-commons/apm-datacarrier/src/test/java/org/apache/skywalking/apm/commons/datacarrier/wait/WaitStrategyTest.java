@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.wait;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WaitStrategyTest {
+    @Test
+    public void testParkingSignaledByProducer() throws InterruptedException {
+        long maxParkNanos = TimeUnit.SECONDS.toNanos(30);
+        assertConsumedQuickly(new DataCarrier<SampleData>(1, 100), new ParkingWaitStrategy(maxParkNanos));
+        assertConsumedQuickly(new DataCarrier<SampleData>(2, 100, BufferType.SEQUENCED_MULTI_PRODUCER), new ParkingWaitStrategy(maxParkNanos));
+    }
+
+    @Test
+    public void testOtherStrategies() throws InterruptedException {
+        assertConsumedQuickly(new DataCarrier<SampleData>(1, 100), new BusySpinWaitStrategy());
+        assertConsumedQuickly(new DataCarrier<SampleData>(1, 100), new YieldingWaitStrategy());
+        assertConsumedQuickly(new DataCarrier<SampleData>(1, 100), new BackoffWaitStrategy(TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    private void assertConsumedQuickly(DataCarrier<SampleData> carrier,
+        IWaitStrategy waitStrategy) throws InterruptedException {
+        final LinkedBlockingQueue<SampleData> received = new LinkedBlockingQueue<SampleData>();
+        carrier.consume(new IConsumer<SampleData>() {
+            @Override
+            public void init() {
+            }
+
+            @Override
+            public void consume(List<SampleData> data) {
+                received.addAll(data);
+            }
+
+            @Override
+            public void onError(List<SampleData> data, Throwable t) {
+            }
+
+            @Override
+            public void onExit() {
+            }
+        }, 1, waitStrategy);
+
+        // let the consumer go idle first
+        Thread.sleep(200);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(carrier.produce(new SampleData().setIntValue(i)));
+            SampleData data = received.poll(1, TimeUnit.SECONDS);
+            Assert.assertNotNull(data);
+            Assert.assertEquals(i, data.getIntValue());
+            Thread.sleep(50);
+        }
+        carrier.shutdownConsumers();
+    }
+}
@@ -19,7 +19,14 @@
 
 package org.apache.skywalking.apm.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
 public final class StringUtil {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     public static boolean isEmpty(String str) {
         return str == null || str.length() == 0;
     }
@@ -51,4 +58,24 @@ public final class StringUtil {
         }
         return sb.toString();
     }
+
+    /**
+     * Write the string as its length then its UTF-8 bytes, read by {@link #readUTF8(DataInput)}. Unlike {@link
+     * DataOutput#writeUTF(String)}, no 64KB limit.
+     */
+    public static void writeUTF8(DataOutput out, String str) throws IOException {
+        byte[] bytes = str.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readUTF8(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
 }
@@ -19,6 +19,10 @@
 
 package org.apache.skywalking.apm.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -40,4 +44,23 @@ public class StringUtilTest {
         Assert.assertEquals("Single part.", StringUtil.join('.', "Single part."));
         Assert.assertEquals("part1.part2.p3", StringUtil.join('.', "part1", "part2", "p3"));
     }
+
+    @Test
+    public void testUTF8OverWriteUTFLimit() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 70000) {
+            builder.append("/path/\u4e2d\u6587");
+        }
+        String longString = builder.toString();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        StringUtil.writeUTF8(out, longString);
+        StringUtil.writeUTF8(out, "");
+        out.close();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertEquals(longString, StringUtil.readUTF8(in));
+        Assert.assertEquals("", StringUtil.readUTF8(in));
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.network.grpc;
+
+import io.grpc.Codec;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The <code>deflate</code> message encoding of grpc, by the JDK. The grpc library provides <code>gzip</code> only.
+ * Registered by both the agent channel, for compressing, and the collector server, for decompressing.
+ */
+public class DeflateCodec implements Codec {
+    public static final String NAME = "deflate";
+
+    @Override
+    public String getMessageEncoding() {
+        return NAME;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) {
+        return new DeflaterOutputStream(os);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) {
+        return new InflaterInputStream(is);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.network.grpc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeflateCodecTest {
+    @Test
+    public void testCompressAndDecompress() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("SELECT * FROM t_order WHERE id = ?;");
+        }
+        byte[] origin = content.toString().getBytes("UTF-8");
+
+        DeflateCodec codec = new DeflateCodec();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = codec.compress(compressed);
+        out.write(origin);
+        out.close();
+        Assert.assertTrue(compressed.size() < origin.length);
+
+        InputStream in = codec.decompress(new ByteArrayInputStream(compressed.toByteArray()));
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            decompressed.write(buffer, 0, length);
+        }
+        Assert.assertArrayEquals(origin, decompressed.toByteArray());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.agent.core.context.ids.ID;
+import org.apache.skywalking.apm.agent.core.context.ids.PropagatedTraceId;
+import org.apache.skywalking.apm.util.StringUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encode and decode the cross process headers of {@link ContextCarrier}, the <code>sw3</code> text and the compact
+ * <code>sw3b</code>, for the registered ids and the literal names. The <code>legacy</code> ones are the split and join
+ * based codec, kept here as the baseline. Run with <code>-prof gc</code> for the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextCarrierBenchmark {
+    @Param({"1.2343.15232345670001|3|5|5|12|1024|1025|1.2343.15232345670001",
+        "1.2343.15232345670001|3|5|5|#127.0.0.1:8080|#/portal/|#/portal/order/create|1.2343.15232345670001"})
+    public String text;
+
+    private ContextCarrier carrier;
+    private String compact;
+
+    @Setup
+    public void setup() {
+        carrier = new ContextCarrier().deserialize(text);
+        compact = carrier.serializeCompact();
+        if (!carrier.isValid() || !text.equals(carrier.serialize())) {
+            throw new IllegalStateException("Illegal sw3 header " + text);
+        }
+    }
+
+    @Benchmark
+    public String serialize() {
+        return carrier.serialize();
+    }
+
+    @Benchmark
+    public ContextCarrier deserialize() {
+        return new ContextCarrier().deserialize(text);
+    }
+
+    @Benchmark
+    public String serializeCompact() {
+        return carrier.serializeCompact();
+    }
+
+    @Benchmark
+    public ContextCarrier deserializeCompact() {
+        return new ContextCarrier().deserializeCompact(compact);
+    }
+
+    @Benchmark
+    public String legacySerialize() {
+        return StringUtil.join('|',
+            carrier.getTraceSegmentId().encode(),
+            carrier.getSpanId() + "",
+            carrier.getParentApplicationInstanceId() + "",
+            carrier.getEntryApplicationInstanceId() + "",
+            carrier.getPeerHost(),
+            carrier.getEntryOperationName(),
+            carrier.getParentOperationName(),
+            carrier.getDistributedTraceId().encode());
+    }
+
+    @Benchmark
+    public void legacyDeserialize(Blackhole blackhole) {
+        String[] parts = text.split("\\|", 8);
+        blackhole.consume(legacyId(parts[0]));
+        blackhole.consume(Integer.parseInt(parts[1]));
+        blackhole.consume(Integer.parseInt(parts[2]));
+        blackhole.consume(Integer.parseInt(parts[3]));
+        blackhole.consume(parts[4]);
+        blackhole.consume(parts[5]);
+        blackhole.consume(parts[6]);
+        blackhole.consume(new PropagatedTraceId(legacyId(parts[7])));
+    }
+
+    private static ID legacyId(String text) {
+        String[] idParts = text.split("\\.", 3);
+        return new ID(Long.parseLong(idParts[0]), Long.parseLong(idParts[1]), Long.parseLong(idParts[2]));
+    }
+}
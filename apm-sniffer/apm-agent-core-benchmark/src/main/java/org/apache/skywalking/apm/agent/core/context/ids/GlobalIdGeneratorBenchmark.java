@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.ids;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.conf.RemoteDownstreamConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generate the trace and segment ids by {@link GlobalIdGenerator}, with the sequence of every thread, and with the
+ * sequence shared by all threads, see {@link Config.Agent#SHARED_ID_SEQUENCE}. The <code>legacy</code> one is the
+ * generator reading the clock for every id, kept here as the baseline, it doesn't depend on the parameter.
+ *
+ * Run in 4 threads by default, to show the contention of the shared sequence, override by <code>-t</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class GlobalIdGeneratorBenchmark {
+    private static final ThreadLocal<LegacyIDContext> LEGACY_THREAD_ID_SEQUENCE = new ThreadLocal<LegacyIDContext>() {
+        @Override
+        protected LegacyIDContext initialValue() {
+            return new LegacyIDContext(System.currentTimeMillis(), (short)0);
+        }
+    };
+
+    @Param({"false", "true"})
+    public boolean sharedIdSequence;
+
+    private int applicationInstanceId;
+    private boolean lastSharedIdSequence;
+
+    @Setup
+    public void setup() {
+        applicationInstanceId = RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID;
+        lastSharedIdSequence = Config.Agent.SHARED_ID_SEQUENCE;
+        RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID = 1;
+        Config.Agent.SHARED_ID_SEQUENCE = sharedIdSequence;
+    }
+
+    @TearDown
+    public void tearDown() {
+        RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID = applicationInstanceId;
+        Config.Agent.SHARED_ID_SEQUENCE = lastSharedIdSequence;
+    }
+
+    @Benchmark
+    public ID generate() {
+        return GlobalIdGenerator.generate();
+    }
+
+    @Benchmark
+    public ID legacyGenerate() {
+        return new ID(
+            RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID,
+            Thread.currentThread().getId(),
+            LEGACY_THREAD_ID_SEQUENCE.get().nextSeq()
+        );
+    }
+
+    /**
+     * The sequence of the legacy generator, reads the clock for every id.
+     */
+    private static class LegacyIDContext {
+        private long lastTimestamp;
+        private short threadSeq;
+
+        private long runRandomTimestamp;
+        private int lastRandomValue;
+        private Random random;
+
+        private LegacyIDContext(long lastTimestamp, short threadSeq) {
+            this.lastTimestamp = lastTimestamp;
+            this.threadSeq = threadSeq;
+        }
+
+        private long nextSeq() {
+            return timestamp() * 10000 + nextThreadSeq();
+        }
+
+        private long timestamp() {
+            long currentTimeMillis = System.currentTimeMillis();
+
+            if (currentTimeMillis < lastTimestamp) {
+                if (random == null) {
+                    random = new Random();
+                }
+                if (runRandomTimestamp != currentTimeMillis) {
+                    lastRandomValue = random.nextInt();
+                    runRandomTimestamp = currentTimeMillis;
+                }
+                return lastRandomValue;
+            } else {
+                lastTimestamp = currentTimeMillis;
+                return lastTimestamp;
+            }
+        }
+
+        private short nextThreadSeq() {
+            if (threadSeq == 10000) {
+                threadSeq = 0;
+            }
+            return threadSeq++;
+        }
+    }
+}
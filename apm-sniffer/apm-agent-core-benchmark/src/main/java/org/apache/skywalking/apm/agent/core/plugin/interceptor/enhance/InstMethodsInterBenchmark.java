@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static net.bytebuddy.jar.asm.Opcodes.ACC_PRIVATE;
+
+/**
+ * Call an instance method, as is, and enhanced the same way as {@link ClassEnhancePluginDefine} does, delegated to
+ * {@link InstMethodsInter} with an interceptor doing nothing. The difference is the cost of the dispatch, run with
+ * <code>-prof gc</code> for the allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstMethodsInterBenchmark {
+    private Target target;
+    private Target enhancedTarget;
+    private String argument;
+
+    @Setup
+    public void setup() throws Exception {
+        target = new Target();
+        enhancedTarget = new ByteBuddy().subclass(Target.class)
+            .defineField(ClassEnhancePluginDefine.CONTEXT_ATTR_NAME, Object.class, ACC_PRIVATE)
+            .implement(EnhancedInstance.class)
+            .intercept(FieldAccessor.ofField(ClassEnhancePluginDefine.CONTEXT_ATTR_NAME))
+            .method(ElementMatchers.named("call"))
+            .intercept(MethodDelegation.withDefaultConfiguration().to(new InstMethodsInter(new NoopInterceptor())))
+            .make()
+            .load(Target.class.getClassLoader())
+            .getLoaded()
+            .newInstance();
+        argument = "argument";
+    }
+
+    @Benchmark
+    public String call() {
+        return target.call(argument);
+    }
+
+    @Benchmark
+    public String enhancedCall() {
+        return enhancedTarget.call(argument);
+    }
+
+    public static class Target {
+        public String call(String argument) {
+            return argument;
+        }
+    }
+
+    public static class NoopInterceptor implements InstanceMethodsAroundInterceptor {
+        @Override
+        public void beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+            Class<?>[] argumentsTypes, MethodInterceptResult result) {
+        }
+
+        @Override
+        public Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+            Class<?>[] argumentsTypes, Object ret) {
+            return ret;
+        }
+
+        @Override
+        public void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+            Class<?>[] argumentsTypes, Throwable t) {
+        }
+    }
+}
@@ -54,6 +54,12 @@ public class Config {
          */
         public static int SAMPLE_N_PER_3_SECS = -1;
 
+        /**
+         * Positive means adaptive sampling, up to this number of {@link TraceSegment}s per second, shared fairly by the
+         * entry operations, and {@link #SAMPLE_N_PER_3_SECS} is ignored. The propagated traces are always sampled.
+         */
+        public static int SAMPLE_SEGMENTS_PER_SEC = -1;
+
         /**
          * If the operation name of the first span is included in this set, this segment should be ignored.
          */
@@ -70,6 +76,34 @@ public class Config {
          * Skywalking team may ask for these files in order to resolve compatible problem.
          */
         public static boolean IS_OPEN_DEBUGGING_CLASS = false;
+
+        /**
+         * If true, {@link TraceSegment}s and their spans are returned to thread-confined pools after sent to collector,
+         * and reused by the next traces of the threads created them. Less garbage, but any reference kept to a span
+         * after its segment finished becomes invalid. Using it throws {@link IllegalStateException} while the span is
+         * idle in the pool, but once the span is reused by another trace, the stale reference writes into that trace
+         * silently, so plugins must not keep a span after stopping it.
+         */
+        public static boolean RECYCLE_SEGMENTS = false;
+
+        /**
+         * The max number of idle segments, and idle spans of each type, kept in the pool of a thread, works with
+         * {@link #RECYCLE_SEGMENTS}.
+         */
+        public static int RECYCLE_POOL_CAPACITY = 64;
+
+        /**
+         * If true, the trace and segment ids are generated from one sequence shared by all threads, instead of a
+         * sequence in every thread. No thread local is kept, better for the thread pools creating plenty of
+         * short-lived threads, but the sequence is contended when plenty of threads generate ids at the same time.
+         */
+        public static boolean SHARED_ID_SEQUENCE = false;
+
+        /**
+         * If true, the context is propagated in the compact binary `sw3b` header, instead of the `sw3` text header.
+         * Both headers are always accepted from upstream, so turn this on after all the downstream agents upgraded.
+         */
+        public static boolean COMPACT_CARRIER_HEADER = false;
     }
 
     public static class Collector {
@@ -108,6 +142,33 @@ public class Config {
          * Collector service discovery REST service name
          */
         public static String DISCOVERY_SERVICE_NAME = "/agent/gRPC";
+
+        /**
+         * Max segments sent through one upload stream. The stream is completed after that, then the collector
+         * acknowledges them, and a new stream opens.
+         */
+        public static int UPLOAD_STREAM_MAX_SEGMENTS = 10000;
+
+        /**
+         * Max bytes of the segments sent through one upload stream, works with {@link #UPLOAD_STREAM_MAX_SEGMENTS}. The
+         * collector acknowledges a stream as a whole, so the sent segments are kept until then, these limits bound them.
+         */
+        public static long UPLOAD_STREAM_MAX_BYTES = 8 * 1024 * 1024;
+
+        /**
+         * Max seconds of one upload stream, works with {@link #UPLOAD_STREAM_MAX_SEGMENTS}.
+         */
+        public static long UPLOAD_STREAM_MAX_DURATION = 60;
+
+        /**
+         * Compress the segments and jvm metrics sent to collector, gzip or deflate. Empty means no compression.
+         */
+        public static String UPLOAD_COMPRESSION = "";
+
+        /**
+         * The messages smaller than this, in bytes, are sent without compression.
+         */
+        public static int UPLOAD_COMPRESSION_THRESHOLD = 1024;
     }
 
     public static class Jvm {
@@ -121,6 +182,40 @@ public class Config {
         public static int CHANNEL_SIZE = 5;
 
         public static int BUFFER_SIZE = 300;
+
+        /**
+         * The channels grow up to this size when segments are abandoned, and shrink back to {@link #BUFFER_SIZE} when
+         * the load goes down. Not greater than {@link #BUFFER_SIZE} means a fixed size.
+         */
+        public static int MAX_BUFFER_SIZE = 1200;
+    }
+
+    public static class Journal {
+        /**
+         * The directory of the segment journal, which keeps the segments on disk when they can't be sent to
+         * collector, and sends them after reconnected. Empty means no journal, the segments are abandoned.
+         */
+        public static String DIR = "";
+
+        /**
+         * Max bytes of the journal, the oldest segments are evicted beyond this.
+         */
+        public static long MAX_SIZE = 100 * 1024 * 1024;
+
+        /**
+         * The journal starts a new file after the current one reaches this size, in bytes.
+         */
+        public static long MAX_FILE_SIZE = 4 * 1024 * 1024;
+
+        /**
+         * Seconds, the older segments are evicted.
+         */
+        public static long MAX_AGE = 60 * 60;
+
+        /**
+         * Max segments sent from the journal per second, after reconnected.
+         */
+        public static int DRAIN_RATE = 500;
     }
 
     public static class Dictionary {
@@ -129,7 +224,41 @@ public class Config {
          */
         public static int APPLICATION_CODE_BUFFER_SIZE = 10 * 10000;
 
-        public static int OPERATION_NAME_BUFFER_SIZE = 1000 * 10000;
+        /**
+         * The max operation names in the dictionary, and waiting for register, of all the applications. The names not
+         * used recently are evicted beyond this.
+         */
+        public static int OPERATION_NAME_BUFFER_SIZE = 10 * 10000;
+
+        /**
+         * The max operation names of each application. The new names beyond this are collapsed into {@link
+         * #OPERATION_NAME_FALLBACK}, such as the URLs including parameters, and the names of the application not used
+         * recently are evicted in the next syncs, to make room for the new ones.
+         */
+        public static int OPERATION_NAME_BUDGET_PER_APPLICATION = 5000;
+
+        /**
+         * The operation name of the spans, whose names are beyond {@link #OPERATION_NAME_BUDGET_PER_APPLICATION}.
+         */
+        public static String OPERATION_NAME_FALLBACK = "OTHER_OPERATIONS";
+
+        /**
+         * The max operation names registered in each sync, every {@link
+         * Collector#APP_AND_SERVICE_REGISTER_CHECK_INTERVAL} seconds. The others wait for the next syncs.
+         */
+        public static int OPERATION_NAME_REGISTER_BATCH_SIZE = 1000;
+
+        /**
+         * The directory to keep the registered operation names and network addresses, per application code and
+         * collector cluster. They are reloaded at the next start, so the spans carry the ids at once, and confirmed
+         * with the collector in batches later. Empty means off.
+         */
+        public static String SNAPSHOT_DIR = "";
+
+        /**
+         * The max number of the reloaded entries of each dictionary, confirmed with the collector in each sync.
+         */
+        public static int SNAPSHOT_REVALIDATE_BATCH_SIZE = 100;
     }
 
     public static class Logging {
@@ -158,6 +287,18 @@ public class Config {
     }
 
     public static class Plugin {
+        /**
+         * The cost of plugin matching, by every plugin, is logged after this number of seconds from the startup.
+         * Negative means off.
+         */
+        public static int MATCH_COST_REPORT_DELAY = 60;
+
+        /**
+         * The directory of the match decision cache, which keeps the classes not matched by any plugin across the
+         * restarts, to skip matching them again. It's dropped when the agent or plugins change. Empty means off.
+         */
+        public static String MATCH_DECISION_CACHE_DIR = "";
+
         public static class MongoDB {
             /**
              * If true, trace all the parameters, default is false. Only trace the operation, not include parameters.
@@ -21,10 +21,14 @@ package org.apache.skywalking.apm.agent.core.context;
 
 import java.io.Serializable;
 import java.util.List;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.ids.DistributedTraceId;
 import org.apache.skywalking.apm.agent.core.context.ids.ID;
 import org.apache.skywalking.apm.agent.core.context.ids.PropagatedTraceId;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
+import org.apache.skywalking.apm.agent.core.context.util.CompactHeaderReader;
+import org.apache.skywalking.apm.agent.core.context.util.CompactHeaderWriter;
+import org.apache.skywalking.apm.agent.core.context.util.NumberUtil;
 import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
 import org.apache.skywalking.apm.util.StringUtil;
 
@@ -78,8 +82,19 @@ public class ContextCarrier implements Serializable {
      */
     private DistributedTraceId primaryDistributedTraceId;
 
+    private static final int COMPACT_VERSION = 1;
+
     public CarrierItem items() {
-        SW3CarrierItem carrierItem = new SW3CarrierItem(this, null);
+        CarrierItem carrierItem;
+        if (this.isValid()) {
+            if (Config.Agent.COMPACT_CARRIER_HEADER) {
+                carrierItem = new SW3CompactCarrierItem(this, null);
+            } else {
+                carrierItem = new SW3CarrierItem(this, null);
+            }
+        } else {
+            carrierItem = new SW3CompactCarrierItem(this, new SW3CarrierItem(this, null));
+        }
         CarrierItemHead head = new CarrierItemHead(carrierItem);
         return head;
     }
@@ -92,42 +107,120 @@ public class ContextCarrier implements Serializable {
      */
     String serialize() {
         if (this.isValid()) {
-            return StringUtil.join('|',
-                this.getTraceSegmentId().encode(),
-                this.getSpanId() + "",
-                this.getParentApplicationInstanceId() + "",
-                this.getEntryApplicationInstanceId() + "",
-                this.getPeerHost(),
-                this.getEntryOperationName(),
-                this.getParentOperationName(),
-                this.getPrimaryDistributedTraceId().encode());
+            return new StringBuilder(128)
+                .append(this.getTraceSegmentId().encode()).append('|')
+                .append(this.getSpanId()).append('|')
+                .append(this.getParentApplicationInstanceId()).append('|')
+                .append(this.getEntryApplicationInstanceId()).append('|')
+                .append(this.getPeerHost()).append('|')
+                .append(this.getEntryOperationName()).append('|')
+                .append(this.getParentOperationName()).append('|')
+                .append(this.getPrimaryDistributedTraceId().encode())
+                .toString();
         } else {
             return "";
         }
     }
 
     /**
-     * Initialize fields with the given text.
+     * Initialize fields with the given text. The fields are found by scanning the '|', and parsed in place, nothing
+     * changes if the text is broken.
      *
      * @param text carries {@link #traceSegmentId} and {@link #spanId}, with '|' split.
      */
     ContextCarrier deserialize(String text) {
-        if (text != null) {
-            String[] parts = text.split("\\|", 8);
-            if (parts.length == 8) {
-                try {
-                    this.traceSegmentId = new ID(parts[0]);
-                    this.spanId = Integer.parseInt(parts[1]);
-                    this.parentApplicationInstanceId = Integer.parseInt(parts[2]);
-                    this.entryApplicationInstanceId = Integer.parseInt(parts[3]);
-                    this.peerHost = parts[4];
-                    this.entryOperationName = parts[5];
-                    this.parentOperationName = parts[6];
-                    this.primaryDistributedTraceId = new PropagatedTraceId(parts[7]);
-                } catch (NumberFormatException e) {
-
-                }
+        if (text == null) {
+            return this;
+        }
+        int[] splits = new int[7];
+        int from = 0;
+        for (int i = 0; i < splits.length; i++) {
+            int split = text.indexOf('|', from);
+            if (split < 0) {
+                return this;
             }
+            splits[i] = split;
+            from = split + 1;
+        }
+        try {
+            ID segmentId = new ID(text, 0, splits[0]);
+            ID traceId = new ID(text, splits[6] + 1, text.length());
+            if (!traceId.isValid()) {
+                return this;
+            }
+            int spanId = NumberUtil.parseInt(text, splits[0] + 1, splits[1]);
+            int parentApplicationInstanceId = NumberUtil.parseInt(text, splits[1] + 1, splits[2]);
+            int entryApplicationInstanceId = NumberUtil.parseInt(text, splits[2] + 1, splits[3]);
+
+            this.traceSegmentId = segmentId;
+            this.spanId = spanId;
+            this.parentApplicationInstanceId = parentApplicationInstanceId;
+            this.entryApplicationInstanceId = entryApplicationInstanceId;
+            this.peerHost = text.substring(splits[3] + 1, splits[4]);
+            this.entryOperationName = text.substring(splits[4] + 1, splits[5]);
+            this.parentOperationName = text.substring(splits[5] + 1, splits[6]);
+            this.primaryDistributedTraceId = new PropagatedTraceId(traceId);
+        } catch (NumberFormatException e) {
+
+        }
+        return this;
+    }
+
+    /**
+     * Serialize this {@link ContextCarrier} in the compact binary format, see {@link #deserializeCompact(String)}.
+     *
+     * @return the URL safe base64 text, or empty if invalid.
+     */
+    String serializeCompact() {
+        if (!this.isValid()) {
+            return "";
+        }
+        CompactHeaderWriter writer = new CompactHeaderWriter(64);
+        writer.writeLong(COMPACT_VERSION);
+        this.getTraceSegmentId().write(writer);
+        writer.writeLong(this.getSpanId())
+            .writeLong(this.getParentApplicationInstanceId())
+            .writeLong(this.getEntryApplicationInstanceId());
+        writer.writeIdOrText(this.getPeerHost())
+            .writeIdOrText(this.getEntryOperationName())
+            .writeIdOrText(this.getParentOperationName());
+        this.getPrimaryDistributedTraceId().write(writer);
+        return writer.encode();
+    }
+
+    /**
+     * Initialize fields with the compact text. The layout is a version, segment id, span id, parent and entry
+     * application instance ids, peer, entry and parent operation, then the trace id. Nothing changes if the text is
+     * broken or in an unknown version.
+     */
+    ContextCarrier deserializeCompact(String text) {
+        if (StringUtil.isEmpty(text)) {
+            return this;
+        }
+        try {
+            CompactHeaderReader reader = new CompactHeaderReader(text);
+            if (reader.readLong() != COMPACT_VERSION) {
+                return this;
+            }
+            ID segmentId = ID.read(reader);
+            int spanId = reader.readInt();
+            int parentApplicationInstanceId = reader.readInt();
+            int entryApplicationInstanceId = reader.readInt();
+            String peerHost = reader.readIdOrText();
+            String entryOperationName = reader.readIdOrText();
+            String parentOperationName = reader.readIdOrText();
+            ID traceId = ID.read(reader);
+
+            this.traceSegmentId = segmentId;
+            this.spanId = spanId;
+            this.parentApplicationInstanceId = parentApplicationInstanceId;
+            this.entryApplicationInstanceId = entryApplicationInstanceId;
+            this.peerHost = peerHost;
+            this.entryOperationName = entryOperationName;
+            this.parentOperationName = parentOperationName;
+            this.primaryDistributedTraceId = new PropagatedTraceId(traceId);
+        } catch (IllegalArgumentException e) {
+
         }
         return this;
     }
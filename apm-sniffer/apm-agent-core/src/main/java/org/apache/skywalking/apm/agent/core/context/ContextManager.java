@@ -45,7 +45,12 @@ public class ContextManager implements TracingContextListener, BootService, Igno
 
     private static ThreadLocal<AbstractTracerContext> CONTEXT = new ThreadLocal<AbstractTracerContext>();
 
-    private static AbstractTracerContext getOrCreate(String operationName, boolean forceSampling) {
+    /**
+     * @param isEntry true if the first span of the context is an entry span.
+     * @param isExit true if the first span of the context is an exit span.
+     */
+    private static AbstractTracerContext getOrCreate(String operationName, boolean forceSampling,
+        boolean isEntry, boolean isExit) {
         AbstractTracerContext context = CONTEXT.get();
         if (context == null) {
             if (StringUtil.isEmpty(operationName)) {
@@ -62,7 +67,7 @@ public class ContextManager implements TracingContextListener, BootService, Igno
                         context = new IgnoredTracerContext();
                     } else {
                         SamplingService samplingService = ServiceManager.INSTANCE.findService(SamplingService.class);
-                        if (forceSampling || samplingService.trySampling()) {
+                        if (forceSampling || samplingService.trySampling(operationName, isEntry, isExit)) {
                             context = new TracingContext();
                         } else {
                             context = new IgnoredTracerContext();
@@ -102,18 +107,18 @@ public class ContextManager implements TracingContextListener, BootService, Igno
         AbstractTracerContext context;
         if (carrier != null && carrier.isValid()) {
             samplingService.forceSampled();
-            context = getOrCreate(operationName, true);
+            context = getOrCreate(operationName, true, true, false);
             span = context.createEntrySpan(operationName);
             context.extract(carrier);
         } else {
-            context = getOrCreate(operationName, false);
+            context = getOrCreate(operationName, false, true, false);
             span = context.createEntrySpan(operationName);
         }
         return span;
     }
 
     public static AbstractSpan createLocalSpan(String operationName) {
-        AbstractTracerContext context = getOrCreate(operationName, false);
+        AbstractTracerContext context = getOrCreate(operationName, false, false, false);
         return context.createLocalSpan(operationName);
     }
 
@@ -121,14 +126,14 @@ public class ContextManager implements TracingContextListener, BootService, Igno
         if (carrier == null) {
             throw new IllegalArgumentException("ContextCarrier can't be null.");
         }
-        AbstractTracerContext context = getOrCreate(operationName, false);
+        AbstractTracerContext context = getOrCreate(operationName, false, false, true);
         AbstractSpan span = context.createExitSpan(operationName, remotePeer);
         context.inject(carrier);
         return span;
     }
 
     public static AbstractSpan createExitSpan(String operationName, String remotePeer) {
-        AbstractTracerContext context = getOrCreate(operationName, false);
+        AbstractTracerContext context = getOrCreate(operationName, false, false, true);
         AbstractSpan span = context.createExitSpan(operationName, remotePeer);
         return span;
     }
@@ -18,8 +18,10 @@
 
 package org.apache.skywalking.apm.agent.core.context;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
 import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
@@ -55,6 +57,7 @@ import org.apache.skywalking.apm.agent.core.sampling.SamplingService;
  */
 public class TracingContext implements AbstractTracerContext {
     private static final ILog logger = LogManager.getLogger(TracingContext.class);
+    private static final int INITIAL_STACK_CAPACITY = 4;
     private long lastWarningTimestamp = 0;
 
     /**
@@ -68,11 +71,17 @@ public class TracingContext implements AbstractTracerContext {
     private TraceSegment segment;
 
     /**
-     * Active spans stored in a Stack, usually called 'ActiveSpanStack'. This {@link LinkedList} is the in-memory
-     * storage-structure. <p> I use {@link LinkedList#removeLast()}, {@link LinkedList#addLast(Object)} and {@link
-     * LinkedList#last} instead of {@link #pop()}, {@link #push(AbstractSpan)}, {@link #peek()}
+     * Active spans stored in a Stack, usually called 'ActiveSpanStack'. This array is the in-memory storage-structure,
+     * the bottom is at index 0, and the top is at {@link #activeSpanStackDepth} - 1. Most segments have only a few
+     * spans, so it starts small, and doubles when full. See {@link #pop()}, {@link #push(AbstractSpan)}, {@link
+     * #peek()}
      */
-    private LinkedList<AbstractSpan> activeSpanStack = new LinkedList<AbstractSpan>();
+    private AbstractSpan[] activeSpanStack = new AbstractSpan[INITIAL_STACK_CAPACITY];
+
+    /**
+     * The number of spans in {@link #activeSpanStack}.
+     */
+    private int activeSpanStackDepth = 0;
 
     /**
      * A counter for the next span.
@@ -83,7 +92,7 @@ public class TracingContext implements AbstractTracerContext {
      * Initialize all fields with default value.
      */
     TracingContext() {
-        this.segment = new TraceSegment();
+        this.segment = TraceSegment.newInstance();
         this.spanIdGenerator = 0;
         if (samplingService == null) {
             samplingService = ServiceManager.INSTANCE.findService(SamplingService.class);
@@ -103,7 +112,6 @@ public class TracingContext implements AbstractTracerContext {
         if (!span.isExit()) {
             throw new IllegalStateException("Inject can be done only in Exit Span");
         }
-
         WithPeerInfo spanWithPeer = (WithPeerInfo)span;
         String peer = spanWithPeer.getPeer();
         int peerId = spanWithPeer.getPeerId();
@@ -266,11 +274,11 @@ public class TracingContext implements AbstractTracerContext {
                 .findOnly(segment.getApplicationId(), operationName)
                 .doInCondition(new PossibleFound.FoundAndObtain() {
                     @Override public Object doProcess(int operationId) {
-                        return new EntrySpan(spanIdGenerator++, parentSpanId, operationId);
+                        return EntrySpan.newInstance(spanIdGenerator++, parentSpanId, operationId);
                     }
                 }, new PossibleFound.NotFoundAndObtain() {
                     @Override public Object doProcess() {
-                        return new EntrySpan(spanIdGenerator++, parentSpanId, operationName);
+                        return EntrySpan.newInstance(spanIdGenerator++, parentSpanId, operationName);
                     }
                 });
             entrySpan.start();
@@ -298,12 +306,12 @@ public class TracingContext implements AbstractTracerContext {
             .doInCondition(new PossibleFound.FoundAndObtain() {
                 @Override
                 public Object doProcess(int operationId) {
-                    return new LocalSpan(spanIdGenerator++, parentSpanId, operationId);
+                    return LocalSpan.newInstance(spanIdGenerator++, parentSpanId, operationId);
                 }
             }, new PossibleFound.NotFoundAndObtain() {
                 @Override
                 public Object doProcess() {
-                    return new LocalSpan(spanIdGenerator++, parentSpanId, operationName);
+                    return LocalSpan.newInstance(spanIdGenerator++, parentSpanId, operationName);
                 }
             });
         span.start();
@@ -341,12 +349,12 @@ public class TracingContext implements AbstractTracerContext {
                                     new PossibleFound.FoundAndObtain() {
                                         @Override
                                         public Object doProcess(int operationId) {
-                                            return new ExitSpan(spanIdGenerator++, parentSpanId, operationId, peerId);
+                                            return ExitSpan.newInstance(spanIdGenerator++, parentSpanId, operationId, peerId);
                                         }
                                     }, new PossibleFound.NotFoundAndObtain() {
                                         @Override
                                         public Object doProcess() {
-                                            return new ExitSpan(spanIdGenerator++, parentSpanId, operationName, peerId);
+                                            return ExitSpan.newInstance(spanIdGenerator++, parentSpanId, operationName, peerId);
                                         }
                                     });
                         }
@@ -364,12 +372,12 @@ public class TracingContext implements AbstractTracerContext {
                                     new PossibleFound.FoundAndObtain() {
                                         @Override
                                         public Object doProcess(int operationId) {
-                                            return new ExitSpan(spanIdGenerator++, parentSpanId, operationId, remotePeer);
+                                            return ExitSpan.newInstance(spanIdGenerator++, parentSpanId, operationId, remotePeer);
                                         }
                                     }, new PossibleFound.NotFoundAndObtain() {
                                         @Override
                                         public Object doProcess() {
-                                            return new ExitSpan(spanIdGenerator++, parentSpanId, operationName, remotePeer);
+                                            return ExitSpan.newInstance(spanIdGenerator++, parentSpanId, operationName, remotePeer);
                                         }
                                     });
                         }
@@ -414,7 +422,7 @@ public class TracingContext implements AbstractTracerContext {
             throw new IllegalStateException("Stopping the unexpected span = " + span);
         }
 
-        if (activeSpanStack.isEmpty()) {
+        if (activeSpanStackDepth == 0) {
             this.finish();
         }
     }
@@ -437,6 +445,10 @@ public class TracingContext implements AbstractTracerContext {
             }
         }
         TracingContext.ListenerManager.notifyFinish(finishedSegment);
+        /**
+         * The listeners keeping the segment retain it, see {@link TraceSegment#retain()}.
+         */
+        finishedSegment.release();
     }
 
     /**
@@ -481,7 +493,9 @@ public class TracingContext implements AbstractTracerContext {
      * @return the top element of 'ActiveSpanStack', and remove it.
      */
     private AbstractSpan pop() {
-        return activeSpanStack.removeLast();
+        AbstractSpan span = activeSpanStack[--activeSpanStackDepth];
+        activeSpanStack[activeSpanStackDepth] = null;
+        return span;
     }
 
     /**
@@ -490,7 +504,10 @@ public class TracingContext implements AbstractTracerContext {
      * @param span
      */
     private AbstractSpan push(AbstractSpan span) {
-        activeSpanStack.addLast(span);
+        if (activeSpanStackDepth == activeSpanStack.length) {
+            activeSpanStack = Arrays.copyOf(activeSpanStack, activeSpanStack.length * 2);
+        }
+        activeSpanStack[activeSpanStackDepth++] = span;
         return span;
     }
 
@@ -498,14 +515,17 @@ public class TracingContext implements AbstractTracerContext {
      * @return the top element of 'ActiveSpanStack' only.
      */
     private AbstractSpan peek() {
-        if (activeSpanStack.isEmpty()) {
+        if (activeSpanStackDepth == 0) {
             return null;
         }
-        return activeSpanStack.getLast();
+        return activeSpanStack[activeSpanStackDepth - 1];
     }
 
     private AbstractSpan first() {
-        return activeSpanStack.getFirst();
+        if (activeSpanStackDepth == 0) {
+            throw new NoSuchElementException();
+        }
+        return activeSpanStack[0];
     }
 
     private boolean isLimitMechanismWorking() {
@@ -19,6 +19,7 @@
 
 package org.apache.skywalking.apm.agent.core.context.ids;
 
+import org.apache.skywalking.apm.agent.core.context.util.CompactHeaderWriter;
 import org.apache.skywalking.apm.network.proto.UniqueId;
 
 /**
@@ -49,6 +50,10 @@ public abstract class DistributedTraceId {
         return id.encode();
     }
 
+    public void write(CompactHeaderWriter writer) {
+        id.write(writer);
+    }
+
     @Override
     public String toString() {
         return id.toString();
@@ -45,4 +45,8 @@ public class DistributedTraceIds {
             relatedGlobalTraces.add(distributedTraceId);
         }
     }
+
+    public void clear() {
+        relatedGlobalTraces.clear();
+    }
 }
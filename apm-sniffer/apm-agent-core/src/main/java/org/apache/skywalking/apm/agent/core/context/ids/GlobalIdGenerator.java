@@ -18,18 +18,34 @@
 
 package org.apache.skywalking.apm.agent.core.context.ids;
 
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.conf.RemoteDownstreamConfig;
 import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
 
 public final class GlobalIdGenerator {
+    /**
+     * The clock is read once per this number of ids in a thread, the others use {@link #COARSE_TIME_MILLIS}.
+     */
+    static final int CLOCK_READ_INTERVAL = 64;
+
     private static final ThreadLocal<IDContext> THREAD_ID_SEQUENCE = new ThreadLocal<IDContext>() {
         @Override
         protected IDContext initialValue() {
-            return new IDContext(System.currentTimeMillis(), (short)0);
+            return new IDContext(Thread.currentThread().getId());
         }
     };
 
+    /**
+     * The latest time read by any thread, shared as a coarse clock.
+     */
+    private static volatile long COARSE_TIME_MILLIS = System.currentTimeMillis();
+
+    /**
+     * The sequence shared by all threads, when {@link Config.Agent#SHARED_ID_SEQUENCE}.
+     */
+    private static final AtomicLong SHARED_SEQUENCE = new AtomicLong();
+
     private GlobalIdGenerator() {
     }
 
@@ -45,6 +61,10 @@ public final class GlobalIdGenerator {
      * 1) a timestamp, measured in milliseconds
      * 2) a seq, in current thread, between 0(included) and 9999(included)
      *
+     * The third one never goes back in a thread, or in the whole instance with {@link Config.Agent#SHARED_ID_SEQUENCE}.
+     * When the clock goes back, or more than 10000 ids in a millisecond, it keeps counting from the last one, so the
+     * timestamp part is approximate, but the id is still unique.
+     *
      * Notice, a long costs 8 bytes, three longs cost 24 bytes. And at the same time, a char costs 2 bytes. So
      * sky-walking's old global and segment id like this: "S.1490097253214.-866187727.57515.1.1" which costs at least 72
      * bytes.
@@ -55,57 +75,70 @@ public final class GlobalIdGenerator {
         if (RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID == DictionaryUtil.nullValue()) {
             throw new IllegalStateException();
         }
+        if (Config.Agent.SHARED_ID_SEQUENCE) {
+            return new ID(
+                RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID,
+                Thread.currentThread().getId(),
+                nextSharedSeq()
+            );
+        }
         IDContext context = THREAD_ID_SEQUENCE.get();
 
         return new ID(
             RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID,
-            Thread.currentThread().getId(),
+            context.threadId,
             context.nextSeq()
         );
     }
 
-    private static class IDContext {
-        private long lastTimestamp;
-        private short threadSeq;
-
-        // Just for considering time-shift-back only.
-        private long runRandomTimestamp;
-        private int lastRandomValue;
-        private Random random;
-
-        private IDContext(long lastTimestamp, short threadSeq) {
-            this.lastTimestamp = lastTimestamp;
-            this.threadSeq = threadSeq;
+    /**
+     * No thread local state, for the applications running plenty of short-lived threads. All threads share one
+     * sequence, so it contends when plenty of threads generate at the same time.
+     */
+    private static long nextSharedSeq() {
+        long lowest = COARSE_TIME_MILLIS * 10000;
+        while (true) {
+            long last = SHARED_SEQUENCE.get();
+            long next = last < lowest ? lowest : last + 1;
+            if (SHARED_SEQUENCE.compareAndSet(last, next)) {
+                if (next % CLOCK_READ_INTERVAL == 0) {
+                    readClock();
+                }
+                return next;
+            }
         }
+    }
 
-        private long nextSeq() {
-            return timestamp() * 10000 + nextThreadSeq();
+    private static long readClock() {
+        long currentTimeMillis = System.currentTimeMillis();
+        if (currentTimeMillis > COARSE_TIME_MILLIS) {
+            COARSE_TIME_MILLIS = currentTimeMillis;
         }
+        return currentTimeMillis;
+    }
 
-        private long timestamp() {
-            long currentTimeMillis = System.currentTimeMillis();
+    private static class IDContext {
+        private final long threadId;
+        private long lastSeq;
+        private int untilClockRead;
 
-            if (currentTimeMillis < lastTimestamp) {
-                // Just for considering time-shift-back by Ops or OS. @hanahmily 's suggestion.
-                if (random == null) {
-                    random = new Random();
-                }
-                if (runRandomTimestamp != currentTimeMillis) {
-                    lastRandomValue = random.nextInt();
-                    runRandomTimestamp = currentTimeMillis;
-                }
-                return lastRandomValue;
-            } else {
-                lastTimestamp = currentTimeMillis;
-                return lastTimestamp;
-            }
+        private IDContext(long threadId) {
+            this.threadId = threadId;
+            this.lastSeq = readClock() * 10000 - 1;
+            this.untilClockRead = CLOCK_READ_INTERVAL;
         }
 
-        private short nextThreadSeq() {
-            if (threadSeq == 10000) {
-                threadSeq = 0;
+        private long nextSeq() {
+            long timestamp;
+            if (--untilClockRead == 0) {
+                untilClockRead = CLOCK_READ_INTERVAL;
+                timestamp = readClock();
+            } else {
+                timestamp = COARSE_TIME_MILLIS;
             }
-            return threadSeq++;
+            long lowest = timestamp * 10000;
+            lastSeq = lastSeq < lowest ? lowest : lastSeq + 1;
+            return lastSeq;
         }
     }
 }
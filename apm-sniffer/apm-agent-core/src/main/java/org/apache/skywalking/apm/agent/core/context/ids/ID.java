@@ -19,17 +19,28 @@
 
 package org.apache.skywalking.apm.agent.core.context.ids;
 
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import org.apache.skywalking.apm.agent.core.context.util.CompactHeaderReader;
+import org.apache.skywalking.apm.agent.core.context.util.CompactHeaderWriter;
+import org.apache.skywalking.apm.agent.core.context.util.NumberUtil;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoSerializable;
 import org.apache.skywalking.apm.network.proto.UniqueId;
 
 /**
  * @author wusheng
  */
-public class ID {
+public class ID implements ProtoSerializable {
     private long part1;
     private long part2;
     private long part3;
     private String encoding;
     private boolean isValid;
+    /**
+     * The size computed by {@link #serializedSize()}, -1 means not computed yet.
+     */
+    private int memoizedSize = -1;
 
     public ID(long part1, long part2, long part3) {
         this.part1 = part1;
@@ -40,34 +51,56 @@ public class ID {
     }
 
     public ID(String encodingString) {
-        String[] idParts = encodingString.split("\\.", 3);
-        this.isValid = true;
-        for (int part = 0; part < 3; part++) {
-            try {
-                if (part == 0) {
-                    part1 = Long.parseLong(idParts[part]);
-                } else if (part == 1) {
-                    part2 = Long.parseLong(idParts[part]);
-                } else {
-                    part3 = Long.parseLong(idParts[part]);
-                }
-            } catch (NumberFormatException e) {
-                this.isValid = false;
-                break;
-            }
+        this(encodingString, 0, encodingString.length());
+    }
 
+    /**
+     * Parse the id in the given range of text, without any substring. Mark invalid if it isn't three dotted longs.
+     *
+     * @param begin inclusive
+     * @param end exclusive
+     */
+    public ID(String text, int begin, int end) {
+        int firstDot = text.indexOf('.', begin);
+        int secondDot = firstDot < 0 || firstDot >= end ? -1 : text.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || secondDot >= end) {
+            this.isValid = false;
+            return;
         }
+        try {
+            part1 = NumberUtil.parseLong(text, begin, firstDot);
+            part2 = NumberUtil.parseLong(text, firstDot + 1, secondDot);
+            part3 = NumberUtil.parseLong(text, secondDot + 1, end);
+            this.isValid = true;
+        } catch (NumberFormatException e) {
+            this.isValid = false;
+        }
+    }
+
+    /**
+     * Read the id written by {@link #write(CompactHeaderWriter)}.
+     */
+    public static ID read(CompactHeaderReader reader) {
+        return new ID(reader.readLong(), reader.readLong(), reader.readLong());
+    }
+
+    public void write(CompactHeaderWriter writer) {
+        writer.writeLong(part1).writeLong(part2).writeLong(part3);
     }
 
+    /**
+     * @return the text form, built once and cached, as the id is immutable.
+     */
     public String encode() {
         if (encoding == null) {
-            encoding = toString();
+            encoding = new StringBuilder(64).append(part1).append('.').append(part2).append('.').append(part3)
+                .toString();
         }
         return encoding;
     }
 
     @Override public String toString() {
-        return part1 + "." + part2 + '.' + part3;
+        return encode();
     }
 
     @Override public boolean equals(Object o) {
@@ -99,4 +132,35 @@ public class ID {
     public UniqueId transform() {
         return UniqueId.newBuilder().addIdParts(part1).addIdParts(part2).addIdParts(part3).build();
     }
+
+    @Override
+    public int serializedSize() throws IOException {
+        if (memoizedSize < 0) {
+            memoizedSize = encode(null);
+        }
+        return memoizedSize;
+    }
+
+    /**
+     * Write as {@link UniqueId}, the parts are a packed repeated field.
+     */
+    @Override
+    public void writeTo(CodedOutputStream out) throws IOException {
+        encode(out);
+    }
+
+    private int encode(CodedOutputStream out) throws IOException {
+        int partsSize = CodedOutputStream.computeInt64SizeNoTag(part1)
+            + CodedOutputStream.computeInt64SizeNoTag(part2)
+            + CodedOutputStream.computeInt64SizeNoTag(part3);
+        if (out != null) {
+            out.writeTag(UniqueId.IDPARTS_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(partsSize);
+            out.writeInt64NoTag(part1);
+            out.writeInt64NoTag(part2);
+            out.writeInt64NoTag(part3);
+        }
+        return CodedOutputStream.computeTagSize(UniqueId.IDPARTS_FIELD_NUMBER)
+            + CodedOutputStream.computeUInt32SizeNoTag(partsSize) + partsSize;
+    }
 }
@@ -18,10 +18,15 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
-import java.util.LinkedList;
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.apache.skywalking.apm.agent.core.context.util.KeyValuePair;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoFieldUtil;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoSerializable;
+import org.apache.skywalking.apm.agent.core.context.util.Recycler;
 import org.apache.skywalking.apm.agent.core.context.util.ThrowableTransformer;
 import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
 import org.apache.skywalking.apm.network.proto.SpanObject;
@@ -34,7 +39,7 @@ import org.apache.skywalking.apm.network.trace.component.Component;
  *
  * @author wusheng
  */
-public abstract class AbstractTracingSpan implements AbstractSpan {
+public abstract class AbstractTracingSpan implements AbstractSpan, ProtoSerializable {
     protected int spanId;
     protected int parentSpanId;
     protected List<KeyValuePair> tags;
@@ -70,7 +75,19 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     protected List<TraceSegmentRef> refs;
 
+    /**
+     * Not null means this span is taken from a {@link Recycler}, and goes back when its segment released.
+     */
+    private final Recycler.Handle<AbstractTracingSpan> handle;
+
+    /**
+     * The size computed by {@link #serializedSize()}, -1 means not computed yet. The span must not change after its
+     * size is computed, so it is only cleared by {@link #reset()}.
+     */
+    private int memoizedSize = -1;
+
     protected AbstractTracingSpan(int spanId, int parentSpanId, String operationName) {
+        this.handle = null;
         this.operationName = operationName;
         this.operationId = DictionaryUtil.nullValue();
         this.spanId = spanId;
@@ -78,12 +95,79 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
     }
 
     protected AbstractTracingSpan(int spanId, int parentSpanId, int operationId) {
+        this.handle = null;
         this.operationName = null;
         this.operationId = operationId;
         this.spanId = spanId;
         this.parentSpanId = parentSpanId;
     }
 
+    /**
+     * Create a pooled span, initialized by {@link #reuse(int, int, String, int)} every time taken from the pool.
+     */
+    protected AbstractTracingSpan(Recycler.Handle<AbstractTracingSpan> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Initialize a pooled span, same as the constructors. Either operationName is null, or operationId is {@link
+     * DictionaryUtil#nullValue()}.
+     */
+    protected void reuse(int spanId, int parentSpanId, String operationName, int operationId) {
+        this.operationName = operationName;
+        this.operationId = operationId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+    }
+
+    /**
+     * Clear this span before it goes back to the pool, the collections are kept for the next use. Subclasses should
+     * clear their own fields too.
+     */
+    protected void reset() {
+        if (tags != null) {
+            tags.clear();
+        }
+        if (logs != null) {
+            logs.clear();
+        }
+        if (refs != null) {
+            refs.clear();
+        }
+        operationName = null;
+        operationId = DictionaryUtil.nullValue();
+        layer = null;
+        startTime = 0;
+        endTime = 0;
+        errorOccurred = false;
+        componentId = 0;
+        componentName = null;
+        memoizedSize = -1;
+    }
+
+    /**
+     * Return this span to the pool of the thread created it, called by {@link TraceSegment#release()}. Do nothing if
+     * this span isn't pooled.
+     */
+    void release() {
+        if (handle == null) {
+            return;
+        }
+        checkNotReleased();
+        reset();
+        handle.recycle(this);
+    }
+
+    /**
+     * @throws IllegalStateException if this span has been released, most likely a reference kept after the segment
+     * finished.
+     */
+    protected void checkNotReleased() {
+        if (handle != null && handle.isRecycled()) {
+            throw new IllegalStateException("Span has been released, spanId = " + spanId);
+        }
+    }
+
     /**
      * Set a key:value tag on the Span.
      *
@@ -91,8 +175,9 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan tag(String key, String value) {
+        checkNotReleased();
         if (tags == null) {
-            tags = new LinkedList<KeyValuePair>();
+            tags = new ArrayList<KeyValuePair>(4);
         }
         tags.add(new KeyValuePair(key, value));
         return this;
@@ -105,6 +190,7 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      * @param owner of the Span.
      */
     public boolean finish(TraceSegment owner) {
+        checkNotReleased();
         this.endTime = System.currentTimeMillis();
         owner.archive(this);
         return true;
@@ -112,6 +198,7 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
 
     @Override
     public AbstractTracingSpan start() {
+        checkNotReleased();
         this.startTime = System.currentTimeMillis();
         return this;
     }
@@ -124,8 +211,9 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan log(Throwable t) {
+        checkNotReleased();
         if (logs == null) {
-            logs = new LinkedList<LogDataEntity>();
+            logs = new ArrayList<LogDataEntity>(1);
         }
         logs.add(new LogDataEntity.Builder()
             .add(new KeyValuePair("event", "error"))
@@ -144,8 +232,9 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan log(long timestampMicroseconds, Map<String, ?> fields) {
+        checkNotReleased();
         if (logs == null) {
-            logs = new LinkedList<LogDataEntity>();
+            logs = new ArrayList<LogDataEntity>(1);
         }
         LogDataEntity.Builder builder = new LogDataEntity.Builder();
         for (Map.Entry<String, ?> entry : fields.entrySet()) {
@@ -163,6 +252,7 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan errorOccurred() {
+        checkNotReleased();
         this.errorOccurred = true;
         return this;
     }
@@ -176,6 +266,7 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan setOperationName(String operationName) {
+        checkNotReleased();
         this.operationName = operationName;
         this.operationId = DictionaryUtil.nullValue();
         return this;
@@ -189,6 +280,7 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan setOperationId(int operationId) {
+        checkNotReleased();
         this.operationId = operationId;
         this.operationName = null;
         return this;
@@ -211,6 +303,7 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
 
     @Override
     public AbstractTracingSpan setLayer(SpanLayer layer) {
+        checkNotReleased();
         this.layer = layer;
         return this;
     }
@@ -223,6 +316,7 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan setComponent(Component component) {
+        checkNotReleased();
         this.componentId = component.getId();
         return this;
     }
@@ -235,17 +329,20 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan setComponent(String componentName) {
+        checkNotReleased();
         this.componentName = componentName;
         return this;
     }
 
     @Override
     public AbstractSpan start(long startTime) {
+        checkNotReleased();
         this.startTime = startTime;
         return this;
     }
 
     public SpanObject.Builder transform() {
+        checkNotReleased();
         SpanObject.Builder spanBuilder = SpanObject.newBuilder();
 
         spanBuilder.setSpanId(this.spanId);
@@ -294,9 +391,79 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
         return spanBuilder;
     }
 
+    @Override
+    public int serializedSize() throws IOException {
+        if (memoizedSize < 0) {
+            memoizedSize = encode(null);
+        }
+        return memoizedSize;
+    }
+
+    /**
+     * Write as {@link SpanObject}, same as {@link #transform()}.
+     */
+    @Override
+    public void writeTo(CodedOutputStream out) throws IOException {
+        encode(out);
+    }
+
+    /**
+     * Write the fields of {@link SpanObject}, or only compute the size when out is null. Subclasses with more fields
+     * should override this, and call super.
+     *
+     * @return size of the written fields.
+     */
+    protected int encode(CodedOutputStream out) throws IOException {
+        checkNotReleased();
+        int size = ProtoFieldUtil.writeInt32(out, SpanObject.SPANID_FIELD_NUMBER, spanId);
+        size += ProtoFieldUtil.writeInt32(out, SpanObject.PARENTSPANID_FIELD_NUMBER, parentSpanId);
+        size += ProtoFieldUtil.writeInt64(out, SpanObject.STARTTIME_FIELD_NUMBER, startTime);
+        size += ProtoFieldUtil.writeInt64(out, SpanObject.ENDTIME_FIELD_NUMBER, endTime);
+        if (this.refs != null) {
+            for (TraceSegmentRef ref : this.refs) {
+                size += ProtoFieldUtil.writeMessage(out, SpanObject.REFS_FIELD_NUMBER, ref);
+            }
+        }
+        if (operationId != DictionaryUtil.nullValue()) {
+            size += ProtoFieldUtil.writeInt32(out, SpanObject.OPERATIONNAMEID_FIELD_NUMBER, operationId);
+        } else {
+            size += ProtoFieldUtil.writeString(out, SpanObject.OPERATIONNAME_FIELD_NUMBER, operationName);
+        }
+        SpanType spanType;
+        if (isEntry()) {
+            spanType = SpanType.Entry;
+        } else if (isExit()) {
+            spanType = SpanType.Exit;
+        } else {
+            spanType = SpanType.Local;
+        }
+        size += ProtoFieldUtil.writeEnum(out, SpanObject.SPANTYPE_FIELD_NUMBER, spanType.getNumber());
+        if (this.layer != null) {
+            size += ProtoFieldUtil.writeEnum(out, SpanObject.SPANLAYER_FIELD_NUMBER, this.layer.getCode());
+        }
+        if (componentId != DictionaryUtil.nullValue()) {
+            size += ProtoFieldUtil.writeInt32(out, SpanObject.COMPONENTID_FIELD_NUMBER, componentId);
+        } else {
+            size += ProtoFieldUtil.writeString(out, SpanObject.COMPONENT_FIELD_NUMBER, componentName);
+        }
+        size += ProtoFieldUtil.writeBool(out, SpanObject.ISERROR_FIELD_NUMBER, errorOccurred);
+        if (this.tags != null) {
+            for (KeyValuePair tag : this.tags) {
+                size += ProtoFieldUtil.writeMessage(out, SpanObject.TAGS_FIELD_NUMBER, tag);
+            }
+        }
+        if (this.logs != null) {
+            for (LogDataEntity log : this.logs) {
+                size += ProtoFieldUtil.writeMessage(out, SpanObject.LOGS_FIELD_NUMBER, log);
+            }
+        }
+        return size;
+    }
+
     @Override public void ref(TraceSegmentRef ref) {
+        checkNotReleased();
         if (refs == null) {
-            refs = new LinkedList<TraceSegmentRef>();
+            refs = new ArrayList<TraceSegmentRef>(1);
         }
         if (!refs.contains(ref)) {
             refs.add(ref);
@@ -18,6 +18,8 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.util.Recycler;
 import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
 import org.apache.skywalking.apm.network.trace.component.Component;
 
@@ -34,6 +36,12 @@ import org.apache.skywalking.apm.network.trace.component.Component;
  * @author wusheng
  */
 public class EntrySpan extends StackBasedTracingSpan {
+    private static final Recycler<AbstractTracingSpan> RECYCLER = new Recycler<AbstractTracingSpan>(Config.Agent.RECYCLE_POOL_CAPACITY) {
+        @Override
+        protected AbstractTracingSpan newObject(Handle<AbstractTracingSpan> handle) {
+            return new EntrySpan(handle);
+        }
+    };
 
     private int currentMaxDepth;
 
@@ -47,11 +55,43 @@ public class EntrySpan extends StackBasedTracingSpan {
         this.currentMaxDepth = 0;
     }
 
+    private EntrySpan(Recycler.Handle<AbstractTracingSpan> handle) {
+        super(handle);
+        this.currentMaxDepth = 0;
+    }
+
+    /**
+     * Same as {@link #EntrySpan(int, int, String)}, reuse a released span when {@link Config.Agent#RECYCLE_SEGMENTS}
+     * is on.
+     */
+    public static EntrySpan newInstance(int spanId, int parentSpanId, String operationName) {
+        if (!Config.Agent.RECYCLE_SEGMENTS) {
+            return new EntrySpan(spanId, parentSpanId, operationName);
+        }
+        EntrySpan span = (EntrySpan)RECYCLER.get();
+        span.reuse(spanId, parentSpanId, operationName, DictionaryUtil.nullValue());
+        return span;
+    }
+
+    /**
+     * Same as {@link #EntrySpan(int, int, int)}, reuse a released span when {@link Config.Agent#RECYCLE_SEGMENTS} is
+     * on.
+     */
+    public static EntrySpan newInstance(int spanId, int parentSpanId, int operationId) {
+        if (!Config.Agent.RECYCLE_SEGMENTS) {
+            return new EntrySpan(spanId, parentSpanId, operationId);
+        }
+        EntrySpan span = (EntrySpan)RECYCLER.get();
+        span.reuse(spanId, parentSpanId, null, operationId);
+        return span;
+    }
+
     /**
      * Set the {@link #startTime}, when the first start, which means the first service provided.
      */
     @Override
     public EntrySpan start() {
+        checkNotReleased();
         if ((currentMaxDepth = ++stackDepth) == 1) {
             super.start();
         }
@@ -126,11 +166,21 @@ public class EntrySpan extends StackBasedTracingSpan {
         return false;
     }
 
+    @Override
+    protected void reset() {
+        super.reset();
+        this.currentMaxDepth = 0;
+    }
+
     private void clearWhenRestart() {
         this.componentId = DictionaryUtil.nullValue();
         this.componentName = null;
         this.layer = null;
-        this.logs = null;
-        this.tags = null;
+        if (this.logs != null) {
+            this.logs.clear();
+        }
+        if (this.tags != null) {
+            this.tags.clear();
+        }
     }
 }
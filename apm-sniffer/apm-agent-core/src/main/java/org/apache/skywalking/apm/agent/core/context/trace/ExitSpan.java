@@ -19,6 +19,11 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoFieldUtil;
+import org.apache.skywalking.apm.agent.core.context.util.Recycler;
 import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
 import org.apache.skywalking.apm.network.proto.SpanObject;
 import org.apache.skywalking.apm.network.trace.component.Component;
@@ -37,6 +42,13 @@ import org.apache.skywalking.apm.network.trace.component.Component;
  * @author wusheng
  */
 public class ExitSpan extends StackBasedTracingSpan implements WithPeerInfo {
+    private static final Recycler<AbstractTracingSpan> RECYCLER = new Recycler<AbstractTracingSpan>(Config.Agent.RECYCLE_POOL_CAPACITY) {
+        @Override
+        protected AbstractTracingSpan newObject(Handle<AbstractTracingSpan> handle) {
+            return new ExitSpan(handle);
+        }
+    };
+
     private String peer;
     private int peerId;
 
@@ -64,11 +76,77 @@ public class ExitSpan extends StackBasedTracingSpan implements WithPeerInfo {
         this.peerId = peerId;
     }
 
+    private ExitSpan(Recycler.Handle<AbstractTracingSpan> handle) {
+        super(handle);
+        this.peerId = DictionaryUtil.nullValue();
+    }
+
+    /**
+     * Same as {@link #ExitSpan(int, int, String, String)}, reuse a released span when {@link
+     * Config.Agent#RECYCLE_SEGMENTS} is on.
+     */
+    public static ExitSpan newInstance(int spanId, int parentSpanId, String operationName, String peer) {
+        if (!Config.Agent.RECYCLE_SEGMENTS) {
+            return new ExitSpan(spanId, parentSpanId, operationName, peer);
+        }
+        return obtain(spanId, parentSpanId, operationName, DictionaryUtil.nullValue(), peer, DictionaryUtil.nullValue());
+    }
+
+    /**
+     * Same as {@link #ExitSpan(int, int, int, int)}, reuse a released span when {@link Config.Agent#RECYCLE_SEGMENTS}
+     * is on.
+     */
+    public static ExitSpan newInstance(int spanId, int parentSpanId, int operationId, int peerId) {
+        if (!Config.Agent.RECYCLE_SEGMENTS) {
+            return new ExitSpan(spanId, parentSpanId, operationId, peerId);
+        }
+        return obtain(spanId, parentSpanId, null, operationId, null, peerId);
+    }
+
+    /**
+     * Same as {@link #ExitSpan(int, int, int, String)}, reuse a released span when {@link
+     * Config.Agent#RECYCLE_SEGMENTS} is on.
+     */
+    public static ExitSpan newInstance(int spanId, int parentSpanId, int operationId, String peer) {
+        if (!Config.Agent.RECYCLE_SEGMENTS) {
+            return new ExitSpan(spanId, parentSpanId, operationId, peer);
+        }
+        return obtain(spanId, parentSpanId, null, operationId, peer, DictionaryUtil.nullValue());
+    }
+
+    /**
+     * Same as {@link #ExitSpan(int, int, String, int)}, reuse a released span when {@link
+     * Config.Agent#RECYCLE_SEGMENTS} is on.
+     */
+    public static ExitSpan newInstance(int spanId, int parentSpanId, String operationName, int peerId) {
+        if (!Config.Agent.RECYCLE_SEGMENTS) {
+            return new ExitSpan(spanId, parentSpanId, operationName, peerId);
+        }
+        return obtain(spanId, parentSpanId, operationName, DictionaryUtil.nullValue(), null, peerId);
+    }
+
+    private static ExitSpan obtain(int spanId, int parentSpanId, String operationName, int operationId, String peer,
+        int peerId) {
+        ExitSpan span = (ExitSpan)RECYCLER.get();
+        span.reuse(spanId, parentSpanId, operationName, operationId);
+        span.peer = peer;
+        span.peerId = peerId;
+        return span;
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        this.peer = null;
+        this.peerId = DictionaryUtil.nullValue();
+    }
+
     /**
      * Set the {@link #startTime}, when the first start, which means the first service provided.
      */
     @Override
     public ExitSpan start() {
+        checkNotReleased();
         if (++stackDepth == 1) {
             super.start();
         }
@@ -130,6 +208,17 @@ public class ExitSpan extends StackBasedTracingSpan implements WithPeerInfo {
         return spanBuilder;
     }
 
+    @Override
+    protected int encode(CodedOutputStream out) throws IOException {
+        int size = super.encode(out);
+        if (peerId != DictionaryUtil.nullValue()) {
+            size += ProtoFieldUtil.writeInt32(out, SpanObject.PEERID_FIELD_NUMBER, peerId);
+        } else {
+            size += ProtoFieldUtil.writeString(out, SpanObject.PEER_FIELD_NUMBER, peer);
+        }
+        return size;
+    }
+
     @Override
     public AbstractTracingSpan setOperationName(String operationName) {
         if (stackDepth == 1) {
@@ -19,12 +19,22 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.util.Recycler;
+import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
+
 /**
  * The <code>LocalSpan</code> represents a normal tracing point, such as a local method.
  *
  * @author wusheng
  */
 public class LocalSpan extends AbstractTracingSpan {
+    private static final Recycler<AbstractTracingSpan> RECYCLER = new Recycler<AbstractTracingSpan>(Config.Agent.RECYCLE_POOL_CAPACITY) {
+        @Override
+        protected AbstractTracingSpan newObject(Handle<AbstractTracingSpan> handle) {
+            return new LocalSpan(handle);
+        }
+    };
 
     public LocalSpan(int spanId, int parentSpanId, int operationId) {
         super(spanId, parentSpanId, operationId);
@@ -34,6 +44,36 @@ public class LocalSpan extends AbstractTracingSpan {
         super(spanId, parentSpanId, operationName);
     }
 
+    private LocalSpan(Recycler.Handle<AbstractTracingSpan> handle) {
+        super(handle);
+    }
+
+    /**
+     * Same as {@link #LocalSpan(int, int, int)}, reuse a released span when {@link Config.Agent#RECYCLE_SEGMENTS} is
+     * on.
+     */
+    public static LocalSpan newInstance(int spanId, int parentSpanId, int operationId) {
+        if (!Config.Agent.RECYCLE_SEGMENTS) {
+            return new LocalSpan(spanId, parentSpanId, operationId);
+        }
+        LocalSpan span = (LocalSpan)RECYCLER.get();
+        span.reuse(spanId, parentSpanId, null, operationId);
+        return span;
+    }
+
+    /**
+     * Same as {@link #LocalSpan(int, int, String)}, reuse a released span when {@link Config.Agent#RECYCLE_SEGMENTS}
+     * is on.
+     */
+    public static LocalSpan newInstance(int spanId, int parentSpanId, String operationName) {
+        if (!Config.Agent.RECYCLE_SEGMENTS) {
+            return new LocalSpan(spanId, parentSpanId, operationName);
+        }
+        LocalSpan span = (LocalSpan)RECYCLER.get();
+        span.reuse(spanId, parentSpanId, operationName, DictionaryUtil.nullValue());
+        return span;
+    }
+
     @Override
     public LocalSpan tag(String key, String value) {
         super.tag(key, value);
@@ -19,9 +19,13 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import org.apache.skywalking.apm.agent.core.context.util.KeyValuePair;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoFieldUtil;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoSerializable;
 import org.apache.skywalking.apm.network.proto.LogMessage;
 
 /**
@@ -30,9 +34,13 @@ import org.apache.skywalking.apm.network.proto.LogMessage;
  *
  * @author wusheng
  */
-public class LogDataEntity {
+public class LogDataEntity implements ProtoSerializable {
     private long timestamp = 0;
     private List<KeyValuePair> logs;
+    /**
+     * The size computed by {@link #serializedSize()}, -1 means not computed yet.
+     */
+    private int memoizedSize = -1;
 
     private LogDataEntity(long timestamp, List<KeyValuePair> logs) {
         this.timestamp = timestamp;
@@ -64,10 +72,35 @@ public class LogDataEntity {
 
     public LogMessage transform() {
         LogMessage.Builder logMessageBuilder = LogMessage.newBuilder();
-        for (KeyValuePair log : logs) {
-            logMessageBuilder.addData(log.transform());
+        if (logs != null) {
+            for (KeyValuePair log : logs) {
+                logMessageBuilder.addData(log.transform());
+            }
         }
         logMessageBuilder.setTime(timestamp);
         return logMessageBuilder.build();
     }
+
+    @Override
+    public int serializedSize() throws IOException {
+        if (memoizedSize < 0) {
+            memoizedSize = encode(null);
+        }
+        return memoizedSize;
+    }
+
+    @Override
+    public void writeTo(CodedOutputStream out) throws IOException {
+        encode(out);
+    }
+
+    private int encode(CodedOutputStream out) throws IOException {
+        int size = ProtoFieldUtil.writeInt64(out, LogMessage.TIME_FIELD_NUMBER, timestamp);
+        if (logs != null) {
+            for (KeyValuePair log : logs) {
+                size += ProtoFieldUtil.writeMessage(out, LogMessage.DATA_FIELD_NUMBER, log);
+            }
+        }
+        return size;
+    }
 }
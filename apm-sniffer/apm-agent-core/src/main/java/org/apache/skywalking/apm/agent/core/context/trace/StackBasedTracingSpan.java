@@ -18,6 +18,7 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
+import org.apache.skywalking.apm.agent.core.context.util.Recycler;
 import org.apache.skywalking.apm.agent.core.dictionary.DictionaryManager;
 import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
 import org.apache.skywalking.apm.agent.core.dictionary.PossibleFound;
@@ -42,6 +43,17 @@ public abstract class StackBasedTracingSpan extends AbstractTracingSpan {
         this.stackDepth = 0;
     }
 
+    protected StackBasedTracingSpan(Recycler.Handle<AbstractTracingSpan> handle) {
+        super(handle);
+        this.stackDepth = 0;
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        this.stackDepth = 0;
+    }
+
     @Override
     public boolean finish(TraceSegment owner) {
         if (--stackDepth == 0) {
@@ -19,14 +19,22 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
-import java.util.LinkedList;
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.conf.RemoteDownstreamConfig;
 import org.apache.skywalking.apm.agent.core.context.ids.DistributedTraceId;
 import org.apache.skywalking.apm.agent.core.context.ids.DistributedTraceIds;
 import org.apache.skywalking.apm.agent.core.context.ids.GlobalIdGenerator;
 import org.apache.skywalking.apm.agent.core.context.ids.ID;
 import org.apache.skywalking.apm.agent.core.context.ids.NewDistributedTraceId;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoFieldUtil;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoSerializable;
+import org.apache.skywalking.apm.agent.core.context.util.Recycler;
+import org.apache.skywalking.apm.agent.core.context.util.ReusableOutputBuffer;
 import org.apache.skywalking.apm.network.proto.TraceSegmentObject;
 import org.apache.skywalking.apm.network.proto.UpstreamSegment;
 
@@ -37,7 +45,20 @@ import org.apache.skywalking.apm.network.proto.UpstreamSegment;
  *
  * @author wusheng
  */
-public class TraceSegment {
+public class TraceSegment implements ProtoSerializable {
+    /**
+     * Most segments have 1-3 spans, the list only grows for the bigger ones, at most to {@link
+     * Config.Agent#SPAN_LIMIT_PER_SEGMENT}.
+     */
+    private static final int INITIAL_SPANS_CAPACITY = 4;
+
+    private static final Recycler<TraceSegment> RECYCLER = new Recycler<TraceSegment>(Config.Agent.RECYCLE_POOL_CAPACITY) {
+        @Override
+        protected TraceSegment newObject(Handle<TraceSegment> handle) {
+            return new TraceSegment(handle);
+        }
+    };
+
     /**
      * The id of this trace segment. Every segment has its unique-global-id.
      */
@@ -72,24 +93,62 @@ public class TraceSegment {
 
     private boolean isSizeLimited = false;
 
+    /**
+     * Not null means this segment is taken from the {@link #RECYCLER}, see {@link #release()}.
+     */
+    private final Recycler.Handle<TraceSegment> handle;
+
+    /**
+     * The holders of this pooled segment, see {@link #retain()}. The segment goes back to the pool when the last one
+     * releases it.
+     */
+    private final AtomicInteger refCount = new AtomicInteger(0);
+
+    /**
+     * The size computed by {@link #serializedSize()}, -1 means not computed yet. The segment is finished before
+     * serialized, so this is only cleared by {@link #release()}.
+     */
+    private int memoizedSize = -1;
+
     /**
      * Create a default/empty trace segment, with current time as start time, and generate a new segment id.
      */
     public TraceSegment() {
+        this(null);
         this.traceSegmentId = GlobalIdGenerator.generate();
-        this.spans = new LinkedList<AbstractTracingSpan>();
-        this.relatedGlobalTraces = new DistributedTraceIds();
         this.relatedGlobalTraces.append(new NewDistributedTraceId());
     }
 
+    private TraceSegment(Recycler.Handle<TraceSegment> handle) {
+        this.handle = handle;
+        this.spans = new ArrayList<AbstractTracingSpan>(Math.max(1, Math.min(INITIAL_SPANS_CAPACITY, Config.Agent.SPAN_LIMIT_PER_SEGMENT)));
+        this.relatedGlobalTraces = new DistributedTraceIds();
+    }
+
+    /**
+     * Create a trace segment, same as {@link #TraceSegment()}. Reuse a released one of the current thread, when {@link
+     * Config.Agent#RECYCLE_SEGMENTS} is on.
+     */
+    public static TraceSegment newInstance() {
+        if (!Config.Agent.RECYCLE_SEGMENTS) {
+            return new TraceSegment();
+        }
+        TraceSegment segment = RECYCLER.get();
+        segment.refCount.set(1);
+        segment.traceSegmentId = GlobalIdGenerator.generate();
+        segment.relatedGlobalTraces.append(new NewDistributedTraceId());
+        return segment;
+    }
+
     /**
      * Establish the link between this segment and its parents.
      *
      * @param refSegment {@link TraceSegmentRef}
      */
     public void ref(TraceSegmentRef refSegment) {
+        checkNotReleased();
         if (refs == null) {
-            refs = new LinkedList<TraceSegmentRef>();
+            refs = new ArrayList<TraceSegmentRef>(1);
         }
         if (!refs.contains(refSegment)) {
             refs.add(refSegment);
@@ -100,6 +159,7 @@ public class TraceSegment {
      * Establish the line between this segment and all relative global trace ids.
      */
     public void relatedGlobalTraces(DistributedTraceId distributedTraceId) {
+        checkNotReleased();
         relatedGlobalTraces.append(distributedTraceId);
     }
 
@@ -110,6 +170,7 @@ public class TraceSegment {
      * @param finishedSpan
      */
     public void archive(AbstractTracingSpan finishedSpan) {
+        checkNotReleased();
         spans.add(finishedSpan);
     }
 
@@ -117,6 +178,7 @@ public class TraceSegment {
      * Finish this {@link TraceSegment}. <p> return this, for chaining
      */
     public TraceSegment finish(boolean isSizeLimited) {
+        checkNotReleased();
         this.isSizeLimited = isSizeLimited;
         return this;
     }
@@ -159,6 +221,7 @@ public class TraceSegment {
      * @return the segment as GRPC service parameter
      */
     public UpstreamSegment transform() {
+        checkNotReleased();
         UpstreamSegment.Builder upstreamBuilder = UpstreamSegment.newBuilder();
         for (DistributedTraceId distributedTraceId : getRelatedGlobalTraces()) {
             upstreamBuilder = upstreamBuilder.addGlobalTraceIds(distributedTraceId.toUniqueId());
@@ -182,6 +245,114 @@ public class TraceSegment {
         return upstreamBuilder.build();
     }
 
+    /**
+     * Same as {@link #transform()}, but the {@link TraceSegmentObject} is written into the buffer directly, by {@link
+     * #writeTo(CodedOutputStream)}, rather than built as message objects and serialized.
+     *
+     * @param buffer owned by the current thread.
+     * @return the segment as GRPC service parameter
+     */
+    public UpstreamSegment transform(ReusableOutputBuffer buffer) throws IOException {
+        checkNotReleased();
+        UpstreamSegment.Builder upstreamBuilder = UpstreamSegment.newBuilder();
+        for (DistributedTraceId distributedTraceId : getRelatedGlobalTraces()) {
+            upstreamBuilder.addGlobalTraceIds(distributedTraceId.toUniqueId());
+        }
+        upstreamBuilder.setSegment(buffer.write(this));
+        return upstreamBuilder.build();
+    }
+
+    @Override
+    public int serializedSize() throws IOException {
+        if (memoizedSize < 0) {
+            memoizedSize = encode(null);
+        }
+        return memoizedSize;
+    }
+
+    /**
+     * Write as {@link TraceSegmentObject}.
+     */
+    @Override
+    public void writeTo(CodedOutputStream out) throws IOException {
+        encode(out);
+    }
+
+    private int encode(CodedOutputStream out) throws IOException {
+        checkNotReleased();
+        int size = ProtoFieldUtil.writeMessage(out, TraceSegmentObject.TRACESEGMENTID_FIELD_NUMBER, traceSegmentId);
+        for (AbstractTracingSpan span : this.spans) {
+            size += ProtoFieldUtil.writeMessage(out, TraceSegmentObject.SPANS_FIELD_NUMBER, span);
+        }
+        size += ProtoFieldUtil.writeInt32(out, TraceSegmentObject.APPLICATIONID_FIELD_NUMBER, RemoteDownstreamConfig.Agent.APPLICATION_ID);
+        size += ProtoFieldUtil.writeInt32(out, TraceSegmentObject.APPLICATIONINSTANCEID_FIELD_NUMBER, RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID);
+        size += ProtoFieldUtil.writeBool(out, TraceSegmentObject.ISSIZELIMITED_FIELD_NUMBER, this.isSizeLimited);
+        return size;
+    }
+
+    /**
+     * Hold this segment after {@link org.apache.skywalking.apm.agent.core.context.TracingContextListener#afterFinished(TraceSegment)}
+     * returns, such as queued for another thread, pairs with a {@link #release()} when done. The {@link
+     * org.apache.skywalking.apm.agent.core.context.TracingContext} holds the segment while notifying the listeners, so
+     * it is never returned to the pool while a listener is still reading it.
+     *
+     * @throws IllegalStateException if this segment has been released.
+     */
+    public void retain() {
+        if (handle == null) {
+            return;
+        }
+        while (true) {
+            int count = refCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("TraceSegment has been released.");
+            }
+            if (refCount.compareAndSet(count, count + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop one hold of this segment. The last one returns this segment and its spans to the pools of the threads created
+     * them, only works for the ones created by {@link #newInstance()} with {@link Config.Agent#RECYCLE_SEGMENTS} on.
+     *
+     * @throws IllegalStateException if this segment has been released.
+     */
+    public void release() {
+        if (handle == null) {
+            return;
+        }
+        checkNotReleased();
+        int count = refCount.decrementAndGet();
+        if (count > 0) {
+            return;
+        }
+        if (count < 0) {
+            refCount.incrementAndGet();
+            throw new IllegalStateException("TraceSegment has been released.");
+        }
+        for (AbstractTracingSpan span : spans) {
+            span.release();
+        }
+        spans.clear();
+        if (refs != null) {
+            refs.clear();
+        }
+        relatedGlobalTraces.clear();
+        traceSegmentId = null;
+        ignore = false;
+        isSizeLimited = false;
+        memoizedSize = -1;
+        handle.recycle(this);
+    }
+
+    private void checkNotReleased() {
+        if (handle != null && handle.isRecycled()) {
+            throw new IllegalStateException("TraceSegment has been released.");
+        }
+    }
+
     @Override
     public String toString() {
         return "TraceSegment{" +
@@ -19,10 +19,14 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
 import org.apache.skywalking.apm.agent.core.conf.RemoteDownstreamConfig;
 import org.apache.skywalking.apm.agent.core.context.ContextCarrier;
 import org.apache.skywalking.apm.agent.core.context.ContextSnapshot;
 import org.apache.skywalking.apm.agent.core.context.ids.ID;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoFieldUtil;
+import org.apache.skywalking.apm.agent.core.context.util.ProtoSerializable;
 import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
 import org.apache.skywalking.apm.network.proto.RefType;
 import org.apache.skywalking.apm.network.proto.TraceSegmentReference;
@@ -33,7 +37,7 @@ import org.apache.skywalking.apm.network.proto.TraceSegmentReference;
  * <p>
  * Created by wusheng on 2017/2/17.
  */
-public class TraceSegmentRef {
+public class TraceSegmentRef implements ProtoSerializable {
     private SegmentRefType type;
 
     private ID traceSegmentId;
@@ -56,6 +60,11 @@ public class TraceSegmentRef {
 
     private int parentOperationId = DictionaryUtil.nullValue();
 
+    /**
+     * The size computed by {@link #serializedSize()}, -1 means not computed yet.
+     */
+    private int memoizedSize = -1;
+
     /**
      * Transform a {@link ContextCarrier} to the <code>TraceSegmentRef</code>
      *
@@ -149,6 +158,53 @@ public class TraceSegmentRef {
         return refBuilder.build();
     }
 
+    @Override
+    public int serializedSize() throws IOException {
+        if (memoizedSize < 0) {
+            memoizedSize = encode(null);
+        }
+        return memoizedSize;
+    }
+
+    /**
+     * Write as {@link TraceSegmentReference}, same as {@link #transform()}.
+     */
+    @Override
+    public void writeTo(CodedOutputStream out) throws IOException {
+        encode(out);
+    }
+
+    private int encode(CodedOutputStream out) throws IOException {
+        int size;
+        if (SegmentRefType.CROSS_PROCESS.equals(type)) {
+            size = ProtoFieldUtil.writeEnum(out, TraceSegmentReference.REFTYPE_FIELD_NUMBER, RefType.CrossProcess.getNumber());
+        } else {
+            size = ProtoFieldUtil.writeEnum(out, TraceSegmentReference.REFTYPE_FIELD_NUMBER, RefType.CrossThread.getNumber());
+        }
+        size += ProtoFieldUtil.writeMessage(out, TraceSegmentReference.PARENTTRACESEGMENTID_FIELD_NUMBER, traceSegmentId);
+        size += ProtoFieldUtil.writeInt32(out, TraceSegmentReference.PARENTSPANID_FIELD_NUMBER, spanId);
+        if (SegmentRefType.CROSS_PROCESS.equals(type)) {
+            size += ProtoFieldUtil.writeInt32(out, TraceSegmentReference.PARENTAPPLICATIONINSTANCEID_FIELD_NUMBER, parentApplicationInstanceId);
+            if (peerId == DictionaryUtil.nullValue()) {
+                size += ProtoFieldUtil.writeString(out, TraceSegmentReference.NETWORKADDRESS_FIELD_NUMBER, peerHost);
+            } else {
+                size += ProtoFieldUtil.writeInt32(out, TraceSegmentReference.NETWORKADDRESSID_FIELD_NUMBER, peerId);
+            }
+        }
+        size += ProtoFieldUtil.writeInt32(out, TraceSegmentReference.ENTRYAPPLICATIONINSTANCEID_FIELD_NUMBER, entryApplicationInstanceId);
+        if (entryOperationId == DictionaryUtil.nullValue()) {
+            size += ProtoFieldUtil.writeString(out, TraceSegmentReference.ENTRYSERVICENAME_FIELD_NUMBER, entryOperationName);
+        } else {
+            size += ProtoFieldUtil.writeInt32(out, TraceSegmentReference.ENTRYSERVICEID_FIELD_NUMBER, entryOperationId);
+        }
+        if (parentOperationId == DictionaryUtil.nullValue()) {
+            size += ProtoFieldUtil.writeString(out, TraceSegmentReference.PARENTSERVICENAME_FIELD_NUMBER, parentOperationName);
+        } else {
+            size += ProtoFieldUtil.writeInt32(out, TraceSegmentReference.PARENTSERVICEID_FIELD_NUMBER, parentOperationId);
+        }
+        return size;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.util;
+
+/**
+ * Read the fields written by {@link CompactHeaderWriter}, in the same order.
+ */
+public class CompactHeaderReader {
+    private static final byte[] BASE64_INDEX = new byte[128];
+
+    static {
+        for (int i = 0; i < BASE64_INDEX.length; i++) {
+            BASE64_INDEX[i] = -1;
+        }
+        for (int i = 0; i < CompactHeaderWriter.BASE64.length; i++) {
+            BASE64_INDEX[CompactHeaderWriter.BASE64[i]] = (byte)i;
+        }
+    }
+
+    private final byte[] bytes;
+    private int position;
+
+    /**
+     * @throws IllegalArgumentException if the text isn't URL safe base64 without padding.
+     */
+    public CompactHeaderReader(String text) {
+        int textLength = text.length();
+        if (textLength % 4 == 1) {
+            throw new IllegalArgumentException("Illegal base64 length " + textLength);
+        }
+        bytes = new byte[textLength * 3 / 4];
+        int byteIndex = 0;
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < textLength; i++) {
+            char c = text.charAt(i);
+            int value = c < 128 ? BASE64_INDEX[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Illegal base64 char " + c);
+            }
+            bits = bits << 6 | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                bytes[byteIndex++] = (byte)(bits >>> bitCount);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if no more bytes, or the varint is too long.
+     */
+    public long readLong() {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("No more bytes.");
+            }
+            byte b = bytes[position++];
+            zigzag |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint.");
+    }
+
+    public int readInt() {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Illegal int " + value);
+        }
+        return (int)value;
+    }
+
+    public String readString() {
+        return readBytes(readLong());
+    }
+
+    /**
+     * @see CompactHeaderWriter#writeIdOrText(String)
+     */
+    public String readIdOrText() {
+        long value = readLong();
+        if ((value & 1) == 0) {
+            return String.valueOf(value >> 1);
+        }
+        return readBytes(value >> 1);
+    }
+
+    private String readBytes(long length) {
+        if (length < 0 || length > bytes.length - position) {
+            throw new IllegalArgumentException("Illegal string length " + length);
+        }
+        String value = new String(bytes, position, (int)length, CompactHeaderWriter.UTF_8);
+        position += (int)length;
+        return value;
+    }
+
+    public boolean hasMore() {
+        return position < bytes.length;
+    }
+}
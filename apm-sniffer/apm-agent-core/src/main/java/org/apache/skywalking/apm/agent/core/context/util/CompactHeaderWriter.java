@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * The <code>CompactHeaderWriter</code> writes the fields as varints and length-prefixed UTF-8 strings, then encodes
+ * them by URL safe base64 without padding, so they could be in any text header. Read by {@link CompactHeaderReader}.
+ */
+public class CompactHeaderWriter {
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private byte[] bytes;
+    private int length;
+
+    public CompactHeaderWriter(int initialSize) {
+        bytes = new byte[initialSize];
+    }
+
+    /**
+     * Write by zigzag varint, small values of either sign take less bytes.
+     */
+    public CompactHeaderWriter writeLong(long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        ensureCapacity(10);
+        while ((zigzag & ~0x7FL) != 0) {
+            bytes[length++] = (byte)((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        bytes[length++] = (byte)zigzag;
+        return this;
+    }
+
+    public CompactHeaderWriter writeString(String value) {
+        return writeBytes(value.getBytes(UTF_8), 0);
+    }
+
+    /**
+     * Write a dictionary id as a number, or any other text, like the '#' prefixed names, as a string. The low bit tells
+     * which one, so a registered id takes a byte or two only.
+     */
+    public CompactHeaderWriter writeIdOrText(String value) {
+        if (isId(value)) {
+            return writeLong((long)NumberUtil.parseInt(value, 0, value.length()) << 1);
+        }
+        return writeBytes(value.getBytes(UTF_8), 1);
+    }
+
+    /**
+     * Decimal without sign or leading zero, fits an int, so it reads back as the same text.
+     */
+    private static boolean isId(String value) {
+        int valueLength = value.length();
+        if (valueLength == 0 || valueLength > 9 || (value.charAt(0) == '0' && valueLength > 1)) {
+            return false;
+        }
+        for (int i = 0; i < valueLength; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CompactHeaderWriter writeBytes(byte[] encoded, int tag) {
+        writeLong(((long)encoded.length << tag) | tag);
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, bytes, length, encoded.length);
+        length += encoded.length;
+        return this;
+    }
+
+    /**
+     * @return the base64 text of the written bytes.
+     */
+    public String encode() {
+        char[] text = new char[(length * 4 + 2) / 3];
+        int textIndex = 0;
+        int index = 0;
+        while (index + 3 <= length) {
+            int bits = (bytes[index++] & 0xFF) << 16 | (bytes[index++] & 0xFF) << 8 | (bytes[index++] & 0xFF);
+            text[textIndex++] = BASE64[bits >>> 18];
+            text[textIndex++] = BASE64[(bits >>> 12) & 0x3F];
+            text[textIndex++] = BASE64[(bits >>> 6) & 0x3F];
+            text[textIndex++] = BASE64[bits & 0x3F];
+        }
+        int remaining = length - index;
+        if (remaining == 1) {
+            int bits = (bytes[index] & 0xFF) << 4;
+            text[textIndex++] = BASE64[bits >>> 6];
+            text[textIndex] = BASE64[bits & 0x3F];
+        } else if (remaining == 2) {
+            int bits = ((bytes[index] & 0xFF) << 8 | (bytes[index + 1] & 0xFF)) << 2;
+            text[textIndex++] = BASE64[bits >>> 12];
+            text[textIndex++] = BASE64[(bits >>> 6) & 0x3F];
+            text[textIndex] = BASE64[bits & 0x3F];
+        }
+        return new String(text);
+    }
+
+    private void ensureCapacity(int more) {
+        if (length + more > bytes.length) {
+            byte[] larger = new byte[Math.max(bytes.length * 2, length + more)];
+            System.arraycopy(bytes, 0, larger, 0, length);
+            bytes = larger;
+        }
+    }
+}
@@ -19,6 +19,8 @@
 
 package org.apache.skywalking.apm.agent.core.context.util;
 
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
 import org.apache.skywalking.apm.network.proto.KeyWithStringValue;
 
 /**
@@ -26,9 +28,13 @@ import org.apache.skywalking.apm.network.proto.KeyWithStringValue;
  *
  * @author wusheng
  */
-public class KeyValuePair {
+public class KeyValuePair implements ProtoSerializable {
     private String key;
     private String value;
+    /**
+     * The size computed by {@link #serializedSize()}, -1 means not computed yet.
+     */
+    private int memoizedSize = -1;
 
     public KeyValuePair(String key, String value) {
         this.key = key;
@@ -51,4 +57,22 @@ public class KeyValuePair {
         }
         return keyValueBuilder.build();
     }
+
+    @Override
+    public int serializedSize() throws IOException {
+        if (memoizedSize < 0) {
+            memoizedSize = encode(null);
+        }
+        return memoizedSize;
+    }
+
+    @Override
+    public void writeTo(CodedOutputStream out) throws IOException {
+        encode(out);
+    }
+
+    private int encode(CodedOutputStream out) throws IOException {
+        return ProtoFieldUtil.writeString(out, KeyWithStringValue.KEY_FIELD_NUMBER, key)
+            + ProtoFieldUtil.writeString(out, KeyWithStringValue.VALUE_FIELD_NUMBER, value);
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.util;
+
+/**
+ * Parse the numbers in a part of a string, without the substring, for the header decoders.
+ */
+public class NumberUtil {
+    /**
+     * @param begin the first char, inclusive.
+     * @param end the last char, exclusive.
+     * @throws NumberFormatException if not a decimal long, same as {@link Long#parseLong(String)}.
+     */
+    public static long parseLong(String text, int begin, int end) {
+        if (begin >= end) {
+            throw new NumberFormatException("Empty number in " + text);
+        }
+        boolean negative = text.charAt(begin) == '-';
+        int index = negative ? begin + 1 : begin;
+        if (index == end) {
+            throw new NumberFormatException("Illegal number " + text.substring(begin, end));
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        while (index < end) {
+            int digit = text.charAt(index++) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw new NumberFormatException("Illegal number " + text.substring(begin, end));
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("Illegal number " + text.substring(begin, end));
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * @see #parseLong(String, int, int)
+     */
+    public static int parseInt(String text, int begin, int end) {
+        long value = parseLong(text, begin, end);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Illegal int " + text.substring(begin, end));
+        }
+        return (int)value;
+    }
+}
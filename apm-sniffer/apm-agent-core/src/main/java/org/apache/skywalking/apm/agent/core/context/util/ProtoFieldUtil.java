@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.util;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+
+/**
+ * Write proto3 fields by {@link CodedOutputStream} directly, without building the generated messages. Same as the
+ * generated codes, the fields in default value, 0, false or empty string, are skipped.
+ *
+ * Every method returns the size of the field. The output stream could be null, which means only compute the size, so
+ * the same codes compute the size of a message and write it, see {@link ProtoSerializable}.
+ *
+ * The field numbers should be the <code>*_FIELD_NUMBER</code> constants of the generated messages.
+ */
+public class ProtoFieldUtil {
+    public static int writeInt32(CodedOutputStream out, int field, int value) throws IOException {
+        if (value == 0) {
+            return 0;
+        }
+        if (out != null) {
+            out.writeInt32(field, value);
+        }
+        return CodedOutputStream.computeInt32Size(field, value);
+    }
+
+    public static int writeInt64(CodedOutputStream out, int field, long value) throws IOException {
+        if (value == 0) {
+            return 0;
+        }
+        if (out != null) {
+            out.writeInt64(field, value);
+        }
+        return CodedOutputStream.computeInt64Size(field, value);
+    }
+
+    public static int writeBool(CodedOutputStream out, int field, boolean value) throws IOException {
+        if (!value) {
+            return 0;
+        }
+        if (out != null) {
+            out.writeBool(field, true);
+        }
+        return CodedOutputStream.computeBoolSize(field, true);
+    }
+
+    /**
+     * @param number of the enum value.
+     */
+    public static int writeEnum(CodedOutputStream out, int field, int number) throws IOException {
+        if (number == 0) {
+            return 0;
+        }
+        if (out != null) {
+            out.writeEnum(field, number);
+        }
+        return CodedOutputStream.computeEnumSize(field, number);
+    }
+
+    /**
+     * @param value null is same as empty, skipped.
+     */
+    public static int writeString(CodedOutputStream out, int field, String value) throws IOException {
+        if (value == null || value.length() == 0) {
+            return 0;
+        }
+        if (out != null) {
+            out.writeString(field, value);
+        }
+        return CodedOutputStream.computeStringSize(field, value);
+    }
+
+    /**
+     * Write an embedded message, the tag, the length, then the message itself.
+     */
+    public static int writeMessage(CodedOutputStream out, int field,
+        ProtoSerializable message) throws IOException {
+        int size = message.serializedSize();
+        if (out != null) {
+            out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(size);
+            message.writeTo(out);
+        }
+        return CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+}
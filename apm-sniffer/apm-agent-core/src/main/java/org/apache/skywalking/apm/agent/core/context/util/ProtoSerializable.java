@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.util;
+
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+
+/**
+ * The <code>ProtoSerializable</code> writes itself as a protobuf message, the same bytes as its <code>transform()</code>
+ * result, but without building the message object.
+ */
+public interface ProtoSerializable {
+    /**
+     * The size is computed once and memoized, like the generated messages do, so an embedded message written by {@link
+     * ProtoFieldUtil#writeMessage(CodedOutputStream, int, ProtoSerializable)} isn't re-encoded at every level of the
+     * tree. So the message must not change after this is called.
+     *
+     * @return the size of the message, not including the tag and length when embedded.
+     */
+    int serializedSize() throws IOException;
+
+    void writeTo(CodedOutputStream out) throws IOException;
+}
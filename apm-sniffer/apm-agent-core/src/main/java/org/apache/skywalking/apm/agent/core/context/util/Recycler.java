@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The <code>Recycler</code> is a thread-confined object pool. Each thread takes objects from its own pool, without any
+ * lock. An object goes back to the pool of the thread which created it, when the object is released by another thread,
+ * such as the consumer thread of trace segments, it is handed back through a bounded array queue, and picked up by the
+ * owner thread when its own pool is empty. Neither way allocates.
+ *
+ * The objects hold their {@link Handle}, and release themselves by {@link Handle#recycle(Object)}.
+ *
+ * {@link Handle#isRecycled()} only catches a use after release while the object is idle in the pool. Once it is taken
+ * again, a stale reference can't be told from the new holder's, and uses the object of another owner silently. So the
+ * holders must not keep an object after releasing it, and an object shared by several holders is released by the last
+ * one, such as {@link org.apache.skywalking.apm.agent.core.context.trace.TraceSegment#retain()}.
+ */
+public abstract class Recycler<T> {
+    private final int capacity;
+    private final ThreadLocal<Pool<T>> pools;
+
+    /**
+     * @param capacity the max number of idle objects in the pool of each thread.
+     */
+    public Recycler(int capacity) {
+        this.capacity = capacity;
+        this.pools = new ThreadLocal<Pool<T>>() {
+            @Override
+            protected Pool<T> initialValue() {
+                return new Pool<T>(Thread.currentThread(), Recycler.this.capacity);
+            }
+        };
+    }
+
+    /**
+     * Create a new object, when the pool of the current thread is empty.
+     *
+     * @param handle of the new object, used to recycle it.
+     */
+    protected abstract T newObject(Handle<T> handle);
+
+    /**
+     * @return an idle object from the pool of the current thread, or a new one.
+     */
+    public T get() {
+        Pool<T> pool = pools.get();
+        Handle<T> handle = pool.pop();
+        if (handle == null) {
+            handle = new Handle<T>(pool);
+            handle.object = newObject(handle);
+        }
+        handle.recycled = false;
+        return handle.object;
+    }
+
+    /**
+     * @return the number of idle objects in the pool of the current thread, excluding the ones handed back.
+     */
+    int idleCount() {
+        return pools.get().idle.size();
+    }
+
+    public static final class Handle<T> {
+        private final Pool<T> owner;
+        private T object;
+        private volatile boolean recycled;
+
+        private Handle(Pool<T> owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * @return true means the object is idle in the pool, or on the way back, it must not be used.
+         */
+        public boolean isRecycled() {
+            return recycled;
+        }
+
+        /**
+         * Put the object back to the pool of its owner thread. The object is dropped when the pool is full.
+         *
+         * @throws IllegalStateException if the object has been recycled.
+         */
+        public void recycle(T object) {
+            if (object != this.object) {
+                throw new IllegalStateException("Recycle an object by the handle of another one.");
+            }
+            if (recycled) {
+                throw new IllegalStateException("Object has been recycled: " + object);
+            }
+            recycled = true;
+            owner.push(this);
+        }
+    }
+
+    private static final class Pool<T> {
+        private final Thread thread;
+        private final int capacity;
+        private final ArrayDeque<Handle<T>> idle;
+        private final HandBackQueue<T> handedBack;
+
+        private Pool(Thread thread, int capacity) {
+            this.thread = thread;
+            this.capacity = capacity;
+            this.idle = new ArrayDeque<Handle<T>>();
+            this.handedBack = new HandBackQueue<T>(capacity);
+        }
+
+        private Handle<T> pop() {
+            if (idle.isEmpty()) {
+                Handle<T> handle;
+                while (idle.size() < capacity && (handle = handedBack.poll()) != null) {
+                    idle.push(handle);
+                }
+            }
+            return idle.poll();
+        }
+
+        private void push(Handle<T> handle) {
+            if (Thread.currentThread() == thread) {
+                if (idle.size() < capacity) {
+                    idle.push(handle);
+                }
+            } else {
+                handedBack.offer(handle);
+            }
+        }
+    }
+
+    /**
+     * A bounded queue on a ring array, for the handles released by other threads. Any thread offers, only the owner
+     * thread of the pool polls. The producers claim a slot by CAS on the producer index, and publish the handle into
+     * it, the owner empties the slot before moving the consumer index, so a slot is never claimed before emptied.
+     */
+    private static final class HandBackQueue<T> {
+        private final int capacity;
+        private final int mask;
+        private final AtomicReferenceArray<Handle<T>> slots;
+        private final AtomicLong producerIndex = new AtomicLong(0);
+        private volatile long consumerIndex = 0;
+
+        private HandBackQueue(int capacity) {
+            this.capacity = capacity;
+            int length = 1;
+            while (length < capacity) {
+                length <<= 1;
+            }
+            this.mask = length - 1;
+            this.slots = new AtomicReferenceArray<Handle<T>>(length);
+        }
+
+        /**
+         * @return false means the queue is full, the handle is dropped.
+         */
+        private boolean offer(Handle<T> handle) {
+            while (true) {
+                long index = producerIndex.get();
+                if (index - consumerIndex >= capacity) {
+                    return false;
+                }
+                if (producerIndex.compareAndSet(index, index + 1)) {
+                    slots.lazySet((int)index & mask, handle);
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return null means empty, or the next handle is claimed but not published yet, it is taken next time.
+         */
+        private Handle<T> poll() {
+            long index = consumerIndex;
+            int offset = (int)index & mask;
+            Handle<T> handle = slots.get(offset);
+            if (handle == null) {
+                return null;
+            }
+            slots.lazySet(offset, null);
+            consumerIndex = index + 1;
+            return handle;
+        }
+    }
+}
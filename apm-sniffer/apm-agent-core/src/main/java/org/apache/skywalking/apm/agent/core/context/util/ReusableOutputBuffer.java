@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.util;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+
+/**
+ * The <code>ReusableOutputBuffer</code> is a byte array reused by {@link ProtoSerializable}s, one message after
+ * another. It isn't thread safe, each thread should own its buffer.
+ *
+ * The array grows to the biggest message, and goes back to the initial size after a message bigger than {@link
+ * #MAX_RETAINED_SIZE}, so a rare huge segment doesn't hold the memory forever.
+ */
+public class ReusableOutputBuffer {
+    private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+    private final int initialSize;
+    private byte[] bytes;
+
+    public ReusableOutputBuffer(int initialSize) {
+        this.initialSize = initialSize;
+        this.bytes = new byte[initialSize];
+    }
+
+    /**
+     * Write the message into this buffer.
+     *
+     * @return the bytes of the message, copied out of this buffer.
+     */
+    public ByteString write(ProtoSerializable message) throws IOException {
+        int size = message.serializedSize();
+        if (bytes.length < size) {
+            bytes = new byte[Math.max(size, bytes.length * 2)];
+        }
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes, 0, size);
+        message.writeTo(out);
+        out.checkNoSpaceLeft();
+
+        ByteString written = ByteString.copyFrom(bytes, 0, size);
+        if (bytes.length > MAX_RETAINED_SIZE) {
+            bytes = new byte[initialSize];
+        }
+        return written;
+    }
+}
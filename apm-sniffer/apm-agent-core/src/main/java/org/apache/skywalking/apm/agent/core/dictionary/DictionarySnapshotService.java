@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.dictionary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.agent.core.boot.BootService;
+import org.apache.skywalking.apm.agent.core.boot.DefaultNamedThreadFactory;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
+import org.apache.skywalking.apm.util.StringUtil;
+
+/**
+ * The <code>DictionarySnapshotService</code> keeps the {@link OperationNameDictionary} and {@link
+ * NetworkAddressDictionary} in a local file, see {@link Config.Dictionary#SNAPSHOT_DIR}. The file is per application
+ * code and collector cluster, and reloaded in {@link #beforeBoot()}, so the spans of a restarted instance carry the
+ * ids at once, instead of registering all the names again. The reloaded entries are confirmed with the collector by
+ * the dictionaries in batches, and the ones unknown by the collector are registered again.
+ */
+public class DictionarySnapshotService implements BootService {
+    private static final ILog logger = LogManager.getLogger(DictionarySnapshotService.class);
+    private static final int MAGIC = 0x534b4459;
+    private static final int FORMAT_VERSION = 2;
+    private static final long SAVE_INTERVAL = 60;
+
+    private volatile File snapshotFile;
+    private volatile ScheduledFuture<?> saveFuture;
+
+    @Override
+    public void beforeBoot() throws Throwable {
+        if (StringUtil.isEmpty(Config.Dictionary.SNAPSHOT_DIR)) {
+            return;
+        }
+        snapshotFile = new File(Config.Dictionary.SNAPSHOT_DIR,
+            "dictionary-" + Integer.toHexString((Config.Agent.APPLICATION_CODE + "@" + cluster()).hashCode()) + ".snapshot");
+        if (snapshotFile.exists()) {
+            try {
+                load(snapshotFile);
+            } catch (IOException e) {
+                logger.warn("Can't load the dictionary snapshot {}, {}", snapshotFile, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void boot() throws Throwable {
+        if (snapshotFile == null) {
+            return;
+        }
+        saveFuture = Executors
+            .newSingleThreadScheduledExecutor(new DefaultNamedThreadFactory("DictionarySnapshotService"))
+            .scheduleAtFixedRate(new RunnableWithExceptionProtection(new Runnable() {
+                @Override
+                public void run() {
+                    saveIfChanged();
+                }
+            }, new RunnableWithExceptionProtection.CallbackWhenException() {
+                @Override
+                public void handle(Throwable t) {
+                    logger.error("Save dictionary snapshot failure.", t);
+                }
+            }), SAVE_INTERVAL, SAVE_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void afterBoot() throws Throwable {
+
+    }
+
+    @Override
+    public void shutdown() throws Throwable {
+        if (saveFuture != null) {
+            saveFuture.cancel(true);
+        }
+        if (snapshotFile != null) {
+            saveIfChanged();
+        }
+    }
+
+    private synchronized void saveIfChanged() {
+        boolean changed = OperationNameDictionary.INSTANCE.resetChanged();
+        changed = NetworkAddressDictionary.INSTANCE.resetChanged() || changed;
+        if (!changed) {
+            return;
+        }
+        try {
+            save(snapshotFile);
+        } catch (IOException e) {
+            logger.warn("Can't save the dictionary snapshot {}, {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * The collector cluster, which the ids are from.
+     */
+    private static String cluster() {
+        return StringUtil.isEmpty(Config.Collector.SERVERS) ? Config.Collector.DIRECT_SERVERS : Config.Collector.SERVERS;
+    }
+
+    static void load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                || !Config.Agent.APPLICATION_CODE.equals(StringUtil.readUTF8(in))
+                || !cluster().equals(StringUtil.readUTF8(in))) {
+                logger.info("Dictionary snapshot {} is not for this application or collector, ignored.", file);
+                return;
+            }
+            OperationNameDictionary.INSTANCE.readSnapshot(in);
+            NetworkAddressDictionary.INSTANCE.readSnapshot(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    static void save(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        File temp = new File(dir, file.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            StringUtil.writeUTF8(out, Config.Agent.APPLICATION_CODE);
+            StringUtil.writeUTF8(out, cluster());
+            OperationNameDictionary.INSTANCE.writeSnapshot(out);
+            NetworkAddressDictionary.INSTANCE.writeSnapshot(out);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            if (!file.delete() || !temp.renameTo(file)) {
+                throw new IOException("Can't rename " + temp + " to " + file);
+            }
+        }
+    }
+}
@@ -20,6 +20,13 @@
 package org.apache.skywalking.apm.agent.core.dictionary;
 
 import io.netty.util.internal.ConcurrentSet;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -27,8 +34,10 @@ import org.apache.skywalking.apm.network.proto.KeyWithIntegerValue;
 import org.apache.skywalking.apm.network.proto.NetworkAddressMappings;
 import org.apache.skywalking.apm.network.proto.NetworkAddressRegisterServiceGrpc;
 import org.apache.skywalking.apm.network.proto.NetworkAddresses;
+import org.apache.skywalking.apm.util.StringUtil;
 
 import static org.apache.skywalking.apm.agent.core.conf.Config.Dictionary.APPLICATION_CODE_BUFFER_SIZE;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Dictionary.SNAPSHOT_REVALIDATE_BATCH_SIZE;
 
 /**
  * Map of network address id to network literal address, which is from the collector side.
@@ -39,6 +48,12 @@ public enum NetworkAddressDictionary {
     INSTANCE;
     private Map<String, Integer> applicationDictionary = new ConcurrentHashMap<String, Integer>();
     private Set<String> unRegisterApplications = new ConcurrentSet<String>();
+    /**
+     * The network addresses reloaded from the {@link DictionarySnapshotService snapshot}, which are used at once, but
+     * not confirmed by the collector yet.
+     */
+    private Set<String> unValidatedApplications = new ConcurrentSet<String>();
+    private volatile boolean changed = false;
 
     public PossibleFound find(String networkAddress) {
         Integer applicationId = applicationDictionary.get(networkAddress);
@@ -54,15 +69,61 @@ public enum NetworkAddressDictionary {
 
     public void syncRemoteDictionary(
         NetworkAddressRegisterServiceGrpc.NetworkAddressRegisterServiceBlockingStub networkAddressRegisterServiceBlockingStub) {
-        if (unRegisterApplications.size() > 0) {
+        List<String> revalidating = new ArrayList<String>();
+        Iterator<String> iterator = unValidatedApplications.iterator();
+        while (iterator.hasNext() && revalidating.size() < SNAPSHOT_REVALIDATE_BATCH_SIZE) {
+            revalidating.add(iterator.next());
+        }
+        if (unRegisterApplications.size() > 0 || revalidating.size() > 0) {
             NetworkAddressMappings networkAddressMappings = networkAddressRegisterServiceBlockingStub.batchRegister(
-                NetworkAddresses.newBuilder().addAllAddresses(unRegisterApplications).build());
+                NetworkAddresses.newBuilder().addAllAddresses(unRegisterApplications).addAllAddresses(revalidating).build());
+            Set<String> confirmed = new HashSet<String>();
             if (networkAddressMappings.getAddressIdsCount() > 0) {
                 for (KeyWithIntegerValue keyWithIntegerValue : networkAddressMappings.getAddressIdsList()) {
                     unRegisterApplications.remove(keyWithIntegerValue.getKey());
                     applicationDictionary.put(keyWithIntegerValue.getKey(), keyWithIntegerValue.getValue());
+                    confirmed.add(keyWithIntegerValue.getKey());
+                    changed = true;
+                }
+            }
+            for (String networkAddress : revalidating) {
+                if (unValidatedApplications.remove(networkAddress) && !confirmed.contains(networkAddress)) {
+                    applicationDictionary.remove(networkAddress);
+                    unRegisterApplications.add(networkAddress);
+                    changed = true;
                 }
             }
         }
     }
+
+    /**
+     * @return true if the registered network addresses changed since the last call.
+     */
+    boolean resetChanged() {
+        boolean changed = this.changed;
+        this.changed = false;
+        return changed;
+    }
+
+    void writeSnapshot(DataOutput out) throws IOException {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>(applicationDictionary.entrySet());
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Integer> entry : entries) {
+            StringUtil.writeUTF8(out, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    void readSnapshot(DataInput in) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String networkAddress = StringUtil.readUTF8(in);
+            int applicationId = in.readInt();
+            if (applicationDictionary.size() < APPLICATION_CODE_BUFFER_SIZE
+                && !applicationDictionary.containsKey(networkAddress)) {
+                applicationDictionary.put(networkAddress, applicationId);
+                unValidatedApplications.add(networkAddress);
+            }
+        }
+    }
 }
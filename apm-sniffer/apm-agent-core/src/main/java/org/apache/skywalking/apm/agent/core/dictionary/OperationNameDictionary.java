@@ -19,25 +19,85 @@
 package org.apache.skywalking.apm.agent.core.dictionary;
 
 import io.netty.util.internal.ConcurrentSet;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.conf.RemoteDownstreamConfig;
 import org.apache.skywalking.apm.network.proto.ServiceNameCollection;
 import org.apache.skywalking.apm.network.proto.ServiceNameDiscoveryServiceGrpc;
 import org.apache.skywalking.apm.network.proto.ServiceNameElement;
 import org.apache.skywalking.apm.network.proto.ServiceNameMappingCollection;
 import org.apache.skywalking.apm.network.proto.ServiceNameMappingElement;
 import org.apache.skywalking.apm.network.proto.SpanType;
+import org.apache.skywalking.apm.util.StringUtil;
 
+import static org.apache.skywalking.apm.agent.core.conf.Config.Dictionary.OPERATION_NAME_BUDGET_PER_APPLICATION;
 import static org.apache.skywalking.apm.agent.core.conf.Config.Dictionary.OPERATION_NAME_BUFFER_SIZE;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Dictionary.OPERATION_NAME_FALLBACK;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Dictionary.OPERATION_NAME_REGISTER_BATCH_SIZE;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Dictionary.SNAPSHOT_REVALIDATE_BATCH_SIZE;
 
 /**
+ * The dictionary of the operation names registered in the collector.
+ * <p>
+ * Each application keeps at most {@link Config.Dictionary#OPERATION_NAME_BUDGET_PER_APPLICATION} names, the new
+ * names beyond it are collapsed into {@link Config.Dictionary#OPERATION_NAME_FALLBACK}, which protects the agent and
+ * collector from the names including parameters, such as the REST URLs. The names of the application not used
+ * recently are evicted in the next syncs to make room for them, so the budget follows the names in use, rather than
+ * the first ones. All the names are bounded by {@link Config.Dictionary#OPERATION_NAME_BUFFER_SIZE} too, for many
+ * applications sharing the agent. The eviction is in the clock (second chance) way, which keeps the lookups lock
+ * free, and each sync sweeps at most {@link #EVICT_SCAN_SIZE} names, continuing from where the last one stopped.
+ *
  * @author wusheng
  */
 public enum OperationNameDictionary {
     INSTANCE;
-    private Map<OperationNameKey, Integer> operationNameDictionary = new ConcurrentHashMap<OperationNameKey, Integer>();
+    /**
+     * The max names checked by one {@link #evict()}.
+     */
+    private static final int EVICT_SCAN_SIZE = 10000;
+
+    private Map<OperationNameKey, OperationNameEntry> operationNameDictionary =
+        new ConcurrentHashMap<OperationNameKey, OperationNameEntry>();
     private Set<OperationNameKey> unRegisterOperationNames = new ConcurrentSet<OperationNameKey>();
+    /**
+     * The operation names reloaded from the {@link DictionarySnapshotService snapshot}, which are used at once, but
+     * not confirmed by the collector yet.
+     */
+    private Set<OperationNameKey> unValidatedOperationNames = new ConcurrentSet<OperationNameKey>();
+    /**
+     * The number of the names of each application, in the dictionary or waiting for register.
+     */
+    private ConcurrentHashMap<Integer, AtomicInteger> applicationNameCounts =
+        new ConcurrentHashMap<Integer, AtomicInteger>();
+    /**
+     * The number of the new names of each application collapsed into the fallback since the last sync.
+     */
+    private ConcurrentHashMap<Integer, AtomicInteger> applicationRejectedCounts =
+        new ConcurrentHashMap<Integer, AtomicInteger>();
+    private volatile boolean changed = false;
+    /**
+     * The hand of the clock, only moved by the sync thread.
+     */
+    private Iterator<Map.Entry<OperationNameKey, OperationNameEntry>> evictCursor;
+    /**
+     * Reused by the lookups of each thread, the map doesn't keep it.
+     */
+    private final ThreadLocal<OperationNameKey> lookupKey = new ThreadLocal<OperationNameKey>() {
+        @Override protected OperationNameKey initialValue() {
+            return new OperationNameKey(0, null, false, false);
+        }
+    };
 
     public PossibleFound findOrPrepare4Register(int applicationId, String operationName,
         boolean isEntry, boolean isExit) {
@@ -48,37 +108,114 @@ public enum OperationNameDictionary {
         return find0(applicationId, operationName, false, false, false);
     }
 
+    public PossibleFound findOnly(int applicationId, String operationName, boolean isEntry, boolean isExit) {
+        return find0(applicationId, operationName, isEntry, isExit, false);
+    }
+
+    /**
+     * Same as {@link #findOnly(int, String, boolean, boolean)}, but returns the id directly, without any {@link
+     * PossibleFound} or boxing, for the paths run by every trace.
+     *
+     * @return the operation id, or {@link DictionaryUtil#nullValue()} if not registered yet.
+     */
+    public int findOperationId(int applicationId, String operationName, boolean isEntry, boolean isExit) {
+        if (operationName == null || operationName.length() == 0) {
+            return DictionaryUtil.nullValue();
+        }
+        OperationNameEntry entry = lookup(applicationId, operationName, isEntry, isExit);
+        return entry == null ? DictionaryUtil.nullValue() : entry.use();
+    }
+
+    private OperationNameEntry lookup(int applicationId, String operationName, boolean isEntry, boolean isExit) {
+        OperationNameKey key = lookupKey.get();
+        key.reset(applicationId, operationName, isEntry, isExit);
+        try {
+            return operationNameDictionary.get(key);
+        } finally {
+            key.reset(0, null, false, false);
+        }
+    }
+
     private PossibleFound find0(int applicationId, String operationName,
         boolean isEntry, boolean isExit, boolean registerWhenNotFound) {
         if (operationName == null || operationName.length() == 0) {
             return new NotFound();
         }
-        OperationNameKey key = new OperationNameKey(applicationId, operationName, isEntry, isExit);
-        Integer operationId = operationNameDictionary.get(key);
-        if (operationId != null) {
-            return new Found(operationId);
-        } else {
-            if (registerWhenNotFound &&
-                operationNameDictionary.size() + unRegisterOperationNames.size() < OPERATION_NAME_BUFFER_SIZE) {
-                unRegisterOperationNames.add(key);
+        OperationNameEntry entry = lookup(applicationId, operationName, isEntry, isExit);
+        if (entry != null) {
+            return new Found(entry.use());
+        }
+        if (registerWhenNotFound
+            && !prepare4Register(new OperationNameKey(applicationId, operationName, isEntry, isExit), false)) {
+            entry = lookup(applicationId, OPERATION_NAME_FALLBACK, isEntry, isExit);
+            if (entry != null) {
+                return new Found(entry.use());
             }
-            return new NotFound();
+            prepare4Register(new OperationNameKey(applicationId, OPERATION_NAME_FALLBACK, isEntry, isExit), true);
         }
+        return new NotFound();
     }
 
+    /**
+     * @param overBudget true if the name could be registered beyond the budget of the application.
+     * @return false if the name is beyond the budget of its application, which should be collapsed into the fallback.
+     */
+    private boolean prepare4Register(OperationNameKey key, boolean overBudget) {
+        if (unRegisterOperationNames.contains(key)) {
+            return true;
+        }
+        if (unRegisterOperationNames.size() >= OPERATION_NAME_BUFFER_SIZE) {
+            return true;
+        }
+        AtomicInteger count = nameCountOf(key.getApplicationId());
+        if (count.incrementAndGet() > OPERATION_NAME_BUDGET_PER_APPLICATION && !overBudget) {
+            count.decrementAndGet();
+            counterOf(applicationRejectedCounts, key.getApplicationId()).incrementAndGet();
+            return false;
+        }
+        if (!unRegisterOperationNames.add(key)) {
+            count.decrementAndGet();
+        }
+        return true;
+    }
+
+    private AtomicInteger nameCountOf(int applicationId) {
+        return counterOf(applicationNameCounts, applicationId);
+    }
+
+    private AtomicInteger counterOf(ConcurrentHashMap<Integer, AtomicInteger> counts, int applicationId) {
+        AtomicInteger count = counts.get(applicationId);
+        if (count == null) {
+            count = new AtomicInteger();
+            AtomicInteger existing = counts.putIfAbsent(applicationId, count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Register at most {@link Config.Dictionary#OPERATION_NAME_REGISTER_BATCH_SIZE} names in each sync, the others
+     * wait for the next ones, so a burst of new names doesn't become a huge request. The names not used recently are
+     * evicted in each sync too, see {@link #evict()}.
+     */
     public void syncRemoteDictionary(
         ServiceNameDiscoveryServiceGrpc.ServiceNameDiscoveryServiceBlockingStub serviceNameDiscoveryServiceBlockingStub) {
-        if (unRegisterOperationNames.size() > 0) {
+        List<OperationNameKey> revalidating = prepareRevalidation();
+        if (unRegisterOperationNames.size() > 0 || revalidating.size() > 0) {
             ServiceNameCollection.Builder builder = ServiceNameCollection.newBuilder();
-            for (OperationNameKey operationNameKey : unRegisterOperationNames) {
-                ServiceNameElement serviceNameElement = ServiceNameElement.newBuilder()
-                    .setApplicationId(operationNameKey.getApplicationId())
-                    .setServiceName(operationNameKey.getOperationName())
-                    .setSrcSpanType(operationNameKey.getSpanType())
-                    .build();
-                builder.addElements(serviceNameElement);
+            int registering = 0;
+            Iterator<OperationNameKey> iterator = unRegisterOperationNames.iterator();
+            while (iterator.hasNext() && registering < OPERATION_NAME_REGISTER_BATCH_SIZE) {
+                builder.addElements(toElement(iterator.next()));
+                registering++;
+            }
+            for (OperationNameKey operationNameKey : revalidating) {
+                builder.addElements(toElement(operationNameKey));
             }
             ServiceNameMappingCollection serviceNameMappingCollection = serviceNameDiscoveryServiceBlockingStub.discovery(builder.build());
+            Set<OperationNameKey> confirmed = new HashSet<OperationNameKey>();
             if (serviceNameMappingCollection.getElementsCount() > 0) {
                 for (ServiceNameMappingElement serviceNameMappingElement : serviceNameMappingCollection.getElementsList()) {
                     ServiceNameElement element = serviceNameMappingElement.getElement();
@@ -87,10 +224,168 @@ public enum OperationNameDictionary {
                         element.getServiceName(),
                         SpanType.Entry.equals(element.getSrcSpanType()),
                         SpanType.Exit.equals(element.getSrcSpanType()));
-                    unRegisterOperationNames.remove(key);
-                    operationNameDictionary.put(key, serviceNameMappingElement.getServiceId());
+                    boolean pending = unRegisterOperationNames.remove(key);
+                    OperationNameEntry entry = new OperationNameEntry(serviceNameMappingElement.getServiceId());
+                    if (operationNameDictionary.put(key, entry) == null && !pending) {
+                        nameCountOf(key.getApplicationId()).incrementAndGet();
+                    }
+                    confirmed.add(key);
+                    changed = true;
+                }
+            }
+            for (OperationNameKey key : revalidating) {
+                if (unValidatedOperationNames.remove(key) && !confirmed.contains(key)) {
+                    operationNameDictionary.remove(key);
+                    unRegisterOperationNames.add(key);
+                    changed = true;
+                }
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Evict the names of the applications beyond their budgets, as many as their new names collapsed into the
+     * fallback since the last sync, and the names of all the applications beyond the buffer size. The names used
+     * since the hand passed them get a second chance. The hand goes one round at most for the applications beyond
+     * their budgets, so their names age out in two syncs if not used, and two rounds for the buffer size, so the
+     * ones beyond it are evicted at once, unless the dictionary is bigger than {@link #EVICT_SCAN_SIZE}. The rest is
+     * left to the next syncs then.
+     */
+    private void evict() {
+        Map<Integer, Integer> evicting = new HashMap<Integer, Integer>();
+        for (Map.Entry<Integer, AtomicInteger> rejected : applicationRejectedCounts.entrySet()) {
+            int rejectedCount = Math.min(rejected.getValue().getAndSet(0), OPERATION_NAME_REGISTER_BATCH_SIZE);
+            if (rejectedCount > 0) {
+                int overBudget = nameCountOf(rejected.getKey()).get() - OPERATION_NAME_BUDGET_PER_APPLICATION;
+                evicting.put(rejected.getKey(), Math.max(overBudget, 0) + rejectedCount);
+            }
+        }
+        int size = operationNameDictionary.size();
+        int overflow = size - OPERATION_NAME_BUFFER_SIZE;
+        int maxScanned = Math.min(EVICT_SCAN_SIZE, overflow > 0 ? size * 2 : size);
+        for (int scanned = 0; scanned < maxScanned && (overflow > 0 || !evicting.isEmpty()); scanned++) {
+            if (evictCursor == null || !evictCursor.hasNext()) {
+                evictCursor = operationNameDictionary.entrySet().iterator();
+                if (!evictCursor.hasNext()) {
+                    break;
                 }
             }
+            Map.Entry<OperationNameKey, OperationNameEntry> entry = evictCursor.next();
+            OperationNameKey key = entry.getKey();
+            Integer applicationEvicting = scanned < size ? evicting.get(key.getApplicationId()) : null;
+            if ((overflow <= 0 && applicationEvicting == null)
+                || OPERATION_NAME_FALLBACK.equals(key.getOperationName())) {
+                continue;
+            }
+            if (entry.getValue().used) {
+                entry.getValue().used = false;
+            } else if (operationNameDictionary.remove(key, entry.getValue())) {
+                unValidatedOperationNames.remove(key);
+                nameCountOf(key.getApplicationId()).decrementAndGet();
+                overflow--;
+                if (applicationEvicting != null) {
+                    if (applicationEvicting > 1) {
+                        evicting.put(key.getApplicationId(), applicationEvicting - 1);
+                    } else {
+                        evicting.remove(key.getApplicationId());
+                    }
+                }
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * Take a batch of the reloaded operation names to confirm with the collector. The ones of another application id,
+     * which means the application is registered again, are dropped directly.
+     */
+    private List<OperationNameKey> prepareRevalidation() {
+        List<OperationNameKey> revalidating = new ArrayList<OperationNameKey>();
+        Iterator<OperationNameKey> iterator = unValidatedOperationNames.iterator();
+        while (iterator.hasNext() && revalidating.size() < SNAPSHOT_REVALIDATE_BATCH_SIZE) {
+            OperationNameKey key = iterator.next();
+            if (key.getApplicationId() == RemoteDownstreamConfig.Agent.APPLICATION_ID) {
+                revalidating.add(key);
+            } else {
+                iterator.remove();
+                if (operationNameDictionary.remove(key) != null) {
+                    nameCountOf(key.getApplicationId()).decrementAndGet();
+                }
+                changed = true;
+            }
+        }
+        return revalidating;
+    }
+
+    private ServiceNameElement toElement(OperationNameKey operationNameKey) {
+        return ServiceNameElement.newBuilder()
+            .setApplicationId(operationNameKey.getApplicationId())
+            .setServiceName(operationNameKey.getOperationName())
+            .setSrcSpanType(operationNameKey.getSpanType())
+            .build();
+    }
+
+    /**
+     * @return true if the registered operation names changed since the last call.
+     */
+    boolean resetChanged() {
+        boolean changed = this.changed;
+        this.changed = false;
+        return changed;
+    }
+
+    void writeSnapshot(DataOutput out) throws IOException {
+        List<Map.Entry<OperationNameKey, OperationNameEntry>> entries =
+            new ArrayList<Map.Entry<OperationNameKey, OperationNameEntry>>(operationNameDictionary.entrySet());
+        out.writeInt(entries.size());
+        for (Map.Entry<OperationNameKey, OperationNameEntry> entry : entries) {
+            OperationNameKey key = entry.getKey();
+            out.writeInt(key.getApplicationId());
+            StringUtil.writeUTF8(out, key.getOperationName());
+            out.writeBoolean(key.isEntry());
+            out.writeBoolean(key.isExit());
+            out.writeInt(entry.getValue().operationId);
+        }
+    }
+
+    void readSnapshot(DataInput in) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            OperationNameKey key = new OperationNameKey(in.readInt(), StringUtil.readUTF8(in), in.readBoolean(),
+                in.readBoolean());
+            int operationId = in.readInt();
+            if (operationNameDictionary.size() >= OPERATION_NAME_BUFFER_SIZE
+                || operationNameDictionary.containsKey(key)) {
+                continue;
+            }
+            AtomicInteger count = nameCountOf(key.getApplicationId());
+            if (count.incrementAndGet() > OPERATION_NAME_BUDGET_PER_APPLICATION
+                && !OPERATION_NAME_FALLBACK.equals(key.getOperationName())) {
+                count.decrementAndGet();
+                continue;
+            }
+            operationNameDictionary.put(key, new OperationNameEntry(operationId));
+            unValidatedOperationNames.add(key);
+        }
+    }
+
+    private static class OperationNameEntry {
+        private final int operationId;
+        /**
+         * Set when the name is used, and cleared by {@link #evict()}.
+         */
+        private volatile boolean used = true;
+
+        private OperationNameEntry(int operationId) {
+            this.operationId = operationId;
+        }
+
+        private int use() {
+            if (!used) {
+                used = true;
+            }
+            return operationId;
         }
     }
 
@@ -101,6 +396,13 @@ public enum OperationNameDictionary {
         private boolean isExit;
 
         public OperationNameKey(int applicationId, String operationName, boolean isEntry, boolean isExit) {
+            reset(applicationId, operationName, isEntry, isExit);
+        }
+
+        /**
+         * Only for the thread-local lookup key, the keys in the map never change.
+         */
+        private void reset(int applicationId, String operationName, boolean isEntry, boolean isExit) {
             this.applicationId = applicationId;
             this.operationName = operationName;
             this.isEntry = isEntry;
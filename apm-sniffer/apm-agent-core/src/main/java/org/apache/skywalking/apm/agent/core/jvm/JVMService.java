@@ -34,6 +34,7 @@ import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelListener;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelManager;
 import org.apache.skywalking.apm.agent.core.remote.GRPCChannelStatus;
+import org.apache.skywalking.apm.commons.datacarrier.monitor.DataCarrierRegistry;
 import org.apache.skywalking.apm.network.proto.JVMMetric;
 import org.apache.skywalking.apm.network.proto.JVMMetrics;
 import org.apache.skywalking.apm.network.proto.JVMMetricsServiceGrpc;
@@ -58,6 +59,7 @@ public class JVMService implements BootService, Runnable {
     private volatile ScheduledFuture<?> collectMetricFuture;
     private volatile ScheduledFuture<?> sendMetricFuture;
     private Sender sender;
+    private boolean carriersExported = false;
 
     @Override
     public void beforeBoot() throws Throwable {
@@ -101,6 +103,11 @@ public class JVMService implements BootService, Runnable {
         if (RemoteDownstreamConfig.Agent.APPLICATION_ID != DictionaryUtil.nullValue()
             && RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID != DictionaryUtil.nullValue()
             ) {
+            if (!carriersExported) {
+                // after the application started, not in the premain.
+                DataCarrierRegistry.INSTANCE.exportToJMX();
+                carriersExported = true;
+            }
             long currentTimeMillis = System.currentTimeMillis();
             try {
                 JVMMetric.Builder jvmBuilder = JVMMetric.newBuilder();
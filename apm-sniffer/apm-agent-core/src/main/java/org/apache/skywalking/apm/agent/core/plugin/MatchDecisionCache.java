@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import org.apache.skywalking.apm.agent.core.boot.AgentPackageNotFoundException;
+import org.apache.skywalking.apm.agent.core.boot.AgentPackagePath;
+import org.apache.skywalking.apm.agent.core.boot.DefaultNamedThreadFactory;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+import org.apache.skywalking.apm.util.StringUtil;
+
+/**
+ * The <code>MatchDecisionCache</code> keeps whether a class was enhanced by any plugin, by its name and the version of
+ * its class file, on disk across the restarts. The class known not matched, and not changed, returns before
+ * byte-buddy parses and matches it.
+ *
+ * The version of a class loaded from a local jar is the modified time and size of the jar, read once per jar, so the
+ * class file isn't hashed. The others, such as the classes in directories or generated, are versioned by the CRC32 of
+ * the class file, see {@link #versionOf(ProtectionDomain, byte[])}.
+ *
+ * The cache is dropped when the agent jar, the plugins, the activations or the JDK change, by the fingerprint of
+ * them in the file header. The decision depending on other classes, such as the super types, isn't cached, see {@link
+ * #markUncacheable()}.
+ */
+public class MatchDecisionCache {
+    private static final ILog logger = LogManager.getLogger(MatchDecisionCache.class);
+
+    static final String FILE_NAME = "match-decision.cache";
+    private static final int MAGIC = 0x534b4d44;
+    private static final int FORMAT_VERSION = 4;
+
+    private final File file;
+    private final long fingerprint;
+    private final Map<String, Decision> decisions = new ConcurrentHashMap<String, Decision>();
+    private final ThreadLocal<Transforming> transforming = new ThreadLocal<Transforming>() {
+        @Override
+        protected Transforming initialValue() {
+            return new Transforming();
+        }
+    };
+    /**
+     * The versions of the jars, by their paths.
+     */
+    private final Map<String, Long> jarVersions = new ConcurrentHashMap<String, Long>();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean dirty = false;
+    private volatile ScheduledExecutorService saveService;
+
+    public MatchDecisionCache(File dir, long fingerprint) {
+        this.file = new File(dir, FILE_NAME);
+        this.fingerprint = fingerprint;
+        if (!dir.exists() && !dir.mkdirs()) {
+            logger.warn("Can't create the match decision cache dir {}.", dir);
+        }
+        load();
+    }
+
+    /**
+     * The fingerprint of the agent jar, plugins and activations, by their names, sizes and modified times, the plugin
+     * defines loaded, and the JDK version.
+     */
+    public static long fingerprint(
+        List<AbstractClassEnhancePluginDefine> plugins) throws AgentPackageNotFoundException {
+        File agentPath = AgentPackagePath.getPath();
+        StringBuilder fingerprint = new StringBuilder();
+        fingerprint.append(System.getProperty("java.version")).append('\n');
+        for (File dir : new File[] {agentPath, new File(agentPath, "plugins"), new File(agentPath, "activations")}) {
+            String[] jarNames = dir.list(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.endsWith(".jar");
+                }
+            });
+            if (jarNames == null) {
+                continue;
+            }
+            Arrays.sort(jarNames);
+            for (String jarName : jarNames) {
+                File jar = new File(dir, jarName);
+                fingerprint.append(jar.getPath()).append(':').append(jar.length()).append(':')
+                    .append(jar.lastModified()).append('\n');
+            }
+        }
+        for (AbstractClassEnhancePluginDefine plugin : plugins) {
+            fingerprint.append(plugin.getClass().getName()).append('\n');
+        }
+        CRC32 crc = new CRC32();
+        byte[] bytes = fingerprint.toString().getBytes();
+        crc.update(bytes, 0, bytes.length);
+        return ((long)fingerprint.length() << 32) | crc.getValue();
+    }
+
+    /**
+     * Wrap the byte-buddy transformer, to skip the classes known not matched. Decisions of the others are recorded by
+     * {@link #onIgnored(String)} and {@link #onTransformed(String)}, called back in the transformation.
+     */
+    public ClassFileTransformer wrap(final ClassFileTransformer transformer) {
+        return new ClassFileTransformer() {
+            @Override
+            public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
+                if (className == null || classBeingRedefined != null) {
+                    return transformer.transform(loader, className, classBeingRedefined, protectionDomain,
+                        classfileBuffer);
+                }
+                long version = versionOf(protectionDomain, classfileBuffer);
+
+                Decision decision = decisions.get(className);
+                if (decision != null && decision.version == version) {
+                    decision.used = true;
+                    if (!decision.matched) {
+                        skipped.incrementAndGet();
+                        return null;
+                    }
+                }
+
+                Transforming current = transforming.get();
+                String outerClassName = current.className;
+                long outerVersion = current.version;
+                boolean outerUncacheable = current.uncacheable;
+                current.className = className;
+                current.version = version;
+                current.uncacheable = false;
+                try {
+                    return transformer.transform(loader, className, classBeingRedefined, protectionDomain,
+                        classfileBuffer);
+                } finally {
+                    current.className = outerClassName;
+                    current.version = outerVersion;
+                    current.uncacheable = outerUncacheable;
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the version of the jar the class is loaded from, positive, or the CRC32 of the class file with the sign
+     * bit set, if it's not from a local jar, so the two kinds never equal.
+     */
+    private long versionOf(ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        CodeSource codeSource = protectionDomain == null ? null : protectionDomain.getCodeSource();
+        URL location = codeSource == null ? null : codeSource.getLocation();
+        if (location != null && "file".equals(location.getProtocol()) && location.getPath().endsWith(".jar")) {
+            String path = location.getPath();
+            Long version = jarVersions.get(path);
+            if (version == null) {
+                version = jarVersionOf(location);
+                jarVersions.put(path, version);
+            }
+            if (version >= 0) {
+                return version;
+            }
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(classfileBuffer, 0, classfileBuffer.length);
+        return crc32.getValue() | Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the modified time and size of the jar, mixed as a positive number, or -1 if it can't be read.
+     */
+    private static long jarVersionOf(URL location) {
+        try {
+            File jar = new File(location.toURI());
+            if (jar.isFile()) {
+                return (jar.lastModified() * 31 + jar.length()) & Long.MAX_VALUE;
+            }
+        } catch (URISyntaxException e) {
+            logger.warn("Can't read the jar {}, the classes in it are versioned by their CRC32.", location);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Can't read the jar {}, the classes in it are versioned by their CRC32.", location);
+        }
+        return -1L;
+    }
+
+    /**
+     * @param internalName the class in transformation, not matched by any plugin.
+     */
+    public void onIgnored(String internalName) {
+        record(internalName, false);
+    }
+
+    /**
+     * @param internalName the class in transformation, matched and enhanced.
+     */
+    public void onTransformed(String internalName) {
+        record(internalName, true);
+    }
+
+    /**
+     * Don't keep the decision of the class in transformation of the current thread. Called when the decision depends
+     * on more than the class file, or the matching failed and has been taken as not matched.
+     */
+    public void markUncacheable() {
+        transforming.get().uncacheable = true;
+    }
+
+    private void record(String internalName, boolean matched) {
+        Transforming current = transforming.get();
+        if (internalName.equals(current.className) && !current.uncacheable) {
+            Decision decision = new Decision(current.version, matched);
+            decision.used = true;
+            decisions.put(internalName, decision);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Save every period, in case the process is killed, and at shutdown.
+     */
+    public void start(long periodSeconds) {
+        ScheduledExecutorService saveService = Executors
+            .newSingleThreadScheduledExecutor(new DefaultNamedThreadFactory("MatchDecisionCache"));
+        saveService.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                save(false);
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        this.saveService = saveService;
+    }
+
+    /**
+     * Stop saving every period, call before the final {@link #save(boolean)} at shutdown.
+     */
+    public void stop() {
+        ScheduledExecutorService saveService = this.saveService;
+        if (saveService == null) {
+            return;
+        }
+        this.saveService = null;
+        saveService.shutdown();
+        try {
+            saveService.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param dropUnused true to drop the classes not loaded in this run, only at shutdown, when all classes of this run
+     * are known.
+     */
+    public synchronized void save(boolean dropUnused) {
+        if (!dirty && !dropUnused) {
+            return;
+        }
+        dirty = false;
+        File temp = new File(file.getPath() + ".tmp");
+        int count = 0;
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fingerprint);
+            for (Map.Entry<String, Decision> entry : decisions.entrySet()) {
+                Decision decision = entry.getValue();
+                if (dropUnused && !decision.used) {
+                    continue;
+                }
+                out.writeBoolean(true);
+                StringUtil.writeUTF8(out, entry.getKey());
+                out.writeLong(decision.version);
+                out.writeBoolean(decision.matched);
+                count++;
+            }
+            out.writeBoolean(false);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                if (!file.delete() || !temp.renameTo(file)) {
+                    throw new IOException("Can't rename " + temp + " to " + file);
+                }
+            }
+            logger.debug("{} match decisions saved, {} classes skipped matching.", count, skipped.get());
+        } catch (IOException e) {
+            logger.error(e, "Save match decision cache to {} failure.", file);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != fingerprint) {
+                logger.info("The agent or plugins changed, match decision cache {} is dropped.", file);
+                dirty = true;
+                return;
+            }
+            while (in.readBoolean()) {
+                String className = StringUtil.readUTF8(in);
+                long version = in.readLong();
+                decisions.put(className, new Decision(version, in.readBoolean()));
+            }
+            logger.info("{} match decisions loaded from {}.", decisions.size(), file);
+        } catch (IOException e) {
+            logger.error(e, "Load match decision cache from {} failure, ignore it.", file);
+            decisions.clear();
+            dirty = true;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    long skippedCount() {
+        return skipped.get();
+    }
+
+    private static class Decision {
+        private final long version;
+        private final boolean matched;
+        private volatile boolean used;
+
+        private Decision(long version, boolean matched) {
+            this.version = version;
+            this.matched = matched;
+        }
+    }
+
+    /**
+     * The class in transformation of current thread.
+     */
+    private static class Transforming {
+        private String className;
+        private long version;
+        private boolean uncacheable;
+    }
+}
@@ -22,7 +22,14 @@ package org.apache.skywalking.apm.agent.core.plugin;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.agent.core.boot.AgentPackageNotFoundException;
+import org.apache.skywalking.apm.agent.core.boot.DefaultNamedThreadFactory;
 import org.apache.skywalking.apm.agent.core.plugin.loader.AgentClassLoader;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
@@ -37,12 +44,18 @@ import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 public class PluginBootstrap {
     private static final ILog logger = LogManager.getLogger(PluginBootstrap.class);
 
+    /**
+     * The plugin definitions are loaded in parallel, by the processors, up to this number of threads.
+     */
+    private static final int MAX_LOAD_THREADS = 8;
+
     /**
      * load all plugins.
      *
      * @return plugin definition list.
      */
     public List<AbstractClassEnhancePluginDefine> loadPlugins() throws AgentPackageNotFoundException {
+        long start = System.nanoTime();
         AgentClassLoader.initDefaultLoader();
 
         PluginResourcesResolver resolver = new PluginResourcesResolver();
@@ -63,23 +76,58 @@ public class PluginBootstrap {
 
         List<PluginDefine> pluginClassList = PluginCfg.INSTANCE.getPluginClassList();
 
-        List<AbstractClassEnhancePluginDefine> plugins = new ArrayList<AbstractClassEnhancePluginDefine>();
-        for (PluginDefine pluginDefine : pluginClassList) {
-            try {
-                logger.debug("loading plugin class {}.", pluginDefine.getDefineClass());
-                AbstractClassEnhancePluginDefine plugin =
-                    (AbstractClassEnhancePluginDefine)Class.forName(pluginDefine.getDefineClass(),
-                        true,
-                        AgentClassLoader.getDefault())
-                        .newInstance();
-                plugins.add(plugin);
-            } catch (Throwable t) {
-                logger.error(t, "load plugin [{}] failure.", pluginDefine.getDefineClass());
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), MAX_LOAD_THREADS);
+        ExecutorService loadService = Executors
+            .newFixedThreadPool(threads, new DefaultNamedThreadFactory("PluginLoader"));
+        List<Future<AbstractClassEnhancePluginDefine>> loadings =
+            new ArrayList<Future<AbstractClassEnhancePluginDefine>>(pluginClassList.size());
+        try {
+            for (final PluginDefine pluginDefine : pluginClassList) {
+                loadings.add(loadService.submit(new Callable<AbstractClassEnhancePluginDefine>() {
+                    @Override
+                    public AbstractClassEnhancePluginDefine call() {
+                        return loadPlugin(pluginDefine);
+                    }
+                }));
             }
-        }
 
-        return plugins;
+            List<AbstractClassEnhancePluginDefine> plugins =
+                new ArrayList<AbstractClassEnhancePluginDefine>(loadings.size());
+            for (Future<AbstractClassEnhancePluginDefine> loading : loadings) {
+                AbstractClassEnhancePluginDefine plugin = loading.get();
+                if (plugin != null) {
+                    plugins.add(plugin);
+                }
+            }
+            logger.info("{} plugins loaded in {} ms, by {} threads.", plugins.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), threads);
+            return plugins;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error(e, "load plugins interrupted.");
+            return new ArrayList<AbstractClassEnhancePluginDefine>();
+        } catch (ExecutionException e) {
+            logger.error(e, "load plugins failure.");
+            return new ArrayList<AbstractClassEnhancePluginDefine>();
+        } finally {
+            loadService.shutdown();
+        }
+    }
 
+    /**
+     * @return the plugin, or null if failed.
+     */
+    private AbstractClassEnhancePluginDefine loadPlugin(PluginDefine pluginDefine) {
+        try {
+            logger.debug("loading plugin class {}.", pluginDefine.getDefineClass());
+            return (AbstractClassEnhancePluginDefine)Class.forName(pluginDefine.getDefineClass(),
+                true,
+                AgentClassLoader.getDefault())
+                .newInstance();
+        } catch (Throwable t) {
+            logger.error(t, "load plugin [{}] failure.", pluginDefine.getDefineClass());
+            return null;
+        }
     }
 
 }
@@ -19,31 +19,71 @@
 
 package org.apache.skywalking.apm.agent.core.plugin;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import net.bytebuddy.description.NamedElement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDefinition;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
+import org.apache.skywalking.apm.agent.core.boot.DefaultNamedThreadFactory;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.agent.core.plugin.bytebuddy.AbstractJunction;
+import org.apache.skywalking.apm.agent.core.plugin.match.ClassAnnotationMatch;
 import org.apache.skywalking.apm.agent.core.plugin.match.ClassMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.HierarchyMatch;
 import org.apache.skywalking.apm.agent.core.plugin.match.IndirectMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.MethodAnnotationMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.MultiClassNameMatch;
 import org.apache.skywalking.apm.agent.core.plugin.match.NameMatch;
 import org.apache.skywalking.apm.agent.core.plugin.match.ProtectiveShieldMatcher;
 
-import static net.bytebuddy.matcher.ElementMatchers.isInterface;
-import static net.bytebuddy.matcher.ElementMatchers.not;
-
 /**
  * The <code>PluginFinder</code> represents a finder , which assist to find the one
  * from the given {@link AbstractClassEnhancePluginDefine} list.
  *
+ * The {@link IndirectMatch}s are indexed too, by the class annotation, method annotation or super type they require,
+ * so a type only checks the plugins it may match, rather than every one of them. The cheap name and annotation
+ * indexes are checked first, the super types are only collected when there is a {@link HierarchyMatch}, and the ones
+ * of the JDK types are memoized.
+ *
  * @author wusheng
  */
 public class PluginFinder {
+    private static final ILog logger = LogManager.getLogger(PluginFinder.class);
+
     private final Map<String, LinkedList<AbstractClassEnhancePluginDefine>> nameMatchDefine = new HashMap<String, LinkedList<AbstractClassEnhancePluginDefine>>();
+    private final Map<String, LinkedList<AbstractClassEnhancePluginDefine>> classAnnotationMatchDefine = new HashMap<String, LinkedList<AbstractClassEnhancePluginDefine>>();
+    private final Map<String, LinkedList<AbstractClassEnhancePluginDefine>> methodAnnotationMatchDefine = new HashMap<String, LinkedList<AbstractClassEnhancePluginDefine>>();
+    private final Map<String, LinkedList<AbstractClassEnhancePluginDefine>> hierarchyMatchDefine = new HashMap<String, LinkedList<AbstractClassEnhancePluginDefine>>();
     private final List<AbstractClassEnhancePluginDefine> signatureMatchDefine = new LinkedList<AbstractClassEnhancePluginDefine>();
+    /**
+     * The super type names of the JDK types. They are loaded by the bootstrap class loader, so the same in all class
+     * loaders, and most hierarchies end with a few of them, such as java.lang.Object and java.io.Serializable.
+     */
+    private final ConcurrentHashMap<String, Set<String>> javaSuperTypeNames = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * The order and match cost of every plugin, read only after the constructor.
+     */
+    private final Map<AbstractClassEnhancePluginDefine, MatchCost> matchCosts = new IdentityHashMap<AbstractClassEnhancePluginDefine, MatchCost>();
+    private final AtomicLong findNanos = new AtomicLong();
+    private final AtomicLong findCount = new AtomicLong();
+    private volatile MatchDecisionCache matchDecisionCache;
 
     public PluginFinder(List<AbstractClassEnhancePluginDefine> plugins) {
         for (AbstractClassEnhancePluginDefine plugin : plugins) {
@@ -52,53 +92,279 @@ public class PluginFinder {
             if (match == null) {
                 continue;
             }
+            matchCosts.put(plugin, new MatchCost(match instanceof NameMatch ? 0 : 1, matchCosts.size()));
 
             if (match instanceof NameMatch) {
                 NameMatch nameMatch = (NameMatch)match;
-                LinkedList<AbstractClassEnhancePluginDefine> pluginDefines = nameMatchDefine.get(nameMatch.getClassName());
-                if (pluginDefines == null) {
-                    pluginDefines = new LinkedList<AbstractClassEnhancePluginDefine>();
-                    nameMatchDefine.put(nameMatch.getClassName(), pluginDefines);
+                index(nameMatchDefine, nameMatch.getClassName(), plugin);
+            } else if (match instanceof MultiClassNameMatch) {
+                for (String className : ((MultiClassNameMatch)match).getMatchClassNames()) {
+                    index(nameMatchDefine, className, plugin);
                 }
-                pluginDefines.add(plugin);
+            } else if (match instanceof ClassAnnotationMatch) {
+                index(classAnnotationMatchDefine, ((ClassAnnotationMatch)match).getAnnotations()[0], plugin);
+            } else if (match instanceof MethodAnnotationMatch) {
+                index(methodAnnotationMatchDefine, ((MethodAnnotationMatch)match).getAnnotations()[0], plugin);
+            } else if (match instanceof HierarchyMatch) {
+                index(hierarchyMatchDefine, ((HierarchyMatch)match).getParentTypes()[0], plugin);
             } else {
                 signatureMatchDefine.add(plugin);
             }
         }
     }
 
+    private void index(Map<String, LinkedList<AbstractClassEnhancePluginDefine>> matchDefine, String key,
+        AbstractClassEnhancePluginDefine plugin) {
+        LinkedList<AbstractClassEnhancePluginDefine> pluginDefines = matchDefine.get(key);
+        if (pluginDefines == null) {
+            pluginDefines = new LinkedList<AbstractClassEnhancePluginDefine>();
+            matchDefine.put(key, pluginDefines);
+        }
+        if (!pluginDefines.contains(plugin)) {
+            pluginDefines.add(plugin);
+        }
+    }
+
     public List<AbstractClassEnhancePluginDefine> find(TypeDescription typeDescription,
         ClassLoader classLoader) {
+        long start = System.nanoTime();
         List<AbstractClassEnhancePluginDefine> matchedPlugins = new LinkedList<AbstractClassEnhancePluginDefine>();
         String typeName = typeDescription.getTypeName();
         if (nameMatchDefine.containsKey(typeName)) {
             matchedPlugins.addAll(nameMatchDefine.get(typeName));
         }
 
+        if (!classAnnotationMatchDefine.isEmpty()) {
+            for (AnnotationDescription annotation : typeDescription.getDeclaredAnnotations()) {
+                String annotationName = annotation.getAnnotationType().getActualName();
+                matchIndexed(classAnnotationMatchDefine, annotationName, typeDescription, matchedPlugins);
+            }
+        }
+
+        if (!methodAnnotationMatchDefine.isEmpty()) {
+            for (MethodDescription.InDefinedShape methodDescription : typeDescription.getDeclaredMethods()) {
+                for (AnnotationDescription annotation : methodDescription.getDeclaredAnnotations()) {
+                    String annotationName = annotation.getAnnotationType().getActualName();
+                    matchIndexed(methodAnnotationMatchDefine, annotationName, typeDescription, matchedPlugins);
+                }
+            }
+        }
+
+        Set<String> superTypeNames = null;
+        if (!hierarchyMatchDefine.isEmpty()) {
+            superTypeNames = superTypeNames(typeDescription);
+            for (String superTypeName : superTypeNames) {
+                matchIndexed(hierarchyMatchDefine, superTypeName, typeDescription, matchedPlugins);
+            }
+        }
+
         for (AbstractClassEnhancePluginDefine pluginDefine : signatureMatchDefine) {
-            IndirectMatch match = (IndirectMatch)pluginDefine.enhanceClass();
-            if (match.isMatch(typeDescription)) {
-                matchedPlugins.add(pluginDefine);
+            matchPlugin(pluginDefine, typeDescription, matchedPlugins);
+        }
+
+        if (matchedPlugins.size() > 1) {
+            Collections.sort(matchedPlugins, new Comparator<AbstractClassEnhancePluginDefine>() {
+                @Override
+                public int compare(AbstractClassEnhancePluginDefine plugin1,
+                    AbstractClassEnhancePluginDefine plugin2) {
+                    return matchCosts.get(plugin1).compareTo(matchCosts.get(plugin2));
+                }
+            });
+        }
+
+        MatchDecisionCache cache = matchDecisionCache;
+        if (cache != null && matchedPlugins.isEmpty()
+            && (!hierarchyMatchDefine.isEmpty() || !signatureMatchDefine.isEmpty())) {
+            if (superTypeNames == null) {
+                superTypeNames = superTypeNames(typeDescription);
+            }
+            if (!onlyJavaTypes(superTypeNames)) {
+                cache.markUncacheable();
             }
         }
 
+        findNanos.addAndGet(System.nanoTime() - start);
+        findCount.incrementAndGet();
         return matchedPlugins;
     }
 
+    /**
+     * Set the cache to keep the match decisions. A type not matched is cached only when the {@link HierarchyMatch}s,
+     * and the other {@link IndirectMatch}s not indexed, which are assumed to check the super types too, can't match it
+     * in another run. That is, all its super types are the JDK ones, the others may change without the class itself.
+     */
+    public void setMatchDecisionCache(MatchDecisionCache matchDecisionCache) {
+        this.matchDecisionCache = matchDecisionCache;
+    }
+
+    private boolean onlyJavaTypes(Set<String> typeNames) {
+        for (String typeName : typeNames) {
+            if (!typeName.startsWith("java.")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void matchIndexed(Map<String, LinkedList<AbstractClassEnhancePluginDefine>> matchDefine, String key,
+        TypeDescription typeDescription, List<AbstractClassEnhancePluginDefine> matchedPlugins) {
+        LinkedList<AbstractClassEnhancePluginDefine> pluginDefines = matchDefine.get(key);
+        if (pluginDefines != null) {
+            for (AbstractClassEnhancePluginDefine pluginDefine : pluginDefines) {
+                matchPlugin(pluginDefine, typeDescription, matchedPlugins);
+            }
+        }
+    }
+
+    private void matchPlugin(AbstractClassEnhancePluginDefine pluginDefine, TypeDescription typeDescription,
+        List<AbstractClassEnhancePluginDefine> matchedPlugins) {
+        if (matchedPlugins.contains(pluginDefine)) {
+            return;
+        }
+        MatchCost cost = matchCosts.get(pluginDefine);
+        long start = System.nanoTime();
+        boolean isMatch = ((IndirectMatch)pluginDefine.enhanceClass()).isMatch(typeDescription);
+        cost.record(System.nanoTime() - start, isMatch);
+        if (isMatch) {
+            matchedPlugins.add(pluginDefine);
+        }
+    }
+
+    /**
+     * @return the names of all super classes and interfaces of the given type, excluding itself.
+     */
+    private Set<String> superTypeNames(TypeDescription typeDescription) {
+        Set<String> names = new HashSet<String>();
+        collectSuperTypeNames(typeDescription, names);
+        return names;
+    }
+
+    private void collectSuperTypeNames(TypeDefinition type, Set<String> names) {
+        for (TypeDescription.Generic implInterface : type.getInterfaces()) {
+            collectSuperType(implInterface, names);
+        }
+        TypeDescription.Generic superClass = type.getSuperClass();
+        if (superClass != null) {
+            collectSuperType(superClass, names);
+        }
+    }
+
+    private void collectSuperType(TypeDescription.Generic superType, Set<String> names) {
+        String typeName = superType.asRawType().getTypeName();
+        if (!names.add(typeName)) {
+            return;
+        }
+        if (!typeName.startsWith("java.")) {
+            collectSuperTypeNames(superType, names);
+            return;
+        }
+        Set<String> memoized = javaSuperTypeNames.get(typeName);
+        if (memoized == null) {
+            memoized = new HashSet<String>();
+            collectSuperTypeNames(superType, memoized);
+            javaSuperTypeNames.put(typeName, memoized);
+        }
+        names.addAll(memoized);
+    }
+
     public ElementMatcher<? super TypeDescription> buildMatch() {
-        ElementMatcher.Junction judge = new AbstractJunction<NamedElement>() {
+        ElementMatcher.Junction judge = new AbstractJunction<TypeDescription>() {
             @Override
-            public boolean matches(NamedElement target) {
-                return nameMatchDefine.containsKey(target.getActualName());
+            public boolean matches(TypeDescription target) {
+                boolean completed = false;
+                try {
+                    boolean matched = !target.isInterface() && !find(target, null).isEmpty();
+                    completed = true;
+                    return matched;
+                } finally {
+                    MatchDecisionCache cache = matchDecisionCache;
+                    if (!completed && cache != null) {
+                        /**
+                         * The failure is swallowed by {@link ProtectiveShieldMatcher} as not matched, don't cache it.
+                         */
+                        cache.markUncacheable();
+                    }
+                }
             }
         };
-        judge = judge.and(not(isInterface()));
-        for (AbstractClassEnhancePluginDefine define : signatureMatchDefine) {
-            ClassMatch match = define.enhanceClass();
-            if (match instanceof IndirectMatch) {
-                judge = judge.or(((IndirectMatch)match).buildJunction());
+        return new ProtectiveShieldMatcher(judge);
+    }
+
+    /**
+     * Log how long the matching took, by every plugin, after the given delay, the most of classes should have been
+     * loaded at the startup by then.
+     */
+    public void reportMatchCost(long delaySeconds) {
+        final ScheduledExecutorService reportService = Executors
+            .newSingleThreadScheduledExecutor(new DefaultNamedThreadFactory("PluginMatchReport"));
+        reportService.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    logMatchCost();
+                } catch (Throwable t) {
+                    logger.error(t, "Report plugin match cost failure.");
+                } finally {
+                    reportService.shutdown();
+                }
+            }
+        }, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    void logMatchCost() {
+        logger.info("{} types matched by plugins in {} ms.", findCount.get(),
+            TimeUnit.NANOSECONDS.toMillis(findNanos.get()));
+
+        List<Map.Entry<AbstractClassEnhancePluginDefine, MatchCost>> costs =
+            new ArrayList<Map.Entry<AbstractClassEnhancePluginDefine, MatchCost>>(matchCosts.entrySet());
+        Collections.sort(costs, new Comparator<Map.Entry<AbstractClassEnhancePluginDefine, MatchCost>>() {
+            @Override
+            public int compare(Map.Entry<AbstractClassEnhancePluginDefine, MatchCost> entry1,
+                Map.Entry<AbstractClassEnhancePluginDefine, MatchCost> entry2) {
+                long nanos1 = entry1.getValue().nanos.get();
+                long nanos2 = entry2.getValue().nanos.get();
+                return nanos1 < nanos2 ? 1 : (nanos1 == nanos2 ? 0 : -1);
+            }
+        });
+        for (Map.Entry<AbstractClassEnhancePluginDefine, MatchCost> entry : costs) {
+            MatchCost cost = entry.getValue();
+            if (cost.checked.get() > 0) {
+                logger.info("plugin {} checked {} types, {} matched, in {} us.", entry.getKey().getClass().getName(),
+                    cost.checked.get(), cost.matched.get(), TimeUnit.NANOSECONDS.toMicros(cost.nanos.get()));
             }
         }
-        return new ProtectiveShieldMatcher(judge);
+    }
+
+    private static class MatchCost implements Comparable<MatchCost> {
+        /**
+         * Keep the order of {@link #find(TypeDescription, ClassLoader)} result, the plugins matched by name come first,
+         * then the others, both in the order of loading.
+         */
+        private final int group;
+        private final int order;
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong checked = new AtomicLong();
+        private final AtomicLong matched = new AtomicLong();
+
+        private MatchCost(int group, int order) {
+            this.group = group;
+            this.order = order;
+        }
+
+        private void record(long costNanos, boolean isMatch) {
+            nanos.addAndGet(costNanos);
+            checked.incrementAndGet();
+            if (isMatch) {
+                matched.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(MatchCost another) {
+            if (group != another.group) {
+                return group < another.group ? -1 : 1;
+            }
+            return order < another.order ? -1 : (order == another.order ? 0 : 1);
+        }
     }
 }
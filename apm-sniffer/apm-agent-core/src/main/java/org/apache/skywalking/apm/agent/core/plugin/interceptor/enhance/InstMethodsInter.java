@@ -47,6 +47,8 @@ public class InstMethodsInter {
      */
     private InstanceMethodsAroundInterceptor interceptor;
 
+    private final ParameterTypesCache parameterTypes = new ParameterTypesCache();
+
     /**
      * @param instanceMethodsAroundInterceptorClassName class full name.
      */
@@ -58,6 +60,10 @@ public class InstMethodsInter {
         }
     }
 
+    InstMethodsInter(InstanceMethodsAroundInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
     /**
      * Intercept the target instance method.
      *
@@ -77,33 +83,31 @@ public class InstMethodsInter {
     ) throws Throwable {
         EnhancedInstance targetObject = (EnhancedInstance)obj;
 
-        MethodInterceptResult result = new MethodInterceptResult();
+        Class<?>[] argumentsTypes = parameterTypes.of(method);
+        MethodInterceptResult result = MethodInterceptResult.acquire();
         try {
-            interceptor.beforeMethod(targetObject, method, allArguments, method.getParameterTypes(),
-                result);
+            interceptor.beforeMethod(targetObject, method, allArguments, argumentsTypes, result);
         } catch (Throwable t) {
             logger.error(t, "class[{}] before method[{}] intercept failure", obj.getClass(), method.getName());
         }
 
-        Object ret = null;
+        boolean isContinue = result.isContinue();
+        Object ret = result._ret();
+        result.release();
         try {
-            if (!result.isContinue()) {
-                ret = result._ret();
-            } else {
+            if (isContinue) {
                 ret = zuper.call();
             }
         } catch (Throwable t) {
             try {
-                interceptor.handleMethodException(targetObject, method, allArguments, method.getParameterTypes(),
-                    t);
+                interceptor.handleMethodException(targetObject, method, allArguments, argumentsTypes, t);
             } catch (Throwable t2) {
                 logger.error(t2, "class[{}] handle method[{}] exception failure", obj.getClass(), method.getName());
             }
             throw t;
         } finally {
             try {
-                ret = interceptor.afterMethod(targetObject, method, allArguments, method.getParameterTypes(),
-                    ret);
+                ret = interceptor.afterMethod(targetObject, method, allArguments, argumentsTypes, ret);
             } catch (Throwable t) {
                 logger.error(t, "class[{}] after method[{}] intercept failure", obj.getClass(), method.getName());
             }
@@ -24,6 +24,10 @@ import java.lang.reflect.Method;
 /**
  * A interceptor, which intercept method's invocation. The target methods will be defined in {@link
  * ClassEnhancePluginDefine}'s subclass, most likely in {@link ClassInstanceMethodsEnhancePluginDefine}
+ * <p>
+ * The <code>argumentsTypes</code> array is shared by all calls of the method, don't modify it. The {@link
+ * MethodInterceptResult} is reused by the intercepted calls in a thread, don't keep it after {@link
+ * #beforeMethod(EnhancedInstance, Method, Object[], Class[], MethodInterceptResult)} returns.
  *
  * @author wusheng
  */
@@ -25,21 +25,66 @@ import java.lang.reflect.Method;
  * {@link InstanceMethodsAroundInterceptor#beforeMethod(EnhancedInstance, Method, Object[], Class[], MethodInterceptResult)} (org.apache.skywalking.apm.agent.core.plugin.interceptor.EnhancedClassInstanceContext,
  * has this as a method argument, the interceptor can manipulate
  * the method's return value. <p> The new value set to this object, by {@link MethodInterceptResult#defineReturnValue(Object)},
- * will override the origin return value.
+ * will override the origin return value. <p> The result is reused by the intercepted calls in a thread, don't keep
+ * it after the before method returns.
  *
  * @author wusheng
  */
 public class MethodInterceptResult {
+    private static final ThreadLocal<MethodInterceptResult> REUSABLE_RESULT = new ThreadLocal<MethodInterceptResult>() {
+        @Override
+        protected MethodInterceptResult initialValue() {
+            MethodInterceptResult result = new MethodInterceptResult();
+            result.reusable = true;
+            return result;
+        }
+    };
+
     private boolean isContinue = true;
 
     private Object ret = null;
 
+    private boolean inUse = false;
+
+    /**
+     * True for the one kept by {@link #REUSABLE_RESULT}, the others are never reused.
+     */
+    private boolean reusable = false;
+
+    /**
+     * Reuse the result of current thread, or create a new one if it is in use by an outer intercepted method, when the
+     * interceptor calls another intercepted method in its before method.
+     */
+    static MethodInterceptResult acquire() {
+        MethodInterceptResult result = REUSABLE_RESULT.get();
+        if (result.inUse) {
+            return new MethodInterceptResult();
+        }
+        result.inUse = true;
+        result.isContinue = true;
+        return result;
+    }
+
+    /**
+     * Release before invoking the origin method, as it may be intercepted again in this thread.
+     */
+    void release() {
+        this.inUse = false;
+        this.ret = null;
+    }
+
     /**
      * define the new return value.
      *
      * @param ret new return value.
+     * @throws IllegalStateException if the result has been released, kept by the interceptor after the before method
+     * returned.
      */
     public void defineReturnValue(Object ret) {
+        if (reusable && !inUse) {
+            throw new IllegalStateException("MethodInterceptResult is reused by the intercepted calls in a thread, "
+                + "don't keep it after the before method returns.");
+        }
         this.isContinue = false;
         this.ret = ret;
     }
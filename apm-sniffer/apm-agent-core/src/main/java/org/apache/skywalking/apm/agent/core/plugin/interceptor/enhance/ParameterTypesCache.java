@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance;
+
+import java.lang.reflect.Method;
+
+/**
+ * Keep the parameter types of the intercepted method, as {@link Method#getParameterTypes()} copies the array in every
+ * call. An inter is bound to the methods matched by one intercept point in one class, which is a single method mostly,
+ * so only the first method is kept, the others are copied as before.
+ */
+class ParameterTypesCache {
+    private volatile CachedMethod cachedMethod;
+
+    /**
+     * @return the parameter types, shared by all calls of the method, must not be modified.
+     */
+    Class<?>[] of(Method method) {
+        CachedMethod cached = cachedMethod;
+        if (cached != null) {
+            if (cached.method == method) {
+                return cached.parameterTypes;
+            }
+            return method.getParameterTypes();
+        }
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        cachedMethod = new CachedMethod(method, parameterTypes);
+        return parameterTypes;
+    }
+
+    private static class CachedMethod {
+        private final Method method;
+        private final Class<?>[] parameterTypes;
+
+        private CachedMethod(Method method, Class<?>[] parameterTypes) {
+            this.method = method;
+            this.parameterTypes = parameterTypes;
+        }
+    }
+}
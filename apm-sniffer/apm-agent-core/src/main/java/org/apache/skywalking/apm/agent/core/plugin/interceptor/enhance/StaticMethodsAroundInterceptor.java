@@ -24,6 +24,10 @@ import java.lang.reflect.Method;
 /**
  * The static method's interceptor interface.
  * Any plugin, which wants to intercept static methods, must implement this interface.
+ * <p>
+ * The <code>parameterTypes</code> array is shared by all calls of the method, don't modify it. The {@link
+ * MethodInterceptResult} is reused by the intercepted calls in a thread, don't keep it after {@link
+ * #beforeMethod(Class, Method, Object[], Class[], MethodInterceptResult)} returns.
  *
  * @author wusheng
  */
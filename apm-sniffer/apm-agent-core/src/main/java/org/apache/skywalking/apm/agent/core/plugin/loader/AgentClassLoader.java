@@ -49,8 +49,12 @@ public class AgentClassLoader extends ClassLoader {
      */
     private static AgentClassLoader DEFAULT_LOADER;
 
+    static {
+        registerAsParallelCapable0();
+    }
+
     private List<File> classpath;
-    private List<Jar> allJars;
+    private volatile List<Jar> allJars;
     private ReentrantLock jarScanLock = new ReentrantLock();
 
     public static AgentClassLoader getDefault() {
@@ -84,33 +88,8 @@ public class AgentClassLoader extends ClassLoader {
             JarEntry entry = jar.jarFile.getJarEntry(path);
             if (entry != null) {
                 try {
-                    URL classFileUrl = new URL("jar:file:" + jar.sourceFile.getAbsolutePath() + "!/" + path);
-                    byte[] data = null;
-                    BufferedInputStream is = null;
-                    ByteArrayOutputStream baos = null;
-                    try {
-                        is = new BufferedInputStream(classFileUrl.openStream());
-                        baos = new ByteArrayOutputStream();
-                        int ch = 0;
-                        while ((ch = is.read()) != -1) {
-                            baos.write(ch);
-                        }
-                        data = baos.toByteArray();
-                    } finally {
-                        if (is != null)
-                            try {
-                                is.close();
-                            } catch (IOException ignored) {
-                            }
-                        if (baos != null)
-                            try {
-                                baos.close();
-                            } catch (IOException ignored) {
-                            }
-                    }
+                    byte[] data = readEntry(jar.jarFile, entry);
                     return defineClass(name, data, 0, data.length);
-                } catch (MalformedURLException e) {
-                    logger.error(e, "find class fail.");
                 } catch (IOException e) {
                     logger.error(e, "find class fail.");
                 }
@@ -119,6 +98,40 @@ public class AgentClassLoader extends ClassLoader {
         throw new ClassNotFoundException("Can't find " + name);
     }
 
+    /**
+     * Read the class from the opened jar directly, the plugins are loaded in parallel.
+     */
+    private byte[] readEntry(JarFile jarFile, JarEntry entry) throws IOException {
+        InputStream is = jarFile.getInputStream(entry);
+        try {
+            long size = entry.getSize();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(size > 0 ? (int)size : 4096);
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = is.read(buffer)) != -1) {
+                baos.write(buffer, 0, length);
+            }
+            return baos.toByteArray();
+        } finally {
+            try {
+                is.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Lock by the class name rather than the loader, when the JVM supports, so the plugins could be loaded in
+     * parallel. {@link ClassLoader#registerAsParallelCapable()} is since JDK 1.7, and the agent runs on JDK 1.6 too.
+     */
+    private static void registerAsParallelCapable0() {
+        try {
+            registerAsParallelCapable();
+        } catch (Throwable t) {
+            logger.debug("AgentClassLoader is not parallel capable, {}", t.getMessage());
+        }
+    }
+
     @Override
     protected URL findResource(String name) {
         List<Jar> allJars = getAllJars();
@@ -23,11 +23,11 @@ import org.apache.skywalking.apm.agent.core.boot.AgentPackageNotFoundException;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The <code>InterceptorInstanceLoader</code> is a classes finder and container.
@@ -35,14 +35,18 @@ import java.util.concurrent.locks.ReentrantLock;
  * This is a very important class in sky-walking's auto-instrumentation mechanism. If you want to fully understand why
  * need this, and how it works, you need have knowledge about Classloader appointment mechanism.
  * <p>
+ * The instances are cached per target classloader, and the classloaders are only weakly referenced, so redeploying an
+ * application in a container releases its {@link AgentClassLoader} too. The interceptor instances and the {@link
+ * AgentClassLoader} are weakly referenced as well, because they reach the target classloader as their parent. They
+ * are kept alive by the enhanced classes, which hold the interceptors.
+ * <p>
  * Created by wusheng on 16/8/2.
  */
 public class InterceptorInstanceLoader {
     private static final ILog logger = LogManager.getLogger(InterceptorInstanceLoader.class);
 
-    private static ConcurrentHashMap<String, Object> INSTANCE_CACHE = new ConcurrentHashMap<String, Object>();
-    private static ReentrantLock INSTANCE_LOAD_LOCK = new ReentrantLock();
-    private static Map<ClassLoader, ClassLoader> EXTEND_PLUGIN_CLASSLOADERS = new HashMap<ClassLoader, ClassLoader>();
+    private static final ConcurrentHashMap<Object, LoaderCache> LOADER_CACHES = new ConcurrentHashMap<Object, LoaderCache>();
+    private static final ReferenceQueue<ClassLoader> COLLECTED_LOADERS = new ReferenceQueue<ClassLoader>();
 
     /**
      * Load an instance of interceptor, and keep it singleton.
@@ -64,25 +68,122 @@ public class InterceptorInstanceLoader {
         if (targetClassLoader == null) {
             targetClassLoader = InterceptorInstanceLoader.class.getClassLoader();
         }
-        String instanceKey = className + "_OF_" + targetClassLoader.getClass().getName() + "@" + Integer.toHexString(targetClassLoader.hashCode());
-        Object inst = INSTANCE_CACHE.get(instanceKey);
-        if (inst == null) {
-            INSTANCE_LOAD_LOCK.lock();
-            try {
-                ClassLoader pluginLoader = EXTEND_PLUGIN_CLASSLOADERS.get(targetClassLoader);
-                if (pluginLoader == null) {
-                    pluginLoader = new AgentClassLoader(targetClassLoader);
-                    EXTEND_PLUGIN_CLASSLOADERS.put(targetClassLoader, pluginLoader);
-                }
-                inst = Class.forName(className, true, pluginLoader).newInstance();
-            } finally {
-                INSTANCE_LOAD_LOCK.unlock();
+        LoaderCache loaderCache = LOADER_CACHES.get(new LookupKey(targetClassLoader));
+        if (loaderCache == null) {
+            expungeCollectedLoaders();
+            LoaderCache newLoaderCache = new LoaderCache();
+            loaderCache = LOADER_CACHES.putIfAbsent(new WeakKey(targetClassLoader, COLLECTED_LOADERS), newLoaderCache);
+            if (loaderCache == null) {
+                loaderCache = newLoaderCache;
             }
+        }
+
+        return (T)loaderCache.load(className, targetClassLoader);
+    }
+
+    /**
+     * Number of the target classloaders in cache, for test.
+     */
+    static int cachedLoaderCount() {
+        expungeCollectedLoaders();
+        return LOADER_CACHES.size();
+    }
+
+    private static void expungeCollectedLoaders() {
+        Reference<? extends ClassLoader> collected;
+        while ((collected = COLLECTED_LOADERS.poll()) != null) {
+            LOADER_CACHES.remove(collected);
+        }
+    }
+
+    /**
+     * The interceptors of one target classloader. Missing instances are created under the lock of this cache, so
+     * different classloaders don't block each other.
+     */
+    private static class LoaderCache {
+        private final ConcurrentHashMap<String, WeakReference<Object>> instances = new ConcurrentHashMap<String, WeakReference<Object>>();
+        private WeakReference<AgentClassLoader> pluginLoader;
+
+        private Object load(String className, ClassLoader targetClassLoader)
+            throws InvocationTargetException, IllegalAccessException, InstantiationException, ClassNotFoundException, AgentPackageNotFoundException {
+            Object inst = get(className);
             if (inst != null) {
-                INSTANCE_CACHE.put(instanceKey, inst);
+                return inst;
+            }
+            synchronized (this) {
+                inst = get(className);
+                if (inst == null) {
+                    inst = Class.forName(className, true, getPluginLoader(targetClassLoader)).newInstance();
+                    instances.put(className, new WeakReference<Object>(inst));
+                }
+                return inst;
             }
         }
 
-        return (T) inst;
+        private Object get(String className) {
+            WeakReference<Object> reference = instances.get(className);
+            return reference == null ? null : reference.get();
+        }
+
+        private AgentClassLoader getPluginLoader(ClassLoader targetClassLoader) throws AgentPackageNotFoundException {
+            AgentClassLoader loader = pluginLoader == null ? null : pluginLoader.get();
+            if (loader == null) {
+                loader = new AgentClassLoader(targetClassLoader);
+                pluginLoader = new WeakReference<AgentClassLoader>(loader);
+            }
+            return loader;
+        }
+    }
+
+    /**
+     * Key of {@link #LOADER_CACHES}, compares the classloaders by identity.
+     */
+    private static class WeakKey extends WeakReference<ClassLoader> {
+        private final int hashCode;
+
+        private WeakKey(ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+            super(classLoader, queue);
+            this.hashCode = System.identityHashCode(classLoader);
+        }
+
+        @Override public int hashCode() {
+            return hashCode;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o instanceof LookupKey) {
+                return ((LookupKey)o).classLoader == get();
+            }
+            if (o instanceof WeakKey) {
+                ClassLoader classLoader = get();
+                return classLoader != null && classLoader == ((WeakKey)o).get();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Short lived key to look up {@link #LOADER_CACHES}, without creating a weak reference.
+     */
+    private static class LookupKey {
+        private final ClassLoader classLoader;
+
+        private LookupKey(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override public int hashCode() {
+            return System.identityHashCode(classLoader);
+        }
+
+        @Override public boolean equals(Object o) {
+            if (o instanceof WeakKey) {
+                return classLoader == ((WeakKey)o).get();
+            }
+            return o instanceof LookupKey && classLoader == ((LookupKey)o).classLoader;
+        }
     }
 }
@@ -60,6 +60,10 @@ public class MultiClassNameMatch implements IndirectMatch {
         return matchClassNames.contains(typeDescription.getTypeName());
     }
 
+    public List<String> getMatchClassNames() {
+        return matchClassNames;
+    }
+
     public static ClassMatch byMultiClassMatch(String... classNames) {
         return new MultiClassNameMatch(classNames);
     }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.remote;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientInterceptors;
+import io.grpc.ForwardingClientCall;
+import io.grpc.MethodDescriptor;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.network.proto.JVMMetricsServiceGrpc;
+import org.apache.skywalking.apm.network.proto.TraceSegmentServiceGrpc;
+import org.apache.skywalking.apm.util.StringUtil;
+
+/**
+ * Compress the messages of {@link TraceSegmentServiceGrpc} and {@link JVMMetricsServiceGrpc} by
+ * Config.Collector.UPLOAD_COMPRESSION. The messages smaller than Config.Collector.UPLOAD_COMPRESSION_THRESHOLD are
+ * sent uncompressed, even in a compressed call.
+ *
+ * The compressor must be registered in the channel, see {@link StandardChannelBuilder}.
+ */
+public class CompressionDecorator implements ChannelDecorator {
+    @Override
+    public Channel build(Channel channel) {
+        final String compression = Config.Collector.UPLOAD_COMPRESSION;
+        if (StringUtil.isEmpty(compression) || "identity".equals(compression)) {
+            return channel;
+        }
+
+        return ClientInterceptors.intercept(channel, new ClientInterceptor() {
+            @Override
+            public <REQ, RESP> ClientCall<REQ, RESP> interceptCall(MethodDescriptor<REQ, RESP> method,
+                CallOptions options, Channel channel) {
+                if (!isUploadService(method)) {
+                    return channel.newCall(method, options);
+                }
+                return new ForwardingClientCall.SimpleForwardingClientCall<REQ, RESP>(channel.newCall(method, options.withCompression(compression))) {
+                    @Override
+                    public void sendMessage(REQ message) {
+                        if (message instanceof MessageLite) {
+                            int size = ((MessageLite)message).getSerializedSize();
+                            setMessageCompression(size >= Config.Collector.UPLOAD_COMPRESSION_THRESHOLD);
+                        }
+                        super.sendMessage(message);
+                    }
+                };
+            }
+        });
+    }
+
+    private boolean isUploadService(MethodDescriptor<?, ?> method) {
+        String serviceName = MethodDescriptor.extractFullServiceName(method.getFullMethodName());
+        return TraceSegmentServiceGrpc.SERVICE_NAME.equals(serviceName)
+            || JVMMetricsServiceGrpc.SERVICE_NAME.equals(serviceName);
+    }
+}
@@ -94,6 +94,7 @@ public class GRPCChannelManager implements BootService, Runnable {
                         .addManagedChannelBuilder(new StandardChannelBuilder())
                         .addManagedChannelBuilder(new TLSChannelBuilder())
                         .addChannelDecorator(new AuthenticationDecorator())
+                        .addChannelDecorator(new CompressionDecorator())
                         .build();
 
                     if (!managedChannel.isShutdown() && !managedChannel.isTerminated()) {
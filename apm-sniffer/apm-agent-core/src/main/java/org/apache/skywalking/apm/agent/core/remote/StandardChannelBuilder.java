@@ -18,8 +18,11 @@
 
 package org.apache.skywalking.apm.agent.core.remote;
 
+import io.grpc.Codec;
+import io.grpc.CompressorRegistry;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.internal.DnsNameResolverProvider;
+import org.apache.skywalking.apm.network.grpc.DeflateCodec;
 
 /**
  * @author zhang xin
@@ -27,10 +30,21 @@ import io.grpc.internal.DnsNameResolverProvider;
 public class StandardChannelBuilder implements ChannelBuilder {
     private final static int MAX_INBOUND_MESSAGE_SIZE = 1024 * 1024 * 50;
     private final static boolean USE_PLAIN_TEXT = true;
+    /**
+     * The compressors could be used by {@link CompressionDecorator}.
+     */
+    private final static CompressorRegistry COMPRESSOR_REGISTRY = CompressorRegistry.newEmptyInstance();
+
+    static {
+        COMPRESSOR_REGISTRY.register(Codec.Identity.NONE);
+        COMPRESSOR_REGISTRY.register(new Codec.Gzip());
+        COMPRESSOR_REGISTRY.register(new DeflateCodec());
+    }
 
     @Override public ManagedChannelBuilder build(ManagedChannelBuilder managedChannelBuilder) throws Exception {
         return managedChannelBuilder.nameResolverFactory(new DnsNameResolverProvider())
             .maxInboundMessageSize(MAX_INBOUND_MESSAGE_SIZE)
+            .compressorRegistry(COMPRESSOR_REGISTRY)
             .usePlaintext(USE_PLAIN_TEXT);
     }
 }
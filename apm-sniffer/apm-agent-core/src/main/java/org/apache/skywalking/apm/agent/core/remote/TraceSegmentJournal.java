@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.remote;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+
+/**
+ * The <code>TraceSegmentJournal</code> keeps the serialized segments on disk, when they can't be sent to collector.
+ * The segments are appended to the journal files, <code>segment-{sequence}.journal</code>, a new file starts after
+ * the current one reaches the max file size. Each record is the length of the segment then the bytes of it.
+ *
+ * The files are read from the oldest one. The records read are only dropped by {@link #commit()}, after the collector
+ * acknowledges them, so the segments are sent at least once, unless evicted. The oldest files are evicted, when the
+ * journal is bigger than the max size, or older than the max age.
+ *
+ * All methods are synchronized, the segments are appended by the uploading thread and read by the draining thread.
+ */
+public class TraceSegmentJournal {
+    private static final ILog logger = LogManager.getLogger(TraceSegmentJournal.class);
+    private static final String FILE_PREFIX = "segment-";
+    private static final String FILE_SUFFIX = ".journal";
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    private final File dir;
+    private final long maxSize;
+    private final long maxFileSize;
+    private final long maxAge;
+    /**
+     * Closed files, the oldest first.
+     */
+    private final LinkedList<File> files = new LinkedList<File>();
+    private long nextSequence;
+    private File currentFile;
+    private DataOutputStream currentOutput;
+    private long currentFileSize;
+    private long size;
+    private long readOffset;
+    private long pendingOffset;
+    private int pendingCount;
+
+    private long appendedCounter;
+    private long recoveredCounter;
+    private long evictedBytes;
+
+    /**
+     * @param maxSize max bytes of all files.
+     * @param maxFileSize a new file starts after the current one reaches this size.
+     * @param maxAge milliseconds, the files older than this are evicted.
+     */
+    public TraceSegmentJournal(File dir, long maxSize, long maxFileSize, long maxAge) throws IOException {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.maxFileSize = maxFileSize;
+        this.maxAge = maxAge;
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Can't create the journal directory " + dir.getAbsolutePath());
+        }
+        loadFiles();
+    }
+
+    /**
+     * Pick up the files left by the last run.
+     */
+    private void loadFiles() {
+        File[] existing = dir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && sequenceOf(file) >= 0;
+            }
+        });
+        if (existing == null) {
+            return;
+        }
+        List<File> sorted = new ArrayList<File>(existing.length);
+        for (File file : existing) {
+            int index = 0;
+            while (index < sorted.size() && sequenceOf(sorted.get(index)) < sequenceOf(file)) {
+                index++;
+            }
+            sorted.add(index, file);
+        }
+        for (File file : sorted) {
+            files.add(file);
+            size += file.length();
+            nextSequence = sequenceOf(file) + 1;
+        }
+    }
+
+    public synchronized void append(byte[] segment) throws IOException {
+        if (currentOutput == null) {
+            currentFile = new File(dir, FILE_PREFIX + nextSequence++ + FILE_SUFFIX);
+            currentOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(currentFile, true)));
+            currentFileSize = 0;
+        }
+        currentOutput.writeInt(segment.length);
+        currentOutput.write(segment);
+        currentFileSize += RECORD_HEADER_SIZE + segment.length;
+        size += RECORD_HEADER_SIZE + segment.length;
+        appendedCounter++;
+
+        if (currentFileSize >= maxFileSize) {
+            roll();
+        }
+        evict();
+    }
+
+    /**
+     * Flush the appended segments to disk, after a batch.
+     */
+    public synchronized void flush() throws IOException {
+        if (currentOutput != null) {
+            currentOutput.flush();
+        }
+    }
+
+    /**
+     * Read the segments from the oldest file, continue from the last committed record.
+     *
+     * @param max number of segments at most.
+     * @return empty if nothing left.
+     */
+    public synchronized List<byte[]> read(int max) throws IOException {
+        evict();
+        if (files.isEmpty()) {
+            roll();
+        }
+        List<byte[]> segments = new ArrayList<byte[]>();
+        if (files.isEmpty()) {
+            return segments;
+        }
+
+        File file = files.getFirst();
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            long offset = readOffset;
+            input.seek(offset);
+            while (segments.size() < max && offset + RECORD_HEADER_SIZE <= input.length()) {
+                int length = input.readInt();
+                if (length < 0 || offset + RECORD_HEADER_SIZE + length > input.length()) {
+                    logger.warn("Journal file {} is broken at {}, the rest is dropped.", file.getName(), offset);
+                    offset = input.length();
+                    break;
+                }
+                byte[] segment = new byte[length];
+                input.readFully(segment);
+                segments.add(segment);
+                offset += RECORD_HEADER_SIZE + length;
+            }
+            pendingOffset = offset;
+        } catch (EOFException e) {
+            pendingOffset = input.length();
+        } finally {
+            pendingCount = segments.size();
+            input.close();
+        }
+
+        if (segments.isEmpty()) {
+            commit();
+            if (!files.isEmpty()) {
+                return read(max);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * The segments of the last {@link #read(int)} have been sent, don't read them again.
+     */
+    public synchronized void commit() {
+        if (files.isEmpty()) {
+            return;
+        }
+        File file = files.getFirst();
+        recoveredCounter += pendingCount;
+        pendingCount = 0;
+        readOffset = pendingOffset;
+        if (readOffset >= file.length()) {
+            delete(files.removeFirst());
+            readOffset = 0;
+            pendingOffset = 0;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return files.isEmpty() && currentFileSize == 0;
+    }
+
+    /**
+     * @return bytes of all files.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized int fileCount() {
+        return files.size() + (currentOutput == null ? 0 : 1);
+    }
+
+    public synchronized String status() {
+        return "files=" + fileCount() + ", bytes=" + size + ", appended=" + appendedCounter
+            + ", recovered=" + recoveredCounter + ", evictedBytes=" + evictedBytes;
+    }
+
+    public synchronized void close() throws IOException {
+        roll();
+    }
+
+    /**
+     * Close the current file, it is readable after that.
+     */
+    private void roll() throws IOException {
+        if (currentOutput == null) {
+            return;
+        }
+        currentOutput.close();
+        currentOutput = null;
+        if (currentFileSize > 0) {
+            files.add(currentFile);
+        } else {
+            currentFile.delete();
+        }
+        currentFileSize = 0;
+    }
+
+    private void evict() throws IOException {
+        long expiredTime = System.currentTimeMillis() - maxAge;
+        while (!files.isEmpty()) {
+            File oldest = files.getFirst();
+            if (size <= maxSize && oldest.lastModified() >= expiredTime) {
+                break;
+            }
+            evictedBytes += oldest.length() - readOffset;
+            delete(files.removeFirst());
+            readOffset = 0;
+            pendingOffset = 0;
+            pendingCount = 0;
+        }
+        if (size > maxSize && files.isEmpty()) {
+            roll();
+            if (!files.isEmpty()) {
+                evict();
+            }
+        }
+    }
+
+    private void delete(File file) {
+        size -= file.length();
+        if (!file.delete()) {
+            logger.warn("Can't delete journal file {}.", file.getAbsolutePath());
+        }
+    }
+
+    private static long sequenceOf(File file) {
+        String name = file.getName();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
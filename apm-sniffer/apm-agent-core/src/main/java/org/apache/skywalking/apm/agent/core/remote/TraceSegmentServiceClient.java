@@ -20,40 +20,84 @@
 package org.apache.skywalking.apm.agent.core.remote;
 
 import io.grpc.Channel;
-import io.grpc.stub.StreamObserver;
 import org.apache.skywalking.apm.agent.core.boot.BootService;
+import org.apache.skywalking.apm.agent.core.boot.DefaultNamedThreadFactory;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.TracingContext;
 import org.apache.skywalking.apm.agent.core.context.TracingContextListener;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
+import org.apache.skywalking.apm.agent.core.context.util.ReusableOutputBuffer;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
-import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
-import org.apache.skywalking.apm.network.proto.Downstream;
+import org.apache.skywalking.apm.commons.datacarrier.common.Batch;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.IBatchConsumer;
 import org.apache.skywalking.apm.network.proto.TraceSegmentServiceGrpc;
 import org.apache.skywalking.apm.network.proto.UpstreamSegment;
+import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
+import org.apache.skywalking.apm.util.StringUtil;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.BUFFER_SIZE;
 import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.CHANNEL_SIZE;
+import static org.apache.skywalking.apm.agent.core.conf.Config.Buffer.MAX_BUFFER_SIZE;
 import static org.apache.skywalking.apm.agent.core.remote.GRPCChannelStatus.CONNECTED;
 
 /**
  * @author wusheng
  */
-public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSegment>, TracingContextListener, GRPCChannelListener {
+public class TraceSegmentServiceClient implements BootService, IBatchConsumer<TraceSegment>, TracingContextListener, GRPCChannelListener, TraceSegmentUploadStream.Listener {
     private static final ILog logger = LogManager.getLogger(TraceSegmentServiceClient.class);
     private static final int TIMEOUT = 30 * 1000;
+    /**
+     * Max segments waiting in {@link #overflowedSegments}, the ones beyond are abandoned.
+     */
+    private static final int OVERFLOW_QUEUE_SIZE = 1000;
 
     private long lastLogTime;
-    private long segmentUplinkedCounter;
-    private long segmentAbandonedCounter;
+    private final AtomicLong segmentUplinkedCounter = new AtomicLong(0);
+    private final AtomicLong segmentAbandonedCounter = new AtomicLong(0);
     private volatile DataCarrier<TraceSegment> carrier;
     private volatile TraceSegmentServiceGrpc.TraceSegmentServiceStub serviceStub;
     private volatile GRPCChannelStatus status = GRPCChannelStatus.DISCONNECT;
+    /**
+     * The stream kept open across batches, used by the consumer thread of {@link #carrier} and the draining thread of
+     * {@link #journal}, one at a time, guarded by {@link #uploadLock}.
+     */
+    private volatile TraceSegmentUploadStream uploadStream;
+    private final Object uploadLock = new Object();
+    /**
+     * Segments are serialized into this buffer, only by the single consumer thread of {@link #carrier}.
+     */
+    private final ReusableOutputBuffer outputBuffer = new ReusableOutputBuffer(4096);
+    /**
+     * Segments are serialized into this buffer, only by the draining thread of {@link #journal}.
+     */
+    private final ReusableOutputBuffer journalOutputBuffer = new ReusableOutputBuffer(4096);
+    private volatile TraceSegmentJournal journal;
+    private volatile ScheduledExecutorService journalExecutor;
+    /**
+     * The segments rejected by the full {@link #carrier}. The application threads only put them here, they are
+     * serialized and appended to the {@link #journal} later by {@link #journalQueued(ReusableOutputBuffer)}.
+     */
+    private final Queue<TraceSegment> overflowedSegments = new ArrayBlockingQueue<TraceSegment>(OVERFLOW_QUEUE_SIZE);
+    /**
+     * The segments abandoned by a failed upload stream, put by the grpc threads, appended to the {@link #journal} later
+     * by {@link #journalQueued(ReusableOutputBuffer)}.
+     */
+    private final Queue<UpstreamSegment> unacknowledgedSegments = new ConcurrentLinkedQueue<UpstreamSegment>();
 
     @Override
     public void beforeBoot() throws Throwable {
@@ -63,11 +107,45 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
     @Override
     public void boot() throws Throwable {
         lastLogTime = System.currentTimeMillis();
-        segmentUplinkedCounter = 0;
-        segmentAbandonedCounter = 0;
-        carrier = new DataCarrier<TraceSegment>(CHANNEL_SIZE, BUFFER_SIZE);
+        segmentUplinkedCounter.set(0);
+        segmentAbandonedCounter.set(0);
+        carrier = new DataCarrier<TraceSegment>("TraceSegmentServiceClient", CHANNEL_SIZE, BUFFER_SIZE);
         carrier.setBufferStrategy(BufferStrategy.IF_POSSIBLE);
-        carrier.consume(this, 1);
+        carrier.consume(this, 1, CHANNEL_SIZE * BUFFER_SIZE);
+        if (MAX_BUFFER_SIZE > BUFFER_SIZE) {
+            carrier.enableAdaptiveResize(MAX_BUFFER_SIZE, 1000);
+        }
+        if (!StringUtil.isEmpty(Config.Journal.DIR)) {
+            bootJournal();
+        }
+    }
+
+    private void bootJournal() {
+        try {
+            journal = new TraceSegmentJournal(new File(Config.Journal.DIR), Config.Journal.MAX_SIZE,
+                Config.Journal.MAX_FILE_SIZE, Config.Journal.MAX_AGE * 1000);
+        } catch (IOException e) {
+            logger.error(e, "Open segment journal at {} fail, segments are abandoned when collector is unreachable.", Config.Journal.DIR);
+            return;
+        }
+        journalExecutor = Executors.newSingleThreadScheduledExecutor(new DefaultNamedThreadFactory("TraceSegmentJournal"));
+        journalExecutor.scheduleAtFixedRate(new RunnableWithExceptionProtection(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        journalQueued(journalOutputBuffer);
+                        flushJournal();
+                        drainJournal();
+                    } catch (IOException e) {
+                        logger.error(e, "Read segment journal fail.");
+                    }
+                }
+            }, new RunnableWithExceptionProtection.CallbackWhenException() {
+                @Override
+                public void handle(Throwable t) {
+                    logger.error("Send segments in journal to collector fail.", t);
+                }
+            }), 1, 1, TimeUnit.SECONDS);
     }
 
     @Override
@@ -75,9 +153,36 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
         TracingContext.ListenerManager.add(this);
     }
 
+    /**
+     * Stop the consumer thread and the draining thread first, then complete the stream, and keep the segments left in
+     * the journal.
+     */
     @Override
     public void shutdown() throws Throwable {
-        carrier.shutdownConsumers();
+        if (!carrier.shutdownConsumers(TIMEOUT)) {
+            logger.warn("The consumer of trace segments doesn't exit in {}ms.", TIMEOUT);
+        }
+        if (journalExecutor != null) {
+            journalExecutor.shutdown();
+            if (!journalExecutor.awaitTermination(TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.warn("The draining thread of segment journal doesn't exit in {}ms.", TIMEOUT);
+            }
+        }
+        TraceSegmentUploadStream stream;
+        synchronized (uploadLock) {
+            stream = uploadStream;
+            uploadStream = null;
+            if (stream != null) {
+                stream.complete();
+            }
+        }
+        if (journal != null) {
+            if (stream != null) {
+                stream.awaitAcknowledged(TIMEOUT);
+            }
+            journalQueued(new ReusableOutputBuffer(4096));
+            journal.close();
+        }
     }
 
     @Override
@@ -86,67 +191,254 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
     }
 
     @Override
+    public void consume(Batch<TraceSegment> data) {
+        consume((List<TraceSegment>)data);
+    }
+
     public void consume(List<TraceSegment> data) {
-        if (CONNECTED.equals(status)) {
-            final GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
-            StreamObserver<UpstreamSegment> upstreamSegmentStreamObserver = serviceStub.collect(new StreamObserver<Downstream>() {
-                @Override
-                public void onNext(Downstream downstream) {
+        synchronized (uploadLock) {
+            consumeInLock(data);
+        }
+        printUplinkStatus();
+    }
 
+    private void consumeInLock(List<TraceSegment> data) {
+        TraceSegmentUploadStream stream = CONNECTED.equals(status) ? currentStream() : null;
+        for (TraceSegment segment : data) {
+            try {
+                if (stream != null && stream.isFull()) {
+                    stream.complete();
+                    uploadStream = null;
+                    stream = CONNECTED.equals(status) ? currentStream() : null;
+                } else if (stream != null && stream.isAborted()) {
+                    stream = CONNECTED.equals(status) ? currentStream() : null;
                 }
-
-                @Override
-                public void onError(Throwable throwable) {
-                    status.finished();
-                    if (logger.isErrorEnable()) {
-                        logger.error(throwable, "Send UpstreamSegment to collector fail with a grpc internal exception.");
-                    }
-                    ServiceManager.INSTANCE.findService(GRPCChannelManager.class).reportError(throwable);
+                if (stream != null && !stream.awaitReady(TIMEOUT)) {
+                    stream.cancel("Stream is not ready in " + TIMEOUT + "ms.");
+                    uploadStream = null;
+                    stream = null;
                 }
-
-                @Override
-                public void onCompleted() {
-                    status.finished();
+                if (stream != null) {
+                    stream.send(segment.transform(outputBuffer));
+                } else {
+                    keep(segment);
                 }
-            });
-
-            for (TraceSegment segment : data) {
-                try {
-                    UpstreamSegment upstreamSegment = segment.transform();
-                    upstreamSegmentStreamObserver.onNext(upstreamSegment);
-                } catch (Throwable t) {
-                    logger.error(t, "Transform and send UpstreamSegment to collector fail.");
+            } catch (Throwable t) {
+                logger.error(t, "Transform and send UpstreamSegment to collector fail.");
+            } finally {
+                release(segment);
+            }
+        }
+        journalQueued(outputBuffer);
+        flushJournal();
+
+        if (stream != null) {
+            stream.batchSent();
+            rotateIfNecessary(stream);
+        } else if (uploadStream != null) {
+            uploadStream.cancel("Channel disconnected.");
+            uploadStream = null;
+        }
+    }
+
+    /**
+     * Keep the segment in the journal, when it can't be sent. Abandon it, if no journal.
+     */
+    private void keep(TraceSegment segment) throws IOException {
+        TraceSegmentJournal journal = this.journal;
+        if (journal == null) {
+            segmentAbandonedCounter.incrementAndGet();
+            return;
+        }
+        journal.append(segment.transform(outputBuffer).toByteArray());
+    }
+
+    /**
+     * Append the queued segments to the journal, called by the consumer thread after each batch, and by the draining
+     * thread in case no more batch comes. Each thread uses its own buffer.
+     */
+    private void journalQueued(ReusableOutputBuffer buffer) {
+        TraceSegmentJournal journal = this.journal;
+        if (journal == null) {
+            return;
+        }
+        TraceSegment segment;
+        while ((segment = overflowedSegments.poll()) != null) {
+            try {
+                journal.append(segment.transform(buffer).toByteArray());
+            } catch (Throwable t) {
+                logger.error(t, "Keep the overflowed trace segment in journal fail.");
+            } finally {
+                release(segment);
+            }
+        }
+        UpstreamSegment unacknowledged;
+        while ((unacknowledged = unacknowledgedSegments.poll()) != null) {
+            try {
+                journal.append(unacknowledged.toByteArray());
+            } catch (Throwable t) {
+                logger.error(t, "Keep the unacknowledged trace segment in journal fail.");
+            }
+        }
+    }
+
+    private void flushJournal() {
+        TraceSegmentJournal journal = this.journal;
+        if (journal != null) {
+            try {
+                journal.flush();
+            } catch (IOException e) {
+                logger.error(e, "Flush segment journal fail.");
+            }
+        }
+    }
+
+    /**
+     * Send the segments in the journal, at most {@link Config.Journal#DRAIN_RATE} each time, run every second by the
+     * draining thread. They are sent through the {@link #uploadStream}, which is completed after that, so the collector
+     * acknowledges them soon. The segments are dropped from the journal only after the collector acknowledged them.
+     */
+    private void drainJournal() throws IOException {
+        TraceSegmentJournal journal = this.journal;
+        if (journal == null || !CONNECTED.equals(status)) {
+            return;
+        }
+        List<byte[]> segments = journal.read(Config.Journal.DRAIN_RATE);
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        TraceSegmentUploadStream stream;
+        synchronized (uploadLock) {
+            stream = currentStream();
+            if (stream == null) {
+                return;
+            }
+            for (byte[] segment : segments) {
+                if (!stream.awaitReady(TIMEOUT)) {
+                    stream.cancel("Stream is not ready in " + TIMEOUT + "ms.");
+                    uploadStream = null;
+                    return;
                 }
+                stream.send(UpstreamSegment.parseFrom(segment), false);
             }
-            upstreamSegmentStreamObserver.onCompleted();
+            stream.complete();
+            uploadStream = null;
+        }
+        if (stream.awaitAcknowledged(TIMEOUT)) {
+            journal.commit();
+        }
+    }
 
-            if (status.wait4Finish(TIMEOUT)) {
-                segmentUplinkedCounter += data.size();
+    /**
+     * @return the open upload stream, a new one if the last is unusable, or null if the stream can't be opened.
+     */
+    private TraceSegmentUploadStream currentStream() {
+        TraceSegmentUploadStream stream = uploadStream;
+        if (stream != null) {
+            if (stream.isWritable()) {
+                return stream;
             }
-        } else {
-            segmentAbandonedCounter += data.size();
+            stream.cancel("Channel status changed.");
         }
+        try {
+            stream = new TraceSegmentUploadStream(this, journal != null, Config.Collector.UPLOAD_STREAM_MAX_SEGMENTS,
+                Config.Collector.UPLOAD_STREAM_MAX_BYTES);
+            serviceStub.collect(stream);
+            uploadStream = stream;
+            return stream;
+        } catch (Throwable t) {
+            logger.error(t, "Open UpstreamSegment stream to collector fail.");
+            uploadStream = null;
+            return null;
+        }
+    }
 
-        printUplinkStatus();
+    /**
+     * Complete the stream when it is full, see {@link TraceSegmentUploadStream#isFull()}, or after {@link
+     * Config.Collector#UPLOAD_STREAM_MAX_DURATION}, then the collector acknowledges the segments of it. The consumer
+     * also rotates a full stream in the middle of a batch, so the segments waiting for the acknowledgement never go
+     * beyond the limits. A stream unable to send is cancelled, its unacknowledged segments are abandoned.
+     */
+    private void rotateIfNecessary(TraceSegmentUploadStream stream) {
+        if (!stream.isWritable()) {
+            stream.cancel("Channel status changed.");
+            uploadStream = null;
+        } else if (stream.isFull()
+            || System.currentTimeMillis() - stream.getOpenTime() > Config.Collector.UPLOAD_STREAM_MAX_DURATION * 1000) {
+            stream.complete();
+            uploadStream = null;
+        }
+    }
+
+    @Override
+    public void onAcknowledged(TraceSegmentUploadStream stream, int segments) {
+        segmentUplinkedCounter.addAndGet(segments);
+        if (logger.isDebugEnable()) {
+            logger.debug("{} trace segments in {} batches have been acknowledged by collector.", segments, stream.getBatchCounter());
+        }
+    }
+
+    /**
+     * The unacknowledged segments are kept by the stream when there is a journal, queue them for the journal, rather
+     * than writing the file in the grpc thread.
+     */
+    @Override
+    public void onAbandoned(TraceSegmentUploadStream stream, int segments, List<UpstreamSegment> unacknowledged) {
+        if (unacknowledged == null) {
+            segmentAbandonedCounter.addAndGet(segments);
+            return;
+        }
+        unacknowledgedSegments.addAll(unacknowledged);
+    }
+
+    @Override
+    public void onError(TraceSegmentUploadStream stream, Throwable throwable) {
+        if (logger.isErrorEnable()) {
+            logger.error(throwable, "Send UpstreamSegment to collector fail with a grpc internal exception.");
+        }
+        ServiceManager.INSTANCE.findService(GRPCChannelManager.class).reportError(throwable);
+    }
+
+    /**
+     * Return the segment to its pool, it has been transformed or abandoned, see {@link Config.Agent#RECYCLE_SEGMENTS}.
+     */
+    private void release(TraceSegment segment) {
+        try {
+            segment.release();
+        } catch (Throwable t) {
+            logger.error(t, "Release trace segment fail.");
+        }
     }
 
     private void printUplinkStatus() {
         long currentTimeMillis = System.currentTimeMillis();
         if (currentTimeMillis - lastLogTime > 30 * 1000) {
             lastLogTime = currentTimeMillis;
-            if (segmentUplinkedCounter > 0) {
-                logger.debug("{} trace segments have been sent to collector.", segmentUplinkedCounter);
-                segmentUplinkedCounter = 0;
+            long uplinked = segmentUplinkedCounter.getAndSet(0);
+            if (uplinked > 0) {
+                logger.debug("{} trace segments have been sent to collector.", uplinked);
+            }
+            long abandoned = segmentAbandonedCounter.getAndSet(0);
+            if (abandoned > 0) {
+                logger.debug("{} trace segments have been abandoned, cause by no available channel.", abandoned);
             }
-            if (segmentAbandonedCounter > 0) {
-                logger.debug("{} trace segments have been abandoned, cause by no available channel.", segmentAbandonedCounter);
-                segmentAbandonedCounter = 0;
+            TraceSegmentUploadStream stream = uploadStream;
+            if (stream != null && logger.isDebugEnable()) {
+                logger.debug("{} trace segments are waiting for the acknowledgement of collector.", stream.getSentCounter());
+            }
+            if (logger.isDebugEnable()) {
+                logger.debug("Segment buffer status: {}", carrier.getMetrics());
+            }
+            TraceSegmentJournal journal = this.journal;
+            if (journal != null && logger.isDebugEnable()) {
+                logger.debug("Segment journal status: {}", journal.status());
             }
         }
     }
 
     @Override
-    public void onError(List<TraceSegment> data, Throwable t) {
+    public void onError(Batch<TraceSegment> data, Throwable t) {
         logger.error(t, "Try to send {} trace segments to collector, with unexpected exception.", data.size());
     }
 
@@ -160,7 +452,13 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
         if (traceSegment.isIgnore()) {
             return;
         }
+        // released by the consumer, or the journal.
+        traceSegment.retain();
         if (!carrier.produce(traceSegment)) {
+            if (journal != null && overflowedSegments.offer(traceSegment)) {
+                return;
+            }
+            traceSegment.release();
             if (logger.isDebugEnable()) {
                 logger.debug("One trace segment has been abandoned, cause by buffer is full.");
             }
@@ -174,5 +472,9 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
             serviceStub = TraceSegmentServiceGrpc.newStub(channel);
         }
         this.status = status;
+        TraceSegmentUploadStream stream = uploadStream;
+        if (stream != null) {
+            stream.abort();
+        }
     }
 }
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.remote;
+
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.skywalking.apm.network.proto.Downstream;
+import org.apache.skywalking.apm.network.proto.UpstreamSegment;
+
+/**
+ * The <code>TraceSegmentUploadStream</code> is one <code>collect</code> client stream, kept open across batches. The
+ * segments are sent as long as the stream is ready, see {@link #awaitReady(long)}, without waiting for any response.
+ *
+ * The collector only responds when the stream completes, so the segments sent through one stream are acknowledged
+ * together, or abandoned together when the stream fails. The result is reported to the {@link Listener}, with the
+ * abandoned segments themselves if the stream is asked to keep them. As the acknowledgement is per stream, the kept
+ * segments grow with the stream, so the stream is capped by the number and bytes of segments, see {@link #isFull()},
+ * the uploading thread should complete a full stream and open a new one.
+ *
+ * Except the callbacks and {@link #abort()}, the methods should be called by one uploading thread at a time.
+ */
+public class TraceSegmentUploadStream implements ClientResponseObserver<UpstreamSegment, Downstream> {
+    private final Listener listener;
+    private final long openTime;
+    private final Object readyLock = new Object();
+    /**
+     * Guards {@link #unacknowledged} and {@link #unacknowledgedSegments}, the segments are sent by the uploading thread,
+     * acknowledged or abandoned by the grpc threads.
+     */
+    private final Object unacknowledgedLock = new Object();
+    private int unacknowledged = 0;
+    /**
+     * The sent segments waiting for the acknowledgement, null if the stream doesn't keep them.
+     */
+    private final List<UpstreamSegment> unacknowledgedSegments;
+    private ClientCallStreamObserver<UpstreamSegment> requestStream;
+    private volatile boolean finished = false;
+    private volatile boolean aborted = false;
+    private volatile boolean acknowledged = false;
+    private boolean completed = false;
+    private boolean cancelled = false;
+    private final int maxSegments;
+    private final long maxBytes;
+    private int sentCounter = 0;
+    private long sentBytes = 0;
+    private int batchCounter = 0;
+
+    public TraceSegmentUploadStream(Listener listener, int maxSegments, long maxBytes) {
+        this(listener, false, maxSegments, maxBytes);
+    }
+
+    /**
+     * @param keepUnacknowledged true means the sent segments are kept until acknowledged, and passed to {@link
+     * Listener#onAbandoned(TraceSegmentUploadStream, int, List)} if the stream fails.
+     * @param maxSegments the stream is full after sent these many segments.
+     * @param maxBytes the stream is full after sent these many bytes of segments.
+     */
+    public TraceSegmentUploadStream(Listener listener, boolean keepUnacknowledged, int maxSegments, long maxBytes) {
+        this.listener = listener;
+        this.openTime = System.currentTimeMillis();
+        this.unacknowledgedSegments = keepUnacknowledged ? new ArrayList<UpstreamSegment>() : null;
+        this.maxSegments = maxSegments;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<UpstreamSegment> requestStream) {
+        this.requestStream = requestStream;
+        requestStream.setOnReadyHandler(new Runnable() {
+            @Override
+            public void run() {
+                wakeUp();
+            }
+        });
+    }
+
+    /**
+     * Wait until the stream is ready to send, follows the flow control of grpc.
+     *
+     * @param maxTimeout max wait time, milliseconds.
+     * @return false, if the stream has been finished, aborted or is still not ready after the timeout.
+     */
+    public boolean awaitReady(long maxTimeout) {
+        long deadline = System.currentTimeMillis() + maxTimeout;
+        synchronized (readyLock) {
+            while (isWritable() && !requestStream.isReady()) {
+                long timeout = deadline - System.currentTimeMillis();
+                if (timeout <= 0) {
+                    return false;
+                }
+                try {
+                    readyLock.wait(timeout);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        }
+        return isWritable();
+    }
+
+    /**
+     * Wait until the collector responds, after {@link #complete()}.
+     *
+     * @param maxTimeout max wait time, milliseconds.
+     * @return true, if the collector has acknowledged all segments of this stream.
+     */
+    public boolean awaitAcknowledged(long maxTimeout) {
+        long deadline = System.currentTimeMillis() + maxTimeout;
+        synchronized (readyLock) {
+            while (!finished) {
+                long timeout = deadline - System.currentTimeMillis();
+                if (timeout <= 0) {
+                    return false;
+                }
+                try {
+                    readyLock.wait(timeout);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        }
+        return acknowledged;
+    }
+
+    public void send(UpstreamSegment segment) {
+        send(segment, true);
+    }
+
+    /**
+     * @param keep false means the segment is kept somewhere else, such as the journal, so this stream doesn't keep it,
+     * and it isn't passed to {@link Listener#onAbandoned(TraceSegmentUploadStream, int, List)}.
+     */
+    public void send(UpstreamSegment segment, boolean keep) {
+        synchronized (unacknowledgedLock) {
+            unacknowledged++;
+            if (keep && unacknowledgedSegments != null) {
+                unacknowledgedSegments.add(segment);
+            }
+        }
+        sentCounter++;
+        sentBytes += segment.getSerializedSize();
+        requestStream.onNext(segment);
+        if (finished) {
+            abandonUnacknowledged();
+        }
+    }
+
+    /**
+     * Mark the end of a batch, only for the status report.
+     */
+    public void batchSent() {
+        batchCounter++;
+    }
+
+    /**
+     * Half close the stream, the collector responds after all sent segments received. Don't wait for that, the result
+     * is reported to the {@link Listener} asynchronously.
+     */
+    public void complete() {
+        if (isWritable()) {
+            completed = true;
+            requestStream.onCompleted();
+        }
+    }
+
+    /**
+     * Cancel the stream, all unacknowledged segments are abandoned.
+     */
+    public void cancel(String reason) {
+        if (!finished) {
+            cancelled = true;
+            requestStream.cancel(reason, null);
+        }
+        abandonUnacknowledged();
+        finished = true;
+        wakeUp();
+    }
+
+    /**
+     * Ask the uploading thread to stop using this stream, such as the channel is disconnected. Safe to call by any
+     * thread.
+     */
+    public void abort() {
+        aborted = true;
+        wakeUp();
+    }
+
+    public boolean isWritable() {
+        return !finished && !aborted && !completed;
+    }
+
+    /**
+     * @return true, if the stream has sent the max segments or bytes, it should be completed, rather than sending more
+     * segments waiting for the acknowledgement.
+     */
+    public boolean isFull() {
+        return sentCounter >= maxSegments || sentBytes >= maxBytes;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getSentCounter() {
+        return sentCounter;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    public int getBatchCounter() {
+        return batchCounter;
+    }
+
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    @Override
+    public void onNext(Downstream downstream) {
+
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        finished = true;
+        wakeUp();
+        abandonUnacknowledged();
+        if (!cancelled) {
+            listener.onError(this, throwable);
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+        acknowledged = true;
+        finished = true;
+        wakeUp();
+        int acknowledged;
+        synchronized (unacknowledgedLock) {
+            acknowledged = unacknowledged;
+            unacknowledged = 0;
+            if (unacknowledgedSegments != null) {
+                unacknowledgedSegments.clear();
+            }
+        }
+        if (acknowledged > 0) {
+            listener.onAcknowledged(this, acknowledged);
+        }
+    }
+
+    private void abandonUnacknowledged() {
+        int abandoned;
+        List<UpstreamSegment> segments = null;
+        synchronized (unacknowledgedLock) {
+            abandoned = unacknowledged;
+            unacknowledged = 0;
+            if (unacknowledgedSegments != null) {
+                segments = new ArrayList<UpstreamSegment>(unacknowledgedSegments);
+                unacknowledgedSegments.clear();
+            }
+        }
+        if (abandoned > 0) {
+            listener.onAbandoned(this, abandoned, segments);
+        }
+    }
+
+    private void wakeUp() {
+        synchronized (readyLock) {
+            readyLock.notifyAll();
+        }
+    }
+
+    public interface Listener {
+        /**
+         * The collector has received all segments of the stream.
+         */
+        void onAcknowledged(TraceSegmentUploadStream stream, int segments);
+
+        /**
+         * The segments of the stream are not confirmed by the collector, and the stream is not going to resend them.
+         *
+         * @param unacknowledged the abandoned segments, or null if the stream doesn't keep them.
+         */
+        void onAbandoned(TraceSegmentUploadStream stream, int segments, List<UpstreamSegment> unacknowledged);
+
+        void onError(TraceSegmentUploadStream stream, Throwable throwable);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.sampling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
+
+/**
+ * The <code>AdaptiveSampler</code> samples up to a number of segments in each window, shared fairly by the entry
+ * operations.
+ *
+ * At the end of each window, see {@link #resetWindow()}, the quota of the next window is calculated by max-min
+ * fairness: the operations are sorted by their demands in the last window, the less requested ones take what they
+ * need, up to an equal share, and leave the rest to the others. So a rare operation keeps getting sampled, while
+ * the high traffic ones share what's left. A new operation gets an equal share before its first window ends.
+ *
+ * The propagated traces, see {@link #forceSampled()}, are always sampled, but count in the total of the window.
+ *
+ * The operations are kept in an open addressing table keyed by the int key, so the lookup in {@link
+ * #trySampling(int)} doesn't box or lock. New operations are inserted under the lock, the idle ones are dropped by
+ * rebuilding the table in {@link #resetWindow()}.
+ */
+public class AdaptiveSampler {
+    /**
+     * The operations beyond this share the quota of the {@link #OVERFLOW_KEY}.
+     */
+    static final int MAX_OPERATIONS = 2000;
+
+    /**
+     * The key of the operations beyond {@link #MAX_OPERATIONS}. Never used by an operation, the registered ids are
+     * positive, the unregistered names are negative, see {@link #keyOf(String)}.
+     */
+    static final int OVERFLOW_KEY = DictionaryUtil.nullValue();
+
+    /**
+     * Power of 2, and twice of {@link #MAX_OPERATIONS} at least, so the probing stays short.
+     */
+    private static final int TABLE_CAPACITY = 4096;
+
+    private final int segmentsPerWindow;
+    private volatile AtomicReferenceArray<OperationQuota> operations =
+        new AtomicReferenceArray<OperationQuota>(TABLE_CAPACITY);
+    /**
+     * The number of operations in {@link #operations}, guarded by this.
+     */
+    private int operationCount = 0;
+    private final AtomicInteger sampledInWindow = new AtomicInteger(0);
+    private volatile int newOperationQuota;
+
+    public AdaptiveSampler(int segmentsPerWindow) {
+        this.segmentsPerWindow = segmentsPerWindow;
+        this.newOperationQuota = segmentsPerWindow;
+    }
+
+    /**
+     * The key of an operation name not registered yet, by its hash, so the unregistered ones don't share one quota.
+     * Always negative, never the same as a registered id.
+     */
+    static int keyOf(String operationName) {
+        return operationName.hashCode() | Integer.MIN_VALUE;
+    }
+
+    /**
+     * @param operationKey the id of the first operation, or {@link #keyOf(String)} if not registered yet.
+     * @return true, if the quota of this operation and the total of this window are both available.
+     */
+    public boolean trySampling(int operationKey) {
+        OperationQuota operation = find(operations, operationKey);
+        if (operation == null) {
+            operation = findOrAdd(operationKey);
+        }
+
+        operation.demand.incrementAndGet();
+        if (!tryAcquire(operation.sampled, operation.quota)) {
+            return false;
+        }
+        if (!tryAcquire(sampledInWindow, segmentsPerWindow)) {
+            operation.sampled.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized OperationQuota findOrAdd(int operationKey) {
+        AtomicReferenceArray<OperationQuota> table = operations;
+        OperationQuota operation = find(table, operationKey);
+        if (operation != null) {
+            return operation;
+        }
+        if (operationCount >= MAX_OPERATIONS) {
+            operationKey = OVERFLOW_KEY;
+            operation = find(table, operationKey);
+            if (operation != null) {
+                return operation;
+            }
+        }
+        operation = new OperationQuota(operationKey, newOperationQuota);
+        insert(table, operation);
+        operationCount++;
+        return operation;
+    }
+
+    private static OperationQuota find(AtomicReferenceArray<OperationQuota> table, int operationKey) {
+        int mask = table.length() - 1;
+        for (int i = indexOf(operationKey, mask); ; i = (i + 1) & mask) {
+            OperationQuota operation = table.get(i);
+            if (operation == null || operation.key == operationKey) {
+                return operation;
+            }
+        }
+    }
+
+    private static void insert(AtomicReferenceArray<OperationQuota> table, OperationQuota operation) {
+        int mask = table.length() - 1;
+        int i = indexOf(operation.key, mask);
+        while (table.get(i) != null) {
+            i = (i + 1) & mask;
+        }
+        table.set(i, operation);
+    }
+
+    private static int indexOf(int operationKey, int mask) {
+        int h = operationKey * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * A propagated trace is sampled, less quota left for the others in this window.
+     */
+    public void forceSampled() {
+        sampledInWindow.incrementAndGet();
+    }
+
+    /**
+     * Start a new window, with the quota calculated by the demands of the last one. The idle operations are dropped,
+     * the table is rebuilt with the active ones.
+     */
+    public synchronized void resetWindow() {
+        AtomicReferenceArray<OperationQuota> table = operations;
+        AtomicReferenceArray<OperationQuota> rebuilt = new AtomicReferenceArray<OperationQuota>(TABLE_CAPACITY);
+        List<OperationQuota> active = new ArrayList<OperationQuota>(operationCount);
+        for (int i = 0; i < table.length(); i++) {
+            OperationQuota operation = table.get(i);
+            if (operation == null) {
+                continue;
+            }
+            operation.lastDemand = operation.demand.getAndSet(0);
+            if (operation.lastDemand > 0) {
+                active.add(operation);
+                insert(rebuilt, operation);
+            }
+        }
+        operations = rebuilt;
+        operationCount = active.size();
+        Collections.sort(active, new Comparator<OperationQuota>() {
+            @Override
+            public int compare(OperationQuota o1, OperationQuota o2) {
+                return o1.lastDemand < o2.lastDemand ? -1 : (o1.lastDemand == o2.lastDemand ? 0 : 1);
+            }
+        });
+
+        int remaining = segmentsPerWindow;
+        int left = active.size();
+        for (OperationQuota operation : active) {
+            int share = Math.max(1, remaining / left);
+            operation.quota = share;
+            operation.sampled.set(0);
+            remaining = Math.max(0, remaining - Math.min(operation.lastDemand, share));
+            left--;
+        }
+        newOperationQuota = Math.max(1, segmentsPerWindow / (active.size() + 1));
+        sampledInWindow.set(0);
+    }
+
+    /**
+     * @return the quota of the operation in this window, or -1 if not active.
+     */
+    int quotaOf(int operationKey) {
+        OperationQuota operation = find(operations, operationKey);
+        return operation == null ? -1 : operation.quota;
+    }
+
+    private static boolean tryAcquire(AtomicInteger counter, int limit) {
+        while (true) {
+            int current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static class OperationQuota {
+        private final int key;
+        private final AtomicInteger demand = new AtomicInteger(0);
+        private final AtomicInteger sampled = new AtomicInteger(0);
+        private volatile int quota;
+        /**
+         * Only used by {@link #resetWindow()}.
+         */
+        private int lastDemand;
+
+        private OperationQuota(int key, int quota) {
+            this.key = key;
+            this.quota = quota;
+        }
+    }
+}
@@ -27,7 +27,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.skywalking.apm.agent.core.boot.BootService;
 import org.apache.skywalking.apm.agent.core.boot.DefaultNamedThreadFactory;
 import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.conf.RemoteDownstreamConfig;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
+import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
+import org.apache.skywalking.apm.agent.core.dictionary.OperationNameDictionary;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
@@ -38,15 +41,18 @@ import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
  * send all of them to collector, if SAMPLING is on.
  * <p>
  * By default, SAMPLING is on, and  {@link Config.Agent#SAMPLE_N_PER_3_SECS }
+ * <p>
+ * If {@link Config.Agent#SAMPLE_SEGMENTS_PER_SEC} is set, the {@link AdaptiveSampler} decides by the first operation
+ * of the trace.
  *
  * @author wusheng
  */
 public class SamplingService implements BootService {
     private static final ILog logger = LogManager.getLogger(SamplingService.class);
-
     private volatile boolean on = false;
     private volatile AtomicInteger samplingFactorHolder;
     private volatile ScheduledFuture<?> scheduledFuture;
+    private volatile AdaptiveSampler adaptiveSampler;
 
     @Override
     public void beforeBoot() throws Throwable {
@@ -62,7 +68,24 @@ public class SamplingService implements BootService {
              */
             scheduledFuture.cancel(true);
         }
-        if (Config.Agent.SAMPLE_N_PER_3_SECS > 0) {
+        adaptiveSampler = null;
+        if (Config.Agent.SAMPLE_SEGMENTS_PER_SEC > 0) {
+            final AdaptiveSampler sampler = new AdaptiveSampler(Config.Agent.SAMPLE_SEGMENTS_PER_SEC);
+            adaptiveSampler = sampler;
+            ScheduledExecutorService service = Executors
+                .newSingleThreadScheduledExecutor(new DefaultNamedThreadFactory("SamplingService"));
+            scheduledFuture = service.scheduleAtFixedRate(new RunnableWithExceptionProtection(new Runnable() {
+                @Override
+                public void run() {
+                    sampler.resetWindow();
+                }
+            }, new RunnableWithExceptionProtection.CallbackWhenException() {
+                @Override public void handle(Throwable t) {
+                    logger.error("unexpected exception.", t);
+                }
+            }), 1, 1, TimeUnit.SECONDS);
+            logger.debug("Agent adaptive sampling mechanism started. Sample {} traces per second.", Config.Agent.SAMPLE_SEGMENTS_PER_SEC);
+        } else if (Config.Agent.SAMPLE_N_PER_3_SECS > 0) {
             on = true;
             this.resetSamplingFactor();
             ScheduledExecutorService service = Executors
@@ -94,9 +117,35 @@ public class SamplingService implements BootService {
     }
 
     /**
-     * @return true, if sampling mechanism is on, and getDefault the sampling factor successfully.
+     * Sample the trace beginning with the given operation, by its quota if adaptive sampling is on.
+     *
+     * @param operationName of the first span.
+     * @param isEntry true if the first span is an entry span.
+     * @param isExit true if the first span is an exit span.
+     * @return true, if the trace should be sampled.
+     */
+    public boolean trySampling(String operationName, boolean isEntry, boolean isExit) {
+        AdaptiveSampler sampler = adaptiveSampler;
+        if (sampler != null) {
+            int operationId = OperationNameDictionary.INSTANCE
+                .findOperationId(RemoteDownstreamConfig.Agent.APPLICATION_ID, operationName, isEntry, isExit);
+            if (DictionaryUtil.isNull(operationId) && operationName != null) {
+                return sampler.trySampling(AdaptiveSampler.keyOf(operationName));
+            }
+            return sampler.trySampling(operationId);
+        }
+        return trySampling();
+    }
+
+    /**
+     * @return true, if sampling mechanism is on, and getDefault the sampling factor successfully. Always true in
+     * adaptive sampling, the trace has been sampled by its first operation, see {@link #trySampling(String, boolean,
+     * boolean)}.
      */
     public boolean trySampling() {
+        if (adaptiveSampler != null) {
+            return true;
+        }
         if (on) {
             int factor = samplingFactorHolder.get();
             if (factor < Config.Agent.SAMPLE_N_PER_3_SECS) {
@@ -116,7 +165,10 @@ public class SamplingService implements BootService {
      * the trace beginning at local, has less chance to be sampled.
      */
     public void forceSampled() {
-        if (on) {
+        AdaptiveSampler sampler = adaptiveSampler;
+        if (sampler != null) {
+            sampler.forceSampled();
+        } else if (on) {
             samplingFactorHolder.incrementAndGet();
         }
     }
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context;
+
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.ids.ID;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ContextCarrierTest {
+    private static final String SW3 = "1.2343.234234234|1|1|1|#127.0.0.1:8080|#/portal/|#/testEntrySpan|1.2343.234234235";
+
+    @After
+    public void tearDown() {
+        Config.Agent.COMPACT_CARRIER_HEADER = false;
+    }
+
+    @Test
+    public void testSerializeSameAsSplit() {
+        ContextCarrier carrier = new ContextCarrier().deserialize(SW3);
+
+        Assert.assertTrue(carrier.isValid());
+        Assert.assertEquals(new ID(1, 2343, 234234234), carrier.getTraceSegmentId());
+        Assert.assertEquals("#/testEntrySpan", carrier.getParentOperationName());
+        Assert.assertEquals("1.2343.234234235", carrier.getDistributedTraceId().encode());
+        Assert.assertEquals(SW3, carrier.serialize());
+    }
+
+    @Test
+    public void testIgnoreBrokenText() {
+        String[] broken = {
+            "",
+            "1.2343|1|1|1|#127.0.0.1:8080|#/portal/|#/testEntrySpan|1.2343.234234235",
+            "1.2343.234234234|x|1|1|#127.0.0.1:8080|#/portal/|#/testEntrySpan|1.2343.234234235",
+            "1.2343.234234234|1|1|1|#127.0.0.1:8080|#/portal/|1.2343.234234235",
+            "1.2343.234234234|1|1|1|#127.0.0.1:8080|#/portal/|#/testEntrySpan|1.2343"
+        };
+        for (String text : broken) {
+            Assert.assertFalse(text, new ContextCarrier().deserialize(text).isValid());
+        }
+    }
+
+    @Test
+    public void testCompactRoundTrip() {
+        ContextCarrier carrier = new ContextCarrier().deserialize(
+            "1.2343.234234234|3|5|7|12|#/portal/|1024|1.2343.234234235");
+
+        String compact = carrier.serializeCompact();
+        Assert.assertTrue(compact.length() < carrier.serialize().length());
+
+        ContextCarrier decoded = new ContextCarrier().deserializeCompact(compact);
+        Assert.assertTrue(decoded.isValid());
+        Assert.assertEquals(carrier.serialize(), decoded.serialize());
+        Assert.assertFalse(new ContextCarrier().deserializeCompact(compact.substring(0, 10)).isValid());
+    }
+
+    @Test
+    public void testInjectOneHeaderAndExtractBoth() {
+        ContextCarrier carrier = new ContextCarrier().deserialize(SW3);
+        CarrierItem next = carrier.items();
+        Assert.assertTrue(next.hasNext());
+        next = next.next();
+        Assert.assertEquals(SW3CarrierItem.HEADER_NAME, next.getHeadKey());
+        Assert.assertEquals(SW3, next.getHeadValue());
+        Assert.assertFalse(next.hasNext());
+
+        Config.Agent.COMPACT_CARRIER_HEADER = true;
+        next = carrier.items().next();
+        Assert.assertEquals(SW3CompactCarrierItem.HEADER_NAME, next.getHeadKey());
+        String compact = next.getHeadValue();
+        Assert.assertFalse(next.hasNext());
+
+        ContextCarrier fromCompact = new ContextCarrier();
+        next = fromCompact.items();
+        while (next.hasNext()) {
+            next = next.next();
+            next.setHeadValue(SW3CompactCarrierItem.HEADER_NAME.equals(next.getHeadKey()) ? compact : null);
+        }
+        Assert.assertEquals(SW3, fromCompact.serialize());
+
+        ContextCarrier fromText = new ContextCarrier();
+        next = fromText.items();
+        while (next.hasNext()) {
+            next = next.next();
+            next.setHeadValue(SW3CarrierItem.HEADER_NAME.equals(next.getHeadKey()) ? SW3 : null);
+        }
+        Assert.assertEquals(SW3, fromText.serialize());
+    }
+}
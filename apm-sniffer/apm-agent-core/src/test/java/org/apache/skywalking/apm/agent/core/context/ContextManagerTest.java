@@ -20,12 +20,14 @@
 package org.apache.skywalking.apm.agent.core.context;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.IOException;
 import java.util.List;
 
 import org.apache.skywalking.apm.agent.core.conf.RemoteDownstreamConfig;
 import org.apache.skywalking.apm.agent.core.context.tag.Tags;
 import org.apache.skywalking.apm.agent.core.context.trace.SpanLayer;
 import org.apache.skywalking.apm.agent.core.context.util.AbstractTracingSpanHelper;
+import org.apache.skywalking.apm.agent.core.context.util.ReusableOutputBuffer;
 import org.apache.skywalking.apm.agent.core.context.util.SegmentHelper;
 import org.apache.skywalking.apm.agent.core.context.util.TraceSegmentRefHelper;
 import org.apache.skywalking.apm.agent.core.test.tools.AgentServiceRule;
@@ -225,6 +227,38 @@ public class ContextManagerTest {
         RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID = DictionaryUtil.nullValue();
     }
 
+    @Test
+    public void testTransformByOutputBuffer() throws IOException {
+        ContextCarrier contextCarrier = new ContextCarrier().deserialize("1.234.1983829|3|1|1|#127.0.0.1:8080|#/portal/|#/testEntrySpan|1.2343.234234234");
+        assertTrue(contextCarrier.isValid());
+
+        AbstractSpan entrySpan = ContextManager.createEntrySpan("/testEntrySpan", contextCarrier);
+        entrySpan.setComponent(ComponentsDefine.TOMCAT);
+        Tags.HTTP.METHOD.set(entrySpan, "GET");
+        Tags.URL.set(entrySpan, "127.0.0.1:8080");
+        SpanLayer.asHttp(entrySpan);
+
+        AbstractSpan localSpan = ContextManager.createLocalSpan("/testLocalSpan");
+        localSpan.log(new RuntimeException("exception"));
+        ContextManager.stopSpan();
+
+        ContextCarrier injectContextCarrier = new ContextCarrier();
+        AbstractSpan exitSpan = ContextManager.createExitSpan("/textExitSpan", injectContextCarrier, "127.0.0.1:12800");
+        exitSpan.errorOccurred();
+        exitSpan.setComponent("custom-component");
+
+        ContextManager.stopSpan();
+        ContextManager.stopSpan();
+
+        TraceSegment actualSegment = tracingData.getTraceSegments().get(0);
+
+        UpstreamSegment expected = actualSegment.transform();
+        UpstreamSegment actual = actualSegment.transform(new ReusableOutputBuffer(16));
+        assertThat(actual.getGlobalTraceIdsList(), is(expected.getGlobalTraceIdsList()));
+        assertThat(actual.getSegment().size(), is(expected.getSegment().size()));
+        assertThat(TraceSegmentObject.parseFrom(actual.getSegment()), is(TraceSegmentObject.parseFrom(expected.getSegment())));
+    }
+
     @Test
     public void testTransform() throws InvalidProtocolBufferException {
         ContextCarrier contextCarrier = new ContextCarrier().deserialize("1.234.1983829|3|1|1|#127.0.0.1:8080|#/portal/|#/testEntrySpan|1.2343.234234234");
@@ -296,4 +330,41 @@ public class ContextManagerTest {
         assertThat(values.get(2).getValue(), is("exception"));
         assertTrue(values.get(2).getValue().length() <= 4000);
     }
+
+    @Test
+    public void createNestedSpansBeyondInitialStackSize() {
+        AbstractSpan entrySpan = ContextManager.createEntrySpan("/testNestedEntry", null);
+        AbstractSpan[] localSpans = new AbstractSpan[6];
+        for (int i = 0; i < localSpans.length; i++) {
+            localSpans[i] = ContextManager.createLocalSpan("/testNestedLocal-" + i);
+            assertThat(ContextManager.activeSpan(), is(localSpans[i]));
+        }
+
+        for (int i = localSpans.length - 1; i > 0; i--) {
+            ContextManager.stopSpan();
+            assertThat(ContextManager.activeSpan(), is(localSpans[i - 1]));
+        }
+        ContextManager.stopSpan();
+        assertThat(ContextManager.activeSpan(), is(entrySpan));
+
+        AbstractSpan reusedSlotSpan = ContextManager.createLocalSpan("/testNestedLocal-again");
+        assertThat(ContextManager.activeSpan(), is(reusedSlotSpan));
+        ContextManager.stopSpan();
+        assertThat(ContextManager.activeSpan(), is(entrySpan));
+        ContextManager.stopSpan();
+
+        assertThat(tracingData.getTraceSegments().size(), is(1));
+        List<AbstractTracingSpan> spanList = SegmentHelper.getSpan(tracingData.getTraceSegments().get(0));
+        assertThat(spanList.size(), is(8));
+        for (int i = 0; i < localSpans.length; i++) {
+            AbstractTracingSpan finished = spanList.get(i);
+            int depth = localSpans.length - i;
+            assertThat(finished.getOperationName(), is("/testNestedLocal-" + (depth - 1)));
+            assertThat(finished.getSpanId(), is(depth));
+            assertThat(AbstractTracingSpanHelper.getParentSpanId(finished), is(depth - 1));
+        }
+        assertThat(spanList.get(6).getOperationName(), is("/testNestedLocal-again"));
+        assertThat(AbstractTracingSpanHelper.getParentSpanId(spanList.get(6)), is(0));
+        assertThat(spanList.get(7).getOperationName(), is("/testNestedEntry"));
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.ids;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.conf.RemoteDownstreamConfig;
+import org.apache.skywalking.apm.agent.core.dictionary.DictionaryUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GlobalIdGeneratorTest {
+    @Before
+    public void setUp() {
+        RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID = 1;
+    }
+
+    @After
+    public void tearDown() {
+        RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID = DictionaryUtil.nullValue();
+        Config.Agent.SHARED_ID_SEQUENCE = false;
+    }
+
+    @Test
+    public void testIncreaseInThread() {
+        long start = System.currentTimeMillis() * 10000;
+        long last = 0;
+        for (int i = 0; i < GlobalIdGenerator.CLOCK_READ_INTERVAL * 3; i++) {
+            ID id = GlobalIdGenerator.generate();
+            String[] parts = id.encode().split("\\.");
+            Assert.assertEquals("1", parts[0]);
+            Assert.assertEquals(Thread.currentThread().getId() + "", parts[1]);
+
+            long seq = Long.parseLong(parts[2]);
+            Assert.assertTrue(seq > last);
+            Assert.assertTrue(seq >= start - GlobalIdGenerator.CLOCK_READ_INTERVAL * 10000L);
+            last = seq;
+        }
+    }
+
+    @Test
+    public void testSharedSequenceUnique() throws InterruptedException {
+        Config.Agent.SHARED_ID_SEQUENCE = true;
+        final Set<ID> ids = Collections.synchronizedSet(new HashSet<ID>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 50; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override public void run() {
+                    for (int j = 0; j < 100; j++) {
+                        ids.add(new ID(GlobalIdGenerator.generate().encode().replaceFirst("\\.\\d+\\.", ".0.")));
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(5000, ids.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotRegistered() {
+        RemoteDownstreamConfig.Agent.APPLICATION_INSTANCE_ID = DictionaryUtil.nullValue();
+        GlobalIdGenerator.generate();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.trace;
+
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TraceSegmentTest {
+    @Before
+    public void setUp() {
+        Config.Agent.RECYCLE_SEGMENTS = true;
+    }
+
+    @After
+    public void tearDown() {
+        Config.Agent.RECYCLE_SEGMENTS = false;
+    }
+
+    @Test
+    public void testRecycledByLastHolder() {
+        TraceSegment segment = TraceSegment.newInstance();
+        segment.retain();
+        segment.release();
+        Assert.assertNotNull(segment.getTraceSegmentId());
+
+        segment.release();
+        Assert.assertSame(segment, TraceSegment.newInstance());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRetainAfterReleased() {
+        TraceSegment segment = TraceSegment.newInstance();
+        segment.release();
+        segment.retain();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTwice() {
+        TraceSegment segment = TraceSegment.newInstance();
+        segment.release();
+        segment.release();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactHeaderTest {
+    @Test
+    public void testRoundTrip() {
+        String text = new CompactHeaderWriter(1)
+            .writeLong(0).writeLong(-1).writeLong(Long.MAX_VALUE).writeLong(Long.MIN_VALUE)
+            .writeString("").writeString("/订单/create")
+            .writeIdOrText("123").writeIdOrText("#127.0.0.1:8080").writeIdOrText("007")
+            .encode();
+
+        CompactHeaderReader reader = new CompactHeaderReader(text);
+        Assert.assertEquals(0, reader.readLong());
+        Assert.assertEquals(-1, reader.readLong());
+        Assert.assertEquals(Long.MAX_VALUE, reader.readLong());
+        Assert.assertEquals(Long.MIN_VALUE, reader.readLong());
+        Assert.assertEquals("", reader.readString());
+        Assert.assertEquals("/订单/create", reader.readString());
+        Assert.assertEquals("123", reader.readIdOrText());
+        Assert.assertEquals("#127.0.0.1:8080", reader.readIdOrText());
+        Assert.assertEquals("007", reader.readIdOrText());
+        Assert.assertFalse(reader.hasMore());
+    }
+
+    @Test
+    public void testBase64AllTails() {
+        for (int size = 0; size < 8; size++) {
+            CompactHeaderWriter writer = new CompactHeaderWriter(1);
+            for (int i = 0; i < size; i++) {
+                writer.writeLong(i * 31 - 100);
+            }
+            String text = writer.encode();
+            Assert.assertTrue(text.matches("[A-Za-z0-9_-]*"));
+
+            CompactHeaderReader reader = new CompactHeaderReader(text);
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(i * 31 - 100, reader.readLong());
+            }
+            Assert.assertFalse(reader.hasMore());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalChar() {
+        new CompactHeaderReader("AB+/");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncated() {
+        String text = new CompactHeaderWriter(8).writeString("truncated").encode();
+        new CompactHeaderReader(text.substring(0, 4)).readString();
+    }
+
+    @Test
+    public void testParseNumber() {
+        Assert.assertEquals(234234234L, NumberUtil.parseLong("1.234234234.3", 2, 11));
+        Assert.assertEquals(Long.MIN_VALUE, NumberUtil.parseLong(String.valueOf(Long.MIN_VALUE), 0, 20));
+        Assert.assertEquals(-7, NumberUtil.parseInt("|-7|", 1, 3));
+        for (String illegal : new String[] {"", "-", "1a", "9223372036854775808", "+1"}) {
+            try {
+                NumberUtil.parseLong(illegal, 0, illegal.length());
+                Assert.fail(illegal);
+            } catch (NumberFormatException e) {
+            }
+        }
+    }
+}
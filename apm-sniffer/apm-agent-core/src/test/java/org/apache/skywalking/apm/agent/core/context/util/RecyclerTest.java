@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecyclerTest {
+    private final Recycler<PooledObject> recycler = new Recycler<PooledObject>(2) {
+        @Override
+        protected PooledObject newObject(Handle<PooledObject> handle) {
+            return new PooledObject(handle);
+        }
+    };
+
+    @Test
+    public void testReuseInSameThread() {
+        PooledObject first = recycler.get();
+        first.release();
+        Assert.assertEquals(1, recycler.idleCount());
+
+        Assert.assertSame(first, recycler.get());
+        Assert.assertEquals(0, recycler.idleCount());
+        Assert.assertNotSame(first, recycler.get());
+    }
+
+    @Test
+    public void testCapacity() {
+        PooledObject[] objects = new PooledObject[3];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = recycler.get();
+        }
+        for (PooledObject object : objects) {
+            object.release();
+        }
+        Assert.assertEquals(2, recycler.idleCount());
+    }
+
+    @Test
+    public void testHandBackFromOtherThread() throws InterruptedException {
+        final PooledObject object = recycler.get();
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                object.release();
+            }
+        });
+        releaser.start();
+        releaser.join();
+
+        Assert.assertEquals(0, recycler.idleCount());
+        Assert.assertSame(object, recycler.get());
+    }
+
+    @Test
+    public void testHandBackCapacity() throws InterruptedException {
+        final PooledObject[] objects = new PooledObject[5];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = recycler.get();
+        }
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (PooledObject object : objects) {
+                    object.release();
+                }
+            }
+        });
+        releaser.start();
+        releaser.join();
+
+        // only 2 handed back, the pool capacity.
+        PooledObject first = recycler.get();
+        PooledObject second = recycler.get();
+        Assert.assertTrue(first == objects[0] || first == objects[1]);
+        Assert.assertTrue(second == objects[0] || second == objects[1]);
+        Assert.assertNotSame(first, second);
+        PooledObject third = recycler.get();
+        for (PooledObject object : objects) {
+            Assert.assertNotSame(object, third);
+        }
+
+        // the queue is free again, after the owner thread took the handles.
+        final PooledObject again = objects[0];
+        releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                again.release();
+            }
+        });
+        releaser.start();
+        releaser.join();
+        Assert.assertSame(again, recycler.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTwice() {
+        PooledObject object = recycler.get();
+        object.release();
+        object.release();
+    }
+
+    @Test
+    public void testRecycledFlag() {
+        PooledObject object = recycler.get();
+        Assert.assertFalse(object.handle.isRecycled());
+        object.release();
+        Assert.assertTrue(object.handle.isRecycled());
+        Assert.assertFalse(recycler.get().handle.isRecycled());
+    }
+
+    @Test
+    public void testStaleReferenceOnlyCaughtWhileIdle() {
+        PooledObject object = recycler.get();
+        PooledObject stale = object;
+        object.release();
+        Assert.assertTrue(stale.handle.isRecycled());
+
+        // taken by another holder, the stale reference is the same object, which the check can't catch.
+        PooledObject reused = recycler.get();
+        Assert.assertSame(stale, reused);
+        Assert.assertFalse(stale.handle.isRecycled());
+    }
+
+    private static class PooledObject {
+        private final Recycler.Handle<PooledObject> handle;
+
+        private PooledObject(Recycler.Handle<PooledObject> handle) {
+            this.handle = handle;
+        }
+
+        private void release() {
+            handle.recycle(this);
+        }
+    }
+}
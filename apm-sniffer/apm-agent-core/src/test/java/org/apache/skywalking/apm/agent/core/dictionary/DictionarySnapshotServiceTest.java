@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.dictionary;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.util.StringUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DictionarySnapshotServiceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Config.Agent.APPLICATION_CODE = "snapshot-app";
+        Config.Collector.SERVERS = "127.0.0.1:10800";
+    }
+
+    @After
+    public void tearDown() {
+        Config.Agent.APPLICATION_CODE = "";
+        Config.Collector.SERVERS = "";
+    }
+
+    @Test
+    public void testLoadAndSave() throws IOException {
+        File file = folder.newFile("dictionary.snapshot");
+        writeSnapshot(file, Config.Agent.APPLICATION_CODE, "/snapshot/loaded", "10.0.0.1:8080");
+
+        DictionarySnapshotService.load(file);
+        assertThat(findOperationId("/snapshot/loaded"), is((Object)101));
+        assertThat(findAddressId("10.0.0.1:8080"), is((Object)201));
+
+        File saved = new File(folder.getRoot(), "saved/dictionary.snapshot");
+        DictionarySnapshotService.save(saved);
+        assertThat(saved.exists(), is(true));
+        assertThat(new File(saved.getPath() + ".tmp").exists(), is(false));
+    }
+
+    @Test
+    public void testSaveNameOverWriteUTFLimit() throws IOException {
+        StringBuilder operationName = new StringBuilder("/snapshot/long");
+        while (operationName.length() < 70000) {
+            operationName.append("/segment");
+        }
+        File file = folder.newFile("dictionary.snapshot");
+        writeSnapshot(file, Config.Agent.APPLICATION_CODE, operationName.toString(), "10.0.0.3:8080");
+
+        DictionarySnapshotService.load(file);
+        assertThat(findOperationId(operationName.toString()), is((Object)101));
+
+        File saved = new File(folder.getRoot(), "saved/dictionary.snapshot");
+        DictionarySnapshotService.save(saved);
+        assertThat(saved.length() > 70000, is(true));
+    }
+
+    @Test
+    public void testIgnoreSnapshotOfOtherApplication() throws IOException {
+        File file = folder.newFile("dictionary.snapshot");
+        writeSnapshot(file, "other-app", "/snapshot/ignored", "10.0.0.2:8080");
+
+        DictionarySnapshotService.load(file);
+        assertThat(findOperationId("/snapshot/ignored"), nullValue());
+        assertThat(findAddressId("10.0.0.2:8080"), nullValue());
+    }
+
+    private void writeSnapshot(File file, String applicationCode, String operationName,
+        String networkAddress) throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(0x534b4459);
+            out.writeInt(2);
+            StringUtil.writeUTF8(out, applicationCode);
+            StringUtil.writeUTF8(out, Config.Collector.SERVERS);
+            out.writeInt(1);
+            out.writeInt(1);
+            StringUtil.writeUTF8(out, operationName);
+            out.writeBoolean(true);
+            out.writeBoolean(false);
+            out.writeInt(101);
+            out.writeInt(1);
+            StringUtil.writeUTF8(out, networkAddress);
+            out.writeInt(201);
+        } finally {
+            out.close();
+        }
+    }
+
+    private Object findOperationId(String operationName) {
+        return OperationNameDictionary.INSTANCE.findOnly(1, operationName, true, false)
+            .doInCondition(new FoundId(), new NotFoundId());
+    }
+
+    private Object findAddressId(String networkAddress) {
+        return NetworkAddressDictionary.INSTANCE.find(networkAddress)
+            .doInCondition(new FoundId(), new NotFoundId());
+    }
+
+    private static class FoundId implements PossibleFound.FoundAndObtain {
+        @Override public Object doProcess(int value) {
+            return value;
+        }
+    }
+
+    private static class NotFoundId implements PossibleFound.NotFoundAndObtain {
+        @Override public Object doProcess() {
+            return null;
+        }
+    }
+}
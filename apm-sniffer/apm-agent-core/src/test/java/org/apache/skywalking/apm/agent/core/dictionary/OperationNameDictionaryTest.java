@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.dictionary;
+
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcServerRule;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.network.proto.ServiceNameCollection;
+import org.apache.skywalking.apm.network.proto.ServiceNameDiscoveryServiceGrpc;
+import org.apache.skywalking.apm.network.proto.ServiceNameElement;
+import org.apache.skywalking.apm.network.proto.ServiceNameMappingCollection;
+import org.apache.skywalking.apm.network.proto.ServiceNameMappingElement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OperationNameDictionaryTest {
+    @Rule
+    public GrpcServerRule grpcServerRule = new GrpcServerRule().directExecutor();
+
+    private final Map<String, Integer> registeredIds = new HashMap<String, Integer>();
+    private final List<Integer> requestSizes = new ArrayList<Integer>();
+    private ServiceNameDiscoveryServiceGrpc.ServiceNameDiscoveryServiceBlockingStub discoveryStub;
+
+    @Before
+    public void setUp() {
+        grpcServerRule.getServiceRegistry().addService(new ServiceNameDiscoveryServiceGrpc.ServiceNameDiscoveryServiceImplBase() {
+            @Override
+            public void discovery(ServiceNameCollection request,
+                StreamObserver<ServiceNameMappingCollection> responseObserver) {
+                requestSizes.add(request.getElementsCount());
+                ServiceNameMappingCollection.Builder builder = ServiceNameMappingCollection.newBuilder();
+                for (ServiceNameElement element : request.getElementsList()) {
+                    String name = element.getApplicationId() + "_" + element.getServiceName()
+                        + "_" + element.getSrcSpanType();
+                    Integer id = registeredIds.get(name);
+                    if (id == null) {
+                        id = registeredIds.size() + 1;
+                        registeredIds.put(name, id);
+                    }
+                    builder.addElements(ServiceNameMappingElement.newBuilder().setElement(element).setServiceId(id));
+                }
+                responseObserver.onNext(builder.build());
+                responseObserver.onCompleted();
+            }
+        });
+        discoveryStub = ServiceNameDiscoveryServiceGrpc.newBlockingStub(grpcServerRule.getChannel());
+
+        /**
+         * Register the names left by the other tests, the dictionary is shared.
+         */
+        OperationNameDictionary.INSTANCE.syncRemoteDictionary(discoveryStub);
+        requestSizes.clear();
+    }
+
+    @After
+    public void tearDown() {
+        Config.Dictionary.OPERATION_NAME_BUFFER_SIZE = 10 * 10000;
+        Config.Dictionary.OPERATION_NAME_BUDGET_PER_APPLICATION = 5000;
+        Config.Dictionary.OPERATION_NAME_REGISTER_BATCH_SIZE = 1000;
+    }
+
+    @Test
+    public void testRegisterInBatches() {
+        Config.Dictionary.OPERATION_NAME_REGISTER_BATCH_SIZE = 2;
+        for (int i = 0; i < 5; i++) {
+            OperationNameDictionary.INSTANCE.findOrPrepare4Register(101, "/batch/" + i, true, false);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            OperationNameDictionary.INSTANCE.syncRemoteDictionary(discoveryStub);
+        }
+        assertThat(requestSizes.toString(), is("[2, 2, 1]"));
+        for (int i = 0; i < 5; i++) {
+            assertThat(find(101, "/batch/" + i), is((Object)registeredIds.get("101_/batch/" + i + "_Entry")));
+        }
+    }
+
+    @Test
+    public void testCollapseNamesBeyondBudget() {
+        Config.Dictionary.OPERATION_NAME_BUDGET_PER_APPLICATION = 2;
+        OperationNameDictionary.INSTANCE.findOrPrepare4Register(102, "/budget/0", true, false);
+        OperationNameDictionary.INSTANCE.findOrPrepare4Register(102, "/budget/1", true, false);
+        OperationNameDictionary.INSTANCE.findOrPrepare4Register(102, "/budget/2", true, false);
+        OperationNameDictionary.INSTANCE.syncRemoteDictionary(discoveryStub);
+
+        assertThat(requestSizes.toString(), is("[3]"));
+        assertThat(find(102, "/budget/2"), nullValue());
+        Object fallbackId = registeredIds.get("102_" + Config.Dictionary.OPERATION_NAME_FALLBACK + "_Entry");
+        assertThat(OperationNameDictionary.INSTANCE.findOrPrepare4Register(102, "/budget/2", true, false)
+            .doInCondition(new FoundId(), new NotFoundId()), is(fallbackId));
+        assertThat(OperationNameDictionary.INSTANCE.findOrPrepare4Register(102, "/budget/3", true, false)
+            .doInCondition(new FoundId(), new NotFoundId()), is(fallbackId));
+        assertThat(find(102, "/budget/1"), is((Object)registeredIds.get("102_/budget/1_Entry")));
+    }
+
+    @Test
+    public void testAcceptNewNameAfterUnusedNamesAgeOut() {
+        Config.Dictionary.OPERATION_NAME_BUDGET_PER_APPLICATION = 3;
+        for (int i = 0; i < 3; i++) {
+            OperationNameDictionary.INSTANCE.findOrPrepare4Register(104, "/age/" + i, true, false);
+        }
+        OperationNameDictionary.INSTANCE.syncRemoteDictionary(discoveryStub);
+
+        OperationNameDictionary.INSTANCE.findOrPrepare4Register(104, "/age/3", true, false);
+        OperationNameDictionary.INSTANCE.syncRemoteDictionary(discoveryStub);
+        Object fallbackId = registeredIds.get("104_" + Config.Dictionary.OPERATION_NAME_FALLBACK + "_Entry");
+
+        assertThat(find(104, "/age/0"), is((Object)registeredIds.get("104_/age/0_Entry")));
+        assertThat(OperationNameDictionary.INSTANCE.findOrPrepare4Register(104, "/age/3", true, false)
+            .doInCondition(new FoundId(), new NotFoundId()), is(fallbackId));
+        OperationNameDictionary.INSTANCE.syncRemoteDictionary(discoveryStub);
+
+        assertThat(find(104, "/age/1"), nullValue());
+        assertThat(find(104, "/age/2"), nullValue());
+        assertThat(OperationNameDictionary.INSTANCE.findOrPrepare4Register(104, "/age/3", true, false)
+            .doInCondition(new FoundId(), new NotFoundId()), nullValue());
+        OperationNameDictionary.INSTANCE.syncRemoteDictionary(discoveryStub);
+
+        assertThat(find(104, "/age/3"), is((Object)registeredIds.get("104_/age/3_Entry")));
+        assertThat(find(104, "/age/0"), is((Object)registeredIds.get("104_/age/0_Entry")));
+    }
+
+    @Test
+    public void testEvictBeyondBufferSize() {
+        for (int i = 0; i < 10; i++) {
+            OperationNameDictionary.INSTANCE.findOrPrepare4Register(103, "/evict/" + i, true, false);
+        }
+        Config.Dictionary.OPERATION_NAME_BUFFER_SIZE = 4;
+        OperationNameDictionary.INSTANCE.syncRemoteDictionary(discoveryStub);
+
+        int found = 0;
+        for (int i = 0; i < 10; i++) {
+            if (find(103, "/evict/" + i) != null) {
+                found++;
+            }
+        }
+        assertThat(found <= 4, is(true));
+    }
+
+    private Object find(int applicationId, String operationName) {
+        return OperationNameDictionary.INSTANCE.findOnly(applicationId, operationName, true, false)
+            .doInCondition(new FoundId(), new NotFoundId());
+    }
+
+    private static class FoundId implements PossibleFound.FoundAndObtain {
+        @Override public Object doProcess(int value) {
+            return value;
+        }
+    }
+
+    private static class NotFoundId implements PossibleFound.NotFoundAndObtain {
+        @Override public Object doProcess() {
+            return null;
+        }
+    }
+}
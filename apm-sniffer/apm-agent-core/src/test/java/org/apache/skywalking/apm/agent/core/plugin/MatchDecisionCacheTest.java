@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.instrument.ClassFileTransformer;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MatchDecisionCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+    private RecordingTransformer transformer;
+
+    @Before
+    public void setUp() {
+        dir = folder.getRoot();
+    }
+
+    @Test
+    public void testSkipKnownUnmatchedClass() throws Exception {
+        MatchDecisionCache cache = new MatchDecisionCache(dir, 1L);
+        ClassFileTransformer wrapped = wrap(cache);
+        wrapped.transform(null, "a/Ignored", null, null, new byte[] {1, 2});
+        wrapped.transform(null, "a/Enhanced", null, null, new byte[] {3, 4});
+        Assert.assertEquals(2, transformer.calls);
+        cache.save(true);
+
+        MatchDecisionCache reloaded = new MatchDecisionCache(dir, 1L);
+        wrapped = wrap(reloaded);
+        Assert.assertNull(wrapped.transform(null, "a/Ignored", null, null, new byte[] {1, 2}));
+        Assert.assertEquals(0, transformer.calls);
+        Assert.assertEquals(1, reloaded.skippedCount());
+
+        wrapped.transform(null, "a/Enhanced", null, null, new byte[] {3, 4});
+        wrapped.transform(null, "a/Ignored", null, null, new byte[] {1, 2, 3});
+        Assert.assertEquals(2, transformer.calls);
+    }
+
+    @Test
+    public void testVersionByJar() throws Exception {
+        File jar = folder.newFile("classes.jar");
+        FileOutputStream out = new FileOutputStream(jar);
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+        ProtectionDomain domain = new ProtectionDomain(new CodeSource(jar.toURI().toURL(), (Certificate[])null), null);
+
+        MatchDecisionCache cache = new MatchDecisionCache(dir, 1L);
+        wrap(cache).transform(null, "a/Ignored", null, domain, new byte[] {1, 2});
+        cache.save(true);
+
+        MatchDecisionCache reloaded = new MatchDecisionCache(dir, 1L);
+        Assert.assertNull(wrap(reloaded).transform(null, "a/Ignored", null, domain, new byte[] {5, 6}));
+        Assert.assertEquals(0, transformer.calls);
+
+        Assert.assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+        MatchDecisionCache changed = new MatchDecisionCache(dir, 1L);
+        wrap(changed).transform(null, "a/Ignored", null, domain, new byte[] {1, 2});
+        Assert.assertEquals(1, transformer.calls);
+    }
+
+    @Test
+    public void testDropWhenFingerprintChanged() throws Exception {
+        MatchDecisionCache cache = new MatchDecisionCache(dir, 1L);
+        wrap(cache).transform(null, "a/Ignored", null, null, new byte[] {1, 2});
+        cache.save(false);
+
+        MatchDecisionCache changed = new MatchDecisionCache(dir, 2L);
+        wrap(changed).transform(null, "a/Ignored", null, null, new byte[] {1, 2});
+        Assert.assertEquals(1, transformer.calls);
+        Assert.assertEquals(0, changed.skippedCount());
+    }
+
+    @Test
+    public void testDropUnusedAtShutdown() throws Exception {
+        MatchDecisionCache cache = new MatchDecisionCache(dir, 1L);
+        wrap(cache).transform(null, "a/Ignored", null, null, new byte[] {1, 2});
+        cache.save(false);
+
+        MatchDecisionCache unused = new MatchDecisionCache(dir, 1L);
+        unused.save(true);
+
+        MatchDecisionCache reloaded = new MatchDecisionCache(dir, 1L);
+        wrap(reloaded).transform(null, "a/Ignored", null, null, new byte[] {1, 2});
+        Assert.assertEquals(1, transformer.calls);
+    }
+
+    @Test
+    public void testNotCacheUncacheable() throws Exception {
+        MatchDecisionCache cache = new MatchDecisionCache(dir, 1L);
+        wrap(cache).transform(null, "a/IgnoredUncacheable", null, null, new byte[] {1, 2});
+        wrap(cache).transform(null, "a/Ignored", null, null, new byte[] {3, 4});
+        cache.save(true);
+
+        MatchDecisionCache reloaded = new MatchDecisionCache(dir, 1L);
+        ClassFileTransformer wrapped = wrap(reloaded);
+        wrapped.transform(null, "a/IgnoredUncacheable", null, null, new byte[] {1, 2});
+        wrapped.transform(null, "a/Ignored", null, null, new byte[] {3, 4});
+        Assert.assertEquals(1, transformer.calls);
+        Assert.assertEquals(1, reloaded.skippedCount());
+    }
+
+    private ClassFileTransformer wrap(MatchDecisionCache cache) {
+        transformer = new RecordingTransformer(cache);
+        return cache.wrap(transformer);
+    }
+
+    /**
+     * Enhance the class named Enhanced, like the agent builder calls back the listener. The decision of the class named
+     * Uncacheable depends on the other classes, like the finder does for the super types.
+     */
+    private static class RecordingTransformer implements ClassFileTransformer {
+        private final MatchDecisionCache cache;
+        private int calls;
+
+        private RecordingTransformer(MatchDecisionCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+            calls++;
+            if (className.endsWith("Enhanced")) {
+                cache.onTransformed(className);
+                return classfileBuffer;
+            }
+            if (className.endsWith("Uncacheable")) {
+                cache.markUncacheable();
+            }
+            cache.onIgnored(className);
+            return null;
+        }
+    }
+}
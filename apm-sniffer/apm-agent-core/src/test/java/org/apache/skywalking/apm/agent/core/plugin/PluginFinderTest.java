@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import org.apache.skywalking.apm.agent.core.plugin.match.ClassAnnotationMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.ClassMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.HierarchyMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.MultiClassNameMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.NameMatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PluginFinderTest {
+    private final MockPluginDefine byName = new MockPluginDefine(NameMatch.byName(ArrayList.class.getName()));
+    private final MockPluginDefine byHierarchy = new MockPluginDefine(
+        HierarchyMatch.byHierarchyMatch(new String[] {List.class.getName(), Serializable.class.getName()}));
+    private final MockPluginDefine byAnnotation = new MockPluginDefine(
+        ClassAnnotationMatch.byClassAnnotationMatch(new String[] {Deprecated.class.getName()}));
+    private final MockPluginDefine byNames = new MockPluginDefine(
+        MultiClassNameMatch.byMultiClassMatch(ArrayList.class.getName(), String.class.getName()));
+
+    private final PluginFinder finder = new PluginFinder(
+        Arrays.<AbstractClassEnhancePluginDefine>asList(byHierarchy, byNames, byAnnotation, byName));
+
+    @Test
+    public void testFindByIndex() {
+        Assert.assertEquals(Arrays.asList(byName, byHierarchy, byNames),
+            finder.find(new TypeDescription.ForLoadedType(ArrayList.class), null));
+        Assert.assertTrue(finder.find(new TypeDescription.ForLoadedType(AbstractList.class), null).isEmpty());
+        Assert.assertEquals(Arrays.asList(byNames),
+            finder.find(new TypeDescription.ForLoadedType(String.class), null));
+        Assert.assertEquals(Arrays.asList(byAnnotation),
+            finder.find(new TypeDescription.ForLoadedType(DeprecatedType.class), null));
+        Assert.assertTrue(finder.find(new TypeDescription.ForLoadedType(Object.class), null).isEmpty());
+    }
+
+    @Test
+    public void testFindByMemoizedJavaSuperTypes() {
+        Assert.assertEquals(Arrays.asList(byName, byHierarchy, byNames),
+            finder.find(new TypeDescription.ForLoadedType(ArrayList.class), null));
+        Assert.assertEquals(Arrays.asList(byHierarchy),
+            finder.find(new TypeDescription.ForLoadedType(CustomList.class), null));
+    }
+
+    @Test
+    public void testMatchSkipInterfaces() {
+        Assert.assertTrue(finder.buildMatch().matches(new TypeDescription.ForLoadedType(ArrayList.class)));
+        Assert.assertFalse(finder.buildMatch().matches(new TypeDescription.ForLoadedType(List.class)));
+        Assert.assertFalse(finder.buildMatch().matches(new TypeDescription.ForLoadedType(Object.class)));
+    }
+
+    @Deprecated
+    private static class DeprecatedType {
+    }
+
+    private static class CustomList extends ArrayList<Object> {
+    }
+
+    private static class MockPluginDefine extends AbstractClassEnhancePluginDefine {
+        private final ClassMatch match;
+
+        private MockPluginDefine(ClassMatch match) {
+            this.match = match;
+        }
+
+        @Override
+        protected DynamicType.Builder<?> enhance(String enhanceOriginClassName, DynamicType.Builder<?> newClassBuilder,
+            ClassLoader classLoader, EnhanceContext context) {
+            return newClassBuilder;
+        }
+
+        @Override
+        protected ClassMatch enhanceClass() {
+            return match;
+        }
+    }
+}
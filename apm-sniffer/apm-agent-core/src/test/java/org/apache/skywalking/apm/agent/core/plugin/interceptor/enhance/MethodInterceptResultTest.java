@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MethodInterceptResultTest {
+    @Test
+    public void testReuseAfterRelease() {
+        MethodInterceptResult result = MethodInterceptResult.acquire();
+        result.defineReturnValue("defined");
+        Assert.assertFalse(result.isContinue());
+        Assert.assertEquals("defined", result._ret());
+        result.release();
+
+        MethodInterceptResult reused = MethodInterceptResult.acquire();
+        Assert.assertSame(result, reused);
+        Assert.assertTrue(reused.isContinue());
+        Assert.assertNull(reused._ret());
+        reused.release();
+    }
+
+    @Test
+    public void testNewInNestedInterception() {
+        MethodInterceptResult outer = MethodInterceptResult.acquire();
+        outer.defineReturnValue("outer");
+
+        MethodInterceptResult nested = MethodInterceptResult.acquire();
+        Assert.assertNotSame(outer, nested);
+        Assert.assertTrue(nested.isContinue());
+        nested.release();
+
+        Assert.assertFalse(outer.isContinue());
+        Assert.assertEquals("outer", outer._ret());
+        outer.release();
+        Assert.assertSame(outer, MethodInterceptResult.acquire());
+        outer.release();
+    }
+
+    @Test
+    public void testCacheFirstMethodParameterTypes() throws NoSuchMethodException {
+        Method indexOf = String.class.getMethod("indexOf", String.class, int.class);
+        Method substring = String.class.getMethod("substring", int.class);
+        ParameterTypesCache cache = new ParameterTypesCache();
+
+        Class<?>[] parameterTypes = cache.of(indexOf);
+        Assert.assertArrayEquals(new Class<?>[] {String.class, int.class}, parameterTypes);
+        Assert.assertSame(parameterTypes, cache.of(indexOf));
+        Assert.assertArrayEquals(new Class<?>[] {int.class}, cache.of(substring));
+        Assert.assertSame(parameterTypes, cache.of(indexOf));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDefineAfterReleased() {
+        MethodInterceptResult result = MethodInterceptResult.acquire();
+        result.release();
+        result.defineReturnValue("stale");
+    }
+
+    @Test
+    public void testDefineNewResultWithoutAcquired() {
+        MethodInterceptResult result = new MethodInterceptResult();
+        result.defineReturnValue("defined");
+        Assert.assertFalse(result.isContinue());
+    }
+
+    @Test
+    public void testParameterTypesNeverMutated() throws Throwable {
+        Method indexOf = String.class.getMethod("indexOf", String.class, int.class);
+        final List<Class<?>[]> passed = new ArrayList<Class<?>[]>();
+        InstMethodsInter inter = new InstMethodsInter(new InstanceMethodsAroundInterceptor() {
+            @Override
+            public void beforeMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                Class<?>[] argumentsTypes, MethodInterceptResult result) {
+                passed.add(argumentsTypes);
+            }
+
+            @Override
+            public Object afterMethod(EnhancedInstance objInst, Method method, Object[] allArguments,
+                Class<?>[] argumentsTypes, Object ret) {
+                passed.add(argumentsTypes);
+                return ret;
+            }
+
+            @Override
+            public void handleMethodException(EnhancedInstance objInst, Method method, Object[] allArguments,
+                Class<?>[] argumentsTypes, Throwable t) {
+            }
+        });
+        EnhancedInstance instance = new EnhancedInstance() {
+            @Override
+            public Object getSkyWalkingDynamicField() {
+                return null;
+            }
+
+            @Override
+            public void setSkyWalkingDynamicField(Object value) {
+            }
+        };
+        Callable<Integer> zuper = new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 0;
+            }
+        };
+
+        for (int i = 0; i < 3; i++) {
+            inter.intercept(instance, new Object[] {"a", i}, zuper, indexOf);
+        }
+
+        Assert.assertEquals(6, passed.size());
+        for (Class<?>[] argumentsTypes : passed) {
+            Assert.assertSame(passed.get(0), argumentsTypes);
+            Assert.assertArrayEquals(indexOf.getParameterTypes(), argumentsTypes);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.loader;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class InterceptorInstanceLoaderTest {
+    private static final String INTERCEPTOR = MockInterceptor.class.getName();
+
+    @Test
+    public void testSingletonPerClassLoader() throws Exception {
+        ClassLoader first = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        ClassLoader second = new URLClassLoader(new URL[0], getClass().getClassLoader());
+
+        Object interceptor = InterceptorInstanceLoader.load(INTERCEPTOR, first);
+        assertThat(InterceptorInstanceLoader.load(INTERCEPTOR, first), sameInstance(interceptor));
+        assertThat(InterceptorInstanceLoader.load(INTERCEPTOR, second), not(sameInstance(interceptor)));
+    }
+
+    @Test
+    public void testReleaseCollectedClassLoader() throws Exception {
+        ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        InterceptorInstanceLoader.load(INTERCEPTOR, classLoader);
+        WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>(classLoader);
+        classLoader = null;
+
+        for (int i = 0; i < 10 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(reference.get(), nullValue());
+        for (int i = 0; i < 10 && InterceptorInstanceLoader.cachedLoaderCount() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(InterceptorInstanceLoader.cachedLoaderCount(), is(0));
+    }
+
+    public static class MockInterceptor {
+    }
+}
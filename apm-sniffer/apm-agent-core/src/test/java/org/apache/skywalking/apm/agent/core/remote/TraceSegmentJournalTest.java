@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TraceSegmentJournalTest {
+    private File dir;
+
+    @Before
+    public void setUp() {
+        dir = new File(System.getProperty("java.io.tmpdir"), "segment-journal-test-" + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testReadAfterCommit() throws IOException {
+        TraceSegmentJournal journal = new TraceSegmentJournal(dir, 1024 * 1024, 1024, 60 * 1000);
+        for (int i = 0; i < 5; i++) {
+            journal.append(segment(i, 10));
+        }
+
+        List<byte[]> segments = journal.read(3);
+        Assert.assertEquals(3, segments.size());
+        Assert.assertEquals(0, segments.get(0)[0]);
+        Assert.assertEquals(3, journal.read(3).size());
+
+        journal.commit();
+        segments = journal.read(3);
+        Assert.assertEquals(2, segments.size());
+        Assert.assertEquals(3, segments.get(0)[0]);
+        journal.commit();
+
+        Assert.assertTrue(journal.read(3).isEmpty());
+        Assert.assertTrue(journal.isEmpty());
+        Assert.assertEquals(0, journal.size());
+    }
+
+    @Test
+    public void testEvictBySize() throws IOException {
+        TraceSegmentJournal journal = new TraceSegmentJournal(dir, 200, 50, 60 * 1000);
+        for (int i = 0; i < 10; i++) {
+            journal.append(segment(i, 46));
+        }
+        Assert.assertTrue(journal.size() <= 200);
+
+        List<byte[]> segments = journal.read(10);
+        Assert.assertEquals(1, segments.size());
+        Assert.assertEquals(6, segments.get(0)[0]);
+    }
+
+    @Test
+    public void testReloadFiles() throws IOException {
+        TraceSegmentJournal journal = new TraceSegmentJournal(dir, 1024 * 1024, 1024, 60 * 1000);
+        journal.append(segment(1, 10));
+        journal.append(segment(2, 10));
+        journal.close();
+
+        journal = new TraceSegmentJournal(dir, 1024 * 1024, 1024, 60 * 1000);
+        Assert.assertEquals(28, journal.size());
+        List<byte[]> segments = journal.read(10);
+        Assert.assertEquals(2, segments.size());
+        Assert.assertEquals(2, segments.get(1)[0]);
+    }
+
+    private byte[] segment(int id, int length) {
+        byte[] segment = new byte[length];
+        segment[0] = (byte)id;
+        return segment;
+    }
+}
@@ -20,12 +20,16 @@
 package org.apache.skywalking.apm.agent.core.remote;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import io.grpc.testing.GrpcServerRule;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.conf.RemoteDownstreamConfig;
 import org.apache.skywalking.apm.agent.core.context.tag.Tags;
 import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
@@ -48,6 +52,7 @@ import org.apache.skywalking.apm.network.proto.UpstreamSegment;
 import org.apache.skywalking.apm.network.trace.component.ComponentsDefine;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.spy;
 
@@ -137,6 +142,134 @@ public class TraceSegmentServiceClientTest {
         assertThat(spanObject.getParentSpanId(), is(-1));
     }
 
+    @Test
+    public void testAcknowledgeAfterStreamRotated() {
+        grpcServerRule.getServiceRegistry().addService(serviceImplBase);
+
+        AbstractSpan firstEntrySpan = ContextManager.createEntrySpan("/testFirstEntry", null);
+        SpanLayer.asHttp(firstEntrySpan);
+        ContextManager.stopSpan();
+
+        int maxSegments = Config.Collector.UPLOAD_STREAM_MAX_SEGMENTS;
+        Config.Collector.UPLOAD_STREAM_MAX_SEGMENTS = 1;
+        try {
+            serviceClient.consume(storage.getTraceSegments());
+        } finally {
+            Config.Collector.UPLOAD_STREAM_MAX_SEGMENTS = maxSegments;
+        }
+
+        assertThat(upstreamSegments.size(), is(1));
+        AtomicLong uplinked = Whitebox.getInternalState(serviceClient, "segmentUplinkedCounter");
+        assertThat(uplinked.get(), is(1L));
+        assertThat(Whitebox.getInternalState(serviceClient, "uploadStream"), nullValue());
+    }
+
+    @Test
+    public void testRotateFullStreamInBatch() {
+        grpcServerRule.getServiceRegistry().addService(serviceImplBase);
+
+        for (int i = 0; i < 3; i++) {
+            AbstractSpan entrySpan = ContextManager.createEntrySpan("/testRotate" + i, null);
+            SpanLayer.asHttp(entrySpan);
+            ContextManager.stopSpan();
+        }
+
+        long maxBytes = Config.Collector.UPLOAD_STREAM_MAX_BYTES;
+        Config.Collector.UPLOAD_STREAM_MAX_BYTES = 1;
+        try {
+            serviceClient.consume(storage.getTraceSegments());
+        } finally {
+            Config.Collector.UPLOAD_STREAM_MAX_BYTES = maxBytes;
+        }
+
+        assertThat(upstreamSegments.size(), is(3));
+        AtomicLong uplinked = Whitebox.getInternalState(serviceClient, "segmentUplinkedCounter");
+        assertThat(uplinked.get(), is(3L));
+        assertThat(Whitebox.getInternalState(serviceClient, "uploadStream"), nullValue());
+    }
+
+    @Test
+    public void testJournalUnacknowledgedSegments() throws Exception {
+        grpcServerRule.getServiceRegistry().addService(new TraceSegmentServiceGrpc.TraceSegmentServiceImplBase() {
+            @Override
+            public StreamObserver<UpstreamSegment> collect(final StreamObserver<Downstream> responseObserver) {
+                return new StreamObserver<UpstreamSegment>() {
+                    @Override
+                    public void onNext(UpstreamSegment value) {
+                        responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                };
+            }
+        });
+        File dir = new File(System.getProperty("java.io.tmpdir"), "segment-journal-test-" + System.nanoTime());
+        TraceSegmentJournal journal = new TraceSegmentJournal(dir, 1024 * 1024, 1024 * 1024, 60 * 1000);
+        Whitebox.setInternalState(serviceClient, "journal", journal);
+        try {
+            AbstractSpan firstEntrySpan = ContextManager.createEntrySpan("/testFirstEntry", null);
+            SpanLayer.asHttp(firstEntrySpan);
+            ContextManager.stopSpan();
+            serviceClient.consume(storage.getTraceSegments());
+
+            for (int i = 0; i < 100 && journal.size() == 0; i++) {
+                Whitebox.invokeMethod(serviceClient, "journalQueued", Whitebox.getInternalState(serviceClient, "outputBuffer"));
+                Thread.sleep(10);
+            }
+            journal.flush();
+            List<byte[]> segments = journal.read(10);
+            assertThat(segments.size(), is(1));
+            assertThat(UpstreamSegment.parseFrom(segments.get(0)).getGlobalTraceIdsCount(), is(1));
+            AtomicLong abandoned = Whitebox.getInternalState(serviceClient, "segmentAbandonedCounter");
+            assertThat(abandoned.get(), is(0L));
+        } finally {
+            Whitebox.setInternalState(serviceClient, "journal", (Object)null);
+            journal.close();
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testDrainJournalThroughUploadStream() throws Exception {
+        grpcServerRule.getServiceRegistry().addService(serviceImplBase);
+        File dir = new File(System.getProperty("java.io.tmpdir"), "segment-journal-test-" + System.nanoTime());
+        TraceSegmentJournal journal = new TraceSegmentJournal(dir, 1024 * 1024, 1024 * 1024, 60 * 1000);
+        Whitebox.setInternalState(serviceClient, "journal", journal);
+        try {
+            journal.append(UpstreamSegment.newBuilder().build().toByteArray());
+            journal.append(UpstreamSegment.newBuilder().build().toByteArray());
+            journal.flush();
+
+            Whitebox.invokeMethod(serviceClient, "drainJournal");
+
+            assertThat(upstreamSegments.size(), is(2));
+            assertThat(Whitebox.getInternalState(serviceClient, "uploadStream"), nullValue());
+            assertThat(journal.read(10).size(), is(0));
+        } finally {
+            Whitebox.setInternalState(serviceClient, "journal", (Object)null);
+            journal.close();
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
     @Test
     public void testSendTraceSegmentWithException() throws InvalidProtocolBufferException {
         grpcServerRule.getServiceRegistry().addService(serviceImplBase);
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.sampling;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveSamplerTest {
+    @Test
+    public void testTotalLimit() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10);
+        Assert.assertEquals(10, sample(sampler, 1, 100));
+        Assert.assertEquals(0, sample(sampler, 2, 100));
+    }
+
+    @Test
+    public void testRareOperationKeepsSampled() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10);
+        sample(sampler, 1, 1000);
+        sample(sampler, 2, 2);
+        sampler.resetWindow();
+
+        Assert.assertEquals(5, sampler.quotaOf(2));
+        Assert.assertEquals(8, sampler.quotaOf(1));
+        Assert.assertEquals(8, sample(sampler, 1, 1000));
+        Assert.assertEquals(2, sample(sampler, 2, 2));
+    }
+
+    @Test
+    public void testForceSampled() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10);
+        for (int i = 0; i < 8; i++) {
+            sampler.forceSampled();
+        }
+        Assert.assertEquals(2, sample(sampler, 1, 100));
+
+        sampler.resetWindow();
+        Assert.assertEquals(10, sample(sampler, 1, 100));
+    }
+
+    @Test
+    public void testIdleOperationRemoved() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10);
+        sample(sampler, 1, 1);
+        sampler.resetWindow();
+        Assert.assertEquals(10, sampler.quotaOf(1));
+        sampler.resetWindow();
+        Assert.assertEquals(-1, sampler.quotaOf(1));
+    }
+
+    @Test
+    public void testUnregisteredNamesKeyedByName() {
+        AdaptiveSampler sampler = new AdaptiveSampler(10);
+        int first = AdaptiveSampler.keyOf("/first");
+        int second = AdaptiveSampler.keyOf("/second");
+        Assert.assertTrue(first < 0 && second < 0);
+        sample(sampler, first, 1000);
+        sample(sampler, second, 2);
+        sampler.resetWindow();
+
+        Assert.assertEquals(5, sampler.quotaOf(second));
+        Assert.assertEquals(8, sampler.quotaOf(first));
+    }
+
+    @Test
+    public void testOperationsBeyondMaxShareOverflowQuota() {
+        AdaptiveSampler sampler = new AdaptiveSampler(AdaptiveSampler.MAX_OPERATIONS * 2);
+        for (int i = 1; i <= AdaptiveSampler.MAX_OPERATIONS + 10; i++) {
+            sample(sampler, i, 1);
+        }
+        sampler.resetWindow();
+
+        Assert.assertEquals(-1, sampler.quotaOf(AdaptiveSampler.MAX_OPERATIONS + 1));
+        Assert.assertTrue(sampler.quotaOf(AdaptiveSampler.OVERFLOW_KEY) > 0);
+        Assert.assertTrue(sampler.quotaOf(1) > 0);
+    }
+
+    private int sample(AdaptiveSampler sampler, int operationId, int times) {
+        int sampled = 0;
+        for (int i = 0; i < times; i++) {
+            if (sampler.trySampling(operationId)) {
+                sampled++;
+            }
+        }
+        return sampled;
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.skywalking.apm.agent;
 
+import java.io.File;
 import java.lang.instrument.Instrumentation;
 import java.util.List;
 import net.bytebuddy.agent.builder.AgentBuilder;
@@ -26,14 +27,17 @@ import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.dynamic.DynamicType;
 import net.bytebuddy.utility.JavaModule;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 import org.apache.skywalking.apm.agent.core.plugin.AbstractClassEnhancePluginDefine;
 import org.apache.skywalking.apm.agent.core.plugin.EnhanceContext;
+import org.apache.skywalking.apm.agent.core.plugin.MatchDecisionCache;
 import org.apache.skywalking.apm.agent.core.plugin.PluginBootstrap;
 import org.apache.skywalking.apm.agent.core.plugin.PluginException;
 import org.apache.skywalking.apm.agent.core.plugin.PluginFinder;
 import org.apache.skywalking.apm.agent.core.conf.SnifferConfigInitializer;
+import org.apache.skywalking.apm.util.StringUtil;
 
 /**
  * The main entrance of sky-waking agent,
@@ -44,6 +48,11 @@ import org.apache.skywalking.apm.agent.core.conf.SnifferConfigInitializer;
 public class SkyWalkingAgent {
     private static final ILog logger = LogManager.getLogger(SkyWalkingAgent.class);
 
+    /**
+     * Seconds between saving {@link MatchDecisionCache}, besides at shutdown.
+     */
+    private static final long MATCH_DECISION_SAVE_PERIOD = 60;
+
     /**
      * Main entrance.
      * Use byte-buddy transform to enhance all classes, which define in plugins.
@@ -54,21 +63,35 @@ public class SkyWalkingAgent {
      */
     public static void premain(String agentArgs, Instrumentation instrumentation) throws PluginException {
         final PluginFinder pluginFinder;
+        MatchDecisionCache matchDecisionCache = null;
         try {
             SnifferConfigInitializer.initialize();
 
-            pluginFinder = new PluginFinder(new PluginBootstrap().loadPlugins());
-
+            List<AbstractClassEnhancePluginDefine> plugins = new PluginBootstrap().loadPlugins();
+            pluginFinder = new PluginFinder(plugins);
+            if (Config.Plugin.MATCH_COST_REPORT_DELAY >= 0) {
+                pluginFinder.reportMatchCost(Config.Plugin.MATCH_COST_REPORT_DELAY);
+            }
+            if (!StringUtil.isEmpty(Config.Plugin.MATCH_DECISION_CACHE_DIR)) {
+                matchDecisionCache = new MatchDecisionCache(new File(Config.Plugin.MATCH_DECISION_CACHE_DIR),
+                    MatchDecisionCache.fingerprint(plugins));
+                pluginFinder.setMatchDecisionCache(matchDecisionCache);
+            }
         } catch (Exception e) {
             logger.error(e, "Skywalking agent initialized failure. Shutting down.");
             return;
         }
 
-        new AgentBuilder.Default()
+        AgentBuilder agentBuilder = new AgentBuilder.Default()
                 .type(pluginFinder.buildMatch())
                 .transform(new Transformer(pluginFinder))
-                .with(new Listener())
-                .installOn(instrumentation);
+                .with(new Listener(matchDecisionCache));
+        if (matchDecisionCache == null) {
+            agentBuilder.installOn(instrumentation);
+        } else {
+            instrumentation.addTransformer(matchDecisionCache.wrap(agentBuilder.makeRaw()));
+            matchDecisionCache.start(MATCH_DECISION_SAVE_PERIOD);
+        }
 
         try {
             ServiceManager.INSTANCE.boot();
@@ -76,9 +99,14 @@ public class SkyWalkingAgent {
             logger.error(e, "Skywalking agent boot failure.");
         }
 
+        final MatchDecisionCache finalMatchDecisionCache = matchDecisionCache;
         Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
             @Override public void run() {
                 ServiceManager.INSTANCE.shutdown();
+                if (finalMatchDecisionCache != null) {
+                    finalMatchDecisionCache.stop();
+                    finalMatchDecisionCache.save(true);
+                }
             }
         }, "skywalking service shutdown thread"));
     }
@@ -115,6 +143,12 @@ public class SkyWalkingAgent {
     }
 
     private static class Listener implements AgentBuilder.Listener {
+        private final MatchDecisionCache matchDecisionCache;
+
+        Listener(MatchDecisionCache matchDecisionCache) {
+            this.matchDecisionCache = matchDecisionCache;
+        }
+
         @Override
         public void onDiscovery(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
 
@@ -128,12 +162,17 @@ public class SkyWalkingAgent {
             }
 
             InstrumentDebuggingClass.INSTANCE.log(typeDescription, dynamicType);
+            if (matchDecisionCache != null) {
+                matchDecisionCache.onTransformed(typeDescription.getInternalName());
+            }
         }
 
         @Override
         public void onIgnored(TypeDescription typeDescription, ClassLoader classLoader, JavaModule module,
                               boolean loaded) {
-
+            if (matchDecisionCache != null) {
+                matchDecisionCache.onIgnored(typeDescription.getInternalName());
+            }
         }
 
         @Override